@@ -0,0 +1,156 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.drt.benchmark;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.DefaultDrtOptimizer;
+import org.matsim.contrib.drt.optimizer.DrtOptimizer;
+import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
+import org.matsim.contrib.drt.optimizer.depot.NearestStartLinkAsDepot;
+import org.matsim.contrib.drt.optimizer.insertion.BatchPathDataProvider;
+import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
+import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
+import org.matsim.contrib.drt.optimizer.rebalancing.NoRebalancingStrategy;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtTaskFactory;
+import org.matsim.contrib.drt.schedule.DrtTaskFactoryImpl;
+import org.matsim.contrib.drt.scheduler.DrtScheduleInquiry;
+import org.matsim.contrib.drt.scheduler.DrtScheduleTimingUpdater;
+import org.matsim.contrib.drt.scheduler.EmptyVehicleRelocator;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.benchmark.OptimizerScalingBenchmark;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.util.CompactCSVWriter;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Measures how {@link DefaultDrtOptimizer} (with the default, the batched and the spatially indexed request insertion)
+ * scales with the fleet size, using {@link OptimizerScalingBenchmark} on a synthetic grid network. The number of
+ * requests is proportional to the fleet size. Rebalancing is switched off.
+ */
+public class RunDrtOptimizerScalingBenchmark {
+	private static final int[] FLEET_SIZES = { 100, 200, 500, 1000, 2000 };
+	private static final int REQUESTS_PER_VEHICLE = 20;
+	private static final int WARMUP_RUNS = 1;
+
+	private static final int VEHICLE_CAPACITY = 4;
+	private static final int GRID_SIZE = 30;// nodes per row/column
+	private static final double CELL_SIZE = 500;// [m]
+	private static final double FREESPEED = 10;// [m/s]
+	private static final double START_TIME = 0;
+	private static final double END_TIME = 6 * 3600;
+	private static final long RANDOM_SEED = 1234;
+
+	public static void run(String outputDir, int[] fleetSizes, int requestsPerVehicle, int warmupRuns) {
+		new File(outputDir).mkdirs();
+
+		int[] requestCounts = new int[fleetSizes.length];
+		for (int i = 0; i < fleetSizes.length; i++) {
+			requestCounts[i] = requestsPerVehicle * fleetSizes[i];
+		}
+
+		Network network = OptimizerScalingBenchmark.createGridNetwork(GRID_SIZE, CELL_SIZE, FREESPEED);
+
+		List<OptimizerScalingBenchmark<DrtOptimizer>> benchmarks = Arrays.asList(//
+				createBenchmark("default", network, drtCfg -> {
+				}),
+				createBenchmark("batched", network, drtCfg -> drtCfg.setBatchedRequestInsertion(true)),
+				createBenchmark("spatial_index", network, drtCfg -> drtCfg.setVehicleSpatialIndex(true)));
+
+		try (CompactCSVWriter writer = new CompactCSVWriter(
+				IOUtils.getBufferedWriter(outputDir + "/" + OptimizerScalingBenchmark.SUMMARY_FILE))) {
+			writer.writeNext(OptimizerScalingBenchmark.SUMMARY_HEADER);
+			for (OptimizerScalingBenchmark<DrtOptimizer> benchmark : benchmarks) {
+				benchmark.run(fleetSizes, requestCounts, warmupRuns, outputDir, writer);
+			}
+		}
+	}
+
+	static DrtConfigGroup createDrtConfig() {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setStopDuration(60);
+		drtCfg.setMaxWaitTime(600);
+		drtCfg.setMaxTravelTimeAlpha(1.5);
+		drtCfg.setMaxTravelTimeBeta(600);
+		drtCfg.setRequestRejection(true);
+		drtCfg.setPrintDetailedWarnings(false);
+		return drtCfg;
+	}
+
+	static OptimizerScalingBenchmark<DrtOptimizer> createBenchmark(String name, Network network,
+			Consumer<DrtConfigGroup> drtCfgAdjuster) {
+		DrtConfigGroup drtCfg = createDrtConfig();
+		drtCfgAdjuster.accept(drtCfg);
+
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new TimeAsTravelDisutility(travelTime);
+
+		return new OptimizerScalingBenchmark<>(name, network,
+				(net, fleet, timer, eventsManager, cleanupListeners) -> {
+					DrtTaskFactory taskFactory = new DrtTaskFactoryImpl();
+					DrtScheduleTimingUpdater scheduleTimingUpdater = new DrtScheduleTimingUpdater(drtCfg, timer);
+					RequestInsertionScheduler insertionScheduler = new RequestInsertionScheduler(drtCfg, fleet, timer,
+							travelTime, scheduleTimingUpdater, taskFactory);
+
+					VehicleDataEntryFactoryImpl entryFactory = new VehicleDataEntryFactoryImpl(drtCfg);
+					ParallelPathDataProvider pathDataProvider = new ParallelPathDataProvider(net, travelTime,
+							travelDisutility, drtCfg);
+					DefaultUnplannedRequestInserter requestInserter = new DefaultUnplannedRequestInserter(drtCfg,
+							fleet, timer, eventsManager, insertionScheduler, entryFactory, pathDataProvider,
+							new BatchPathDataProvider(net, travelTime, travelDisutility, drtCfg),
+							new InsertionCostCalculator.RejectSoftConstraintViolations());
+					cleanupListeners.add(pathDataProvider);
+					cleanupListeners.add(requestInserter);
+					cleanupListeners.add(entryFactory);
+
+					return new DefaultDrtOptimizer(drtCfg, fleet, timer, new NearestStartLinkAsDepot(fleet),
+							new NoRebalancingStrategy(), new DrtScheduleInquiry(timer), scheduleTimingUpdater,
+							new EmptyVehicleRelocator(net, travelTime, travelDisutility, timer, taskFactory),
+							requestInserter);
+				}, (id, passenger, fromLink, toLink, submissionTime) -> {
+					// on the grid, the (Manhattan) distance between the link ends is the shortest path length
+					double directTravelTime = manhattanDistance(fromLink, toLink) / FREESPEED;
+					return new DrtRequest(id, passenger, fromLink, toLink, submissionTime,
+							submissionTime + drtCfg.getMaxWaitTime(),
+							submissionTime + drtCfg.getMaxTravelTimeAlpha() * directTravelTime
+									+ drtCfg.getMaxTravelTimeBeta(), submissionTime);
+				}, drtCfg.getMode(), VEHICLE_CAPACITY, START_TIME, END_TIME, RANDOM_SEED);
+	}
+
+	private static double manhattanDistance(Link fromLink, Link toLink) {
+		double dx = fromLink.getToNode().getCoord().getX() - toLink.getToNode().getCoord().getX();
+		double dy = fromLink.getToNode().getCoord().getY() - toLink.getToNode().getCoord().getY();
+		return Math.abs(dx) + Math.abs(dy);
+	}
+
+	public static void main(String[] args) {
+		String outputDir = args.length > 0 ? args[0] : "./output/drt_optimizer_scaling";
+		run(outputDir, FLEET_SIZES, REQUESTS_PER_VEHICLE, WARMUP_RUNS);
+	}
+}
@@ -30,6 +30,7 @@ import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.contrib.drt.data.DrtRequest;
 import org.matsim.contrib.drt.schedule.DrtStopTask;
 import org.matsim.contrib.dvrp.data.Vehicle;
@@ -106,9 +107,19 @@ public class VehicleData {
 	private final double currentTime;
 	private final EntryFactory entryFactory;
 	private final Map<Id<Vehicle>, Entry> entries;
+	private final VehicleEntryGrid entryGrid;// null if no spatial index
 
 	public VehicleData(double currentTime, Stream<? extends Vehicle> vehicles, EntryFactory entryFactory,
 			ForkJoinPool forkJoinPool) {
+		this(currentTime, vehicles, entryFactory, forkJoinPool, null);
+	}
+
+	/**
+	 * @param entryGrid spatial index of the entries (see {@link #getEntriesWithinReach(Link, double, double, double)});
+	 *                  kept from one VehicleData to the next, and updated with the new entries; null if no index
+	 */
+	public VehicleData(double currentTime, Stream<? extends Vehicle> vehicles, EntryFactory entryFactory,
+			ForkJoinPool forkJoinPool, VehicleEntryGrid entryGrid) {
 		this.currentTime = currentTime;
 		this.entryFactory = entryFactory;
 		try {
@@ -120,6 +131,10 @@ public class VehicleData {
 		} catch (InterruptedException | ExecutionException e) {
 			throw new RuntimeException(e);
 		}
+		this.entryGrid = entryGrid;
+		if (entryGrid != null) {
+			entryGrid.update(entries);
+		}
 	}
 
 	public void updateEntry(Vehicle vehicle) {
@@ -129,6 +144,13 @@ public class VehicleData {
 		} else {
 			entries.remove(vehicle.getId());
 		}
+		if (entryGrid != null) {
+			if (e != null) {
+				entryGrid.update(e);
+			} else {
+				entryGrid.remove(vehicle.getId());
+			}
+		}
 	}
 
 	public int getSize() {
@@ -138,4 +160,19 @@ public class VehicleData {
 	public Collection<Entry> getEntries() {
 		return Collections.unmodifiableCollection(entries.values());
 	}
+
+	/**
+	 * Returns the entries of the vehicles that can reach the link not later than latestArrivalTime, and within
+	 * maxDetourTime, when departing from the start of the entry (at start.time) or from one of the stops (at the end of
+	 * the stop), and driving the beeline distance at beelineSpeed. All other vehicles cannot reach the link in time
+	 * (provided beelineSpeed is an upper bound of the speed). If there is no spatial index, all entries are returned.
+	 */
+	public Collection<Entry> getEntriesWithinReach(Link link, double latestArrivalTime, double maxDetourTime,
+			double beelineSpeed) {
+		return entryGrid == null ?
+				getEntries() :
+				Collections.unmodifiableCollection(
+						entryGrid.getEntriesWithinReach(link, currentTime, latestArrivalTime, maxDetourTime,
+								beelineSpeed));
+	}
 }
@@ -20,9 +20,12 @@ package org.matsim.contrib.drt.optimizer;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
 import org.matsim.contrib.drt.optimizer.VehicleData.EntryFactory;
 import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
@@ -37,15 +40,20 @@ import org.matsim.contrib.dvrp.schedule.Schedule;
 import org.matsim.contrib.dvrp.schedule.Schedule.ScheduleStatus;
 import org.matsim.contrib.dvrp.tracker.OnlineDriveTaskTracker;
 import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 
 import com.google.common.collect.ImmutableList;
 
 /**
  * @author michalm
  */
-public class VehicleDataEntryFactoryImpl implements EntryFactory {
+public class VehicleDataEntryFactoryImpl implements EntryFactory, MobsimBeforeCleanupListener {
 	private final double lookAhead;
 
+	// entries are created in parallel (for different vehicles)
+	private final Map<Id<Vehicle>, CachedEntry> cachedEntries = new ConcurrentHashMap<>();
+
 	@Inject
 	public VehicleDataEntryFactoryImpl(DrtConfigGroup drtCfg) {
 		lookAhead = drtCfg.getMaxWaitTime() - drtCfg.getStopDuration();
@@ -55,47 +63,92 @@ public class VehicleDataEntryFactoryImpl implements EntryFactory {
 		}
 	}
 
+	/**
+	 * Cached entry with the schedule (and its modification count) it was created for.
+	 */
+	private static class CachedEntry {
+		private final Schedule schedule;
+		private final long modificationCount;
+		private final Entry entry;
+
+		private CachedEntry(Schedule schedule, Entry entry) {
+			this.schedule = schedule;
+			this.modificationCount = schedule.getModificationCount();
+			this.entry = entry;
+		}
+
+		private boolean isValid(Schedule schedule) {
+			return this.schedule == schedule && modificationCount == schedule.getModificationCount();
+		}
+	}
+
+	/**
+	 * The stops of an entry are recalculated only if the schedule has been modified since the entry was created (see
+	 * {@link Schedule#getModificationCount()}); otherwise, only the start (which depends on the current time and, if
+	 * driving, on the vehicle position) is updated.
+	 */
 	public Entry create(Vehicle vehicle, double currentTime) {
 		if (!isEligibleForRequestInsertion(vehicle, currentTime)) {
 			return null;
 		}
 
 		Schedule schedule = vehicle.getSchedule();
-		@SuppressWarnings("unchecked")
-		List<DrtTask> tasks = (List<DrtTask>)schedule.getTasks();
+		CachedEntry cachedEntry = cachedEntries.get(vehicle.getId());
+		if (cachedEntry != null && cachedEntry.isValid(schedule)) {
+			Entry entry = cachedEntry.entry;
+			LinkTimePair start = calcStart(vehicle, currentTime);
+			return start.link == entry.start.link && start.time == entry.start.time ?
+					entry :
+					new Entry(vehicle, start, entry.startOccupancy, entry.stops);
+		}
 
-		LinkTimePair start;
-		int nextTaskIdx;
-		if (schedule.getStatus() == ScheduleStatus.STARTED) {
-			DrtTask currentTask = (DrtTask)schedule.getCurrentTask();
-			switch (currentTask.getDrtTaskType()) {
-				case DRIVE:
-					DrtDriveTask driveTask = (DrtDriveTask)currentTask;
-					start = ((OnlineDriveTaskTracker)driveTask.getTaskTracker()).getDiversionPoint();
-					if (start == null) { // too late to divert a vehicle
-						start = new LinkTimePair(driveTask.getPath().getToLink(), driveTask.getEndTime());
-					}
-					break;
-
-				case STOP:
-					DrtStopTask stopTask = (DrtStopTask)currentTask;
-					start = new LinkTimePair(stopTask.getLink(), stopTask.getEndTime());
-					break;
-
-				case STAY:
-					DrtStayTask stayTask = (DrtStayTask)currentTask;
-					start = new LinkTimePair(stayTask.getLink(), currentTime);
-					break;
-
-				default:
-					throw new RuntimeException();
-			}
+		Entry entry = createEntry(vehicle, currentTime);
+		cachedEntries.put(vehicle.getId(), new CachedEntry(schedule, entry));
+		return entry;
+	}
+
+	// the cached entries refer to the schedules (and vehicles) of the finished simulation
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		cachedEntries.clear();
+	}
 
-			nextTaskIdx = currentTask.getTaskIdx() + 1;
-		} else { // PLANNED
-			start = new LinkTimePair(vehicle.getStartLink(), vehicle.getServiceBeginTime());
-			nextTaskIdx = 0;
+	private LinkTimePair calcStart(Vehicle vehicle, double currentTime) {
+		Schedule schedule = vehicle.getSchedule();
+		if (schedule.getStatus() != ScheduleStatus.STARTED) { // PLANNED
+			return new LinkTimePair(vehicle.getStartLink(), vehicle.getServiceBeginTime());
+		}
+
+		DrtTask currentTask = (DrtTask)schedule.getCurrentTask();
+		switch (currentTask.getDrtTaskType()) {
+			case DRIVE:
+				DrtDriveTask driveTask = (DrtDriveTask)currentTask;
+				LinkTimePair diversionPoint = ((OnlineDriveTaskTracker)driveTask.getTaskTracker()).getDiversionPoint();
+				return diversionPoint != null ? diversionPoint : // too late to divert a vehicle
+						new LinkTimePair(driveTask.getPath().getToLink(), driveTask.getEndTime());
+
+			case STOP:
+				DrtStopTask stopTask = (DrtStopTask)currentTask;
+				return new LinkTimePair(stopTask.getLink(), stopTask.getEndTime());
+
+			case STAY:
+				DrtStayTask stayTask = (DrtStayTask)currentTask;
+				return new LinkTimePair(stayTask.getLink(), currentTime);
+
+			default:
+				throw new RuntimeException();
 		}
+	}
+
+	private Entry createEntry(Vehicle vehicle, double currentTime) {
+		Schedule schedule = vehicle.getSchedule();
+		@SuppressWarnings("unchecked")
+		List<DrtTask> tasks = (List<DrtTask>)schedule.getTasks();
+
+		LinkTimePair start = calcStart(vehicle, currentTime);
+		int nextTaskIdx = schedule.getStatus() == ScheduleStatus.STARTED ?
+				schedule.getCurrentTask().getTaskIdx() + 1 :
+				0;
 
 		List<DrtStopTask> stopTasks = new ArrayList<>();
 		for (DrtTask task : tasks.subList(nextTaskIdx, tasks.size())) {
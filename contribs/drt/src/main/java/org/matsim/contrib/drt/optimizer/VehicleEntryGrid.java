@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.util.distance.DistanceUtils;
+
+/**
+ * Uniform grid of the points from which the vehicles can depart to serve a new request: the start of each vehicle
+ * entry (departure at start.time) and all its stops (departure at the end of the stop task). Used to find the
+ * vehicles that can reach a given link by a given time without scanning all vehicle entries.
+ * <p>
+ * The grid is meant to be kept from one request insertion to the next. The points of a vehicle are only moved if the
+ * start link or the stops of its entry have changed, i.e. if the vehicle has moved on or its schedule has been modified
+ * (see {@link VehicleDataEntryFactoryImpl}). The departure times are read when the grid is queried, so they may change
+ * in the meantime.
+ */
+public class VehicleEntryGrid {
+	// to be on the safe side when comparing with the (differently rounded) times of the insertion filter
+	private static final double EPSILON = 1e-6;
+
+	private static class IndexedEntry {
+		private Entry entry;
+		private final List<Point> points = new ArrayList<>();
+
+		private IndexedEntry(Entry entry) {
+			this.entry = entry;
+		}
+	}
+
+	private static class Point {
+		private final IndexedEntry indexedEntry;
+		private final Link link;
+		private final DrtStopTask stopTask;// null for the start of the entry
+
+		private Point(IndexedEntry indexedEntry, Link link, DrtStopTask stopTask) {
+			this.indexedEntry = indexedEntry;
+			this.link = link;
+			this.stopTask = stopTask;
+		}
+
+		private double getDepartureTime() {
+			return stopTask == null ? indexedEntry.entry.start.time : stopTask.getEndTime();
+		}
+	}
+
+	private final double cellSize;
+	private final Map<Long, List<Point>> cells = new HashMap<>();
+	private final Map<Id<Vehicle>, IndexedEntry> indexedEntries = new HashMap<>();
+
+	public VehicleEntryGrid(double cellSize) {
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Updates the entries of all vehicles; the vehicles that are not in the map are removed.
+	 */
+	void update(Map<Id<Vehicle>, Entry> entries) {
+		Iterator<Map.Entry<Id<Vehicle>, IndexedEntry>> iter = indexedEntries.entrySet().iterator();
+		while (iter.hasNext()) {
+			Map.Entry<Id<Vehicle>, IndexedEntry> e = iter.next();
+			if (!entries.containsKey(e.getKey())) {
+				removePoints(e.getValue());
+				iter.remove();
+			}
+		}
+		for (Entry entry : entries.values()) {
+			update(entry);
+		}
+	}
+
+	void update(Entry entry) {
+		IndexedEntry indexedEntry = indexedEntries.get(entry.vehicle.getId());
+		if (indexedEntry != null) {
+			if (indexedEntry.entry.stops == entry.stops && indexedEntry.entry.start.link == entry.start.link) {
+				indexedEntry.entry = entry;// the points stay where they are
+				return;
+			}
+			removePoints(indexedEntry);
+		}
+
+		indexedEntry = new IndexedEntry(entry);
+		indexedEntries.put(entry.vehicle.getId(), indexedEntry);
+		addPoint(new Point(indexedEntry, entry.start.link, null));
+		for (Stop s : entry.stops) {
+			addPoint(new Point(indexedEntry, s.task.getLink(), s.task));
+		}
+	}
+
+	void remove(Id<Vehicle> vehicleId) {
+		IndexedEntry indexedEntry = indexedEntries.remove(vehicleId);
+		if (indexedEntry != null) {
+			removePoints(indexedEntry);
+		}
+	}
+
+	public void clear() {
+		cells.clear();
+		indexedEntries.clear();
+	}
+
+	private void addPoint(Point point) {
+		cells.computeIfAbsent(getCellKey(point.link), k -> new ArrayList<>()).add(point);
+		point.indexedEntry.points.add(point);
+	}
+
+	private void removePoints(IndexedEntry indexedEntry) {
+		for (Point point : indexedEntry.points) {
+			Long key = getCellKey(point.link);
+			List<Point> points = cells.get(key);
+			points.remove(point);
+			if (points.isEmpty()) {
+				cells.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * A vehicle cannot depart before the current time, so the departure times of the points are taken as at least the
+	 * current time.
+	 *
+	 * @param maxDetourTime max time of driving from a point to the link (infinite if no limit)
+	 * @return entries with at least one point from which the link is reached (beeline distance at beelineSpeed) not
+	 * later than latestArrivalTime and within maxDetourTime
+	 */
+	Set<Entry> getEntriesWithinReach(Link link, double currentTime, double latestArrivalTime, double maxDetourTime,
+			double beelineSpeed) {
+		Set<Entry> entries = new LinkedHashSet<>();
+		double radius = Math.min(latestArrivalTime - currentTime, maxDetourTime) * beelineSpeed + EPSILON;
+		if (radius < 0) {
+			return entries;
+		}
+
+		Coord coord = link.getCoord();
+		long minX = getCellIdx(coord.getX() - radius);
+		long maxX = getCellIdx(coord.getX() + radius);
+		long minY = getCellIdx(coord.getY() - radius);
+		long maxY = getCellIdx(coord.getY() + radius);
+
+		if (Double.isInfinite(radius) || (maxX - minX + 1) * (maxY - minY + 1) > cells.size()) {
+			// large radius (compared to the occupied area): cheaper to check all cells
+			for (List<Point> points : cells.values()) {
+				addEntriesWithinReach(entries, points, link, currentTime, latestArrivalTime, maxDetourTime,
+						beelineSpeed);
+			}
+			return entries;
+		}
+
+		for (long x = minX; x <= maxX; x++) {
+			for (long y = minY; y <= maxY; y++) {
+				List<Point> points = cells.get(getCellKey(x, y));
+				if (points != null) {
+					addEntriesWithinReach(entries, points, link, currentTime, latestArrivalTime, maxDetourTime,
+							beelineSpeed);
+				}
+			}
+		}
+		return entries;
+	}
+
+	private void addEntriesWithinReach(Set<Entry> entries, List<Point> points, Link link, double currentTime,
+			double latestArrivalTime, double maxDetourTime, double beelineSpeed) {
+		for (Point p : points) {
+			double detourTime = DistanceUtils.calculateDistance(p.link, link) / beelineSpeed;
+			double arrivalTime = Math.max(p.getDepartureTime(), currentTime) + detourTime;
+			if (arrivalTime <= latestArrivalTime + EPSILON && detourTime <= maxDetourTime + EPSILON) {
+				entries.add(p.indexedEntry.entry);
+			}
+		}
+	}
+
+	private long getCellKey(Link link) {
+		Coord coord = link.getCoord();
+		return getCellKey(getCellIdx(coord.getX()), getCellIdx(coord.getY()));
+	}
+
+	private long getCellIdx(double coord) {
+		return (long)Math.floor(coord / cellSize);
+	}
+
+	private static long getCellKey(long x, long y) {
+		return (x << 32) ^ (y & 0xffffffffL);
+	}
+}
@@ -0,0 +1,189 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLinksSet;
+import org.matsim.contrib.drt.run.Drt;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the path data for a batch of requests at once. The searches of all requests are pooled: requests with the
+ * same pickup (or dropoff) link and the same earliest pickup (dropoff) time share one search to the union of their
+ * detour links, and all searches are run in parallel, each thread with its own {@link OneToManyPathSearch}es.
+ *
+ * @see ParallelPathDataProvider
+ */
+public class BatchPathDataProvider {
+	private final ThreadLocal<OneToManyPathSearch> forwardPathSearch;
+	private final ThreadLocal<OneToManyPathSearch> backwardPathSearch;
+
+	private final double stopDuration;
+
+	@Inject
+	public BatchPathDataProvider(@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network,
+			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, @Drt TravelDisutility travelDisutility,
+			DrtConfigGroup drtCfg) {
+		forwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility));
+		backwardPathSearch = ThreadLocal.withInitial(
+				() -> OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility));
+		stopDuration = drtCfg.getStopDuration();
+	}
+
+	private static class SearchKey {
+		private final boolean forward;
+		private final Link fromLink;
+		private final double startTime;
+
+		private SearchKey(boolean forward, Link fromLink, double startTime) {
+			this.forward = forward;
+			this.fromLink = fromLink;
+			this.startTime = startTime;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof SearchKey)) {
+				return false;
+			}
+			SearchKey other = (SearchKey)o;
+			return forward == other.forward && fromLink == other.fromLink && startTime == other.startTime;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * Boolean.hashCode(forward) + fromLink.getId().hashCode()) + Double.hashCode(startTime);
+		}
+	}
+
+	private static class RequestPathData implements PathDataProvider {
+		private final SearchKey toPickupKey;
+		private final SearchKey fromPickupKey;
+		private final SearchKey toDropoffKey;
+		private final SearchKey fromDropoffKey;
+
+		private Map<Id<Link>, PathData> pathsToPickupMap;
+		private Map<Id<Link>, PathData> pathsFromPickupMap;
+		private Map<Id<Link>, PathData> pathsToDropoffMap;
+		private Map<Id<Link>, PathData> pathsFromDropoffMap;
+
+		private RequestPathData(SearchKey toPickupKey, SearchKey fromPickupKey, SearchKey toDropoffKey,
+				SearchKey fromDropoffKey) {
+			this.toPickupKey = toPickupKey;
+			this.fromPickupKey = fromPickupKey;
+			this.toDropoffKey = toDropoffKey;
+			this.fromDropoffKey = fromDropoffKey;
+		}
+
+		@Override
+		public PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry) {
+			return PrecalculablePathDataProvider.getPathDataSet(drtRequest, vEntry, pathsToPickupMap,
+					pathsFromPickupMap, pathsToDropoffMap, pathsFromDropoffMap);
+		}
+	}
+
+	/**
+	 * @return a path data provider for each of the given requests (valid only for the vehicle entries the detour links
+	 * were determined for)
+	 */
+	Map<DrtRequest, PathDataProvider> precalculatePathData(Map<DrtRequest, DetourLinksSet> detourLinksSets,
+			ForkJoinPool forkJoinPool) {
+		// insertion ordered, so that the searches are always set up in the same way
+		Map<SearchKey, Map<Id<Link>, Link>> toLinksBySearch = new LinkedHashMap<>();
+		Map<DrtRequest, RequestPathData> requestPathData = new LinkedHashMap<>();
+		for (Map.Entry<DrtRequest, DetourLinksSet> e : detourLinksSets.entrySet()) {
+			DrtRequest drtRequest = e.getKey();
+			DetourLinksSet detourLinksSet = e.getValue();
+
+			double earliestPickupTime = PrecalculablePathDataProvider.getEarliestPickupTime(drtRequest);
+			double earliestDropoffTime = PrecalculablePathDataProvider.getEarliestDropoffTime(drtRequest,
+					stopDuration);
+
+			RequestPathData pathData = new RequestPathData(//
+					addSearch(toLinksBySearch, false, drtRequest.getFromLink(), earliestPickupTime,
+							detourLinksSet.pickupDetourStartLinks),
+					addSearch(toLinksBySearch, true, drtRequest.getFromLink(), earliestPickupTime,
+							detourLinksSet.pickupDetourEndLinks),
+					addSearch(toLinksBySearch, false, drtRequest.getToLink(), earliestDropoffTime,
+							detourLinksSet.dropoffDetourStartLinks),
+					addSearch(toLinksBySearch, true, drtRequest.getToLink(), earliestDropoffTime,
+							detourLinksSet.dropoffDetourEndLinks));
+			requestPathData.put(drtRequest, pathData);
+		}
+
+		List<SearchKey> searches = new ArrayList<>(toLinksBySearch.keySet());
+		List<Map<Id<Link>, PathData>> results = forkJoinPool.submit(() -> searches.parallelStream()//
+				.map(key -> calcPathDataMap(key, toLinksBySearch.get(key)))//
+				.collect(Collectors.toList()))//
+				.join();
+
+		Map<SearchKey, Map<Id<Link>, PathData>> resultsBySearch = new HashMap<>();
+		for (int i = 0; i < searches.size(); i++) {
+			resultsBySearch.put(searches.get(i), results.get(i));
+		}
+
+		Map<DrtRequest, PathDataProvider> providers = new LinkedHashMap<>();
+		for (Map.Entry<DrtRequest, RequestPathData> e : requestPathData.entrySet()) {
+			RequestPathData pathData = e.getValue();
+			pathData.pathsToPickupMap = resultsBySearch.get(pathData.toPickupKey);
+			pathData.pathsFromPickupMap = resultsBySearch.get(pathData.fromPickupKey);
+			pathData.pathsToDropoffMap = resultsBySearch.get(pathData.toDropoffKey);
+			pathData.pathsFromDropoffMap = resultsBySearch.get(pathData.fromDropoffKey);
+			providers.put(e.getKey(), pathData);
+		}
+		return providers;
+	}
+
+	private static SearchKey addSearch(Map<SearchKey, Map<Id<Link>, Link>> toLinksBySearch, boolean forward,
+			Link fromLink, double startTime, Map<Id<Link>, Link> toLinks) {
+		SearchKey key = new SearchKey(forward, fromLink, startTime);
+		toLinksBySearch.computeIfAbsent(key, k -> new LinkedHashMap<>()).putAll(toLinks);
+		return key;
+	}
+
+	private Map<Id<Link>, PathData> calcPathDataMap(SearchKey key, Map<Id<Link>, Link> toLinks) {
+		OneToManyPathSearch pathSearch = key.forward ? forwardPathSearch.get() : backwardPathSearch.get();
+		return pathSearch.calcPathDataMap(key.fromLink, toLinks.values(), key.startTime);
+	}
+}
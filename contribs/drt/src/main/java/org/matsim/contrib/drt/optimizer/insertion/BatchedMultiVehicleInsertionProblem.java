@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLinksSet;
+import org.matsim.contrib.drt.optimizer.insertion.InsertionGenerator.Insertion;
+import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+
+/**
+ * Finds the best insertion of each request of a batch, each one independently of the others, i.e. as if it was the only
+ * request to insert. The filtering of the insertions, the path searches (see {@link BatchPathDataProvider}) and the
+ * evaluation of the insertions are done in parallel for all requests (and vehicles) of the batch. Resolving the
+ * conflicts between requests whose best insertions use the same vehicle is up to the caller.
+ *
+ * @see ParallelMultiVehicleInsertionProblem
+ */
+public class BatchedMultiVehicleInsertionProblem {
+	private final BatchPathDataProvider pathDataProvider;
+	private final DrtConfigGroup drtCfg;
+	private final MobsimTimer timer;
+	private final InsertionCostCalculator.PenaltyCalculator penaltyCalculator;
+	private final InsertionCostCalculator insertionCostCalculator;
+	private final ForkJoinPool forkJoinPool;
+
+	public BatchedMultiVehicleInsertionProblem(BatchPathDataProvider pathDataProvider, DrtConfigGroup drtCfg,
+			MobsimTimer timer, ForkJoinPool forkJoinPool, InsertionCostCalculator.PenaltyCalculator penaltyCalculator) {
+		this.pathDataProvider = pathDataProvider;
+		this.drtCfg = drtCfg;
+		this.timer = timer;
+		this.forkJoinPool = forkJoinPool;
+		insertionCostCalculator = new InsertionCostCalculator(drtCfg, timer, penaltyCalculator);
+		this.penaltyCalculator = penaltyCalculator;
+	}
+
+	private static class VehicleInsertions {
+		private final DrtRequest drtRequest;
+		private final Entry vEntry;
+		private final List<Insertion> insertions;
+
+		private VehicleInsertions(DrtRequest drtRequest, Entry vEntry, List<Insertion> insertions) {
+			this.drtRequest = drtRequest;
+			this.vEntry = vEntry;
+			this.insertions = insertions;
+		}
+	}
+
+	/**
+	 * @return the best insertion of each request, in the order of the requests
+	 */
+	public List<Optional<BestInsertion>> findBestInsertions(List<DrtRequest> drtRequests, Collection<Entry> vEntries) {
+		List<DetourLinksProvider> detourLinksProviders = forkJoinPool.submit(() -> drtRequests.parallelStream()//
+				.map(drtRequest -> {
+					DetourLinksProvider detourLinksProvider = new DetourLinksProvider(drtCfg, timer, drtRequest,
+							penaltyCalculator);
+					detourLinksProvider.findInsertionsAndLinks(forkJoinPool, vEntries);
+					return detourLinksProvider;
+				})//
+				.collect(Collectors.toList()))//
+				.join();
+
+		Map<DrtRequest, DetourLinksSet> detourLinksSets = new LinkedHashMap<>();
+		List<VehicleInsertions> vehicleInsertions = new ArrayList<>();
+		for (int r = 0; r < drtRequests.size(); r++) {
+			DrtRequest drtRequest = drtRequests.get(r);
+			Map<Entry, List<Insertion>> filteredInsertions = detourLinksProviders.get(r).getFilteredInsertions();
+			if (!filteredInsertions.isEmpty()) {
+				detourLinksSets.put(drtRequest, detourLinksProviders.get(r).getDetourLinksSet());
+				for (Map.Entry<Entry, List<Insertion>> e : filteredInsertions.entrySet()) {
+					vehicleInsertions.add(new VehicleInsertions(drtRequest, e.getKey(), e.getValue()));
+				}
+			}
+		}
+
+		List<Optional<BestInsertion>> bestInsertions = new ArrayList<>(drtRequests.size());
+		if (detourLinksSets.isEmpty()) {
+			for (int r = 0; r < drtRequests.size(); r++) {
+				bestInsertions.add(Optional.empty());
+			}
+			return bestInsertions;
+		}
+
+		Map<DrtRequest, PathDataProvider> pathDataProviders = pathDataProvider.precalculatePathData(detourLinksSets,
+				forkJoinPool);
+
+		// all (request, vehicle) pairs in parallel
+		List<Optional<BestInsertion>> bestVehicleInsertions = forkJoinPool.submit(
+				() -> vehicleInsertions.parallelStream()//
+						.map(vi -> new SingleVehicleInsertionProblem(pathDataProviders.get(vi.drtRequest),
+								insertionCostCalculator).findBestInsertion(vi.drtRequest, vi.vEntry, vi.insertions))//
+						.collect(Collectors.toList()))//
+				.join();
+
+		Map<DrtRequest, BestInsertion> bestInsertionPerRequest = new HashMap<>();
+		for (int i = 0; i < vehicleInsertions.size(); i++) {
+			Optional<BestInsertion> best = bestVehicleInsertions.get(i);
+			if (best.isPresent()) {
+				bestInsertionPerRequest.merge(vehicleInsertions.get(i).drtRequest, best.get(),
+						BatchedMultiVehicleInsertionProblem::better);
+			}
+		}
+		for (DrtRequest drtRequest : drtRequests) {
+			bestInsertions.add(Optional.ofNullable(bestInsertionPerRequest.get(drtRequest)));
+		}
+		return bestInsertions;
+	}
+
+	// ties are broken by vehicle id, so that the result does not depend on the order of the vehicles
+	private static BestInsertion better(BestInsertion i1, BestInsertion i2) {
+		if (i1.cost != i2.cost) {
+			return i1.cost < i2.cost ? i1 : i2;
+		}
+		return i1.vehicleEntry.vehicle.getId().compareTo(i2.vehicleEntry.vehicle.getId()) <= 0 ? i1 : i2;
+	}
+}
@@ -19,21 +19,28 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.contrib.drt.data.DrtRequest;
 import org.matsim.contrib.drt.optimizer.VehicleData;
+import org.matsim.contrib.drt.optimizer.VehicleEntryGrid;
 import org.matsim.contrib.drt.optimizer.insertion.SingleVehicleInsertionProblem.BestInsertion;
 import org.matsim.contrib.drt.passenger.events.DrtRequestScheduledEvent;
 import org.matsim.contrib.drt.run.Drt;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
 import org.matsim.contrib.dvrp.data.Fleet;
+import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestRejectedEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -58,12 +65,16 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 
 	private final ForkJoinPool forkJoinPool;
 	private final ParallelMultiVehicleInsertionProblem insertionProblem;
+	private final BatchedMultiVehicleInsertionProblem batchedInsertionProblem;// null if not batched
+
+	private final double optimisticBeelineSpeed;
+	private final VehicleEntryGrid vehicleEntryGrid;// null if vehicles are not spatially indexed
 
 	@Inject
 	public DefaultUnplannedRequestInserter(DrtConfigGroup drtCfg, @Drt Fleet fleet, MobsimTimer mobsimTimer,
 			EventsManager eventsManager, RequestInsertionScheduler insertionScheduler,
 			VehicleData.EntryFactory vehicleDataEntryFactory, PrecalculablePathDataProvider pathDataProvider,
-			InsertionCostCalculator.PenaltyCalculator penaltyCalculator) {
+			BatchPathDataProvider batchPathDataProvider, InsertionCostCalculator.PenaltyCalculator penaltyCalculator) {
 		this.drtCfg = drtCfg;
 		this.fleet = fleet;
 		this.mobsimTimer = mobsimTimer;
@@ -74,12 +85,25 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		forkJoinPool = new ForkJoinPool(drtCfg.getNumberOfThreads());
 		insertionProblem = new ParallelMultiVehicleInsertionProblem(pathDataProvider, drtCfg, mobsimTimer, forkJoinPool,
 				penaltyCalculator);
+		batchedInsertionProblem = drtCfg.isBatchedRequestInsertion() ?
+				new BatchedMultiVehicleInsertionProblem(batchPathDataProvider, drtCfg, mobsimTimer, forkJoinPool,
+						penaltyCalculator) :
+				null;
+		optimisticBeelineSpeed = DetourLinksProvider.calcOptimisticBeelineSpeed(drtCfg);
+		double maxReachTime = Math.min(drtCfg.isRequestRejection() ? drtCfg.getMaxWaitTime() : Double.POSITIVE_INFINITY,
+				drtCfg.getMaxPickupDetourTime());
+		vehicleEntryGrid = drtCfg.isVehicleSpatialIndex() && !Double.isInfinite(maxReachTime) ?
+				new VehicleEntryGrid(maxReachTime * optimisticBeelineSpeed) :
+				null;
 		insertionScheduler.initSchedules(drtCfg.isChangeStartLinkToLastLinkInSchedule());
 	}
 
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
 		insertionProblem.shutdown();
+		if (vehicleEntryGrid != null) {
+			vehicleEntryGrid.clear();
+		}
 	}
 
 	@Override
@@ -89,33 +113,97 @@ public class DefaultUnplannedRequestInserter implements UnplannedRequestInserter
 		}
 
 		VehicleData vData = new VehicleData(mobsimTimer.getTimeOfDay(), fleet.getVehicles().values().stream(),
-				vehicleDataEntryFactory, forkJoinPool);
+				vehicleDataEntryFactory, forkJoinPool, vehicleEntryGrid);
+
+		if (batchedInsertionProblem != null) {
+			scheduleBatch(unplannedRequests, vData);
+			return;
+		}
 
 		Iterator<DrtRequest> reqIter = unplannedRequests.iterator();
 		while (reqIter.hasNext()) {
 			DrtRequest req = reqIter.next();
-			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, vData.getEntries());
+			Optional<BestInsertion> best = insertionProblem.findBestInsertion(req, getVehicleEntries(req, vData));
 			if (!best.isPresent()) {
-				req.setRejected(true);
-				eventsManager.processEvent(
-						new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								NO_INSERTION_FOUND_CAUSE));
-				eventsManager.processEvent(new PersonStuckEvent(mobsimTimer.getTimeOfDay(), req.getPassenger().getId(),
-						req.getFromLink().getId(), req.getPassenger().getMode()));
-				if (drtCfg.isPrintDetailedWarnings()) {
-					log.warn("No insertion found for drt request " + req + " from passenger id=" + req.getPassenger()
-							.getId() + " fromLinkId=" + req.getFromLink().getId());
-				}
+				rejectRequest(req);
 			} else {
-				BestInsertion bestInsertion = best.get();
-				insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
-				vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
-				eventsManager.processEvent(
-						new DrtRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(), req.getId(),
-								bestInsertion.vehicleEntry.vehicle.getId(), req.getPickupTask().getEndTime(),
-								req.getDropoffTask().getBeginTime()));
+				scheduleRequest(req, best.get(), vData);
 			}
 			reqIter.remove();
 		}
 	}
+
+	/**
+	 * The best insertions of all requests are searched for at once. If the best insertions of several requests use the
+	 * same vehicle, only the first of these requests (in the order of unplannedRequests) is scheduled; the others are
+	 * searched for again in the next round, with the updated schedule of the vehicle.
+	 */
+	private void scheduleBatch(Collection<DrtRequest> unplannedRequests, VehicleData vData) {
+		List<DrtRequest> requests = new ArrayList<>(unplannedRequests);
+		while (!requests.isEmpty()) {
+			Collection<VehicleData.Entry> vEntries;
+			if (vehicleEntryGrid != null) {
+				vEntries = new LinkedHashSet<>();
+				for (DrtRequest req : requests) {
+					vEntries.addAll(getVehicleEntries(req, vData));
+				}
+			} else {
+				vEntries = vData.getEntries();
+			}
+			List<Optional<BestInsertion>> bestInsertions = batchedInsertionProblem.findBestInsertions(requests,
+					vEntries);
+
+			Set<Vehicle> scheduledVehicles = new HashSet<>();
+			List<DrtRequest> postponedRequests = new ArrayList<>();
+			for (int r = 0; r < requests.size(); r++) {
+				DrtRequest req = requests.get(r);
+				Optional<BestInsertion> best = bestInsertions.get(r);
+				if (!best.isPresent()) {
+					rejectRequest(req);
+				} else if (!scheduledVehicles.add(best.get().vehicleEntry.vehicle)) {
+					postponedRequests.add(req);
+				} else {
+					scheduleRequest(req, best.get(), vData);
+				}
+			}
+			requests = postponedRequests;
+		}
+		unplannedRequests.clear();
+	}
+
+	/**
+	 * With request rejection, the max wait time is a hard constraint, so vehicles that cannot reach the pickup in time
+	 * (even at the optimistic beeline speed used by the insertion filter) can be skipped. Vehicles that are further
+	 * away than the max pickup detour time are skipped regardless of request rejection.
+	 */
+	private Collection<VehicleData.Entry> getVehicleEntries(DrtRequest req, VehicleData vData) {
+		if (vehicleEntryGrid == null) {
+			return vData.getEntries();
+		}
+		double latestArrivalTime = drtCfg.isRequestRejection() ?
+				req.getLatestStartTime() - drtCfg.getStopDuration() :
+				Double.POSITIVE_INFINITY;
+		return vData.getEntriesWithinReach(req.getFromLink(), latestArrivalTime, drtCfg.getMaxPickupDetourTime(),
+				optimisticBeelineSpeed);
+	}
+
+	private void rejectRequest(DrtRequest req) {
+		req.setRejected(true);
+		eventsManager.processEvent(new PassengerRequestRejectedEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(),
+				req.getId(), NO_INSERTION_FOUND_CAUSE));
+		eventsManager.processEvent(new PersonStuckEvent(mobsimTimer.getTimeOfDay(), req.getPassenger().getId(),
+				req.getFromLink().getId(), req.getPassenger().getMode()));
+		if (drtCfg.isPrintDetailedWarnings()) {
+			log.warn("No insertion found for drt request " + req + " from passenger id=" + req.getPassenger().getId()
+					+ " fromLinkId=" + req.getFromLink().getId());
+		}
+	}
+
+	private void scheduleRequest(DrtRequest req, BestInsertion bestInsertion, VehicleData vData) {
+		insertionScheduler.scheduleRequest(bestInsertion.vehicleEntry, req, bestInsertion.insertion);
+		vData.updateEntry(bestInsertion.vehicleEntry.vehicle);
+		eventsManager.processEvent(new DrtRequestScheduledEvent(mobsimTimer.getTimeOfDay(), drtCfg.getMode(),
+				req.getId(), bestInsertion.vehicleEntry.vehicle.getId(), req.getPickupTask().getEndTime(),
+				req.getDropoffTask().getBeginTime()));
+	}
 }
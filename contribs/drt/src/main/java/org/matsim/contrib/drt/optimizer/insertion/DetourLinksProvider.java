@@ -103,8 +103,7 @@ class DetourLinksProvider {
 		linksFromDropoff = new ConcurrentHashMap<>();
 
 		// TODO use more sophisticated DetourTimeEstimator
-		double optimisticBeelineSpeed = OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
-				/ drtCfg.getEstimatedBeelineDistanceFactor();
+		double optimisticBeelineSpeed = calcOptimisticBeelineSpeed(drtCfg);
 		insertionFilter = new SingleVehicleInsertionFilter(//
 				new DetourTimesProvider(
 						(from, to) -> DistanceUtils.calculateDistance(from, to) / optimisticBeelineSpeed,
@@ -112,6 +111,14 @@ class DetourLinksProvider {
 				new InsertionCostCalculator(drtCfg, timer, penaltyCalculator));
 	}
 
+	/**
+	 * @return beeline speed used for filtering out infeasible insertions (overestimated on purpose)
+	 */
+	static double calcOptimisticBeelineSpeed(DrtConfigGroup drtCfg) {
+		return OPTIMISTIC_BEELINE_SPEED_COEFF * drtCfg.getEstimatedDrtSpeed()
+				/ drtCfg.getEstimatedBeelineDistanceFactor();
+	}
+
 	void findInsertionsAndLinks(ForkJoinPool forkJoinPool, Collection<Entry> vEntries) {
 		forkJoinPool.submit(() -> vEntries.parallelStream()//
 				.forEach(this::addDetourLinks))//
@@ -34,6 +34,21 @@ import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 public interface PrecalculablePathDataProvider extends PathDataProvider {
 	void precalculatePathData(DrtRequest drtRequest, DetourLinksSet detourLinkSet);
 
+	/**
+	 * Optimistic pickup time used as the departure time of the path searches to/from the pickup link.
+	 */
+	static double getEarliestPickupTime(DrtRequest drtRequest) {
+		return drtRequest.getEarliestStartTime();
+	}
+
+	/**
+	 * Optimistic dropoff time used as the departure time of the path searches to/from the dropoff link.
+	 */
+	static double getEarliestDropoffTime(DrtRequest drtRequest, double stopDuration) {
+		double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
+		return getEarliestPickupTime(drtRequest) + minTravelTime + stopDuration;
+	}
+
 	static PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry, Map<Id<Link>, PathData> pathsToPickupMap,
 			Map<Id<Link>, PathData> pathsFromPickupMap, Map<Id<Link>, PathData> pathsToDropoffMap,
 			Map<Id<Link>, PathData> pathsFromDropoffMap) {
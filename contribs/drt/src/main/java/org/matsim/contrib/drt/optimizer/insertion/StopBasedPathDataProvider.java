@@ -18,8 +18,10 @@
 
 package org.matsim.contrib.drt.optimizer.insertion;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -33,11 +35,17 @@ import org.matsim.contrib.drt.optimizer.insertion.DetourLinksProvider.DetourLink
 import org.matsim.contrib.drt.run.Drt;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.path.ManyToManyPathData;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.pt.transitSchedule.api.TransitSchedule;
@@ -45,24 +53,39 @@ import org.matsim.pt.transitSchedule.api.TransitSchedule;
 import com.google.common.collect.ImmutableList;
 
 /**
+ * Takes the travel times between the stops from a precalculated stop-to-stop matrix (see {@link ManyToManyPathData}),
+ * so no path search is needed for vehicles that are at (or heading to) a stop. Only the paths to pickup from vehicles
+ * that are currently elsewhere (e.g. driving between stops) are searched for.
+ * <p>
+ * The matrix is calculated when the QSim is created (i.e. at the beginning of each iteration). With online travel time
+ * estimation ({@link DvrpConfigGroup#getTravelTimeEstimationBeta()} > 0), the time bins within the estimation horizon
+ * are recalculated at the beginning of each time bin.
+ *
  * @author michalm
  */
-public class StopBasedPathDataProvider implements PrecalculablePathDataProvider {
+public class StopBasedPathDataProvider
+		implements PrecalculablePathDataProvider, MobsimBeforeSimStepListener, MobsimBeforeCleanupListener {
 	private final double stopDuration;
+	private final double travelTimeEstimationBeta;
+	private final int timeInterval;
 
 	private final ManyToManyPathData manyToManyPathData;
+	private final OneToManyPathSearch toPickupPathSearch;
 
 	// ==== recalculated by calcPathData()
 	private Map<Id<Link>, PathData> pathsToPickupMap;
 	private Map<Id<Link>, PathData> pathsFromPickupMap;
 	private Map<Id<Link>, PathData> pathsToDropoffMap;
 	private Map<Id<Link>, PathData> pathsFromDropoffMap;
+	private Map<Id<Link>, PathData> pathsToPickupFromNonStopLinksMap;
 
 	@Inject
 	public StopBasedPathDataProvider(@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, @Drt TravelDisutility travelDisutility,
-			@Drt TransitSchedule schedule, TravelTimeCalculatorConfigGroup ttcConfig, DrtConfigGroup drtCfg) {
+			@Drt TransitSchedule schedule, TravelTimeCalculatorConfigGroup ttcConfig, DrtConfigGroup drtCfg,
+			DvrpConfigGroup dvrpCfg) {
 		stopDuration = drtCfg.getStopDuration();
+		travelTimeEstimationBeta = dvrpCfg.getTravelTimeEstimationBeta();
 
 		List<Link> stopLinks = schedule.getFacilities()
 				.values()
@@ -70,29 +93,62 @@ public class StopBasedPathDataProvider implements PrecalculablePathDataProvider
 				.map(tsf -> network.getLinks().get(tsf.getLinkId()))//
 				.distinct()// more than one stop can be located on a link
 				.collect(ImmutableList.toImmutableList());
-		manyToManyPathData = new ManyToManyPathData(network, travelTime, travelDisutility, stopLinks,
-				new TimeDiscretizer(ttcConfig), drtCfg.getNumberOfThreads());
+		TimeDiscretizer discretizer = new TimeDiscretizer(ttcConfig);
+		timeInterval = discretizer.getTimeInterval();
+		manyToManyPathData = new ManyToManyPathData(network, travelTime, travelDisutility, stopLinks, discretizer,
+				drtCfg.getNumberOfThreads());
+		toPickupPathSearch = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
 	}
 
 	@Override
 	public void precalculatePathData(DrtRequest drtRequest, DetourLinksSet detourLinkSet) {
 		Link pickup = drtRequest.getFromLink();
 		Link dropoff = drtRequest.getToLink();
+		if (!manyToManyPathData.containsLink(pickup.getId()) || !manyToManyPathData.containsLink(dropoff.getId())) {
+			throw new IllegalStateException("Request: " + drtRequest.getId() + " does not start or end at a stop");
+		}
 
-		final double earliestPickupTime = drtRequest.getEarliestStartTime(); // optimistic
-		final double minTravelTime = 15 * 60; // FIXME inaccurate temp solution: fixed 15 min
-		final double earliestDropoffTime = earliestPickupTime + minTravelTime + stopDuration;
+		final double earliestPickupTime = PrecalculablePathDataProvider.getEarliestPickupTime(drtRequest);
+		final double earliestDropoffTime = PrecalculablePathDataProvider.getEarliestDropoffTime(drtRequest,
+				stopDuration);
 
-		// NOTE: all paths are calculated forward from startTime (no backward Dijkstra used)
+		// NOTE: all stop-to-stop paths are calculated forward from startTime (no backward Dijkstra used)
 		pathsToPickupMap = manyToManyPathData.getIncomingPathData(pickup.getId(), earliestPickupTime);
 		pathsFromPickupMap = manyToManyPathData.getOutgoingPathData(pickup.getId(), earliestPickupTime);
 		pathsToDropoffMap = manyToManyPathData.getIncomingPathData(dropoff.getId(), earliestDropoffTime);
 		pathsFromDropoffMap = manyToManyPathData.getOutgoingPathData(dropoff.getId(), earliestDropoffTime);
+
+		// vehicles driving between stops (or idle outside stops) need a path search
+		List<Link> nonStopLinks = detourLinkSet.pickupDetourStartLinks.values()
+				.stream()
+				.filter(link -> !manyToManyPathData.containsLink(link.getId()))
+				.collect(Collectors.toList());
+		pathsToPickupFromNonStopLinksMap = nonStopLinks.isEmpty() ?
+				Collections.emptyMap() :
+				toPickupPathSearch.calcPathDataMap(pickup, nonStopLinks, earliestPickupTime);
 	}
 
 	@Override
 	public PathDataSet getPathDataSet(DrtRequest drtRequest, Entry vEntry) {
-		return PrecalculablePathDataProvider.getPathDataSet(drtRequest, vEntry, pathsToPickupMap, pathsFromPickupMap,
-				pathsToDropoffMap, pathsFromDropoffMap);
+		PathDataSet pathDataSet = PrecalculablePathDataProvider.getPathDataSet(drtRequest, vEntry, pathsToPickupMap,
+				pathsFromPickupMap, pathsToDropoffMap, pathsFromDropoffMap);
+		if (pathDataSet.pathsToPickup[0] == null) {// start->pickup (all other links are stops)
+			pathDataSet.pathsToPickup[0] = pathsToPickupFromNonStopLinksMap.get(vEntry.start.link.getId());
+		}
+		return pathDataSet;
+	}
+
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+		double time = e.getSimulationTime();
+		if (travelTimeEstimationBeta > 0 && time > 0 && time % timeInterval == 0) {
+			// beyond time + beta, the online estimates are equal to the offline ones
+			manyToManyPathData.update(time, time + travelTimeEstimationBeta);
+		}
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
+		manyToManyPathData.shutdown();
 	}
 }
@@ -19,9 +19,12 @@
 package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import javax.inject.Inject;
 
@@ -32,41 +35,168 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.analysis.zonal.DrtZonalSystem;
 import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy.Relocation;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
 import org.matsim.contrib.dvrp.schedule.Schedules;
 import org.matsim.contrib.util.distance.DistanceUtils;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.utils.geometry.geotools.MGC;
 
 import com.google.inject.name.Named;
-import com.vividsolutions.jts.geom.Geometry;
 
 /**
- * @author michalm
+ * The zone centroids and the zone-to-zone distances are cached. With {@link Solver#SPARSE}, the transport problem is
+ * solved over the pairs of zones within maxRelocationDistance (see {@link SparseTransportProblem}), starting from the
+ * potentials of the previous solution.
  */
 public class AggregatedMinCostRelocationCalculator implements MinCostRelocationCalculator {
-	private final DrtZonalSystem zonalSystem;
+	public enum Solver {
+		DENSE, SPARSE
+	}
+
 	private final Network network;
+	private final MinCostFlowRebalancingParams params;
+
+	private final Map<String, Integer> zoneIndices = new HashMap<>();
+	private final Coord[] zoneCentroids;
+	private final Link[] zoneLinks;// destination links, found lazily
+
+	// SPARSE and maxRelocationDistance > 0: the zones within maxRelocationDistance (with distances), found lazily
+	private int[][] neighbourZones;
+	private int[][] neighbourDistances;
+
+	// SPARSE: potentials from the previous solution (warm start)
+	private final long[] zonePotentials;
 
 	@Inject
 	public AggregatedMinCostRelocationCalculator(DrtZonalSystem zonalSystem,
-			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network) {
-		this.zonalSystem = zonalSystem;
+			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network, DrtConfigGroup drtCfg) {
 		this.network = network;
+		params = drtCfg.getMinCostFlowRebalancing();
+
+		int zoneCount = zonalSystem.getZones().size();
+		zoneCentroids = new Coord[zoneCount];
+		for (String zone : zonalSystem.getZones().keySet()) {
+			int idx = zoneIndices.size();
+			zoneIndices.put(zone, idx);
+			zoneCentroids[idx] = zonalSystem.getZoneCentroid(zone);
+		}
+		zoneLinks = new Link[zoneCount];
+		zonePotentials = new long[zoneCount];
 	}
 
 	@Override
 	public List<Relocation> calcRelocations(List<Pair<String, Integer>> supply, List<Pair<String, Integer>> demand,
 			Map<String, List<Vehicle>> rebalancableVehiclesPerZone) {
-		List<Triple<String, String, Integer>> interZonalRelocations = new TransportProblem<String, String>(
-				this::calcStraightLineDistance).solve(supply, demand);
+		List<Triple<String, String, Integer>> interZonalRelocations = params.getSolver() == Solver.SPARSE ?
+				solveSparse(supply, demand) :
+				new TransportProblem<String, String>(this::calcStraightLineDistance).solve(supply, demand);
 		return calcRelocations(rebalancableVehiclesPerZone, interZonalRelocations);
 	}
 
 	private int calcStraightLineDistance(String zone1, String zone2) {
-		return (int)DistanceUtils.calculateDistance(zonalSystem.getZoneCentroid(zone1),
-				zonalSystem.getZoneCentroid(zone2));
+		return calcStraightLineDistance(zoneIndices.get(zone1), zoneIndices.get(zone2));
+	}
+
+	private int calcStraightLineDistance(int zoneIdx1, int zoneIdx2) {
+		return (int)DistanceUtils.calculateDistance(zoneCentroids[zoneIdx1], zoneCentroids[zoneIdx2]);
+	}
+
+	private List<Triple<String, String, Integer>> solveSparse(List<Pair<String, Integer>> supply,
+			List<Pair<String, Integer>> demand) {
+		int[] producerZones = supply.stream().mapToInt(p -> zoneIndices.get(p.getKey())).toArray();
+		int[] consumerZones = demand.stream().mapToInt(p -> zoneIndices.get(p.getKey())).toArray();
+
+		int[] consumerByZone = new int[zoneCentroids.length];
+		Arrays.fill(consumerByZone, -1);
+		for (int j = 0; j < consumerZones.length; j++) {
+			consumerByZone[consumerZones[j]] = j;
+		}
+
+		int[][] consumersByProducer = new int[producerZones.length][];
+		int[][] costsByProducer = new int[producerZones.length][];
+		for (int i = 0; i < producerZones.length; i++) {
+			int producerZone = producerZones[i];
+			if (params.getMaxRelocationDistance() > 0) {
+				findNeighbourZones();
+				int[] zones = neighbourZones[producerZone];
+				int[] distances = neighbourDistances[producerZone];
+				int[] ks = IntStream.range(0, zones.length).filter(k -> consumerByZone[zones[k]] != -1).toArray();
+				consumersByProducer[i] = Arrays.stream(ks).map(k -> consumerByZone[zones[k]]).toArray();
+				costsByProducer[i] = Arrays.stream(ks).map(k -> distances[k]).toArray();
+			} else {
+				consumersByProducer[i] = IntStream.range(0, consumerZones.length).toArray();
+				costsByProducer[i] = Arrays.stream(consumerZones)
+						.map(consumerZone -> calcStraightLineDistance(producerZone, consumerZone))
+						.toArray();
+			}
+		}
+
+		SparseTransportProblem transportProblem = new SparseTransportProblem(//
+				supply.stream().mapToInt(Pair::getValue).toArray(), //
+				demand.stream().mapToInt(Pair::getValue).toArray(), //
+				consumersByProducer, costsByProducer, //
+				Arrays.stream(producerZones).mapToLong(z -> zonePotentials[z]).toArray(),
+				Arrays.stream(consumerZones).mapToLong(z -> zonePotentials[z]).toArray());
+		int[][] flows = transportProblem.execute();
+
+		long[] producerPotentials = transportProblem.getProducerPotentials();
+		for (int i = 0; i < producerZones.length; i++) {
+			zonePotentials[producerZones[i]] = producerPotentials[i];
+		}
+		long[] consumerPotentials = transportProblem.getConsumerPotentials();
+		for (int j = 0; j < consumerZones.length; j++) {
+			zonePotentials[consumerZones[j]] = consumerPotentials[j];
+		}
+
+		List<Triple<String, String, Integer>> interZonalRelocations = new ArrayList<>();
+		for (int i = 0; i < producerZones.length; i++) {
+			for (int k = 0; k < flows[i].length; k++) {
+				if (flows[i][k] > 0) {
+					interZonalRelocations.add(Triple.of(supply.get(i).getKey(),
+							demand.get(consumersByProducer[i][k]).getKey(), flows[i][k]));
+				}
+			}
+		}
+		return interZonalRelocations;
+	}
+
+	// zones sorted by the x coordinate of their centroids, so only the zones within the x-range are checked
+	private void findNeighbourZones() {
+		if (neighbourZones != null) {
+			return;
+		}
+
+		double maxDistance = params.getMaxRelocationDistance();
+		int zoneCount = zoneCentroids.length;
+		Integer[] zonesByX = IntStream.range(0, zoneCount).boxed().toArray(Integer[]::new);
+		Arrays.sort(zonesByX, Comparator.comparingDouble(z -> zoneCentroids[z].getX()));
+
+		List<List<int[]>> neighbours = new ArrayList<>(zoneCount);
+		for (int z = 0; z < zoneCount; z++) {
+			neighbours.add(new ArrayList<>());
+		}
+		for (int a = 0; a < zoneCount; a++) {
+			int zoneA = zonesByX[a];
+			for (int b = a + 1; b < zoneCount; b++) {
+				int zoneB = zonesByX[b];
+				if (zoneCentroids[zoneB].getX() - zoneCentroids[zoneA].getX() > maxDistance) {
+					break;
+				}
+				int distance = calcStraightLineDistance(zoneA, zoneB);
+				if (distance <= maxDistance) {
+					neighbours.get(zoneA).add(new int[] { zoneB, distance });
+					neighbours.get(zoneB).add(new int[] { zoneA, distance });
+				}
+			}
+		}
+
+		neighbourZones = new int[zoneCount][];
+		neighbourDistances = new int[zoneCount][];
+		for (int z = 0; z < zoneCount; z++) {
+			neighbourZones[z] = neighbours.get(z).stream().mapToInt(n -> n[0]).toArray();
+			neighbourDistances[z] = neighbours.get(z).stream().mapToInt(n -> n[1]).toArray();
+		}
 	}
 
 	private List<Relocation> calcRelocations(Map<String, List<Vehicle>> rebalancableVehiclesPerZone,
@@ -75,10 +205,7 @@ public class AggregatedMinCostRelocationCalculator implements MinCostRelocationC
 		for (Triple<String, String, Integer> r : interZonalRelocations) {
 			List<Vehicle> rebalancableVehicles = rebalancableVehiclesPerZone.get(r.getLeft());
 
-			String toZone = r.getMiddle();
-			Geometry z = zonalSystem.getZone(toZone);
-			Coord zoneCentroid = MGC.point2Coord(z.getCentroid());
-			Link destinationLink = NetworkUtils.getNearestLink(network, zoneCentroid);
+			Link destinationLink = getZoneLink(zoneIndices.get(r.getMiddle()));
 
 			int flow = r.getRight();
 			for (int f = 0; f < flow; f++) {
@@ -91,6 +218,13 @@ public class AggregatedMinCostRelocationCalculator implements MinCostRelocationC
 		return relocations;
 	}
 
+	private Link getZoneLink(int zoneIdx) {
+		if (zoneLinks[zoneIdx] == null) {
+			zoneLinks[zoneIdx] = NetworkUtils.getNearestLink(network, zoneCentroids[zoneIdx]);
+		}
+		return zoneLinks[zoneIdx];
+	}
+
 	private Vehicle findNearestVehicle(List<Vehicle> rebalancableVehicles, Link destinationLink) {
 		Coord toCoord = destinationLink.getFromNode().getCoord();
 		return rebalancableVehicles.stream().min(Comparator.comparing(v -> DistanceUtils.calculateSquaredDistance(//
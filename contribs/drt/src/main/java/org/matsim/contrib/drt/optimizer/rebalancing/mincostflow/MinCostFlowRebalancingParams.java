@@ -20,9 +20,11 @@ package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
 
 import java.util.Map;
 
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
+import org.matsim.contrib.drt.optimizer.rebalancing.mincostflow.AggregatedMinCostRelocationCalculator.Solver;
 import org.matsim.core.config.ReflectiveConfigGroup;
 
 /**
@@ -61,6 +63,16 @@ public class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	static final String CELL_SIZE_EXP = "size of square cells used for demand aggregation."
 			+ " Depends on demand, supply and network. Often used with values in the range of 500 - 2000 m";
 
+	public static final String SOLVER = "solver";
+	static final String SOLVER_EXP = "Solver of the transport problem between the zones with surplus and deficit of vehicles."
+			+ " DENSE considers all pairs of zones. SPARSE considers only the pairs of zones within"
+			+ " maxRelocationDistance, reuses the solution of the previous rebalancing as a warm start"
+			+ " and scales to fine grids (thousands of zones). Default is DENSE.";
+
+	public static final String MAX_RELOCATION_DISTANCE = "maxRelocationDistance";
+	static final String MAX_RELOCATION_DISTANCE_EXP = "Maximum (straight-line) distance between the zones"
+			+ " a vehicle can be relocated between. Used only by the SPARSE solver. 0 m means no limit (default).";
+
 	@PositiveOrZero
 	private int interval = 1800;// [s], if 0 then no rebalancing
 
@@ -79,6 +91,12 @@ public class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	@Positive
 	public double cellSize = Double.NaN;// [m]
 
+	@NotNull
+	private Solver solver = Solver.DENSE;
+
+	@PositiveOrZero
+	private double maxRelocationDistance = 0;// [m], if 0 then no limit
+
 	public MinCostFlowRebalancingParams() {
 		super(SET_NAME);
 	}
@@ -92,6 +110,8 @@ public class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 		map.put(TARGET_ALPHA, TARGET_ALPHA_EXP);
 		map.put(TARGET_BETA, TARGET_BETA_EXP);
 		map.put(CELL_SIZE, CELL_SIZE_EXP);
+		map.put(SOLVER, SOLVER_EXP);
+		map.put(MAX_RELOCATION_DISTANCE, MAX_RELOCATION_DISTANCE_EXP);
 		return map;
 	}
 
@@ -196,4 +216,38 @@ public class MinCostFlowRebalancingParams extends ReflectiveConfigGroup {
 	public void setCellSize(double cellSize) {
 		this.cellSize = cellSize;
 	}
+
+	/**
+	 * @return -- {@value #SOLVER_EXP}
+	 */
+	@StringGetter(SOLVER)
+	public Solver getSolver() {
+		return solver;
+	}
+
+	/**
+	 * @param solver
+	 *            -- {@value #SOLVER_EXP}
+	 */
+	@StringSetter(SOLVER)
+	public void setSolver(Solver solver) {
+		this.solver = solver;
+	}
+
+	/**
+	 * @return -- {@value #MAX_RELOCATION_DISTANCE_EXP}
+	 */
+	@StringGetter(MAX_RELOCATION_DISTANCE)
+	public double getMaxRelocationDistance() {
+		return maxRelocationDistance;
+	}
+
+	/**
+	 * @param maxRelocationDistance
+	 *            -- {@value #MAX_RELOCATION_DISTANCE_EXP}
+	 */
+	@StringSetter(MAX_RELOCATION_DISTANCE)
+	public void setMaxRelocationDistance(double maxRelocationDistance) {
+		this.maxRelocationDistance = maxRelocationDistance;
+	}
 }
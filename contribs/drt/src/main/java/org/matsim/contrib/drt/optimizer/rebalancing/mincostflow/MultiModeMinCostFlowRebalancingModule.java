@@ -58,7 +58,8 @@ public class MultiModeMinCostFlowRebalancingModule extends AbstractMultiModeModu
 
 		bindModal(MinCostRelocationCalculator.class).toProvider(modalProvider(
 				getter -> new AggregatedMinCostRelocationCalculator(getter.getModal(DrtZonalSystem.class),
-						getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING)))).asEagerSingleton();
+						getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING), drtCfg)))
+				.asEagerSingleton();
 
 		bindModal(ZonalDemandAggregator.class).toProvider(modalProvider(
 				getter -> new ZonalDemandAggregator(getter.get(EventsManager.class),
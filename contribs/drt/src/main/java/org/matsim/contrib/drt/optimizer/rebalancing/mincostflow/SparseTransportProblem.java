@@ -0,0 +1,398 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Solves a sparse transport problem: the supply of each producer (e.g. zone with surplus vehicles) can be sent only to
+ * the consumers (e.g. zones with a deficit of vehicles) it has an edge to, and the goal is to send as much as possible
+ * at the minimum total cost.
+ * <p>
+ * The successive shortest path algorithm is used: the flow is augmented along the shortest paths (in terms of the
+ * reduced costs, found with Dijkstra's algorithm) from the producers with remaining supply to the consumers with
+ * remaining demand, each time by the maximum amount the path allows. After each search (and the update of the
+ * potentials), the flow is augmented along all paths of zero reduced cost that can be found by depth-first search, so
+ * often many paths are augmented per search. The memory usage is O(m) (m - edges), compared to O(n^2) for
+ * {@link TransportProblem} over all producer-consumer pairs.
+ * <p>
+ * The potentials (dual variables) of a previous solution of a similar problem can be used as the initial potentials
+ * (warm start), which may make the searches shorter (but not fewer). Any initial potentials are valid, since the
+ * consumer potentials are lowered where necessary to keep the reduced costs non-negative. The costs are integers, so
+ * are the potentials, and the reduced costs are exact.
+ */
+public class SparseTransportProblem {
+	private final int producers, consumers;
+	private final int[][] consumersByProducer;
+	private final int[][] costsByProducer;
+	private final int[][] flowsByProducer;
+
+	// incoming edges of each consumer: (producer, index of the edge in the producer's arrays)
+	private final int[][] edgeProducersByConsumer;
+	private final int[][] edgeIndicesByConsumer;
+
+	private final int[] remainingSupply, remainingDemand;
+
+	// nodes: producers 0..P-1, consumers P..P+C-1; reduced cost of arc (x, y): cost + potentials[x] - potentials[y] >= 0
+	private final long[] potentials;
+	private long sourcePotential;
+	private long sinkPotential;
+
+	// shortest path search
+	private final long[] dist;// Long.MAX_VALUE if not reached
+	private final int[] predNode;// -1 for the start (producer) nodes
+	private final int[] predEdge;// index of the edge in the arrays of the producer of the arc
+	private final boolean[] settled;
+	private final int[] touchedNodes;
+	private int touchedCount;
+	private final PriorityQueue<Label> queue = new PriorityQueue<>();
+
+	// depth-first search of paths of zero reduced cost
+	private final int[] stack;
+	private final int[] arcPositions;
+	private final int[] searchStamps;
+	private final int[] deadStamps;
+	private int search;
+	private int phase;
+
+	private static class Label implements Comparable<Label> {
+		private final int node;
+		private final long dist;
+		private final boolean end;// the path ends at the (consumer) node
+
+		private Label(int node, long dist, boolean end) {
+			this.node = node;
+			this.dist = dist;
+			this.end = end;
+		}
+
+		@Override
+		public int compareTo(Label o) {
+			return Long.compare(dist, o.dist);
+		}
+	}
+
+	/**
+	 * @param supply              supply of each producer
+	 * @param demand              demand of each consumer
+	 * @param consumersByProducer consumersByProducer[i] - consumers of the edges of producer i
+	 * @param costsByProducer     costsByProducer[i][k] - cost of the edge (i, consumersByProducer[i][k])
+	 * @param producerPotentials  initial producer potentials (e.g. from the previous solution), or null (all zeros)
+	 * @param consumerPotentials  initial consumer potentials (e.g. from the previous solution), or null (all zeros)
+	 */
+	public SparseTransportProblem(int[] supply, int[] demand, int[][] consumersByProducer, int[][] costsByProducer,
+			long[] producerPotentials, long[] consumerPotentials) {
+		this.producers = supply.length;
+		this.consumers = demand.length;
+		this.consumersByProducer = consumersByProducer;
+		this.costsByProducer = costsByProducer;
+		remainingSupply = supply.clone();
+		remainingDemand = demand.clone();
+
+		int[] edgeCounts = new int[consumers];
+		flowsByProducer = new int[producers][];
+		for (int i = 0; i < producers; i++) {
+			if (consumersByProducer[i].length != costsByProducer[i].length) {
+				throw new IllegalArgumentException("Irregular edge data for producer " + i);
+			}
+			flowsByProducer[i] = new int[consumersByProducer[i].length];
+			for (int j : consumersByProducer[i]) {
+				edgeCounts[j]++;
+			}
+		}
+
+		edgeProducersByConsumer = new int[consumers][];
+		edgeIndicesByConsumer = new int[consumers][];
+		for (int j = 0; j < consumers; j++) {
+			edgeProducersByConsumer[j] = new int[edgeCounts[j]];
+			edgeIndicesByConsumer[j] = new int[edgeCounts[j]];
+		}
+		Arrays.fill(edgeCounts, 0);
+		for (int i = 0; i < producers; i++) {
+			for (int k = 0; k < consumersByProducer[i].length; k++) {
+				int j = consumersByProducer[i][k];
+				edgeProducersByConsumer[j][edgeCounts[j]] = i;
+				edgeIndicesByConsumer[j][edgeCounts[j]] = k;
+				edgeCounts[j]++;
+			}
+		}
+
+		potentials = new long[producers + consumers];
+		initPotentials(producerPotentials, consumerPotentials);
+
+		dist = new long[producers + consumers];
+		Arrays.fill(dist, Long.MAX_VALUE);
+		predNode = new int[producers + consumers];
+		predEdge = new int[producers + consumers];
+		settled = new boolean[producers + consumers];
+		touchedNodes = new int[producers + consumers];
+
+		stack = new int[producers + consumers];
+		arcPositions = new int[producers + consumers];
+		searchStamps = new int[producers + consumers];
+		deadStamps = new int[producers + consumers];
+	}
+
+	// no flows yet, so the residual arcs are: source->producer, producer->consumer and consumer->sink
+	private void initPotentials(long[] producerPotentials, long[] consumerPotentials) {
+		sourcePotential = producers == 0 ? 0 : Long.MIN_VALUE;
+		for (int i = 0; i < producers; i++) {
+			potentials[i] = producerPotentials == null ? 0 : producerPotentials[i];
+			sourcePotential = Math.max(sourcePotential, potentials[i]);
+		}
+
+		sinkPotential = consumers == 0 ? 0 : Long.MAX_VALUE;
+		for (int j = 0; j < consumers; j++) {
+			long potential = consumerPotentials == null ? 0 : consumerPotentials[j];
+			for (int e = 0; e < edgeProducersByConsumer[j].length; e++) {
+				int i = edgeProducersByConsumer[j][e];
+				potential = Math.min(potential, costsByProducer[i][edgeIndicesByConsumer[j][e]] + potentials[i]);
+			}
+			potentials[producers + j] = potential;
+			sinkPotential = Math.min(sinkPotential, potential);
+		}
+	}
+
+	/**
+	 * @return flows (flowsByProducer[i][k] - flow along the edge (i, consumersByProducer[i][k]))
+	 */
+	public int[][] execute() {
+		while (findShortestPath()) {
+			augmentAdmissiblePaths();
+		}
+
+		int[][] flows = new int[producers][];
+		for (int i = 0; i < producers; i++) {
+			flows[i] = flowsByProducer[i].clone();
+		}
+		return flows;
+	}
+
+	public long[] getProducerPotentials() {
+		return Arrays.copyOfRange(potentials, 0, producers);
+	}
+
+	public long[] getConsumerPotentials() {
+		return Arrays.copyOfRange(potentials, producers, producers + consumers);
+	}
+
+	// updates the potentials, so that the reduced cost of the shortest path is zero
+	private boolean findShortestPath() {
+		for (int i = 0; i < producers; i++) {
+			if (remainingSupply[i] > 0) {
+				updateDist(i, sourcePotential - potentials[i], -1, -1);
+			}
+		}
+
+		// the path may end at any consumer j with remaining demand, at the extra cost of (potentials[j] - sinkPotential)
+		int endConsumer = -1;
+		long pathLength = 0;
+		while (!queue.isEmpty()) {
+			Label label = queue.poll();
+			int x = label.node;
+			if (label.end) {
+				endConsumer = x - producers;
+				pathLength = label.dist;
+				break;
+			}
+			if (settled[x] || label.dist > dist[x]) {
+				continue;// outdated label
+			}
+			settled[x] = true;
+
+			if (x < producers) {
+				relaxProducerArcs(x);
+			} else {
+				int j = x - producers;
+				if (remainingDemand[j] > 0) {
+					queue.add(new Label(x, dist[x] + potentials[x] - sinkPotential, true));
+				}
+				relaxConsumerArcs(j);
+			}
+		}
+		queue.clear();
+
+		if (endConsumer != -1) {
+			updatePotentials(pathLength);
+		}
+
+		for (int t = 0; t < touchedCount; t++) {
+			int x = touchedNodes[t];
+			dist[x] = Long.MAX_VALUE;
+			settled[x] = false;
+		}
+		touchedCount = 0;
+		return endConsumer != -1;
+	}
+
+	// forward arcs (producer -> consumer)
+	private void relaxProducerArcs(int i) {
+		int[] consumers = consumersByProducer[i];
+		int[] costs = costsByProducer[i];
+		for (int k = 0; k < consumers.length; k++) {
+			int y = producers + consumers[k];
+			if (!settled[y]) {
+				updateDist(y, dist[i] + costs[k] + potentials[i] - potentials[y], i, k);
+			}
+		}
+	}
+
+	// backward arcs (consumer -> producer), only if there is a flow to be reduced
+	private void relaxConsumerArcs(int j) {
+		int x = producers + j;
+		int[] edgeProducers = edgeProducersByConsumer[j];
+		int[] edgeIndices = edgeIndicesByConsumer[j];
+		for (int e = 0; e < edgeProducers.length; e++) {
+			int i = edgeProducers[e];
+			int k = edgeIndices[e];
+			if (!settled[i] && flowsByProducer[i][k] > 0) {
+				updateDist(i, dist[x] - costsByProducer[i][k] + potentials[x] - potentials[i], x, k);
+			}
+		}
+	}
+
+	private void updateDist(int x, long newDist, int pred, int edge) {
+		if (newDist < dist[x]) {
+			if (dist[x] == Long.MAX_VALUE) {
+				touchedNodes[touchedCount++] = x;
+			}
+			dist[x] = newDist;
+			predNode[x] = pred;
+			predEdge[x] = edge;
+			queue.add(new Label(x, newDist, false));
+		}
+	}
+
+	// Equivalent to adding min(dist, pathLength) to all potentials (and then subtracting pathLength from all of them).
+	// Keeps the reduced costs non-negative, and makes them zero along the shortest path
+	private void updatePotentials(long pathLength) {
+		for (int t = 0; t < touchedCount; t++) {
+			int x = touchedNodes[t];
+			if (settled[x]) {
+				potentials[x] += dist[x] - pathLength;
+			}
+		}
+		sourcePotential -= pathLength;
+	}
+
+	private void augmentAdmissiblePaths() {
+		phase++;
+		for (int i = 0; i < producers; i++) {
+			if (remainingSupply[i] > 0 && sourcePotential == potentials[i]) {
+				int endConsumer;
+				while (remainingSupply[i] > 0 && (endConsumer = findAdmissiblePath(i)) != -1) {
+					augmentFlow(endConsumer);
+				}
+			}
+		}
+	}
+
+	// depth-first search over the arcs of zero reduced cost; the nodes with no path found are skipped in this phase
+	private int findAdmissiblePath(int startProducer) {
+		search++;
+		int stackSize = 0;
+		stack[stackSize++] = startProducer;
+		searchStamps[startProducer] = search;
+		arcPositions[startProducer] = 0;
+		predNode[startProducer] = -1;
+
+		while (stackSize > 0) {
+			int x = stack[stackSize - 1];
+			int y = -1;
+			if (x < producers) {
+				int[] consumers = consumersByProducer[x];
+				while (arcPositions[x] < consumers.length) {
+					int k = arcPositions[x]++;
+					int candidate = producers + consumers[k];
+					if (isUnvisited(candidate)
+							&& costsByProducer[x][k] + potentials[x] - potentials[candidate] == 0) {
+						y = candidate;
+						predEdge[y] = k;
+						break;
+					}
+				}
+			} else {
+				int j = x - producers;
+				if (remainingDemand[j] > 0 && potentials[x] == sinkPotential) {
+					return j;
+				}
+				int[] edgeProducers = edgeProducersByConsumer[j];
+				while (arcPositions[x] < edgeProducers.length) {
+					int e = arcPositions[x]++;
+					int candidate = edgeProducers[e];
+					int k = edgeIndicesByConsumer[j][e];
+					if (isUnvisited(candidate) && flowsByProducer[candidate][k] > 0
+							&& -costsByProducer[candidate][k] + potentials[x] - potentials[candidate] == 0) {
+						y = candidate;
+						predEdge[y] = k;
+						break;
+					}
+				}
+			}
+
+			if (y == -1) {
+				deadStamps[x] = phase;
+				stackSize--;
+			} else {
+				searchStamps[y] = search;
+				arcPositions[y] = 0;
+				predNode[y] = x;
+				stack[stackSize++] = y;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isUnvisited(int x) {
+		return searchStamps[x] != search && deadStamps[x] != phase;
+	}
+
+	private void augmentFlow(int endConsumer) {
+		// find the start producer and the bottleneck
+		int amount = remainingDemand[endConsumer];
+		int x = producers + endConsumer;
+		while (true) {
+			int pred = predNode[x];
+			if (pred == -1) {
+				amount = Math.min(amount, remainingSupply[x]);
+				break;
+			}
+			if (pred >= producers) {// backward arc (consumer pred -> producer x)
+				amount = Math.min(amount, flowsByProducer[x][predEdge[x]]);
+			}
+			x = pred;
+		}
+		int startProducer = x;
+
+		x = producers + endConsumer;
+		while (x != startProducer) {
+			int pred = predNode[x];
+			if (pred >= producers) {
+				flowsByProducer[x][predEdge[x]] -= amount;
+			} else {
+				flowsByProducer[pred][predEdge[x]] += amount;
+			}
+			x = pred;
+		}
+
+		remainingSupply[startProducer] -= amount;
+		remainingDemand[endConsumer] -= amount;
+	}
+}
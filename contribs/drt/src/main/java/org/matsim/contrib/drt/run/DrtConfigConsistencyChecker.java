@@ -78,6 +78,22 @@ public class DrtConfigConsistencyChecker implements ConfigConsistencyChecker {
 					+ " is "
 					+ DrtConfigGroup.OperationalScheme.stopbased);
 		}
+		if (drtCfg.isStopToStopTravelTimeMatrix() && drtCfg.getOperationalScheme() != OperationalScheme.stopbased) {
+			throw new RuntimeException(DrtConfigGroup.STOP_TO_STOP_TRAVEL_TIME_MATRIX
+					+ " can be used only when "
+					+ DrtConfigGroup.OPERATIONAL_SCHEME
+					+ " is "
+					+ DrtConfigGroup.OperationalScheme.stopbased);
+		}
+		if (drtCfg.isVehicleSpatialIndex() && !drtCfg.isRequestRejection() && Double.isInfinite(
+				drtCfg.getMaxPickupDetourTime())) {
+			log.warn(DrtConfigGroup.VEHICLE_SPATIAL_INDEX + " has no effect if " + DrtConfigGroup.REQUEST_REJECTION
+					+ " is false and " + DrtConfigGroup.MAX_PICKUP_DETOUR_TIME + " is infinite");
+		}
+		if (!drtCfg.isVehicleSpatialIndex() && !Double.isInfinite(drtCfg.getMaxPickupDetourTime())) {
+			log.warn(DrtConfigGroup.MAX_PICKUP_DETOUR_TIME + " has no effect if " + DrtConfigGroup.VEHICLE_SPATIAL_INDEX
+					+ " is false");
+		}
 		if (drtCfg.getNumberOfThreads() > Runtime.getRuntime().availableProcessors()) {
 			throw new RuntimeException(
 					DrtConfigGroup.NUMBER_OF_THREADS + " is higher than the number of logical cores available to JVM");
@@ -119,6 +119,39 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 					+ " Scales well up to 4, due to path data provision, the most computationally intensive part,"
 					+ " using up to 4 threads. Default value is 'min(4, no. of cores available to JVM)'";
 
+	public static final String BATCHED_REQUEST_INSERTION = "batchedRequestInsertion";
+	static final String BATCHED_REQUEST_INSERTION_EXP =
+			"If true, the requests submitted since the last optimisation step are inserted as a batch: the insertions"
+					+ " of all requests are evaluated together and in parallel, and requests with paths from/to the"
+					+ " same link at the same time share the path searches. If the best insertions of several requests"
+					+ " use the same vehicle, the request submitted first gets the vehicle, and the others are evaluated"
+					+ " again with the updated schedule. The path searches are not limited to 4 threads then. False by"
+					+ " default.";
+
+	public static final String STOP_TO_STOP_TRAVEL_TIME_MATRIX = "stopToStopTravelTimeMatrix";
+	static final String STOP_TO_STOP_TRAVEL_TIME_MATRIX_EXP =
+			"Used only for stopbased DRT scheme. If true, the travel times between all stops are precalculated for"
+					+ " each travel time bin (see travelTimeCalculator) at the beginning of each iteration, and the"
+					+ " insertion heuristic takes them from this matrix instead of running path searches. Requires"
+					+ " 8 bytes (travel time and distance) per stop pair and time bin. False by default.";
+
+	public static final String VEHICLE_SPATIAL_INDEX = "vehicleSpatialIndex";
+	static final String VEHICLE_SPATIAL_INDEX_EXP =
+			"If true, the vehicles (their current positions and scheduled stops) are kept in a spatial index, and"
+					+ " the insertion of a request is evaluated only for the vehicles that may reach the pickup"
+					+ " location within the max wait time (only if requestRejection is true, otherwise the max wait"
+					+ " time is not a hard constraint) and within maxPickupDetourTime. The results are the same as"
+					+ " without the index as long as maxPickupDetourTime is infinite. Has effect only if"
+					+ " requestRejection is true or maxPickupDetourTime is finite. False by default.";
+
+	public static final String MAX_PICKUP_DETOUR_TIME = "maxPickupDetourTime";
+	static final String MAX_PICKUP_DETOUR_TIME_EXP =
+			"Used only if vehicleSpatialIndex is true. Max time [s] of driving (beeline distance at the optimistic"
+					+ " beeline speed) from the current position or a scheduled stop of a vehicle to the pickup"
+					+ " location of a new request. Vehicles that are further away are not considered for the"
+					+ " insertion. This is a heuristic cut (also with requestRejection false), so the best insertion"
+					+ " may be missed. Infinity by default (no cut).";
+
 	@NotBlank
 	private String mode = TransportMode.drt; // travel mode (passengers'/customers' perspective)
 
@@ -165,6 +198,15 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 	private boolean plotDetailedCustomerStats = true;
 	private boolean printDetailedWarnings = true;
 
+	private boolean batchedRequestInsertion = false;
+
+	private boolean stopToStopTravelTimeMatrix = false;
+
+	private boolean vehicleSpatialIndex = false;
+
+	@Positive
+	private double maxPickupDetourTime = Double.POSITIVE_INFINITY;// [s]
+
 	@Positive
 	private int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(),
 			ParallelPathDataProvider.MAX_THREADS);
@@ -197,6 +239,10 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_EXP);
 		map.put(PRINT_WARNINGS, PRINT_WARNINGS_EXP);
 		map.put(REQUEST_REJECTION, REQUEST_REJECTION_EXP);
+		map.put(BATCHED_REQUEST_INSERTION, BATCHED_REQUEST_INSERTION_EXP);
+		map.put(STOP_TO_STOP_TRAVEL_TIME_MATRIX, STOP_TO_STOP_TRAVEL_TIME_MATRIX_EXP);
+		map.put(VEHICLE_SPATIAL_INDEX, VEHICLE_SPATIAL_INDEX_EXP);
+		map.put(MAX_PICKUP_DETOUR_TIME, MAX_PICKUP_DETOUR_TIME_EXP);
 		return map;
 	}
 
@@ -488,6 +534,70 @@ public class DrtConfigGroup extends ReflectiveConfigGroup implements HasMode {
 		this.printDetailedWarnings = printDetailedWarnings;
 	}
 
+	/**
+	 * @return -- {@value #BATCHED_REQUEST_INSERTION_EXP}
+	 */
+	@StringGetter(BATCHED_REQUEST_INSERTION)
+	public boolean isBatchedRequestInsertion() {
+		return batchedRequestInsertion;
+	}
+
+	/**
+	 * @param -- {@value #BATCHED_REQUEST_INSERTION_EXP}
+	 */
+	@StringSetter(BATCHED_REQUEST_INSERTION)
+	public void setBatchedRequestInsertion(boolean batchedRequestInsertion) {
+		this.batchedRequestInsertion = batchedRequestInsertion;
+	}
+
+	/**
+	 * @return -- {@value #STOP_TO_STOP_TRAVEL_TIME_MATRIX_EXP}
+	 */
+	@StringGetter(STOP_TO_STOP_TRAVEL_TIME_MATRIX)
+	public boolean isStopToStopTravelTimeMatrix() {
+		return stopToStopTravelTimeMatrix;
+	}
+
+	/**
+	 * @param -- {@value #STOP_TO_STOP_TRAVEL_TIME_MATRIX_EXP}
+	 */
+	@StringSetter(STOP_TO_STOP_TRAVEL_TIME_MATRIX)
+	public void setStopToStopTravelTimeMatrix(boolean stopToStopTravelTimeMatrix) {
+		this.stopToStopTravelTimeMatrix = stopToStopTravelTimeMatrix;
+	}
+
+	/**
+	 * @return -- {@value #VEHICLE_SPATIAL_INDEX_EXP}
+	 */
+	@StringGetter(VEHICLE_SPATIAL_INDEX)
+	public boolean isVehicleSpatialIndex() {
+		return vehicleSpatialIndex;
+	}
+
+	/**
+	 * @param -- {@value #VEHICLE_SPATIAL_INDEX_EXP}
+	 */
+	@StringSetter(VEHICLE_SPATIAL_INDEX)
+	public void setVehicleSpatialIndex(boolean vehicleSpatialIndex) {
+		this.vehicleSpatialIndex = vehicleSpatialIndex;
+	}
+
+	/**
+	 * @return -- {@value #MAX_PICKUP_DETOUR_TIME_EXP}
+	 */
+	@StringGetter(MAX_PICKUP_DETOUR_TIME)
+	public double getMaxPickupDetourTime() {
+		return maxPickupDetourTime;
+	}
+
+	/**
+	 * @param -- {@value #MAX_PICKUP_DETOUR_TIME_EXP}
+	 */
+	@StringSetter(MAX_PICKUP_DETOUR_TIME)
+	public void setMaxPickupDetourTime(double maxPickupDetourTime) {
+		this.maxPickupDetourTime = maxPickupDetourTime;
+	}
+
 	/**
 	 * @return 'minCostFlowRebalancing' parameter set defined in the DRT config or null if the parameters were not
 	 * specified
@@ -22,21 +22,26 @@
  */
 package org.matsim.contrib.drt.run;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.function.Function;
 
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.population.Route;
 import org.matsim.contrib.drt.analysis.DrtAnalysisModule;
 import org.matsim.contrib.drt.optimizer.DrtOptimizer;
+import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
+import org.matsim.contrib.drt.optimizer.insertion.StopBasedPathDataProvider;
 import org.matsim.contrib.drt.routing.DrtRoute;
 import org.matsim.contrib.drt.routing.DrtRouteFactory;
 import org.matsim.contrib.dvrp.run.DvrpModule;
 import org.matsim.contrib.otfvis.OTFVisLiveModule;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.mobsim.framework.listeners.MobsimListener;
 import org.matsim.core.population.routes.RouteFactories;
 import org.matsim.core.scenario.ScenarioUtils;
 
@@ -106,9 +111,14 @@ public final class DrtControlerCreator {
 
 	public static void addDrtAsSingleDvrpModeToControler(Controler controler) {
 		addDrtWithoutDvrpModuleToControler(controler);
-		controler.addOverridingModule(DvrpModule.createModule(DrtConfigGroup.get(controler.getConfig()).getMode(),
+		DrtConfigGroup drtCfg = DrtConfigGroup.get(controler.getConfig());
+		List<Class<? extends MobsimListener>> listeners = new ArrayList<>(
 				Arrays.asList(DrtOptimizer.class, DefaultUnplannedRequestInserter.class,
-						ParallelPathDataProvider.class)));
+						VehicleDataEntryFactoryImpl.class, ParallelPathDataProvider.class));
+		if (drtCfg.isStopToStopTravelTimeMatrix()) {
+			listeners.add(StopBasedPathDataProvider.class);
+		}
+		controler.addOverridingModule(DvrpModule.createModule(drtCfg.getMode(), listeners));
 	}
 
 	public static void addDrtWithoutDvrpModuleToControler(Controler controler) {
@@ -24,9 +24,11 @@ import org.matsim.contrib.drt.optimizer.DefaultDrtOptimizer;
 import org.matsim.contrib.drt.optimizer.DrtOptimizer;
 import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
+import org.matsim.contrib.drt.optimizer.insertion.BatchPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.PrecalculablePathDataProvider;
+import org.matsim.contrib.drt.optimizer.insertion.StopBasedPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
 import org.matsim.contrib.drt.passenger.DrtRequestCreator;
 import org.matsim.contrib.drt.schedule.DrtTaskFactory;
@@ -62,7 +64,8 @@ public class DrtQSimModule extends AbstractQSimModule {
 
 		bind(DefaultUnplannedRequestInserter.class).asEagerSingleton();
 		bind(UnplannedRequestInserter.class).to(DefaultUnplannedRequestInserter.class);
-		bind(VehicleData.EntryFactory.class).to(VehicleDataEntryFactoryImpl.class).asEagerSingleton();
+		bind(VehicleDataEntryFactoryImpl.class).asEagerSingleton();
+		bind(VehicleData.EntryFactory.class).to(VehicleDataEntryFactoryImpl.class);
 
 		bind(DrtTaskFactory.class).to(DrtTaskFactoryImpl.class).asEagerSingleton();
 
@@ -72,7 +75,13 @@ public class DrtQSimModule extends AbstractQSimModule {
 		bind(DrtScheduleTimingUpdater.class).asEagerSingleton();
 
 		bind(ParallelPathDataProvider.class).asEagerSingleton();
-		bind(PrecalculablePathDataProvider.class).to(ParallelPathDataProvider.class);
+		if (DrtConfigGroup.get(getConfig()).isStopToStopTravelTimeMatrix()) {
+			bind(StopBasedPathDataProvider.class).asEagerSingleton();
+			bind(PrecalculablePathDataProvider.class).to(StopBasedPathDataProvider.class);
+		} else {
+			bind(PrecalculablePathDataProvider.class).to(ParallelPathDataProvider.class);
+		}
+		bind(BatchPathDataProvider.class).asEagerSingleton();
 
 		DvrpMode dvrpMode = DvrpModes.mode(DrtConfigGroup.get(getConfig()).getMode());
 		bind(VrpOptimizer.class).annotatedWith(dvrpMode).to(DrtOptimizer.class);
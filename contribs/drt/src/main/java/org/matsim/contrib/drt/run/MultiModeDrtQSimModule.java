@@ -26,10 +26,12 @@ import org.matsim.contrib.drt.optimizer.DrtOptimizer;
 import org.matsim.contrib.drt.optimizer.VehicleData;
 import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
 import org.matsim.contrib.drt.optimizer.depot.DepotFinder;
+import org.matsim.contrib.drt.optimizer.insertion.BatchPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.DefaultUnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.insertion.InsertionCostCalculator;
 import org.matsim.contrib.drt.optimizer.insertion.ParallelPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.PrecalculablePathDataProvider;
+import org.matsim.contrib.drt.optimizer.insertion.StopBasedPathDataProvider;
 import org.matsim.contrib.drt.optimizer.insertion.UnplannedRequestInserter;
 import org.matsim.contrib.drt.optimizer.rebalancing.RebalancingStrategy;
 import org.matsim.contrib.drt.passenger.DrtRequestCreator;
@@ -45,17 +47,21 @@ import org.matsim.contrib.dvrp.optimizer.VrpOptimizer;
 import org.matsim.contrib.dvrp.passenger.PassengerEngine;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestCreator;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorCacheManager;
 import org.matsim.contrib.dvrp.run.AbstractMultiModeQSimModule;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.contrib.dvrp.run.ModalProviders;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.contrib.dvrp.vrpagent.VrpAgentLogic;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
 
 import com.google.inject.Inject;
+import com.google.inject.Key;
 import com.google.inject.Provider;
 import com.google.inject.name.Named;
 
@@ -85,10 +91,17 @@ public class MultiModeDrtQSimModule extends AbstractMultiModeQSimModule {
 						getter.getModal(RequestInsertionScheduler.class),
 						getter.getModal(VehicleData.EntryFactory.class),
 						getter.getModal(PrecalculablePathDataProvider.class),
+						getter.getModal(BatchPathDataProvider.class),
 						getter.getModal(InsertionCostCalculator.PenaltyCalculator.class)))).asEagerSingleton();
 		bindModal(UnplannedRequestInserter.class).to(modalKey(DefaultUnplannedRequestInserter.class));
 
-		bindModal(VehicleData.EntryFactory.class).toInstance(new VehicleDataEntryFactoryImpl(drtCfg));
+		// a new factory for each QSim; the modal key has a QSimComponent type and the mode annotation, so
+		// ComponentRegistry picks it up as a component of this mode and the QSim calls it as a MobsimListener
+		// (same as DefaultUnplannedRequestInserter above). Binding it again with bindModalComponent() would
+		// duplicate this key.
+		bindModal(VehicleDataEntryFactoryImpl.class).toProvider(
+				modalProvider(getter -> new VehicleDataEntryFactoryImpl(drtCfg))).asEagerSingleton();
+		bindModal(VehicleData.EntryFactory.class).to(modalKey(VehicleDataEntryFactoryImpl.class));
 
 		bindModal(DrtTaskFactory.class).toInstance(new DrtTaskFactoryImpl());
 
@@ -109,10 +122,14 @@ public class MultiModeDrtQSimModule extends AbstractMultiModeQSimModule {
 					@Inject
 					private MobsimTimer timer;
 
+					@Inject
+					private LeastCostPathCalculatorCacheManager cacheManager;
+
 					@Override
 					public EmptyVehicleRelocator get() {
 						DrtTaskFactory taskFactory = getModalInstance(DrtTaskFactory.class);
-						return new EmptyVehicleRelocator(network, travelTime, travelDisutility, timer, taskFactory);
+						return new EmptyVehicleRelocator(network, travelTime, travelDisutility, timer, taskFactory,
+								drtCfg, cacheManager);
 					}
 				}).asEagerSingleton();
 
@@ -151,7 +168,35 @@ public class MultiModeDrtQSimModule extends AbstractMultiModeQSimModule {
 				return new ParallelPathDataProvider(network, travelTime, travelDisutility, drtCfg);
 			}
 		}).asEagerSingleton();
-		bindModal(PrecalculablePathDataProvider.class).to(modalKey(ParallelPathDataProvider.class));
+		if (drtCfg.isStopToStopTravelTimeMatrix()) {
+			bindModal(StopBasedPathDataProvider.class).toProvider(modalProvider(
+					getter -> new StopBasedPathDataProvider(
+							getter.getNamed(Network.class, DvrpRoutingNetworkProvider.DVRP_ROUTING),
+							getter.getNamed(TravelTime.class, DvrpTravelTimeModule.DVRP_ESTIMATED),
+							getter.get(Key.get(TravelDisutility.class, Drt.class)),
+							getter.getModal(TransitSchedule.class), getter.get(TravelTimeCalculatorConfigGroup.class),
+							drtCfg, getter.get(DvrpConfigGroup.class)))).asEagerSingleton();
+			bindModal(PrecalculablePathDataProvider.class).to(modalKey(StopBasedPathDataProvider.class));
+		} else {
+			bindModal(PrecalculablePathDataProvider.class).to(modalKey(ParallelPathDataProvider.class));
+		}
+
+		bindModal(BatchPathDataProvider.class).toProvider(new Provider<BatchPathDataProvider>() {
+			@Inject
+			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING)
+			private Network network;
+			@Inject
+			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED)
+			private TravelTime travelTime;
+			@Inject
+			@Drt
+			private TravelDisutility travelDisutility;
+
+			@Override
+			public BatchPathDataProvider get() {
+				return new BatchPathDataProvider(network, travelTime, travelDisutility, drtCfg);
+			}
+		}).asEagerSingleton();
 
 		bindModal(VrpAgentLogic.DynActionCreator.class).
 				toProvider(modalProvider(getter -> new DrtActionCreator(getter.getModal(PassengerEngine.class),
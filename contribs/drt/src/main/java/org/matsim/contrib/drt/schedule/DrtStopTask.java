@@ -63,10 +63,12 @@ public class DrtStopTask extends StayTaskImpl implements DrtTask {
 
 	public void addDropoffRequest(DrtRequest request) {
 		dropoffRequests.add(request);
+		notifyModified();
 	}
 
 	public void addPickupRequest(DrtRequest request) {
 		pickupRequests.add(request);
+		notifyModified();
 	}
 
 	@Override
@@ -81,6 +81,10 @@ public class DrtScheduleTimingUpdater {
 		}
 	}
 
+	/**
+	 * The changes are propagated forward only as long as they change the timing of the subsequent tasks; the tasks
+	 * after the first unchanged one are consistent with it, so they are left untouched.
+	 */
 	void updateTimingsStartingFromTaskIdx(Vehicle vehicle, int startIdx, double newBeginTime) {
 		Schedule schedule = vehicle.getSchedule();
 		List<? extends Task> tasks = schedule.getTasks();
@@ -89,7 +93,9 @@ public class DrtScheduleTimingUpdater {
 			DrtTask task = (DrtTask)tasks.get(i);
 			double calcEndTime = calcNewEndTime(vehicle, task, newBeginTime);
 
-			if (Time.isUndefinedTime(calcEndTime)) {
+			if (task.getBeginTime() == newBeginTime && task.getEndTime() == calcEndTime) {
+				return;
+			} else if (Time.isUndefinedTime(calcEndTime)) {
 				schedule.removeTask(task);
 				i--;
 			} else if (calcEndTime < newBeginTime) {// 0 s is fine (e.g. last 'wait')
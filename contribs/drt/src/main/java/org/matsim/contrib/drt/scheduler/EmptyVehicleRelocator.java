@@ -22,12 +22,14 @@ package org.matsim.contrib.drt.scheduler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.drt.run.Drt;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.schedule.DrtStayTask;
 import org.matsim.contrib.drt.schedule.DrtTaskFactory;
 import org.matsim.contrib.dvrp.data.Vehicle;
 import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
 import org.matsim.contrib.dvrp.path.VrpPaths;
 import org.matsim.contrib.dvrp.router.DvrpRoutingNetworkProvider;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorCacheManager;
 import org.matsim.contrib.dvrp.schedule.Schedule;
 import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeModule;
 import org.matsim.core.mobsim.framework.MobsimTimer;
@@ -51,11 +53,25 @@ public class EmptyVehicleRelocator {
 	@Inject
 	public EmptyVehicleRelocator(@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network,
 			@Named(DvrpTravelTimeModule.DVRP_ESTIMATED) TravelTime travelTime, @Drt TravelDisutility travelDisutility,
+			MobsimTimer timer, DrtTaskFactory taskFactory, DrtConfigGroup drtCfg,
+			LeastCostPathCalculatorCacheManager cacheManager) {
+		// vehicles are relocated to a limited number of (e.g. rebalancing zone) destinations, so the paths may be cached
+		this(travelTime, timer, taskFactory, cacheManager.createCalculator(drtCfg.getMode() + "_relocation",
+				() -> new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime)));
+	}
+
+	public EmptyVehicleRelocator(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
 			MobsimTimer timer, DrtTaskFactory taskFactory) {
+		this(travelTime, timer, taskFactory,
+				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime));
+	}
+
+	public EmptyVehicleRelocator(TravelTime travelTime, MobsimTimer timer, DrtTaskFactory taskFactory,
+			LeastCostPathCalculator router) {
 		this.travelTime = travelTime;
 		this.timer = timer;
 		this.taskFactory = taskFactory;
-		router = new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime);
+		this.router = router;
 	}
 
 	public void relocateVehicle(Vehicle vehicle, Link link) {
@@ -0,0 +1,135 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Checks when the cached entries are reused, and when they are rebuilt.
+ */
+public class VehicleDataEntryFactoryImplTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+	private final Link link = createLink(nodeA, nodeB);
+	private final Link otherLink = createLink(nodeB, nodeA);
+
+	private final Vehicle vehicle = new VehicleImpl(Id.create("v", Vehicle.class), link, 4, 0, 1000);
+	private final Schedule schedule = vehicle.getSchedule();
+	private final DrtStopTask stopTask = new DrtStopTask(100, 160, link);
+
+	private VehicleDataEntryFactoryImpl factory;
+
+	@Before
+	public void init() {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setMaxWaitTime(600);
+		drtCfg.setStopDuration(60);
+		factory = new VehicleDataEntryFactoryImpl(drtCfg);
+
+		// the vehicle waits until the stop
+		schedule.addTask(new DrtStayTask(0, 100, link));
+		schedule.addTask(stopTask);
+		schedule.addTask(new DrtStayTask(160, 1000, link));
+		schedule.nextTask();
+	}
+
+	@Test
+	public void testEntryReusedIfScheduleUnchanged() {
+		Entry entry1 = factory.create(vehicle, 10);
+		Entry entry2 = factory.create(vehicle, 20);
+
+		// only the start is updated (a staying vehicle may start now)
+		assertEquals(10, entry1.start.time, 0);
+		assertEquals(20, entry2.start.time, 0);
+		assertSame(entry1.stops, entry2.stops);
+		assertEquals(1, entry2.stops.size());
+	}
+
+	@Test
+	public void testSameEntryIfStartUnchanged() {
+		schedule.nextTask();// the vehicle is at the stop, so it can start only after the stop ends
+		Entry entry1 = factory.create(vehicle, 110);
+		assertSame(entry1, factory.create(vehicle, 120));
+		assertEquals(160, entry1.start.time, 0);
+	}
+
+	@Test
+	public void testEntryRebuiltAfterScheduleModification() {
+		Entry entry1 = factory.create(vehicle, 10);
+
+		long count = schedule.getModificationCount();
+		stopTask.addPickupRequest(createRequest("r1"));
+		assertEquals(count + 1, schedule.getModificationCount());
+
+		Entry entry2 = factory.create(vehicle, 10);
+		assertNotSame(entry1.stops, entry2.stops);
+		assertEquals(0, entry1.stops.get(0).occupancyChange);
+		assertEquals(1, entry2.stops.get(0).occupancyChange);
+
+		stopTask.addDropoffRequest(createRequest("r2"));
+		assertEquals(count + 2, schedule.getModificationCount());
+		assertEquals(0, factory.create(vehicle, 10).stops.get(0).occupancyChange);
+	}
+
+	@Test
+	public void testEntryRebuiltAfterTimeChange() {
+		Entry entry1 = factory.create(vehicle, 10);
+		stopTask.setEndTime(170);
+		Entry entry2 = factory.create(vehicle, 10);
+		assertNotSame(entry1.stops, entry2.stops);
+		assertEquals(170, entry2.stops.get(0).task.getEndTime(), 0);
+	}
+
+	@Test
+	public void testCacheClearedBeforeCleanup() {
+		Entry entry1 = factory.create(vehicle, 10);
+		factory.notifyMobsimBeforeCleanup(null);
+		assertNotSame(entry1.stops, factory.create(vehicle, 10).stops);
+	}
+
+	private DrtRequest createRequest(String id) {
+		return new DrtRequest(Id.create(id, Request.class), null, link, otherLink, 0, 600, 1200, 0);
+	}
+
+	private Link createLink(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "" + to.getId()), from, to, 1000,
+				10, 1000, 1);
+	}
+}
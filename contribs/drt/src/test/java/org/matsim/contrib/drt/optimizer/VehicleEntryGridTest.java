@@ -0,0 +1,239 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.optimizer.VehicleData.Entry;
+import org.matsim.contrib.drt.optimizer.VehicleData.Stop;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.contrib.util.distance.DistanceUtils;
+import org.matsim.core.network.NetworkUtils;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * @see VehicleEntryGrid
+ */
+public class VehicleEntryGridTest {
+	private static final double CELL_SIZE = 1000;
+	private static final double SPEED = 10;
+	private static final double INF = Double.POSITIVE_INFINITY;
+
+	private final Network network = NetworkUtils.createNetwork();
+	private int vehicleCount = 0;
+
+	@Test
+	public void testEntriesInsideAndOutsideReach() {
+		Entry entry = createEntry(link(0, 0), 0);
+		VehicleEntryGrid grid = grid(entry);
+		Link target = link(500, 0);
+
+		assertEquals(set(entry), grid.getEntriesWithinReach(target, 0, 50, INF, SPEED));// exactly in time
+		assertEquals(set(), grid.getEntriesWithinReach(target, 0, 49.9, INF, SPEED));
+		assertEquals(set(), grid.getEntriesWithinReach(target, 10, 55, INF, SPEED));// cannot depart before now
+	}
+
+	@Test
+	public void testMaxDetourTime() {
+		Entry entry = createEntry(link(0, 0), 0);
+		VehicleEntryGrid grid = grid(entry);
+		Link target = link(500, 0);
+
+		assertEquals(set(entry), grid.getEntriesWithinReach(target, 0, INF, 50, SPEED));
+		assertEquals(set(), grid.getEntriesWithinReach(target, 0, INF, 49.9, SPEED));
+		assertEquals(set(), grid.getEntriesWithinReach(target, 0, 1000, 49.9, SPEED));
+	}
+
+	@Test
+	public void testReachableFromStop() {
+		// the start is far away, but the vehicle is close to the target after the stop
+		Entry entry = createEntry(link(10_000, 0), 0, link(2000, 0), 100);
+		VehicleEntryGrid grid = grid(entry);
+		Link target = link(2100, 0);
+
+		assertEquals(set(entry), grid.getEntriesWithinReach(target, 0, 110, INF, SPEED));
+		// 790 s from the start, 10 s after the stop
+		assertEquals(set(), grid.getEntriesWithinReach(target, 0, 109, INF, SPEED));
+		// the detour from the stop is short, though the vehicle arrives late
+		assertEquals(set(entry), grid.getEntriesWithinReach(target, 0, INF, 10, SPEED));
+	}
+
+	@Test
+	public void testNeighbouringPointsInDifferentCells() {
+		Entry e1 = createEntry(link(999.9, 500), 0);
+		Entry e2 = createEntry(link(-0.1, -0.1), 0);
+		Entry e3 = createEntry(link(1000, 2000), 0);// on the cell boundary
+		VehicleEntryGrid grid = grid(e1, e2, e3);
+
+		assertEquals(set(e1), grid.getEntriesWithinReach(link(1000.1, 500), 0, 0.1, INF, SPEED));
+		assertEquals(set(e2), grid.getEntriesWithinReach(link(0.1, 0.1), 0, 0.1, INF, SPEED));
+		assertEquals(set(e3), grid.getEntriesWithinReach(link(999.9, 1999.9), 0, 0.1, INF, SPEED));
+		assertEquals(set(e3), grid.getEntriesWithinReach(link(1000, 2000), 0, 0, INF, SPEED));
+	}
+
+	@Test
+	public void testUpdateAndRemove() {
+		Entry e1 = createEntry(link(0, 0), 0, link(5000, 0), 100);
+		Entry e2 = createEntry(link(100, 0), 0);
+		VehicleEntryGrid grid = grid(e1);
+		grid.update(e2);
+		assertEquals(set(e1, e2), grid.getEntriesWithinReach(link(0, 0), 0, 10, INF, SPEED));
+
+		grid.remove(e1.vehicle.getId());// both the start and the stop
+		assertEquals(set(e2), grid.getEntriesWithinReach(link(0, 0), 0, 10, INF, SPEED));
+		assertEquals(set(), grid.getEntriesWithinReach(link(5000, 0), 0, 110, INF, SPEED));
+
+		grid.update(Collections.emptyMap());// vehicles not in the map are removed
+		assertEquals(set(), grid.getEntriesWithinReach(link(0, 0), 0, INF, INF, SPEED));
+	}
+
+	@Test
+	public void testUpdateMovesPointsOnlyIfStartOrStopsChanged() {
+		Entry e1 = createEntry(link(0, 0), 0, link(5000, 0), 100);
+		VehicleEntryGrid grid = grid(e1);
+
+		// same stops (as returned by the cached entry factory), only the start time has changed
+		Entry e2 = new Entry(e1.vehicle, new LinkTimePair(e1.start.link, 50), 0, e1.stops);
+		grid.update(e2);
+		assertEquals(set(e2), grid.getEntriesWithinReach(link(0, 0), 0, 50, INF, SPEED));
+		assertEquals(set(), grid.getEntriesWithinReach(link(0, 0), 0, 49, INF, SPEED));
+
+		// the departure times of the stops are read when querying, as the stop task may be delayed
+		e2.stops.get(0).task.setEndTime(200);
+		assertEquals(set(), grid.getEntriesWithinReach(link(5000, 0), 0, 199, INF, SPEED));
+		assertEquals(set(e2), grid.getEntriesWithinReach(link(5000, 0), 0, 200, INF, SPEED));
+
+		// the vehicle has moved on
+		Entry e3 = new Entry(e1.vehicle, new LinkTimePair(link(3000, 0), 50), 0, e1.stops);
+		grid.update(e3);
+		assertEquals(set(), grid.getEntriesWithinReach(link(0, 0), 0, INF, 100, SPEED));
+		assertEquals(set(e3), grid.getEntriesWithinReach(link(3000, 0), 0, INF, 0, SPEED));
+
+		// the stop has been replaced
+		Entry e4 = createEntry(e1.vehicle, e3.start.link, 50, link(-5000, 0), 100);
+		grid.update(e4);
+		assertEquals(set(), grid.getEntriesWithinReach(link(5000, 0), 0, INF, 100, SPEED));
+		assertEquals(set(e4), grid.getEntriesWithinReach(link(-5000, 0), 0, INF, 0, SPEED));
+	}
+
+	@Test
+	public void testSameAsScanningAllEntries() {
+		Random random = new Random(42);
+		List<Entry> entries = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			entries.add(random.nextBoolean() ?
+					createEntry(randomLink(random), random.nextInt(600)) :
+					createEntry(randomLink(random), random.nextInt(600), randomLink(random), 600 + random.nextInt(600)));
+		}
+		VehicleEntryGrid grid = grid(entries.toArray(new Entry[0]));
+
+		// small and large radii (the latter make the grid check all cells)
+		for (double latestArrivalTime : new double[] { 0, 100, 300, 700, 1500, 5000, INF }) {
+			for (double maxDetourTime : new double[] { 50, 500, INF }) {
+				for (int i = 0; i < 20; i++) {
+					Link target = randomLink(random);
+					assertEquals(getEntriesWithinReach(entries, target, latestArrivalTime, maxDetourTime),
+							grid.getEntriesWithinReach(target, 0, latestArrivalTime, maxDetourTime, SPEED));
+				}
+			}
+		}
+	}
+
+	private static Set<Entry> getEntriesWithinReach(List<Entry> entries, Link target, double latestArrivalTime,
+			double maxDetourTime) {
+		Set<Entry> result = new HashSet<>();
+		for (Entry e : entries) {
+			if (isWithinReach(e.start.link, e.start.time, target, latestArrivalTime, maxDetourTime)) {
+				result.add(e);
+			}
+			for (Stop s : e.stops) {
+				if (isWithinReach(s.task.getLink(), s.task.getEndTime(), target, latestArrivalTime, maxDetourTime)) {
+					result.add(e);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean isWithinReach(Link link, double departureTime, Link target, double latestArrivalTime,
+			double maxDetourTime) {
+		double detourTime = DistanceUtils.calculateDistance(link, target) / SPEED;
+		return departureTime + detourTime <= latestArrivalTime && detourTime <= maxDetourTime;
+	}
+
+	private Link randomLink(Random random) {
+		return link(-5000 + random.nextInt(10_000), -5000 + random.nextInt(10_000));
+	}
+
+	private static VehicleEntryGrid grid(Entry... entries) {
+		VehicleEntryGrid grid = new VehicleEntryGrid(CELL_SIZE);
+		for (Entry e : entries) {
+			grid.update(e);
+		}
+		return grid;
+	}
+
+	private Entry createEntry(Link startLink, double startTime) {
+		return new Entry(vehicle(startLink), new LinkTimePair(startLink, startTime), 0, ImmutableList.of());
+	}
+
+	private Entry createEntry(Link startLink, double startTime, Link stopLink, double stopEndTime) {
+		return createEntry(vehicle(startLink), startLink, startTime, stopLink, stopEndTime);
+	}
+
+	private static Entry createEntry(Vehicle vehicle, Link startLink, double startTime, Link stopLink,
+			double stopEndTime) {
+		DrtStopTask stopTask = new DrtStopTask(stopEndTime - 60, stopEndTime, stopLink);
+		return new Entry(vehicle, new LinkTimePair(startLink, startTime), 0, ImmutableList.of(new Stop(stopTask, 0)));
+	}
+
+	private Vehicle vehicle(Link startLink) {
+		return new VehicleImpl(Id.create(vehicleCount++, Vehicle.class), startLink, 4, 0, 10_000);
+	}
+
+	private static Set<Entry> set(Entry... entries) {
+		return new HashSet<>(Arrays.asList(entries));
+	}
+
+	// a link is located in the middle between its nodes
+	private Link link(double x, double y) {
+		Id<Link> id = Id.createLinkId(network.getLinks().size());
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_from"), new Coord(x - 1, y));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(id + "_to"), new Coord(x + 1, y));
+		return NetworkUtils.createAndAddLink(network, id, from, to, 2, SPEED, 1000, 1);
+	}
+}
@@ -0,0 +1,207 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.insertion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.data.DrtRequest;
+import org.matsim.contrib.drt.optimizer.VehicleDataEntryFactoryImpl;
+import org.matsim.contrib.drt.passenger.events.DrtRequestScheduledEvent;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtDriveTask;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.drt.schedule.DrtTask;
+import org.matsim.contrib.drt.schedule.DrtTaskFactoryImpl;
+import org.matsim.contrib.drt.scheduler.DrtScheduleTimingUpdater;
+import org.matsim.contrib.drt.scheduler.RequestInsertionScheduler;
+import org.matsim.contrib.dvrp.data.FleetImpl;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.schedule.StayTask;
+import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+/**
+ * Inserts several requests whose best insertions use the same vehicle, batched and one by one.
+ */
+public class DefaultUnplannedRequestInserterTest {
+	private static final int NODES = 10;
+	private static final int CAPACITY = 1;
+
+	private final Network network = createNetwork();
+	private final TravelTime travelTime = new FreeSpeedTravelTime();
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+	@Test
+	public void testBatchedInsertionDoesNotDoubleBookVehicles() {
+		Result batched = insertRequests(true);
+
+		// the nearby vehicle is the best one for all requests, so they are inserted in several rounds
+		assertEquals(4, batched.vehicleByRequest.size());
+		long requestsOfNearbyVehicle = batched.vehicleByRequest.values().stream().filter(id -> id.toString().equals("near"))
+				.count();
+		assertTrue(requestsOfNearbyVehicle > 1);
+
+		for (Vehicle vehicle : batched.fleet.getVehicles().values()) {
+			assertConsistentSchedule(vehicle);
+		}
+	}
+
+	@Test
+	public void testBatchedInsertionSameAsOneByOne() {
+		Result batched = insertRequests(true);
+		Result oneByOne = insertRequests(false);
+
+		assertEquals(oneByOne.vehicleByRequest, batched.vehicleByRequest);
+		for (Vehicle vehicle : oneByOne.fleet.getVehicles().values()) {
+			assertEquals(describeSchedule(vehicle), describeSchedule(batched.fleet.getVehicles().get(vehicle.getId())));
+		}
+	}
+
+	private static class Result {
+		private final FleetImpl fleet = new FleetImpl();
+		private final Map<Id<Request>, Id<Vehicle>> vehicleByRequest = new LinkedHashMap<>();
+	}
+
+	private Result insertRequests(boolean batched) {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setStopDuration(60);
+		drtCfg.setMaxWaitTime(3600);
+		drtCfg.setMaxTravelTimeAlpha(10);
+		drtCfg.setMaxTravelTimeBeta(3600);
+		drtCfg.setNumberOfThreads(2);
+		drtCfg.setBatchedRequestInsertion(batched);
+
+		Result result = new Result();
+		result.fleet.addVehicle(new VehicleImpl(Id.create("near", Vehicle.class), link(0, 1), CAPACITY, 0, 24 * 3600));
+		result.fleet.addVehicle(new VehicleImpl(Id.create("far", Vehicle.class), link(NODES - 2, NODES - 1), CAPACITY, 0,
+				24 * 3600));
+
+		MobsimTimer timer = new MobsimTimer();
+		EventsManager events = EventsUtils.createEventsManager();
+		events.addHandler((BasicEventHandler)event -> {
+			if (event instanceof DrtRequestScheduledEvent) {
+				DrtRequestScheduledEvent scheduled = (DrtRequestScheduledEvent)event;
+				result.vehicleByRequest.put(scheduled.getRequestId(), scheduled.getVehicleId());
+			}
+		});
+
+		RequestInsertionScheduler insertionScheduler = new RequestInsertionScheduler(drtCfg, result.fleet, timer,
+				travelTime, new DrtScheduleTimingUpdater(drtCfg, timer), new DrtTaskFactoryImpl());
+		InsertionCostCalculator.PenaltyCalculator penaltyCalculator = new InsertionCostCalculator.DiscourageSoftConstraintViolations();
+		DefaultUnplannedRequestInserter inserter = new DefaultUnplannedRequestInserter(drtCfg, result.fleet, timer,
+				events, insertionScheduler, new VehicleDataEntryFactoryImpl(drtCfg),
+				new ParallelPathDataProvider(network, travelTime, travelDisutility, drtCfg),
+				new BatchPathDataProvider(network, travelTime, travelDisutility, drtCfg), penaltyCalculator);
+
+		List<DrtRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			// all from the beginning to the middle of the line, next to the nearby vehicle
+			requests.add(new DrtRequest(Id.create(i, Request.class), null, link(1, 2), link(4, 5), 0, 3600, 7200, 0));
+		}
+		inserter.scheduleUnplannedRequests(requests);
+		inserter.notifyMobsimBeforeCleanup(null);
+
+		assertTrue(requests.isEmpty());
+		return result;
+	}
+
+	/**
+	 * The tasks follow each other without gaps, each one starts where the previous one ended, and the occupancy never
+	 * exceeds the capacity.
+	 */
+	private static void assertConsistentSchedule(Vehicle vehicle) {
+		List<? extends Task> tasks = vehicle.getSchedule().getTasks();
+		Link link = vehicle.getStartLink();
+		double time = vehicle.getServiceBeginTime();
+		int occupancy = 0;
+		for (Task task : tasks) {
+			assertEquals(time, task.getBeginTime(), 1e-9);
+			if (task instanceof DrtDriveTask) {
+				assertEquals(link, ((DrtDriveTask)task).getPath().getFromLink());
+				link = ((DrtDriveTask)task).getPath().getToLink();
+			} else {
+				assertEquals(link, ((StayTask)task).getLink());
+			}
+			if (task instanceof DrtStopTask) {
+				occupancy += ((DrtStopTask)task).getPickupRequests().size() - ((DrtStopTask)task).getDropoffRequests()
+						.size();
+				assertTrue(occupancy <= vehicle.getCapacity());
+			}
+			time = task.getEndTime();
+		}
+		assertEquals(0, occupancy);
+	}
+
+	private static List<String> describeSchedule(Vehicle vehicle) {
+		List<String> description = new ArrayList<>();
+		for (Task task : vehicle.getSchedule().getTasks()) {
+			String s = ((DrtTask)task).getDrtTaskType() + " " + task.getBeginTime() + " " + task.getEndTime();
+			if (task instanceof DrtStopTask) {
+				s += " " + ((DrtStopTask)task).getPickupRequests().size() + " " + ((DrtStopTask)task).getDropoffRequests()
+						.size();
+			}
+			description.add(s);
+		}
+		return description;
+	}
+
+	private Link link(int from, int to) {
+		return network.getLinks().get(Id.createLinkId(from + "_" + to));
+	}
+
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		List<Node> nodes = new ArrayList<>();
+		for (int i = 0; i < NODES; i++) {
+			nodes.add(NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(1000 * i, 0)));
+		}
+		for (int i = 0; i + 1 < NODES; i++) {
+			addLink(network, nodes.get(i), nodes.get(i + 1));
+			addLink(network, nodes.get(i + 1), nodes.get(i));
+		}
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "_" + to.getId()), from, to, 1000, 10,
+				1800, 1);
+	}
+}
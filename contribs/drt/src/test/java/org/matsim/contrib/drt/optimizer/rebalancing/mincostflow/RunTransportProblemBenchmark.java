@@ -0,0 +1,229 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.apache.log4j.Logger;
+
+/**
+ * Compares the computation times of {@link TransportProblem} and {@link SparseTransportProblem} on square grids of
+ * zones of increasing size. {@link TransportProblem} has no cutoff (all pairs of zones), so it is compared with
+ * {@link SparseTransportProblem} on all pairs (the same cutoff, i.e. none); in addition, {@link SparseTransportProblem}
+ * is run on the pairs within a distance cutoff (with and without a warm start). In each grid, a sequence of rebalancing
+ * problems is solved, each one slightly different from the previous one. The total times, flows and costs (or -1 if
+ * skipped) are logged; without the cutoff, the dense and sparse results must be the same. With the cutoff, surplus
+ * without a deficit zone in range is not moved, so the flow (and possibly the cost) is lower.
+ * <p>
+ * Not a unit test, as it takes minutes.
+ */
+public class RunTransportProblemBenchmark {
+	private static final Logger log = Logger.getLogger(RunTransportProblemBenchmark.class);
+
+	private static final int[] GRID_SIZES = { 10, 20, 40, 70, 100 };
+	private static final int MAX_ALL_PAIRS_GRID_SIZE = 40;// too slow for larger grids without the cutoff
+
+	private static final int CELL_SIZE = 500;// [m]
+	private static final int MAX_RELOCATION_DISTANCE = 5 * CELL_SIZE;// [m]
+	private static final double IMBALANCED_ZONE_SHARE = 0.25;// surplus or deficit zones (each)
+	private static final int STEPS = 10;
+	private static final double CHANGED_ZONE_SHARE = 0.1;// zones with new surplus/deficit in the next step
+
+	public static void main(String[] args) {
+		log.info("zones\tdense[ms]\tsparse[ms]\tsparse_cutoff[ms]\tsparse_cutoff_warm[ms]"
+				+ "\tdense_flow\tsparse_flow\tsparse_cutoff_flow\tsparse_cutoff_warm_flow"
+				+ "\tdense_cost\tsparse_cost\tsparse_cutoff_cost\tsparse_cutoff_warm_cost");
+		for (int gridSize : GRID_SIZES) {
+			new RunTransportProblemBenchmark(gridSize).run();
+		}
+	}
+
+	private static class Result {
+		private static final Result SKIPPED = new Result(-1, -1, -1);
+
+		private final long time;// [ms]
+		private final long flow;// sum over all problems of relocated vehicles
+		private final long cost;// sum over all problems of flow * distance
+
+		private Result(long time, long flow, long cost) {
+			this.time = time;
+			this.flow = flow;
+			this.cost = cost;
+		}
+	}
+
+	private final int gridSize;
+	private final int zoneCount;
+	private final Random random = new Random(1234);
+
+	private RunTransportProblemBenchmark(int gridSize) {
+		this.gridSize = gridSize;
+		this.zoneCount = gridSize * gridSize;
+	}
+
+	private void run() {
+		List<int[]> balances = new ArrayList<>();// surplus (> 0) or deficit (< 0) of each zone
+		int[] balance = new int[zoneCount];
+		for (int z = 0; z < zoneCount; z++) {
+			balance[z] = randomBalance();
+		}
+		for (int s = 0; s < STEPS; s++) {
+			balances.add(balance.clone());
+			for (int z = 0; z < zoneCount; z++) {
+				if (random.nextDouble() < CHANGED_ZONE_SHARE) {
+					balance[z] = randomBalance();
+				}
+			}
+		}
+
+		Result dense = gridSize <= MAX_ALL_PAIRS_GRID_SIZE ? runDense(balances) : Result.SKIPPED;
+		Result sparse = gridSize <= MAX_ALL_PAIRS_GRID_SIZE ?
+				runSparse(balances, Integer.MAX_VALUE, false) :
+				Result.SKIPPED;
+		Result sparseCutoff = runSparse(balances, MAX_RELOCATION_DISTANCE, false);
+		Result sparseCutoffWarm = runSparse(balances, MAX_RELOCATION_DISTANCE, true);
+		log.info(zoneCount + "\t" + dense.time + "\t" + sparse.time + "\t" + sparseCutoff.time + "\t"
+				+ sparseCutoffWarm.time + "\t" + dense.flow + "\t" + sparse.flow + "\t" + sparseCutoff.flow + "\t"
+				+ sparseCutoffWarm.flow + "\t" + dense.cost + "\t" + sparse.cost + "\t" + sparseCutoff.cost + "\t"
+				+ sparseCutoffWarm.cost);
+	}
+
+	private int randomBalance() {
+		double r = random.nextDouble();
+		if (r < IMBALANCED_ZONE_SHARE) {
+			return 1 + random.nextInt(3);
+		} else if (r < 2 * IMBALANCED_ZONE_SHARE) {
+			return -1 - random.nextInt(3);
+		}
+		return 0;
+	}
+
+	private int calcDistance(int zone1, int zone2) {
+		int dx = zone1 % gridSize - zone2 % gridSize;
+		int dy = zone1 / gridSize - zone2 / gridSize;
+		return (int)(CELL_SIZE * Math.sqrt(dx * dx + dy * dy));
+	}
+
+	private Result runDense(List<int[]> balances) {
+		long flow = 0;
+		long cost = 0;
+		long t0 = System.currentTimeMillis();
+		for (int[] balance : balances) {
+			List<Pair<Integer, Integer>> supply = new ArrayList<>();
+			List<Pair<Integer, Integer>> demand = new ArrayList<>();
+			for (int z = 0; z < zoneCount; z++) {
+				if (balance[z] > 0) {
+					supply.add(Pair.of(z, balance[z]));
+				} else if (balance[z] < 0) {
+					demand.add(Pair.of(z, -balance[z]));
+				}
+			}
+			List<Triple<Integer, Integer, Integer>> flows = new TransportProblem<Integer, Integer>(
+					this::calcDistance).solve(supply, demand);
+			for (Triple<Integer, Integer, Integer> f : flows) {
+				flow += f.getRight();
+				cost += (long)f.getRight() * calcDistance(f.getLeft(), f.getMiddle());
+			}
+		}
+		return new Result(System.currentTimeMillis() - t0, flow, cost);
+	}
+
+	private Result runSparse(List<int[]> balances, int maxDistance, boolean warmStart) {
+		long[] zonePotentials = new long[zoneCount];
+		long flow = 0;
+		long cost = 0;
+		long t0 = System.currentTimeMillis();
+		for (int[] balance : balances) {
+			int[] consumerByZone = new int[zoneCount];
+			List<Integer> producerZones = new ArrayList<>();
+			List<Integer> consumerZones = new ArrayList<>();
+			for (int z = 0; z < zoneCount; z++) {
+				consumerByZone[z] = -1;
+				if (balance[z] > 0) {
+					producerZones.add(z);
+				} else if (balance[z] < 0) {
+					consumerByZone[z] = consumerZones.size();
+					consumerZones.add(z);
+				}
+			}
+
+			int producers = producerZones.size();
+			int consumers = consumerZones.size();
+			int[][] consumersByProducer = new int[producers][];
+			int[][] costsByProducer = new int[producers][];
+			int cellRange = maxDistance / CELL_SIZE;
+			for (int i = 0; i < producers; i++) {
+				int zone = producerZones.get(i);
+				List<int[]> edges = new ArrayList<>();
+				if (cellRange >= gridSize) {
+					for (int j = 0; j < consumers; j++) {
+						edges.add(new int[] { j, calcDistance(zone, consumerZones.get(j)) });
+					}
+				} else {// only the cells within the range (as with precomputed neighbour zones)
+					int x = zone % gridSize;
+					int y = zone / gridSize;
+					for (int nx = Math.max(x - cellRange, 0); nx <= Math.min(x + cellRange, gridSize - 1); nx++) {
+						for (int ny = Math.max(y - cellRange, 0); ny <= Math.min(y + cellRange, gridSize - 1); ny++) {
+							int neighbour = ny * gridSize + nx;
+							int distance = calcDistance(zone, neighbour);
+							if (consumerByZone[neighbour] != -1 && distance <= maxDistance) {
+								edges.add(new int[] { consumerByZone[neighbour], distance });
+							}
+						}
+					}
+				}
+				consumersByProducer[i] = edges.stream().mapToInt(e -> e[0]).toArray();
+				costsByProducer[i] = edges.stream().mapToInt(e -> e[1]).toArray();
+			}
+
+			int[] supply = producerZones.stream().mapToInt(z -> balance[z]).toArray();
+			int[] demand = consumerZones.stream().mapToInt(z -> -balance[z]).toArray();
+			long[] producerPotentials = warmStart ?
+					producerZones.stream().mapToLong(z -> zonePotentials[z]).toArray() :
+					null;
+			long[] consumerPotentials = warmStart ?
+					consumerZones.stream().mapToLong(z -> zonePotentials[z]).toArray() :
+					null;
+
+			SparseTransportProblem problem = new SparseTransportProblem(supply, demand, consumersByProducer,
+					costsByProducer, producerPotentials, consumerPotentials);
+			int[][] flows = problem.execute();
+			for (int i = 0; i < producers; i++) {
+				for (int k = 0; k < flows[i].length; k++) {
+					flow += flows[i][k];
+					cost += (long)flows[i][k] * costsByProducer[i][k];
+				}
+			}
+
+			long[] newProducerPotentials = problem.getProducerPotentials();
+			for (int i = 0; i < producers; i++) {
+				zonePotentials[producerZones.get(i)] = newProducerPotentials[i];
+			}
+			long[] newConsumerPotentials = problem.getConsumerPotentials();
+			for (int j = 0; j < consumers; j++) {
+				zonePotentials[consumerZones.get(j)] = newConsumerPotentials[j];
+			}
+		}
+		return new Result(System.currentTimeMillis() - t0, flow, cost);
+	}
+}
@@ -0,0 +1,184 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.optimizer.rebalancing.mincostflow;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.lang3.tuple.Triple;
+import org.junit.Test;
+
+public class SparseTransportProblemTest {
+	@Test
+	public void testSameCostAsTransportProblem() {
+		Random random = new Random(123);
+		for (int t = 0; t < 200; t++) {
+			int producers = 1 + random.nextInt(10);
+			int consumers = 1 + random.nextInt(10);
+			int[] supply = random.ints(producers, 1, 6).toArray();
+			int[] demand = random.ints(consumers, 1, 6).toArray();
+			int[][] costMatrix = new int[producers][consumers];
+			for (int i = 0; i < producers; i++) {
+				for (int j = 0; j < consumers; j++) {
+					// many ties
+					costMatrix[i][j] = random.nextBoolean() ? random.nextInt(3) : random.nextInt(1000);
+				}
+			}
+
+			int[][] consumersByProducer = new int[producers][consumers];
+			for (int i = 0; i < producers; i++) {
+				for (int j = 0; j < consumers; j++) {
+					consumersByProducer[i][j] = j;
+				}
+			}
+
+			long[] producerPotentials = null;
+			long[] consumerPotentials = null;
+			if (t % 2 == 0) {
+				producerPotentials = random.longs(producers, -500, 500).toArray();
+				consumerPotentials = random.longs(consumers, -500, 500).toArray();
+			}
+
+			int[][] flows = new SparseTransportProblem(supply, demand, consumersByProducer, costMatrix,
+					producerPotentials, consumerPotentials).execute();
+			assertFeasible(supply, demand, consumersByProducer, flows);
+			assertEquals(Math.min(sum(supply), sum(demand)), totalFlow(flows));
+			assertEquals(calcCostWithTransportProblem(supply, demand, costMatrix),
+					calcCost(consumersByProducer, costMatrix, flows));
+		}
+	}
+
+	@Test
+	public void testWarmStart() {
+		Random random = new Random(456);
+		for (int t = 0; t < 200; t++) {
+			int producers = 1 + random.nextInt(15);
+			int consumers = 1 + random.nextInt(15);
+			int[] supply = random.ints(producers, 1, 6).toArray();
+			int[] demand = random.ints(consumers, 1, 6).toArray();
+			int[][] consumersByProducer = new int[producers][];
+			int[][] costsByProducer = new int[producers][];
+			int[][] similarCostsByProducer = new int[producers][];
+			for (int i = 0; i < producers; i++) {
+				consumersByProducer[i] = random.ints(0, consumers).distinct().limit(random.nextInt(consumers + 1))
+						.toArray();
+				costsByProducer[i] = random.ints(consumersByProducer[i].length, 0, 1000).toArray();
+				similarCostsByProducer[i] = costsByProducer[i].clone();
+				for (int k = 0; k < similarCostsByProducer[i].length; k++) {
+					similarCostsByProducer[i][k] += random.nextInt(200);
+				}
+			}
+
+			// solve a similar problem first, and start with its potentials
+			SparseTransportProblem similar = new SparseTransportProblem(supply, demand, consumersByProducer,
+					similarCostsByProducer, null, null);
+			similar.execute();
+
+			int[][] coldFlows = new SparseTransportProblem(supply, demand, consumersByProducer, costsByProducer, null,
+					null).execute();
+			int[][] warmFlows = new SparseTransportProblem(supply, demand, consumersByProducer, costsByProducer,
+					similar.getProducerPotentials(), similar.getConsumerPotentials()).execute();
+			assertFeasible(supply, demand, consumersByProducer, warmFlows);
+			assertEquals(totalFlow(coldFlows), totalFlow(warmFlows));
+			assertEquals(calcCost(consumersByProducer, costsByProducer, coldFlows),
+					calcCost(consumersByProducer, costsByProducer, warmFlows));
+		}
+	}
+
+	@Test
+	public void testMissingEdges() {
+		// producer 2 has no edges; producer 0 sends 1 (not 2) unit to the cheap consumer 0, so that producer 1 can
+		// send there its only unit
+		int[] supply = { 2, 1, 3 };
+		int[] demand = { 2, 4 };
+		int[][] consumersByProducer = { { 0, 1 }, { 0 }, {} };
+		int[][] costsByProducer = { { 1, 5 }, { 2 }, {} };
+		int[][] flows = new SparseTransportProblem(supply, demand, consumersByProducer, costsByProducer, null, null)
+				.execute();
+		assertArrayEquals(new int[] { 1, 1 }, flows[0]);
+		assertArrayEquals(new int[] { 1 }, flows[1]);
+		assertArrayEquals(new int[] {}, flows[2]);
+	}
+
+	private static void assertFeasible(int[] supply, int[] demand, int[][] consumersByProducer, int[][] flows) {
+		int[] received = new int[demand.length];
+		for (int i = 0; i < supply.length; i++) {
+			int sent = 0;
+			for (int k = 0; k < flows[i].length; k++) {
+				assertTrue(flows[i][k] >= 0);
+				sent += flows[i][k];
+				received[consumersByProducer[i][k]] += flows[i][k];
+			}
+			assertTrue(sent <= supply[i]);
+		}
+		for (int j = 0; j < demand.length; j++) {
+			assertTrue(received[j] <= demand[j]);
+		}
+	}
+
+	private static int sum(int[] values) {
+		int sum = 0;
+		for (int v : values) {
+			sum += v;
+		}
+		return sum;
+	}
+
+	private static int totalFlow(int[][] flows) {
+		int total = 0;
+		for (int[] producerFlows : flows) {
+			total += sum(producerFlows);
+		}
+		return total;
+	}
+
+	private static long calcCost(int[][] consumersByProducer, int[][] costsByProducer, int[][] flows) {
+		long cost = 0;
+		for (int i = 0; i < flows.length; i++) {
+			for (int k = 0; k < flows[i].length; k++) {
+				cost += (long)flows[i][k] * costsByProducer[i][k];
+			}
+		}
+		return cost;
+	}
+
+	private static long calcCostWithTransportProblem(int[] supply, int[] demand, int[][] costMatrix) {
+		List<Pair<Integer, Integer>> supplyList = new ArrayList<>();
+		for (int i = 0; i < supply.length; i++) {
+			supplyList.add(Pair.of(i, supply[i]));
+		}
+		List<Pair<Integer, Integer>> demandList = new ArrayList<>();
+		for (int j = 0; j < demand.length; j++) {
+			demandList.add(Pair.of(j, demand[j]));
+		}
+
+		long cost = 0;
+		for (Triple<Integer, Integer, Integer> flow : new TransportProblem<Integer, Integer>(
+				(i, j) -> costMatrix[i][j]).solve(supplyList, demandList)) {
+			cost += (long)flow.getRight() * costMatrix[flow.getLeft()][flow.getMiddle()];
+		}
+		return cost;
+	}
+}
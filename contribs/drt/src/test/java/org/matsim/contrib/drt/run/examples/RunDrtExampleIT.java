@@ -22,13 +22,21 @@
  */
 package org.matsim.contrib.drt.run.examples;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.contrib.drt.run.DrtConfigGroup;
 import org.matsim.contrib.drt.run.DrtControlerCreator;
 import org.matsim.contrib.dvrp.passenger.PassengerRequestValidator;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorCacheManager;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
@@ -57,6 +65,56 @@ public class RunDrtExampleIT {
 		RunDrtExample.run(config, false);
 	}
 
+	@Test
+	public void testRunDrtExampleWithBatchedRequestInsertion() {
+		String configFile = "./src/main/resources/drt_example/drtconfig_door2door.xml";
+		Config config = ConfigUtils.loadConfig(configFile, new DrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		config.plans().setInputFile("cb-drtplans_test.xml.gz");
+		DrtConfigGroup.get(config).setBatchedRequestInsertion(true);
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+	}
+
+	@Test
+	public void testRunDrtExampleWithVehicleSpatialIndex() {
+		String configFile = "./src/main/resources/drt_example/drtconfig_door2door.xml";
+		Config config = ConfigUtils.loadConfig(configFile, new DrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		config.plans().setInputFile("cb-drtplans_test.xml.gz");
+		DrtConfigGroup.get(config).setVehicleSpatialIndex(true);
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+	}
+
+	@Test
+	public void testRunDrtExampleWithPathCache() throws IOException {
+		String configFile = "./src/main/resources/drt_example/drtconfig_door2door.xml";
+		Config config = ConfigUtils.loadConfig(configFile, new DrtConfigGroup(), new DvrpConfigGroup(),
+				new OTFVisConfigGroup());
+		config.plans().setInputFile("cb-drtplans_test.xml.gz");
+		DvrpConfigGroup.get(config).setPathCacheSize(100_000);
+		DvrpConfigGroup.get(config).setTravelTimeEstimationBeta(600);// online estimation
+		config.controler().setLastIteration(1);// rebalancing uses the demand from the previous iteration
+
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setOutputDirectory(utils.getOutputDirectory());
+		RunDrtExample.run(config, false);
+
+		// header + one line per iteration
+		List<String> lines = Files.readAllLines(
+				Paths.get(utils.getOutputDirectory(), LeastCostPathCalculatorCacheManager.OUTPUT_FILE));
+		assertEquals(3, lines.size());
+		String[] it1 = lines.get(2).split("\t");
+		assertEquals("1", it1[0]);
+		assertEquals(DrtConfigGroup.get(config).getMode() + "_relocation", it1[1]);
+		assertTrue("no paths searched by the relocator", Long.parseLong(it1[3]) > 0);// misses
+	}
+
 	@Test
 	public void testRunDrtExampleWithCustomDrtRequestValidator() {
 		String configFile = "./src/main/resources/drt_example/drtconfig_door2door.xml";
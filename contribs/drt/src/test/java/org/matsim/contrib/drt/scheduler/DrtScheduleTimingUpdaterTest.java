@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.drt.scheduler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.drt.run.DrtConfigGroup;
+import org.matsim.contrib.drt.schedule.DrtStayTask;
+import org.matsim.contrib.drt.schedule.DrtStopTask;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * The delay of the current task is propagated only until it gets absorbed by a waiting (stay) task.
+ */
+public class DrtScheduleTimingUpdaterTest {
+	private final Link link = createLink();
+	private final Vehicle vehicle = new VehicleImpl(Id.create("v", Vehicle.class), link, 4, 0, 1000);
+	private final Schedule schedule = vehicle.getSchedule();
+	private final MobsimTimer timer = new MobsimTimer(1);
+
+	private final DrtStopTask currentStopTask = new DrtStopTask(0, 60, link);
+	private final DrtStayTask stayTask = new DrtStayTask(60, 200, link);
+	private final DrtStopTask nextStopTask = new DrtStopTask(200, 260, link);
+	// inconsistent with the service end time, updated only if the delay is propagated up to here
+	private final DrtStayTask lastStayTask = new DrtStayTask(260, 900, link);
+
+	private DrtScheduleTimingUpdater timingUpdater;
+
+	@Before
+	public void init() {
+		DrtConfigGroup drtCfg = new DrtConfigGroup();
+		drtCfg.setStopDuration(60);
+		timingUpdater = new DrtScheduleTimingUpdater(drtCfg, timer);
+
+		schedule.addTask(currentStopTask);
+		schedule.addTask(stayTask);
+		schedule.addTask(nextStopTask);
+		schedule.addTask(lastStayTask);
+		schedule.nextTask();
+	}
+
+	@Test
+	public void testDelayAbsorbedByStayTask() {
+		timer.setTime(100);
+		timingUpdater.updateTimings(vehicle);
+
+		assertTimes(currentStopTask, 0, 100);
+		assertTimes(stayTask, 100, 200);
+		assertTimes(nextStopTask, 200, 260);
+		assertTimes(lastStayTask, 260, 900);// not visited
+	}
+
+	@Test
+	public void testDelayPropagatedToLastTask() {
+		timer.setTime(230);
+		timingUpdater.updateTimings(vehicle);
+
+		assertEquals(3, schedule.getTaskCount());// the stay task has been removed
+		assertTimes(currentStopTask, 0, 230);
+		assertTimes(nextStopTask, 230, 290);
+		assertTimes(lastStayTask, 290, 1000);
+	}
+
+	@Test
+	public void testNoDelay() {
+		timer.setTime(50);
+		long count = schedule.getModificationCount();
+		timingUpdater.updateTimings(vehicle);
+
+		assertEquals(count, schedule.getModificationCount());
+		assertTimes(lastStayTask, 260, 900);
+	}
+
+	private static void assertTimes(Task task, double beginTime, double endTime) {
+		assertEquals(beginTime, task.getBeginTime(), 0);
+		assertEquals(endTime, task.getEndTime(), 0);
+	}
+
+	private static Link createLink() {
+		Network network = NetworkUtils.createNetwork();
+		Node from = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+		Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), from, to, 1000, 10, 1000, 1);
+	}
+}
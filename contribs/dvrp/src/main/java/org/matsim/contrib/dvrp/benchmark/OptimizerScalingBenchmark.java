@@ -0,0 +1,506 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.dvrp.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.contrib.dvrp.data.Fleet;
+import org.matsim.contrib.dvrp.data.FleetImpl;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.optimizer.VrpOptimizer;
+import org.matsim.contrib.dvrp.path.DivertedVrpPath;
+import org.matsim.contrib.dvrp.path.VrpPath;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
+import org.matsim.contrib.dvrp.schedule.DriveTask;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.contrib.dvrp.schedule.Schedule.ScheduleStatus;
+import org.matsim.contrib.dvrp.tracker.OnlineDriveTaskTracker;
+import org.matsim.contrib.dvrp.util.LinkTimePair;
+import org.matsim.contrib.util.CSVLineBuilder;
+import org.matsim.contrib.util.CompactCSVWriter;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.MobsimPassengerAgent;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Measures how the computation time of a VRP optimizer scales with the fleet size and the number of requests,
+ * independently of the QSim. A synthetic fleet and a stream of immediate requests (with uniformly distributed origins,
+ * destinations and submission times) are generated on a given network, e.g. a grid created with
+ * {@link #createGridNetwork(int, double, double)}. Then the simulation is replayed second by second, calling the
+ * optimizer in the same order as in the QSim: {@code notifyMobsimBeforeSimStep()}, {@code nextTask()} (for each vehicle
+ * whose current task has ended), and {@code requestSubmitted()}.
+ * <p>
+ * Vehicles do not move; instead, each task ends exactly at its planned end time (as if travel times were deterministic
+ * and perfectly predicted, as in the taxi benchmark). Drive tasks get a tracker that replays the planned movement
+ * along the path, so vehicles can also be diverted.
+ * <p>
+ * Only the time spent in the optimizer calls is measured. The memory allocation is measured only for the calling
+ * thread, so allocations made by parallel (e.g. fork-join) workers of the optimizer are not included.
+ *
+ * @param <O> type of the optimizer
+ */
+public class OptimizerScalingBenchmark<O extends VrpOptimizer & MobsimBeforeSimStepListener> {
+	private static final Logger log = Logger.getLogger(OptimizerScalingBenchmark.class);
+
+	private static final double LAST_SUBMISSION_BEFORE_END = 3600;// [s] to let vehicles serve the last requests
+
+	public static final String SUMMARY_FILE = "optimizer_scaling_summary.txt";
+
+	public static final String[] SUMMARY_HEADER = { "optimizer", "vehicles", "requests", "steps", "decisionSteps",
+			"total[ms]", "stepMean[ms]", "stepP50[ms]", "stepP95[ms]", "stepMax[ms]", "requestsPerSecond",
+			"allocated[MB]" };
+
+	public static final String[] STEP_HEADER = { "time", "submittedRequests", "latency[us]", "allocated[kB]" };
+
+	public interface OptimizerFactory<O extends VrpOptimizer & MobsimBeforeSimStepListener> {
+		/**
+		 * @param cleanupListeners listeners (e.g. of the optimizer components) to be notified when a run is finished
+		 */
+		O create(Network network, Fleet fleet, MobsimTimer timer, EventsManager eventsManager,
+				List<MobsimBeforeCleanupListener> cleanupListeners);
+	}
+
+	public interface RequestFactory {
+		Request create(Id<Request> id, MobsimPassengerAgent passenger, Link fromLink, Link toLink,
+				double submissionTime);
+	}
+
+	private final String optimizerName;
+	private final Network network;
+	private final OptimizerFactory<O> optimizerFactory;
+	private final RequestFactory requestFactory;
+	private final String mode;
+	private final int vehicleCapacity;
+	private final double startTime;
+	private final double endTime;
+	private final long randomSeed;
+
+	private final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean)ManagementFactory
+			.getThreadMXBean();
+
+	/**
+	 * @param mode          mode of the generated passengers
+	 * @param startTime     service begin time of all vehicles and the submission time of the first request
+	 * @param endTime       service end time of all vehicles; requests are submitted until 1 hour before
+	 *                      the end
+	 */
+	public OptimizerScalingBenchmark(String optimizerName, Network network, OptimizerFactory<O> optimizerFactory,
+			RequestFactory requestFactory, String mode, int vehicleCapacity, double startTime, double endTime,
+			long randomSeed) {
+		this.optimizerName = optimizerName;
+		this.network = network;
+		this.optimizerFactory = optimizerFactory;
+		this.requestFactory = requestFactory;
+		this.mode = mode;
+		this.vehicleCapacity = vehicleCapacity;
+		this.startTime = startTime;
+		this.endTime = endTime;
+		this.randomSeed = randomSeed;
+	}
+
+	/**
+	 * Runs the benchmark for each (fleet size, request count) pair. Each configuration is run {@code warmupRuns} times
+	 * without measurements (to let the JIT compiler do its job) before the measured run. The per-step results are
+	 * written to {@code <outputDir>/<optimizer>_<vehicles>_<requests>.txt.gz}, and one summary line per configuration is
+	 * appended to {@code writer} (the header is not written, see {@link #SUMMARY_HEADER}).
+	 */
+	public void run(int[] fleetSizes, int[] requestCounts, int warmupRuns, String outputDir, CompactCSVWriter writer) {
+		if (fleetSizes.length != requestCounts.length) {
+			throw new IllegalArgumentException("fleetSizes and requestCounts must have the same length");
+		}
+
+		for (int i = 0; i < fleetSizes.length; i++) {
+			for (int w = 0; w < warmupRuns; w++) {
+				run(fleetSizes[i], requestCounts[i]);
+			}
+
+			Result result = run(fleetSizes[i], requestCounts[i]);
+			log.info(optimizerName + ": vehicles=" + result.fleetSize + ", requests=" + result.requestCount
+					+ ", total[ms]=" + result.totalNanos / 1_000_000);
+
+			writer.writeNext(result.buildSummaryLine());
+			writer.flush();
+			result.writeSteps(outputDir + "/" + optimizerName + "_" + result.fleetSize + "_" + result.requestCount
+					+ ".txt.gz");
+		}
+	}
+
+	public Result run(int fleetSize, int requestCount) {
+		Random random = new Random(randomSeed);
+		Fleet fleet = createFleet(network, fleetSize, vehicleCapacity, startTime, endTime, random);
+		List<Request> requests = createRequests(network, requestCount, startTime, endTime - LAST_SUBMISSION_BEFORE_END,
+				mode, requestFactory, random);
+
+		MobsimTimer timer = new MobsimTimer(1);
+		timer.setSimStartTime(startTime);
+		timer.setTime(startTime);
+		List<MobsimBeforeCleanupListener> cleanupListeners = new ArrayList<>();
+		O optimizer = optimizerFactory.create(network, fleet, timer, EventsUtils.createEventsManager(),
+				cleanupListeners);
+
+		Result result = new Result(fleetSize, requestCount, (int)(endTime - startTime));
+		int nextRequestIdx = 0;
+		for (int step = 0; step < result.stepCount; step++) {
+			double time = startTime + step;
+			timer.setTime(time);
+
+			long allocatedBytes = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			long t0 = System.nanoTime();
+
+			optimizer.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, time));
+
+			long elapsed = System.nanoTime() - t0;
+			for (Vehicle v : fleet.getVehicles().values()) {
+				if (isNextTaskDue(v.getSchedule(), time)) {
+					t0 = System.nanoTime();
+					do {
+						optimizer.nextTask(v);
+						initDriveTaskTracking(v.getSchedule(), timer);
+					} while (isNextTaskDue(v.getSchedule(), time));
+					elapsed += System.nanoTime() - t0;
+				}
+			}
+
+			int submitted = 0;
+			t0 = System.nanoTime();
+			while (nextRequestIdx < requests.size()
+					&& requests.get(nextRequestIdx).getSubmissionTime() <= time) {
+				optimizer.requestSubmitted(requests.get(nextRequestIdx++));
+				submitted++;
+			}
+			elapsed += System.nanoTime() - t0;
+
+			result.submittedRequests[step] = submitted;
+			result.stepNanos[step] = elapsed;
+			result.stepAllocatedBytes[step] = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())
+					- allocatedBytes;
+		}
+
+		for (MobsimBeforeCleanupListener l : cleanupListeners) {
+			l.notifyMobsimBeforeCleanup(null);
+		}
+
+		result.complete();
+		return result;
+	}
+
+	// tasks end exactly at their planned end times (no online tracking)
+	private static boolean isNextTaskDue(Schedule schedule, double time) {
+		switch (schedule.getStatus()) {
+			case PLANNED:
+				return schedule.getBeginTime() <= time;
+			case STARTED:
+				return schedule.getCurrentTask().getEndTime() <= time;
+			default:
+				return false;
+		}
+	}
+
+	private static void initDriveTaskTracking(Schedule schedule, MobsimTimer timer) {
+		if (schedule.getStatus() == ScheduleStatus.STARTED && schedule.getCurrentTask() instanceof DriveTask) {
+			DriveTask driveTask = (DriveTask)schedule.getCurrentTask();
+			if (driveTask.getTaskTracker() == null) {
+				driveTask.initTaskTracker(new ReplayedDriveTaskTracker(driveTask, timer));
+			}
+		}
+	}
+
+	/**
+	 * The vehicle is assumed to move along the path exactly as planned (i.e. with the planned link travel times), so
+	 * it can be diverted at the end of its current link, as long as it is not the last one. The optimizer is not
+	 * notified about entering the next links. The benchmark itself never calls {@link #movedOverNode(Link)}, but if
+	 * it is called (e.g. when the tracker is reused with a moving vehicle), the vehicle enters the next link now and
+	 * the replay continues from there.
+	 */
+	private static class ReplayedDriveTaskTracker implements OnlineDriveTaskTracker {
+		private final DriveTask driveTask;
+		private final MobsimTimer timer;
+
+		private VrpPath path;
+		private int currentLinkIdx = 0;
+		private double linkEnterTime;
+
+		private ReplayedDriveTaskTracker(DriveTask driveTask, MobsimTimer timer) {
+			this.driveTask = driveTask;
+			this.timer = timer;
+			path = driveTask.getPath();
+			linkEnterTime = driveTask.getBeginTime();
+		}
+
+		// moves the vehicle to the link it would be on at the current time
+		private void updateCurrentLink() {
+			double now = timer.getTimeOfDay();
+			while (currentLinkIdx + 1 < path.getLinkCount()
+					&& linkEnterTime + path.getLinkTravelTime(currentLinkIdx) <= now) {
+				linkEnterTime += path.getLinkTravelTime(currentLinkIdx);
+				currentLinkIdx++;
+			}
+		}
+
+		@Override
+		public double predictEndTime() {
+			return Math.max(driveTask.getEndTime(), timer.getTimeOfDay());
+		}
+
+		@Override
+		public VrpPath getPath() {
+			return path;
+		}
+
+		@Override
+		public int getCurrentLinkIdx() {
+			updateCurrentLink();
+			return currentLinkIdx;
+		}
+
+		@Override
+		public LinkTimePair getDiversionPoint() {
+			updateCurrentLink();
+			if (currentLinkIdx + 1 == path.getLinkCount()) {// the current link is the last one
+				return null;// too late to divert
+			}
+			return new LinkTimePair(path.getLink(currentLinkIdx),
+					linkEnterTime + path.getLinkTravelTime(currentLinkIdx));
+		}
+
+		@Override
+		public void divertPath(VrpPathWithTravelData newSubPath) {
+			LinkTimePair diversionPoint = getDiversionPoint();
+			if (diversionPoint == null || !newSubPath.getFromLink().equals(diversionPoint.link)
+					|| newSubPath.getDepartureTime() != diversionPoint.time) {
+				throw new IllegalArgumentException();
+			}
+
+			DivertedVrpPath divertedPath = new DivertedVrpPath(path, newSubPath, currentLinkIdx);
+			path = divertedPath;
+			driveTask.pathDiverted(divertedPath, newSubPath.getArrivalTime());
+		}
+
+		@Override
+		public void movedOverNode(Link nextLink) {
+			if (currentLinkIdx + 1 == path.getLinkCount() || path.getLink(currentLinkIdx + 1) != nextLink) {
+				throw new IllegalStateException("Link " + nextLink.getId() + " is not the next link on the path");
+			}
+			currentLinkIdx++;
+			linkEnterTime = timer.getTimeOfDay();
+		}
+	}
+
+	public class Result {
+		public final int fleetSize;
+		public final int requestCount;
+		public final int stepCount;
+
+		private final int[] submittedRequests;
+		private final long[] stepNanos;
+		private final long[] stepAllocatedBytes;
+
+		private final DescriptiveStatistics decisionStepNanos = new DescriptiveStatistics();
+		private long totalNanos;
+		private long totalAllocatedBytes;
+
+		private Result(int fleetSize, int requestCount, int stepCount) {
+			this.fleetSize = fleetSize;
+			this.requestCount = requestCount;
+			this.stepCount = stepCount;
+			submittedRequests = new int[stepCount];
+			stepNanos = new long[stepCount];
+			stepAllocatedBytes = new long[stepCount];
+		}
+
+		// a decision step is a step in which at least one request has been submitted
+		private void complete() {
+			for (int s = 0; s < stepCount; s++) {
+				totalNanos += stepNanos[s];
+				totalAllocatedBytes += stepAllocatedBytes[s];
+				if (submittedRequests[s] > 0) {
+					decisionStepNanos.addValue(stepNanos[s]);
+				}
+			}
+		}
+
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		public long getTotalAllocatedBytes() {
+			return totalAllocatedBytes;
+		}
+
+		public DescriptiveStatistics getDecisionStepNanos() {
+			return decisionStepNanos;
+		}
+
+		private String[] buildSummaryLine() {
+			return new CSVLineBuilder().add(optimizerName)
+					.add(fleetSize + "")
+					.add(requestCount + "")
+					.add(stepCount + "")
+					.add(decisionStepNanos.getN() + "")
+					.addf("%.1f", totalNanos / 1e6)
+					.addf("%.3f", decisionStepNanos.getMean() / 1e6)
+					.addf("%.3f", decisionStepNanos.getPercentile(50) / 1e6)
+					.addf("%.3f", decisionStepNanos.getPercentile(95) / 1e6)
+					.addf("%.3f", decisionStepNanos.getMax() / 1e6)
+					.addf("%.1f", requestCount / (totalNanos / 1e9))
+					.addf("%.1f", totalAllocatedBytes / (1024. * 1024.))
+					.build();
+		}
+
+		private void writeSteps(String file) {
+			try (CompactCSVWriter writer = new CompactCSVWriter(IOUtils.getBufferedWriter(file))) {
+				writer.writeNext(STEP_HEADER);
+				for (int s = 0; s < stepCount; s++) {
+					writer.writeNext(new CSVLineBuilder().add((int)startTime + s + "")
+							.add(submittedRequests[s] + "")
+							.add(stepNanos[s] / 1000 + "")
+							.add(stepAllocatedBytes[s] / 1024 + ""));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a square grid of {@code gridSize} x {@code gridSize} nodes connected with bidirectional links (with
+	 * practically unlimited capacity).
+	 */
+	public static Network createGridNetwork(int gridSize, double cellSize, double freespeed) {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[gridSize][gridSize];
+		for (int r = 0; r < gridSize; r++) {
+			for (int c = 0; c < gridSize; c++) {
+				nodes[r][c] = NetworkUtils.createAndAddNode(network, Id.createNodeId(r + "_" + c),
+						new Coord(c * cellSize, r * cellSize));
+			}
+		}
+
+		for (int r = 0; r < gridSize; r++) {
+			for (int c = 0; c < gridSize; c++) {
+				if (c + 1 < gridSize) {
+					addLinks(network, nodes[r][c], nodes[r][c + 1], cellSize, freespeed);
+				}
+				if (r + 1 < gridSize) {
+					addLinks(network, nodes[r][c], nodes[r + 1][c], cellSize, freespeed);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node node1, Node node2, double length, double freespeed) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node1.getId() + "-" + node2.getId()), node1, node2,
+				length, freespeed, 1e6, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(node2.getId() + "-" + node1.getId()), node2, node1,
+				length, freespeed, 1e6, 1);
+	}
+
+	public static Fleet createFleet(Network network, int fleetSize, int capacity, double serviceBeginTime,
+			double serviceEndTime, Random random) {
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		FleetImpl fleet = new FleetImpl();
+		for (int i = 0; i < fleetSize; i++) {
+			fleet.addVehicle(new VehicleImpl(Id.create(i, Vehicle.class), links.get(random.nextInt(links.size())),
+					capacity, serviceBeginTime, serviceEndTime));
+		}
+		return fleet;
+	}
+
+	/**
+	 * @return requests sorted by submission time (uniformly distributed in [submissionBeginTime, submissionEndTime))
+	 */
+	public static List<Request> createRequests(Network network, int requestCount, double submissionBeginTime,
+			double submissionEndTime, String mode, RequestFactory requestFactory, Random random) {
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		double[] submissionTimes = new double[requestCount];
+		for (int i = 0; i < requestCount; i++) {
+			submissionTimes[i] = Math.floor(
+					submissionBeginTime + random.nextDouble() * (submissionEndTime - submissionBeginTime));
+		}
+
+		List<Request> requests = new ArrayList<>(requestCount);
+		for (int i = 0; i < requestCount; i++) {
+			Link fromLink = links.get(random.nextInt(links.size()));
+			Link toLink;
+			do {
+				toLink = links.get(random.nextInt(links.size()));
+			} while (toLink == fromLink);
+
+			requests.add(requestFactory.create(Id.create(i, Request.class),
+					createPassenger(Id.createPersonId(i), mode), fromLink, toLink, submissionTimes[i]));
+		}
+		requests.sort(Comparator.comparingDouble(Request::getSubmissionTime));
+		return requests;
+	}
+
+	/**
+	 * Passengers are needed only as request owners (e.g. in rejection events), so apart from getId() and getMode(),
+	 * all methods do nothing and return default values (null, 0 or false).
+	 */
+	public static MobsimPassengerAgent createPassenger(Id<Person> id, String mode) {
+		return (MobsimPassengerAgent)Proxy.newProxyInstance(MobsimPassengerAgent.class.getClassLoader(),
+				new Class<?>[] { MobsimPassengerAgent.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getId":
+							return id;
+						case "getMode":
+							return mode;
+						case "toString":
+							return "passenger_" + id;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							return getDefaultValue(method.getReturnType());
+					}
+				});
+	}
+
+	private static Object getDefaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		} else if (type == boolean.class) {
+			return false;
+		} else if (type == char.class) {
+			return '\0';
+		}
+		return Array.get(Array.newInstance(type, 1), 0);// zero of the given primitive type
+	}
+}
@@ -18,13 +18,13 @@
 
 package org.matsim.contrib.dvrp.path;
 
-import java.util.Collection;
-import java.util.Collections;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Supplier;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -32,77 +32,174 @@ import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
-import org.matsim.contrib.util.ExecutorServiceWithResource;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
-import com.google.common.collect.ArrayTable;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Table;
+import com.google.common.collect.ImmutableMap;
 
 /**
+ * Time-dependent travel times and distances between all pairs of the given links (e.g. DRT stops). For each time bin,
+ * the values are stored row by row in two float arrays (i.e. 8 bytes per link pair and time bin), so no paths are kept
+ * in memory. {@link PathData} objects are created on demand, and contain only the travel time.
+ * <p>
+ * The matrix is calculated (in parallel, see {@link ManyToManyPathSearch}) when created, and can be updated (for
+ * instance, to account for new travel time estimates) by calling {@link #update(double, double)}. The threads are
+ * released by {@link #shutdown()}, after which the matrix can still be read, but not updated.
+ *
  * @author michalm
  */
 public class ManyToManyPathData {
 	private static final Logger log = Logger.getLogger(ManyToManyPathData.class);
 
-	private final Table<Id<Link>, Id<Link>, PathData>[] tables;
+	private final ImmutableList<Link> links;
+	private final ImmutableMap<Id<Link>, Integer> linkIndices;
+	private final int size;
+
 	private final TimeDiscretizer discretizer;
+	private final float[][] travelTimes;// [timeIdx][fromIdx * size + toIdx]
+	private final float[][] travelDistances;// [timeIdx][fromIdx * size + toIdx]
+
+	private final ForkJoinPool forkJoinPool;
+	private final ManyToManyPathSearch manyToManyPathSearch;
 
 	public ManyToManyPathData(Network network, TravelTime travelTime, TravelDisutility travelDisutility,
 			List<Link> links, TimeDiscretizer discretizer, int threads) {
+		this.links = ImmutableList.copyOf(links);
 		this.discretizer = discretizer;
-		this.tables = createTables(links);
-		updateTable(links, threads,
-				() -> OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility));
+		this.forkJoinPool = new ForkJoinPool(threads);
+		this.manyToManyPathSearch = ManyToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				forkJoinPool);
+
+		ImmutableMap.Builder<Id<Link>, Integer> linkIndicesBuilder = ImmutableMap.builder();
+		for (int i = 0; i < this.links.size(); i++) {
+			linkIndicesBuilder.put(this.links.get(i).getId(), i);
+		}
+		linkIndices = linkIndicesBuilder.build();
+		size = this.links.size();
+
+		// fail fast, before any path search is run
+		int cellCount = ManyToManyPathSearch.getCellCount(size, size);
+		int intervalCount = discretizer.getIntervalCount();
+		log.info("Matrix size: " + size + " x " + size + " links, " + intervalCount + " time bins, " + (
+				8L * cellCount * intervalCount >> 20) + " MB");
+		travelTimes = new float[intervalCount][cellCount];
+		travelDistances = new float[intervalCount][cellCount];
+		updateTables(0, intervalCount - 1);
+	}
+
+	/**
+	 * Recalculates the time bins that overlap with [fromTime, toTime]. The remaining bins are not changed, so if the
+	 * travel times have changed only within this period (e.g. due to online travel time estimation), the update is
+	 * much cheaper than recalculating the whole matrix.
+	 */
+	public void update(double fromTime, double toTime) {
+		updateTables(discretizer.getIdx(fromTime), discretizer.getIdx(toTime));
 	}
 
-	private Table<Id<Link>, Id<Link>, PathData>[] createTables(List<Link> links) {
-		ImmutableList<Id<Link>> linkIds = links.stream().map(l -> l.getId()).collect(ImmutableList.toImmutableList());
-		@SuppressWarnings("unchecked")
-		Table<Id<Link>, Id<Link>, PathData>[] tables = new Table[discretizer.getIntervalCount()];
-		for (int i = 0; i < tables.length; i++) {
-			tables[i] = ArrayTable.create(linkIds, linkIds);
+	private void updateTables(int fromTimeIdx, int toTimeIdx) {
+		log.info("Matrix calculation started (time bins: " + fromTimeIdx + "-" + toTimeIdx + ")");
+		for (int timeIdx = fromTimeIdx; timeIdx <= toTimeIdx; timeIdx++) {
+			manyToManyPathSearch.calcTravelMatrix(links, links, timeIdx * discretizer.getTimeInterval(),
+					travelTimes[timeIdx], travelDistances[timeIdx]);
 		}
-		return tables;
+		log.info("Matrix calculation finished");
 	}
 
-	private void updateTable(List<Link> links, int threads, Supplier<OneToManyPathSearch> oneToManyPathSearchProvider) {
-		log.info("Matrix calculation started");
-		ExecutorServiceWithResource<OneToManyPathSearch> executorService = new ExecutorServiceWithResource<>(//
-				IntStream.range(0, threads)//
-						.mapToObj(i -> oneToManyPathSearchProvider.get())//
-						.collect(Collectors.toList()));
+	public void shutdown() {
+		forkJoinPool.shutdown();
+	}
 
-		executorService.submitRunnablesAndWait(//
-				IntStream.range(0, tables.length).boxed() // in each table (i)
-						.flatMap(i -> links.stream() // for each link (fromLink)
-								.map(fromLink -> (search -> updateRow(search, fromLink, links, i)))));
+	public boolean containsLink(Id<Link> linkId) {
+		return linkIndices.containsKey(linkId);
+	}
 
-		executorService.shutdown();
-		log.info("Matrix calculation finished");
+	public double getTravelTime(Id<Link> fromLink, Id<Link> toLink, double startTime) {
+		return travelTimes[discretizer.getIdx(startTime)][linkIndices.get(fromLink) * size + linkIndices.get(toLink)];
 	}
 
-	private void updateRow(OneToManyPathSearch search, Link fromLink, Collection<Link> toLinks, int timeIdx) {
-		int startTime = timeIdx * discretizer.getTimeInterval();
-		Map<Id<Link>, PathData> pathData = search.calcPathDataMap(fromLink, toLinks, startTime);
-		for (Map.Entry<Id<Link>, PathData> e : pathData.entrySet()) {
-			tables[timeIdx].put(fromLink.getId(), e.getKey(), e.getValue());
-		}
+	public double getTravelDistance(Id<Link> fromLink, Id<Link> toLink, double startTime) {
+		return travelDistances[discretizer.getIdx(startTime)][linkIndices.get(fromLink) * size
+				+ linkIndices.get(toLink)];
 	}
 
+	/**
+	 * @return path data (travel time only) or null if the links are not in the matrix
+	 */
 	public PathData getPathData(Id<Link> fromLink, Id<Link> toLink, double startTime) {
-		return tables[discretizer.getIdx(startTime)].get(fromLink, toLink);
+		Integer fromIdx = linkIndices.get(fromLink);
+		Integer toIdx = linkIndices.get(toLink);
+		return fromIdx == null || toIdx == null ?
+				null :
+				new PathData(travelTimes[discretizer.getIdx(startTime)][fromIdx * size + toIdx]);
 	}
 
+	/**
+	 * @return a read-only view of the row (path data are created on demand, so prefer get() over iteration)
+	 */
 	public Map<Id<Link>, PathData> getOutgoingPathData(Id<Link> fromLink, double startTime) {
-		// to avoid delegation via Collections.unmodifiableMap(), one could change ArrayTable to ImmutableTable
-		// (guava would likely choose DenseImmutableTable instead of SparseImmutableTable -- though no explicit choice)
-		// same for getIncomingPathData
-		return Collections.unmodifiableMap(tables[discretizer.getIdx(startTime)].row(fromLink));
+		return new PathDataView(travelTimes[discretizer.getIdx(startTime)], linkIndices.get(fromLink) * size, 1);
 	}
 
+	/**
+	 * @return a read-only view of the column (path data are created on demand, so prefer get() over iteration)
+	 */
 	public Map<Id<Link>, PathData> getIncomingPathData(Id<Link> toLink, double startTime) {
-		return Collections.unmodifiableMap(tables[discretizer.getIdx(startTime)].column(toLink));
+		return new PathDataView(travelTimes[discretizer.getIdx(startTime)], linkIndices.get(toLink), size);
+	}
+
+	private class PathDataView extends AbstractMap<Id<Link>, PathData> {
+		private final float[] table;
+		private final int offset;
+		private final int stride;
+
+		private PathDataView(float[] table, int offset, int stride) {
+			this.table = table;
+			this.offset = offset;
+			this.stride = stride;
+		}
+
+		@Override
+		public PathData get(Object key) {
+			Integer idx = linkIndices.get(key);
+			return idx == null ? null : new PathData(table[offset + idx * stride]);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return linkIndices.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Set<Entry<Id<Link>, PathData>> entrySet() {
+			return new AbstractSet<Entry<Id<Link>, PathData>>() {
+				@Override
+				public Iterator<Entry<Id<Link>, PathData>> iterator() {
+					Iterator<Id<Link>> linkIdIterator = linkIndices.keySet().iterator();
+					return new Iterator<Entry<Id<Link>, PathData>>() {
+						@Override
+						public boolean hasNext() {
+							return linkIdIterator.hasNext();
+						}
+
+						@Override
+						public Entry<Id<Link>, PathData> next() {
+							Id<Link> linkId = linkIdIterator.next();
+							return new SimpleImmutableEntry<>(linkId, get(linkId));
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return size;
+				}
+			};
+		}
 	}
 }
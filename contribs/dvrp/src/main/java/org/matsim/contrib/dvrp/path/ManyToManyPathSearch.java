@@ -0,0 +1,157 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Calculates the travel times and distances between many links at once (e.g. vehicles and requests in taxi/DRT
+ * optimisers, or zones in rebalancing). The one-to-many searches (one per row) run in parallel on the given
+ * {@link ForkJoinPool}, each thread with its own {@link OneToManyPathSearch} that is reused across calls. The results
+ * are stored in primitive arrays, so no {@link PathData} objects or maps are created.
+ */
+public class ManyToManyPathSearch {
+	public static ManyToManyPathSearch createForwardSearch(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, ForkJoinPool forkJoinPool) {
+		return new ManyToManyPathSearch(
+				() -> OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility), forkJoinPool);
+	}
+
+	public static ManyToManyPathSearch createBackwardSearch(Network network, TravelTime travelTime,
+			TravelDisutility travelDisutility, ForkJoinPool forkJoinPool) {
+		return new ManyToManyPathSearch(
+				() -> OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility), forkJoinPool);
+	}
+
+	/**
+	 * Travel times and distances (row-major), as calculated by
+	 * {@link OneToManyPathSearch#calcTravelTimesAndDistances}.
+	 */
+	public static class TravelMatrix {
+		private final int colCount;
+		private final double[] travelTimes;
+		private final double[] travelDistances;
+
+		private TravelMatrix(int rowCount, int colCount) {
+			this.colCount = colCount;
+			int cellCount = getCellCount(rowCount, colCount);
+			travelTimes = new double[cellCount];
+			travelDistances = new double[cellCount];
+		}
+
+		public int getRowCount() {
+			return colCount == 0 ? 0 : travelTimes.length / colCount;
+		}
+
+		public int getColCount() {
+			return colCount;
+		}
+
+		public double getTravelTime(int row, int col) {
+			return travelTimes[row * colCount + col];
+		}
+
+		public double getTravelDistance(int row, int col) {
+			return travelDistances[row * colCount + col];
+		}
+	}
+
+	private final ThreadLocal<OneToManyPathSearch> oneToManyPathSearch;
+	private final ForkJoinPool forkJoinPool;
+
+	private ManyToManyPathSearch(Supplier<OneToManyPathSearch> oneToManyPathSearchSupplier,
+			ForkJoinPool forkJoinPool) {
+		this.oneToManyPathSearch = ThreadLocal.withInitial(oneToManyPathSearchSupplier);
+		this.forkJoinPool = forkJoinPool;
+	}
+
+	/**
+	 * @param rowLinks  links the searches start from (in a backward search: the links where the trips end)
+	 * @param colLinks  links the searches go to
+	 * @param startTime start time of all searches
+	 */
+	public TravelMatrix calcTravelMatrix(List<Link> rowLinks, List<Link> colLinks, double startTime) {
+		return calcTravelMatrix(rowLinks, colLinks, row -> startTime);
+	}
+
+	/**
+	 * @param startTimes start time of the search of each row
+	 */
+	public TravelMatrix calcTravelMatrix(List<Link> rowLinks, List<Link> colLinks, double[] startTimes) {
+		if (startTimes.length != rowLinks.size()) {
+			throw new IllegalArgumentException("One start time per row link is required");
+		}
+		return calcTravelMatrix(rowLinks, colLinks, row -> startTimes[row]);
+	}
+
+	/**
+	 * Writes the travel times and distances (row by row) directly to the given arrays, which avoids allocating a
+	 * {@link TravelMatrix} (e.g. when the values are stored as floats)
+	 */
+	public void calcTravelMatrix(List<Link> rowLinks, List<Link> colLinks, double startTime, float[] travelTimes,
+			float[] travelDistances) {
+		int colCount = colLinks.size();
+		if (travelTimes.length != getCellCount(rowLinks.size(), colCount)
+				|| travelDistances.length != travelTimes.length) {
+			throw new IllegalArgumentException("The arrays must have one element per row-column pair");
+		}
+		forkJoinPool.submit(() -> IntStream.range(0, rowLinks.size()).parallel()//
+				.forEach(row -> oneToManyPathSearch.get()
+						.calcTravelTimesAndDistances(rowLinks.get(row), colLinks, startTime,
+								(col, travelTime, travelDistance) -> {
+									travelTimes[row * colCount + col] = (float)travelTime;
+									travelDistances[row * colCount + col] = (float)travelDistance;
+								})))//
+				.join();
+	}
+
+	/**
+	 * @return number of row-column pairs
+	 * @throws IllegalArgumentException if the pairs do not fit into a single array
+	 */
+	public static int getCellCount(int rowCount, int colCount) {
+		long cellCount = (long)rowCount * colCount;
+		if (cellCount > Integer.MAX_VALUE - 8) {// max array size of some VMs
+			throw new IllegalArgumentException(
+					"Too many pairs (" + rowCount + " x " + colCount + ") to be stored in a single array");
+		}
+		return (int)cellCount;
+	}
+
+	private TravelMatrix calcTravelMatrix(List<Link> rowLinks, List<Link> colLinks, IntToDoubleFunction startTimes) {
+		int colCount = colLinks.size();
+		TravelMatrix matrix = new TravelMatrix(rowLinks.size(), colCount);
+		forkJoinPool.submit(() -> IntStream.range(0, rowLinks.size()).parallel()//
+				.forEach(row -> oneToManyPathSearch.get()
+						.calcTravelTimesAndDistances(rowLinks.get(row), colLinks, startTimes.applyAsDouble(row),
+								matrix.travelTimes, matrix.travelDistances, row * colCount)))//
+				.join();
+		return matrix;
+	}
+}
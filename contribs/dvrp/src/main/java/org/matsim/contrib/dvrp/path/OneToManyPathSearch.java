@@ -21,6 +21,7 @@ package org.matsim.contrib.dvrp.path;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -60,19 +61,28 @@ public class OneToManyPathSearch {
 	}
 
 	public static class PathData {
-		final Path path;// shortest path
-		private final double firstAndLastLinkTT;// at both the first and last links
+		final Path path;// shortest path; null if only the travel time is known (e.g. taken from ManyToManyPathData)
+		private final double travelTime;// including the first and last links
 
 		public PathData(Path path, double firstAndLastLinkTT) {
 			this.path = new Path(null, ImmutableList.copyOf(path.links), path.travelTime, path.travelCost);
-			this.firstAndLastLinkTT = firstAndLastLinkTT;
+			this.travelTime = path.travelTime + firstAndLastLinkTT;
+		}
+
+		public PathData(double travelTime) {
+			this.path = null;
+			this.travelTime = travelTime;
 		}
 
 		public double getTravelTime() {
-			return path.travelTime + firstAndLastLinkTT;
+			return travelTime;
 		}
 	}
 
+	public interface TravelTimeAndDistanceConsumer {
+		void accept(int toLinkIdx, double travelTime, double travelDistance);
+	}
+
 	private static class ToNode extends InitialNode {
 		private Path path;
 
@@ -84,6 +94,9 @@ public class OneToManyPathSearch {
 	private final MultiNodePathCalculator multiNodeDijkstra;// forward or backward
 	private final boolean forward;
 
+	// reused by calcTravelTimesAndDistances() (like multiNodeDijkstra, an instance must not be shared between threads)
+	private final Map<Id<Node>, ToNode> toNodesScratch = new HashMap<>();
+
 	private OneToManyPathSearch(MultiNodePathCalculator multiNodeDijkstra) {
 		this.multiNodeDijkstra = multiNodeDijkstra;
 		this.forward = !(multiNodeDijkstra instanceof BackwardFastMultiNodeDijkstra);
@@ -103,15 +116,66 @@ public class OneToManyPathSearch {
 		return createPathDataMap(fromLink, toLinks, startTime, toNodes);
 	}
 
+	/**
+	 * Calculates only the travel times and distances (written to the arrays, starting at offset), so that neither path
+	 * data objects nor maps are created. As in {@link VrpPaths#calcDistance(VrpPath)}, the distance includes the link
+	 * where the trip ends, but not the one where it starts (in a backward search, the trip ends at fromLink). Unreachable
+	 * links get infinite travel time and distance.
+	 */
+	public void calcTravelTimesAndDistances(Link fromLink, List<Link> toLinks, double startTime, double[] travelTimes,
+			double[] travelDistances, int offset) {
+		calcTravelTimesAndDistances(fromLink, toLinks, startTime, (i, travelTime, travelDistance) -> {
+			travelTimes[offset + i] = travelTime;
+			travelDistances[offset + i] = travelDistance;
+		});
+	}
+
+	/**
+	 * As {@link #calcTravelTimesAndDistances(Link, List, double, double[], double[], int)}, but the values are passed
+	 * to the consumer (e.g. to be stored in a float array)
+	 */
+	public void calcTravelTimesAndDistances(Link fromLink, List<Link> toLinks, double startTime,
+			TravelTimeAndDistanceConsumer consumer) {
+		Node fromNode = getFromNode(fromLink);
+		toNodesScratch.clear();
+		fillToNodes(toNodesScratch, fromLink, toLinks);
+		calculatePaths(fromNode, toNodesScratch, startTime);
+
+		for (int i = 0; i < toLinks.size(); i++) {
+			Link toLink = toLinks.get(i);
+			if (toLink == fromLink) {
+				consumer.accept(i, 0, 0);
+				continue;
+			}
+
+			Path path = toNodesScratch.get(getToNode(toLink).getId()).path;
+			if (path == null) {
+				consumer.accept(i, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+				continue;
+			}
+
+			double distance = forward ? toLink.getLength() : fromLink.getLength();
+			for (Link link : path.links) {
+				distance += link.getLength();
+			}
+			consumer.accept(i, path.travelTime + getFirstAndLastLinkTT(fromLink, toLink, path, startTime), distance);
+		}
+		toNodesScratch.clear();
+	}
+
 	private Map<Id<Node>, ToNode> createToNodes(Link fromLink, Collection<Link> toLinks) {
 		Map<Id<Node>, ToNode> toNodes = Maps.newHashMapWithExpectedSize(toLinks.size());
+		fillToNodes(toNodes, fromLink, toLinks);
+		return toNodes;
+	}
+
+	private void fillToNodes(Map<Id<Node>, ToNode> toNodes, Link fromLink, Collection<Link> toLinks) {
 		for (Link toLink : toLinks) {
 			if (toLink != fromLink) {
 				Node toNode = getToNode(toLink);
 				toNodes.putIfAbsent(toNode.getId(), new ToNode(toNode, 0, 0));
 			}
 		}
-		return toNodes;
 	}
 
 	private void calculatePaths(Node fromNode, Map<Id<Node>, ToNode> toNodes, double startTime) {
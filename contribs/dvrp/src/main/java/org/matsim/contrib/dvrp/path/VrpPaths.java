@@ -51,6 +51,9 @@ public class VrpPaths {
 
 	public static VrpPathWithTravelData createPath(Link fromLink, Link toLink, double departureTime, PathData pathData,
 			TravelTime travelTime) {
+		if (pathData.path == null) {
+			throw new IllegalArgumentException("PathData without path (e.g. taken from ManyToManyPathData)");
+		}
 		return createPath(fromLink, toLink, departureTime, pathData.path, travelTime);
 	}
 
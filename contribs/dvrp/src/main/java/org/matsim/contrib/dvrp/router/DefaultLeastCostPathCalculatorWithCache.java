@@ -19,49 +19,53 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.function.Supplier;
+
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.utils.collections.Tuple;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.*;
-
+/**
+ * Caches paths per time bin. The cache can be shared between threads; each thread calculates the missing paths with
+ * its own calculator. The cache size is bounded by the total number of links of the cached paths.
+ */
 public class DefaultLeastCostPathCalculatorWithCache implements LeastCostPathCalculatorWithCache {
-	private final LeastCostPathCalculator calculator;
+	private final ThreadLocal<LeastCostPathCalculator> calculator;
 	private final TimeDiscretizer timeDiscretizer;
-	private final Table<Id<Node>, Id<Node>, Path>[] pathCache;
+	private final TimeBinnedCache<Tuple<Id<Node>, Id<Node>>, Path> pathCache;
 
-	private CacheStats cacheStats = new CacheStats();
+	private final CacheStats cacheStats = new CacheStats();
 
-	@SuppressWarnings("unchecked")
-	public DefaultLeastCostPathCalculatorWithCache(LeastCostPathCalculator calculator,
-			TimeDiscretizer timeDiscretizer) {
-		this.calculator = calculator;
+	/**
+	 * @param calculatorFactory creates one calculator per thread
+	 * @param maxCachedLinks    max total number of links of the cached paths
+	 */
+	public DefaultLeastCostPathCalculatorWithCache(Supplier<LeastCostPathCalculator> calculatorFactory,
+			TimeDiscretizer timeDiscretizer, long maxCachedLinks) {
+		this.calculator = ThreadLocal.withInitial(calculatorFactory);
 		this.timeDiscretizer = timeDiscretizer;
-
-		pathCache = new Table[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < pathCache.length; i++) {
-			pathCache[i] = HashBasedTable.create();
-		}
+		pathCache = new TimeBinnedCache<>(timeDiscretizer, maxCachedLinks, path -> path.links.size() + 1, cacheStats);
 	}
 
 	@Override
 	public Path calcLeastCostPath(Node fromNode, Node toNode, double startTime, Person person, Vehicle vehicle) {
-		Table<Id<Node>, Id<Node>, Path> spCacheSlice = pathCache[timeDiscretizer.getIdx(startTime)];
-		Path path = spCacheSlice.get(fromNode.getId(), toNode.getId());
+		return pathCache.get(startTime, new Tuple<>(fromNode.getId(), toNode.getId()),
+				() -> calculator.get().calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime),
+						person, vehicle));
+	}
 
-		if (path == null) {
-			cacheStats.incMisses();
-			path = calculator.calcLeastCostPath(fromNode, toNode, timeDiscretizer.discretize(startTime), person,
-					vehicle);
-			spCacheSlice.put(fromNode.getId(), toNode.getId(), path);
-		} else {
-			cacheStats.incHits();
-		}
+	@Override
+	public void travelTimesUpdated(double fromTime, double toTime) {
+		pathCache.invalidate(fromTime, toTime);
+	}
 
-		return path;
+	@Override
+	public void invalidateAll() {
+		pathCache.invalidateAll();
 	}
 
 	@Override
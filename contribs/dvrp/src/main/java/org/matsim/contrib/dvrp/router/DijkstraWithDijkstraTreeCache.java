@@ -19,8 +19,6 @@
 
 package org.matsim.contrib.dvrp.router;
 
-import java.util.Map;
-
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.*;
 import org.matsim.api.core.v01.population.Person;
@@ -28,29 +26,32 @@ import org.matsim.contrib.dvrp.util.TimeDiscretizer;
 import org.matsim.core.router.util.*;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.Maps;
-
+/**
+ * Caches shortest path trees per time bin. The cache can be shared between threads (a tree is not modified after it
+ * has been calculated). Each tree holds data for the whole network, so the cache size is bounded by the number of
+ * trees.
+ */
 public class DijkstraWithDijkstraTreeCache implements LeastCostPathCalculatorWithCache {
 	private final Network network;
 	private final TravelDisutility costFunction;
 	private final TravelTime timeFunction;
 	private final TimeDiscretizer timeDiscretizer;
-	private final Map<Id<Node>, DijkstraTree>[] treeCache;
+	private final TimeBinnedCache<Id<Node>, DijkstraTree> treeCache;
 
-	private CacheStats cacheStats = new CacheStats();
+	private final CacheStats cacheStats = new CacheStats();
 
-	@SuppressWarnings("unchecked")
 	public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction, final TravelTime timeFunction,
 			TimeDiscretizer timeDiscretizer) {
+		this(network, costFunction, timeFunction, timeDiscretizer, Long.MAX_VALUE);
+	}
+
+	public DijkstraWithDijkstraTreeCache(Network network, TravelDisutility costFunction, final TravelTime timeFunction,
+			TimeDiscretizer timeDiscretizer, long maxCachedTrees) {
 		this.network = network;
 		this.costFunction = costFunction;
 		this.timeFunction = timeFunction;
 		this.timeDiscretizer = timeDiscretizer;
-
-		treeCache = new Map[timeDiscretizer.getIntervalCount()];
-		for (int i = 0; i < treeCache.length; i++) {
-			treeCache[i] = Maps.newHashMap();
-		}
+		treeCache = new TimeBinnedCache<>(timeDiscretizer, maxCachedTrees, tree -> 1, cacheStats);
 	}
 
 	@Override
@@ -60,19 +61,21 @@ public class DijkstraWithDijkstraTreeCache implements LeastCostPathCalculatorWit
 	}
 
 	public DijkstraTree getTree(Node fromNode, double startTime) {
-		Map<Id<Node>, DijkstraTree> treeCacheSlice = treeCache[timeDiscretizer.getIdx(startTime)];
-		DijkstraTree tree = treeCacheSlice.get(fromNode.getId());
-
-		if (tree == null) {
-			cacheStats.incMisses();
-			tree = new DijkstraTree(network, costFunction, timeFunction);
+		return treeCache.get(startTime, fromNode.getId(), () -> {
+			DijkstraTree tree = new DijkstraTree(network, costFunction, timeFunction);
 			tree.calcLeastCostPathTree(fromNode, timeDiscretizer.discretize(startTime));
-			treeCacheSlice.put(fromNode.getId(), tree);
-		} else {
-			cacheStats.incHits();
-		}
+			return tree;
+		});
+	}
+
+	@Override
+	public void travelTimesUpdated(double fromTime, double toTime) {
+		treeCache.invalidate(fromTime, toTime);
+	}
 
-		return tree;
+	@Override
+	public void invalidateAll() {
+		treeCache.invalidateAll();
 	}
 
 	@Override
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
+import org.matsim.contrib.dvrp.trafficmonitoring.DvrpTravelTimeEstimator;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.utils.io.IOUtils;
+
+import com.google.inject.Inject;
+
+/**
+ * Creates the path caches of the DVRP optimizers (if enabled, see {@link DvrpConfigGroup#getPathCacheSize()}) and
+ * registers them with the {@link DvrpTravelTimeEstimator}, so that they are invalidated when the estimated travel times
+ * change.
+ * <p>
+ * The caches are created by QSim-scoped objects, i.e. anew in each iteration. At the end of each iteration, their stats
+ * are appended to {@value #OUTPUT_FILE} and they are removed from the estimator.
+ */
+public class LeastCostPathCalculatorCacheManager implements IterationEndsListener {
+	public static final String OUTPUT_FILE = "dvrp_path_cache_stats.txt";
+
+	private final DvrpTravelTimeEstimator travelTimeEstimator;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final TimeDiscretizer timeDiscretizer;
+	private final long pathCacheSize;
+
+	private final Map<String, LeastCostPathCalculatorWithCache> caches = new LinkedHashMap<>();
+	private boolean headerWritten = false;
+
+	@Inject
+	public LeastCostPathCalculatorCacheManager(DvrpTravelTimeEstimator travelTimeEstimator,
+			OutputDirectoryHierarchy controlerIO, DvrpConfigGroup dvrpCfg, TravelTimeCalculatorConfigGroup ttcCfg) {
+		this.travelTimeEstimator = travelTimeEstimator;
+		this.controlerIO = controlerIO;
+		timeDiscretizer = new TimeDiscretizer(ttcCfg);
+		pathCacheSize = dvrpCfg.getPathCacheSize();
+	}
+
+	/**
+	 * @param name              unique (within an iteration) name of the cache, used in the stats
+	 * @param calculatorFactory creates one calculator per thread (or a single one if caching is disabled)
+	 */
+	public synchronized LeastCostPathCalculator createCalculator(String name,
+			Supplier<LeastCostPathCalculator> calculatorFactory) {
+		if (pathCacheSize == 0) {
+			return calculatorFactory.get();
+		}
+
+		if (caches.containsKey(name)) {
+			throw new IllegalArgumentException("Path cache: " + name + " has been already created in this iteration");
+		}
+
+		LeastCostPathCalculatorWithCache cache = new DefaultLeastCostPathCalculatorWithCache(calculatorFactory,
+				timeDiscretizer, pathCacheSize);
+		travelTimeEstimator.addTravelTimeUpdateListener(cache);
+		caches.put(name, cache);
+		return cache;
+	}
+
+	@Override
+	public synchronized void notifyIterationEnds(IterationEndsEvent event) {
+		if (caches.isEmpty()) {
+			return;
+		}
+
+		try (BufferedWriter writer = IOUtils.getAppendingBufferedWriter(
+				controlerIO.getOutputFilename(OUTPUT_FILE))) {
+			if (!headerWritten) {
+				headerWritten = true;
+				writer.write("iteration\tcache\thits\tmisses\tevictions\tinvalidations");
+				writer.newLine();
+			}
+			for (Map.Entry<String, LeastCostPathCalculatorWithCache> e : caches.entrySet()) {
+				CacheStats stats = e.getValue().getCacheStats();
+				writer.write(event.getIteration() + "\t" + e.getKey() + "\t" + stats.getHits() + "\t"
+						+ stats.getMisses() + "\t" + stats.getEvictions() + "\t" + stats.getInvalidations());
+				writer.newLine();
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+
+		caches.values().forEach(travelTimeEstimator::removeTravelTimeUpdateListener);
+		caches.clear();
+	}
+}
@@ -22,24 +22,36 @@ package org.matsim.contrib.dvrp.router;
 import java.io.PrintWriter;
 
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
 
 public class LeastCostPathCalculatorCacheStats {
 	private final SummaryStatistics hitStats = new SummaryStatistics();
 	private final SummaryStatistics missStats = new SummaryStatistics();
+	private final SummaryStatistics evictionStats = new SummaryStatistics();
+	private final SummaryStatistics invalidationStats = new SummaryStatistics();
 
+	/**
+	 * To collect per-iteration stats, call this method at the end of each iteration and then reset the cache stats.
+	 */
 	public void updateStats(LeastCostPathCalculatorWithCache calculatorWithCache) {
-		hitStats.addValue(calculatorWithCache.getCacheStats().getHits());
-		missStats.addValue(calculatorWithCache.getCacheStats().getMisses());
+		CacheStats cacheStats = calculatorWithCache.getCacheStats();
+		hitStats.addValue(cacheStats.getHits());
+		missStats.addValue(cacheStats.getMisses());
+		evictionStats.addValue(cacheStats.getEvictions());
+		invalidationStats.addValue(cacheStats.getInvalidations());
 	}
 
-	public static final String HEADER = "cfg\tHits\tMisses";
+	public static final String HEADER = "cfg\tHits\tMisses\tEvictions\tInvalidations";
 
 	public void printStats(PrintWriter pw, String id) {
-		pw.printf("%10s\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean());
+		pw.printf("%10s\t%f\t%f\t%f\t%f\n", id, hitStats.getMean(), missStats.getMean(), evictionStats.getMean(),
+				invalidationStats.getMean());
 	}
 
 	public void clearStats() {
 		hitStats.clear();
 		missStats.clear();
+		evictionStats.clear();
+		invalidationStats.clear();
 	}
 }
@@ -19,29 +19,67 @@
 
 package org.matsim.contrib.dvrp.router;
 
+import java.util.concurrent.atomic.LongAdder;
+
+import org.matsim.contrib.dvrp.trafficmonitoring.TravelTimeUpdateListener;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 
-public interface LeastCostPathCalculatorWithCache extends LeastCostPathCalculator {
+/**
+ * Implementations are thread-safe. Cached entries within the updated period are invalidated on
+ * {@link #travelTimesUpdated(double, double)} (see
+ * {@link org.matsim.contrib.dvrp.trafficmonitoring.DvrpOnlineTravelTimeEstimator#addTravelTimeUpdateListener}).
+ */
+public interface LeastCostPathCalculatorWithCache extends LeastCostPathCalculator, TravelTimeUpdateListener {
 	class CacheStats {
-		private int hits = 0;
-		private int misses = 0;
+		private final LongAdder hits = new LongAdder();
+		private final LongAdder misses = new LongAdder();
+		private final LongAdder evictions = new LongAdder();// size limit exceeded
+		private final LongAdder invalidations = new LongAdder();// travel times updated
 
 		public void incHits() {
-			hits++;
+			hits.increment();
 		}
 
 		public void incMisses() {
-			misses++;
+			misses.increment();
+		}
+
+		public void incEvictions() {
+			evictions.increment();
+		}
+
+		public void incInvalidations() {
+			invalidations.increment();
+		}
+
+		public long getHits() {
+			return hits.sum();
+		}
+
+		public long getMisses() {
+			return misses.sum();
 		}
 
-		public int getHits() {
-			return hits;
+		public long getEvictions() {
+			return evictions.sum();
 		}
 
-		public int getMisses() {
-			return misses;
+		public long getInvalidations() {
+			return invalidations.sum();
+		}
+
+		/**
+		 * e.g. at the beginning of each iteration, to get per-iteration stats
+		 */
+		public void reset() {
+			hits.reset();
+			misses.reset();
+			evictions.reset();
+			invalidations.reset();
 		}
 	}
 
 	CacheStats getCacheStats();
-}
\ No newline at end of file
+
+	void invalidateAll();
+}
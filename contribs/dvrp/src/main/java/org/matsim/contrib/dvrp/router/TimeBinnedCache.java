@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer.Type;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+
+/**
+ * Thread-safe cache of values (e.g. paths or shortest path trees) per time bin and key. The total weight of the cached
+ * values is bounded, and the least recently used values are evicted first. Since the travel times change over time,
+ * the values of selected time bins can be invalidated. Invalidation is cheap (the time bin's generation is incremented),
+ * and the outdated values are replaced when accessed (or evicted if not used any more).
+ */
+class TimeBinnedCache<K, V> {
+	private static class Key<K> {
+		private final int timeBin;
+		private final K key;
+
+		private Key(int timeBin, K key) {
+			this.timeBin = timeBin;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key<?> other = (Key<?>)o;
+			return timeBin == other.timeBin && key.equals(other.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(timeBin, key);
+		}
+	}
+
+	private static class Value<V> {
+		private final V value;
+		private final int generation;
+
+		private Value(V value, int generation) {
+			this.value = value;
+			this.generation = generation;
+		}
+	}
+
+	private final TimeDiscretizer timeDiscretizer;
+	private final CacheStats cacheStats;
+	private final Cache<Key<K>, Value<V>> cache;
+	private final AtomicIntegerArray generations;// per time bin
+
+	TimeBinnedCache(TimeDiscretizer timeDiscretizer, long maxWeight, ToIntFunction<V> weigher,
+			CacheStats cacheStats) {
+		this.timeDiscretizer = timeDiscretizer;
+		this.cacheStats = cacheStats;
+		generations = new AtomicIntegerArray(timeDiscretizer.getIntervalCount());
+		cache = CacheBuilder.newBuilder()//
+				.maximumWeight(maxWeight)//
+				.weigher((Key<K> key, Value<V> value) -> weigher.applyAsInt(value.value))//
+				.removalListener(notification -> {
+					if (notification.getCause() == RemovalCause.SIZE) {
+						cacheStats.incEvictions();
+					} else if (notification.getCause() == RemovalCause.EXPLICIT) {
+						cacheStats.incInvalidations();
+					}
+				})//
+				.build();
+	}
+
+	/**
+	 * @param calculator calculates the value if not cached (null values are returned, but not cached)
+	 */
+	V get(double time, K key, Supplier<V> calculator) {
+		int timeBin = timeDiscretizer.getIdx(time);
+		int generation = generations.get(timeBin);
+		Key<K> binKey = new Key<>(timeBin, key);
+		Value<V> cached = cache.getIfPresent(binKey);
+		if (cached != null) {
+			if (cached.generation == generation) {
+				cacheStats.incHits();
+				return cached.value;
+			}
+			cacheStats.incInvalidations();
+		}
+
+		// the same value may be calculated concurrently by two threads, which is cheaper than blocking
+		cacheStats.incMisses();
+		V value = calculator.get();
+		if (value != null) {
+			cache.put(binKey, new Value<>(value, generation));
+		}
+		return value;
+	}
+
+	void invalidate(double fromTime, double toTime) {
+		int intervalCount = timeDiscretizer.getIntervalCount();
+		int timeInterval = timeDiscretizer.getTimeInterval();
+		double maxTime = timeDiscretizer.getType() == Type.ACYCLIC ? intervalCount * timeInterval : Double.MAX_VALUE;
+		if (fromTime >= maxTime) {
+			return;// beyond the last bin
+		}
+
+		BitSet timeBins = new BitSet(intervalCount);
+		for (double time = timeDiscretizer.discretize(Math.max(fromTime, 0)); time <= toTime
+				&& time < maxTime; time += timeInterval) {
+			timeBins.set(timeDiscretizer.getIdx(time));
+			if (timeBins.cardinality() == intervalCount || timeDiscretizer.getType() == Type.OPEN_ENDED
+					&& timeBins.get(intervalCount - 1)) {
+				break;// all bins, or the open-ended bin reached
+			}
+		}
+
+		for (int timeBin = timeBins.nextSetBit(0); timeBin >= 0; timeBin = timeBins.nextSetBit(timeBin + 1)) {
+			generations.incrementAndGet(timeBin);
+		}
+	}
+
+	void invalidateAll() {
+		cache.invalidateAll();
+	}
+}
@@ -19,6 +19,7 @@
 
 package org.matsim.contrib.dvrp.run;
 
+import java.net.URL;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -29,6 +30,7 @@ import javax.validation.constraints.PositiveOrZero;
 
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigGroup;
 import org.matsim.core.config.ReflectiveConfigGroup;
 
 public class DvrpConfigGroup extends ReflectiveConfigGroup {
@@ -80,6 +82,34 @@ public class DvrpConfigGroup extends ReflectiveConfigGroup {
 			+ " whereas if 'time < currentTime' it is 1."
 			////
 			+ " If beta is sufficiently large, 'beta >> 0', only the currently observed TT is used.";
+	public static final String TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY = "travelTimeEstimationObservedLinksOnly";
+	static final String TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY_EXP =
+			"Used for OFFLINE estimation of travel times for VrpOptimizer."
+					+ " If true, after each iteration, only the estimates of the links entered by vehicles"
+					+ " (of the mobsimMode) in that iteration are updated, while the estimates of the remaining links"
+					+ " are kept unchanged (instead of moving them towards the 'observed' TTs of empty links)."
+					+ " Speeds up the update for large networks. Default is false.";
+
+	public static final String INITIAL_TRAVEL_TIMES_FILE = "initialTravelTimesFile";
+	static final String INITIAL_TRAVEL_TIMES_FILE_EXP =
+			"File with the initial travel time estimates (e.g. the output of a previous run, see"
+					+ " writeTravelTimeEstimates), to warm-start the OFFLINE estimation of travel times."
+					+ " The free-speed TTs are used for links not listed in the file."
+					+ " If not provided (default), the free-speed TTs are used for all links.";
+
+	public static final String WRITE_TRAVEL_TIME_ESTIMATES = "writeTravelTimeEstimates";
+	static final String WRITE_TRAVEL_TIME_ESTIMATES_EXP =
+			"If true, the OFFLINE travel time estimates are written to the output directory at the end of the run"
+					+ " (to be used as the initialTravelTimesFile of another run). Default is false.";
+
+	public static final String PATH_CACHE_SIZE = "pathCacheSize";
+	static final String PATH_CACHE_SIZE_EXP =
+			"Max total number of links of the paths cached by each DVRP path cache,"
+					+ " e.g. the one used for relocating (rebalancing) empty DRT vehicles. The cached paths are"
+					+ " invalidated when the estimated travel times change. The hits, misses, evictions and"
+					+ " invalidations are written to the output directory after each iteration."
+					+ " 0 (default) disables caching.";
+
 	// In DVRP 'time < currentTime' may only happen for backward path search, a adding proper search termination
 	// criterion should prevent this from happening
 
@@ -96,6 +126,16 @@ public class DvrpConfigGroup extends ReflectiveConfigGroup {
 	@PositiveOrZero
 	private double travelTimeEstimationBeta = 0; // [s], 0 ==> only offline TT estimation
 
+	private boolean travelTimeEstimationObservedLinksOnly = false;
+
+	@Nullable
+	private String initialTravelTimesFile = null;
+
+	private boolean writeTravelTimeEstimates = false;
+
+	@PositiveOrZero
+	private long pathCacheSize = 0;// 0 ==> no path caching
+
 	public DvrpConfigGroup() {
 		super(GROUP_NAME);
 	}
@@ -107,6 +147,10 @@ public class DvrpConfigGroup extends ReflectiveConfigGroup {
 		map.put(MOBSIM_MODE, MOBSIM_MODE_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_ALPHA, TRAVEL_TIME_ESTIMATION_ALPHA_EXP);
 		map.put(TRAVEL_TIME_ESTIMATION_BETA, TRAVEL_TIME_ESTIMATION_BETA_EXP);
+		map.put(TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY, TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY_EXP);
+		map.put(INITIAL_TRAVEL_TIMES_FILE, INITIAL_TRAVEL_TIMES_FILE_EXP);
+		map.put(WRITE_TRAVEL_TIME_ESTIMATES, WRITE_TRAVEL_TIME_ESTIMATES_EXP);
+		map.put(PATH_CACHE_SIZE, PATH_CACHE_SIZE_EXP);
 		return map;
 	}
 
@@ -173,4 +217,72 @@ public class DvrpConfigGroup extends ReflectiveConfigGroup {
 	public void setTravelTimeEstimationBeta(double travelTimeEstimationBeta) {
 		this.travelTimeEstimationBeta = travelTimeEstimationBeta;
 	}
+
+	/**
+	 * @return {@value #TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY_EXP}
+	 */
+	@StringGetter(TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY)
+	public boolean isTravelTimeEstimationObservedLinksOnly() {
+		return travelTimeEstimationObservedLinksOnly;
+	}
+
+	/**
+	 * @param travelTimeEstimationObservedLinksOnly {@value #TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY_EXP}
+	 */
+	@StringSetter(TRAVEL_TIME_ESTIMATION_OBSERVED_LINKS_ONLY)
+	public void setTravelTimeEstimationObservedLinksOnly(boolean travelTimeEstimationObservedLinksOnly) {
+		this.travelTimeEstimationObservedLinksOnly = travelTimeEstimationObservedLinksOnly;
+	}
+
+	/**
+	 * @return {@value #INITIAL_TRAVEL_TIMES_FILE_EXP}
+	 */
+	@StringGetter(INITIAL_TRAVEL_TIMES_FILE)
+	public String getInitialTravelTimesFile() {
+		return initialTravelTimesFile;
+	}
+
+	public URL getInitialTravelTimesFileUrl(URL context) {
+		return ConfigGroup.getInputFileURL(context, initialTravelTimesFile);
+	}
+
+	/**
+	 * @param initialTravelTimesFile {@value #INITIAL_TRAVEL_TIMES_FILE_EXP}
+	 */
+	@StringSetter(INITIAL_TRAVEL_TIMES_FILE)
+	public void setInitialTravelTimesFile(String initialTravelTimesFile) {
+		this.initialTravelTimesFile = initialTravelTimesFile;
+	}
+
+	/**
+	 * @return {@value #WRITE_TRAVEL_TIME_ESTIMATES_EXP}
+	 */
+	@StringGetter(WRITE_TRAVEL_TIME_ESTIMATES)
+	public boolean isWriteTravelTimeEstimates() {
+		return writeTravelTimeEstimates;
+	}
+
+	/**
+	 * @param writeTravelTimeEstimates {@value #WRITE_TRAVEL_TIME_ESTIMATES_EXP}
+	 */
+	@StringSetter(WRITE_TRAVEL_TIME_ESTIMATES)
+	public void setWriteTravelTimeEstimates(boolean writeTravelTimeEstimates) {
+		this.writeTravelTimeEstimates = writeTravelTimeEstimates;
+	}
+
+	/**
+	 * @return {@value #PATH_CACHE_SIZE_EXP}
+	 */
+	@StringGetter(PATH_CACHE_SIZE)
+	public long getPathCacheSize() {
+		return pathCacheSize;
+	}
+
+	/**
+	 * @param pathCacheSize {@value #PATH_CACHE_SIZE_EXP}
+	 */
+	@StringSetter(PATH_CACHE_SIZE)
+	public void setPathCacheSize(long pathCacheSize) {
+		this.pathCacheSize = pathCacheSize;
+	}
 }
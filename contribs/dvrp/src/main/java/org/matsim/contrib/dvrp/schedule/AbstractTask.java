@@ -28,6 +28,7 @@ public abstract class AbstractTask implements Task {
 	// ==== BEGIN: fields managed by ScheduleImpl
 	int taskIdx;
 	TaskStatus status;
+	ScheduleImpl schedule;// null if not added to any schedule
 	// ==== END: fields managed by ScheduleImpl
 
 	private double beginTime;
@@ -70,7 +71,10 @@ public abstract class AbstractTask implements Task {
 			throw new IllegalStateException("It is too late to change the beginTime");
 		}
 
-		this.beginTime = beginTime;
+		if (this.beginTime != beginTime) {
+			this.beginTime = beginTime;
+			notifyModified();
+		}
 	}
 
 	@Override
@@ -79,7 +83,20 @@ public abstract class AbstractTask implements Task {
 			throw new IllegalStateException("It is too late to change the endTime");
 		}
 
-		this.endTime = endTime;
+		if (this.endTime != endTime) {
+			this.endTime = endTime;
+			notifyModified();
+		}
+	}
+
+	/**
+	 * To be called by subclasses whenever they change their content (e.g. the path or the served requests), so that
+	 * the data derived from the schedule can be updated (see {@link Schedule#getModificationCount()}).
+	 */
+	protected final void notifyModified() {
+		if (schedule != null) {
+			schedule.taskModified();
+		}
 	}
 
 	@Override
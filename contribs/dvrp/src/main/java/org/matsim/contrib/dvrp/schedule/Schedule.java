@@ -78,6 +78,13 @@ public interface Schedule {
 	 */
 	double getEndTime();
 
+	/**
+	 * Incremented whenever the schedule changes: a task is added or removed, the current task is switched, or the
+	 * timing or content of a task changes. Data derived from the schedule (e.g. by optimizers) remain valid as long as
+	 * this counter has not changed.
+	 */
+	long getModificationCount();
+
 	// schedule modification functionality:
 
 	/**
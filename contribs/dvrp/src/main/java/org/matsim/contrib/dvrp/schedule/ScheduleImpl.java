@@ -40,6 +40,7 @@ public class ScheduleImpl implements Schedule {
 
 	private ScheduleStatus status = ScheduleStatus.UNPLANNED;
 	private AbstractTask currentTask = null;
+	private long modificationCount = 0;
 
 	public ScheduleImpl(Vehicle vehicle) {
 		this.vehicle = vehicle;
@@ -75,6 +76,8 @@ public class ScheduleImpl implements Schedule {
 		tasks.add(taskIdx, t);
 		t.taskIdx = taskIdx;
 		t.status = TaskStatus.PLANNED;
+		t.schedule = this;
+		modificationCount++;
 
 		// update idx of the existing tasks
 		for (int i = taskIdx + 1; i < tasks.size(); i++) {
@@ -154,6 +157,8 @@ public class ScheduleImpl implements Schedule {
 		}
 
 		tasks.remove(taskIdx);
+		task.schedule = null;
+		modificationCount++;
 
 		for (int i = taskIdx; i < tasks.size(); i++) {
 			tasks.get(i).taskIdx = i;
@@ -181,6 +186,7 @@ public class ScheduleImpl implements Schedule {
 	}
 
 	private void nextTaskImpl() {
+		modificationCount++;
 		int nextIdx;
 
 		if (status == ScheduleStatus.PLANNED) {
@@ -218,6 +224,15 @@ public class ScheduleImpl implements Schedule {
 		return tasks.get(tasks.size() - 1).getEndTime();
 	}
 
+	@Override
+	public long getModificationCount() {
+		return modificationCount;
+	}
+
+	void taskModified() {
+		modificationCount++;
+	}
+
 	@Override
 	public String toString() {
 		return "Schedule_" + vehicle.getId();
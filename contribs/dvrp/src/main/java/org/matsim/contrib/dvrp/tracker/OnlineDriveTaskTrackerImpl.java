@@ -44,7 +44,8 @@ public class OnlineDriveTaskTrackerImpl implements OnlineDriveTaskTracker {
 	private VrpPath path;
 	private int currentLinkIdx;
 	private double linkEnterTime;
-	private double[] remainingTTs;// excluding the current link
+	private double[] remainingTTs;// excluding the current link; calculated on demand
+	private int remainingTTsFromIdx;// remainingTTs are known for links [remainingTTsFromIdx, linkCount)
 
 	public OnlineDriveTaskTrackerImpl(Vehicle vehicle, VrpLeg vrpDynLeg, VrpOptimizerWithOnlineTracking optimizer,
 			MobsimTimer timer) {
@@ -61,13 +62,24 @@ public class OnlineDriveTaskTrackerImpl implements OnlineDriveTaskTracker {
 
 	private void initForPath(VrpPath path) {
 		this.path = path;
-		remainingTTs = new double[path.getLinkCount()];
+		remainingTTs = null;
+	}
 
-		double tt = 0;
-		for (int i = remainingTTs.length - 1; i >= 0; i--) {
-			remainingTTs[i] = tt;
-			tt += path.getLinkTravelTime(i);
+	// only the links not yet passed are considered (currentLinkIdx never decreases)
+	private double getRemainingTT(int linkIdx) {
+		if (remainingTTs == null) {
+			int linkCount = path.getLinkCount();
+			remainingTTs = new double[linkCount];
+			double tt = 0;
+			for (int i = linkCount - 1; i >= linkIdx; i--) {
+				remainingTTs[i] = tt;
+				tt += path.getLinkTravelTime(i);
+			}
+			remainingTTsFromIdx = linkIdx;
+		} else if (linkIdx < remainingTTsFromIdx) {
+			throw new IllegalStateException();
 		}
+		return remainingTTs[linkIdx];
 	}
 
 	@Override
@@ -129,7 +141,7 @@ public class OnlineDriveTaskTrackerImpl implements OnlineDriveTaskTracker {
 
 	@Override
 	public double predictEndTime() {
-		return predictLinkExitTime() + remainingTTs[currentLinkIdx];
+		return predictLinkExitTime() + getRemainingTT(currentLinkIdx);
 	}
 
 	private double predictLinkExitTime() {
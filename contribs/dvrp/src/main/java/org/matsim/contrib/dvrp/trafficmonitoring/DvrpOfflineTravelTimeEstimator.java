@@ -19,9 +19,22 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
-import java.util.Map;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleLeavesTrafficEventHandler;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.api.core.v01.population.Person;
@@ -32,9 +45,11 @@ import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.TimeBinUtils;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.vehicles.Vehicle;
 
-import com.google.common.collect.Maps;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 
@@ -44,30 +59,50 @@ import com.google.inject.name.Named;
  * 
  * The averaging starts from the initial travel time estimates. If not provided, the free-speed TTs is used as the
  * initial estimates
+ * <p>
+ * The estimates are stored in one flat array (link by link), and are updated only at the end of each QSim run, so they
+ * can be read by many (optimizer) threads without locking. If observedLinksOnly is true, the links entered by vehicles
+ * of the mobsim mode are recorded (by handling events), and only their estimates are updated. The registered
+ * {@link TravelTimeUpdateListener}s are notified (for all departure times) only if any estimate has changed.
  * 
  * @author michalm
  */
-public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator, MobsimBeforeCleanupListener {
+public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator, MobsimBeforeCleanupListener,
+		LinkEnterEventHandler, VehicleEntersTrafficEventHandler, VehicleLeavesTrafficEventHandler {
 	private final TravelTime observedTT;
-	private final Network network;
+	private final ImmutableList<Link> links;
+	private final ImmutableMap<Id<Link>, Integer> linkIndices;
 
 	private final int interval;
 	private final int intervalCount;
-	private final Map<Id<Link>, double[]> linkTTs;
+	private final double[] linkTTs;// [linkIdx * intervalCount + timeBinIdx]
 	private final double alpha;
 
+	private final String mobsimMode;
+	private final boolean[] observedLinks;// null if all links are updated
+	private final Set<Id<Vehicle>> vehiclesInTraffic = new HashSet<>();// only of mobsimMode
+
+	private final List<TravelTimeUpdateListener> updateListeners = new CopyOnWriteArrayList<>();
+
 	@Inject
 	public DvrpOfflineTravelTimeEstimator(@Named(DvrpTravelTimeModule.DVRP_INITIAL) TravelTime initialTT,
 			@Named(DvrpTravelTimeModule.DVRP_OBSERVED) TravelTime observedTT,
 			@Named(DvrpRoutingNetworkProvider.DVRP_ROUTING) Network network, TravelTimeCalculatorConfigGroup ttCalcConfig,
 			DvrpConfigGroup dvrpConfig) {
-		this(initialTT, observedTT, network, ttCalcConfig, dvrpConfig.getTravelTimeEstimationAlpha());
+		this(initialTT, observedTT, network, ttCalcConfig, dvrpConfig.getTravelTimeEstimationAlpha(),
+				dvrpConfig.getMobsimMode(), dvrpConfig.isTravelTimeEstimationObservedLinksOnly());
 	}
 
 	public DvrpOfflineTravelTimeEstimator(TravelTime initialTT, TravelTime observedTT, Network network,
 			TravelTimeCalculatorConfigGroup ttCalcConfig, double travelTimeEstimationAlpha) {
+		this(initialTT, observedTT, network, ttCalcConfig, travelTimeEstimationAlpha, null, false);
+	}
+
+	public DvrpOfflineTravelTimeEstimator(TravelTime initialTT, TravelTime observedTT, Network network,
+			TravelTimeCalculatorConfigGroup ttCalcConfig, double travelTimeEstimationAlpha, String mobsimMode,
+			boolean observedLinksOnly) {
 		this.observedTT = observedTT;
-		this.network = network;
+		this.mobsimMode = mobsimMode;
 
 		alpha = travelTimeEstimationAlpha;
 		if (alpha > 1 || alpha <= 0) {
@@ -77,15 +112,21 @@ public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator,
 		interval = ttCalcConfig.getTraveltimeBinSize();
 		intervalCount = TimeBinUtils.getTimeBinCount(ttCalcConfig.getMaxTime(), interval);
 
-		linkTTs = Maps.newHashMapWithExpectedSize(network.getLinks().size());
+		links = ImmutableList.copyOf(network.getLinks().values());
+		ImmutableMap.Builder<Id<Link>, Integer> linkIndicesBuilder = ImmutableMap.builder();
+		for (int i = 0; i < links.size(); i++) {
+			linkIndicesBuilder.put(links.get(i).getId(), i);
+		}
+		linkIndices = linkIndicesBuilder.build();
+
+		linkTTs = new double[links.size() * intervalCount];
+		observedLinks = observedLinksOnly ? new boolean[links.size()] : null;
 		init(initialTT);
 	}
 
 	private void init(TravelTime initialTT) {
-		for (Link link : network.getLinks().values()) {
-			double[] tt = new double[intervalCount];
-			updateTTs(link, tt, initialTT, 1.);
-			linkTTs.put(link.getId(), tt);
+		for (int i = 0; i < links.size(); i++) {
+			updateTTs(i, initialTT, 1.);
 		}
 	}
 
@@ -93,21 +134,103 @@ public class DvrpOfflineTravelTimeEstimator implements DvrpTravelTimeEstimator,
 	public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
 		// TODO TTC is more flexible (simple averaging vs linear interpolation, etc.)
 		int idx = TimeBinUtils.getTimeBinIndex(time, interval, intervalCount);
-		return linkTTs.get(link.getId())[idx];
+		return linkTTs[linkIndices.get(link.getId()) * intervalCount + idx];
+	}
+
+	@Override
+	public void addTravelTimeUpdateListener(TravelTimeUpdateListener listener) {
+		updateListeners.add(listener);
+	}
+
+	@Override
+	public void removeTravelTimeUpdateListener(TravelTimeUpdateListener listener) {
+		updateListeners.remove(listener);
 	}
 
 	@Override
 	public void notifyMobsimBeforeCleanup(@SuppressWarnings("rawtypes") MobsimBeforeCleanupEvent e) {
-		for (Link link : network.getLinks().values()) {
-			updateTTs(link, linkTTs.get(link.getId()), observedTT, alpha);
+		boolean changed = false;
+		for (int i = 0; i < links.size(); i++) {
+			if (observedLinks == null || observedLinks[i]) {
+				changed |= updateTTs(i, observedTT, alpha);
+			}
+		}
+
+		if (changed) {
+			for (TravelTimeUpdateListener listener : updateListeners) {
+				listener.travelTimesUpdated(0, Double.POSITIVE_INFINITY);
+			}
 		}
 	}
 
-	private void updateTTs(Link link, double[] tt, TravelTime travelTime, double alpha) {
+	// called at the beginning of each iteration (after the update at the end of the previous QSim run)
+	@Override
+	public void reset(int iteration) {
+		if (observedLinks != null) {
+			Arrays.fill(observedLinks, false);
+			vehiclesInTraffic.clear();
+		}
+	}
+
+	// returns true if any estimate has changed
+	private boolean updateTTs(int linkIdx, TravelTime travelTime, double alpha) {
+		Link link = links.get(linkIdx);
+		int offset = linkIdx * intervalCount;
+		boolean changed = false;
 		for (int i = 0; i < intervalCount; i++) {
-			double oldEstimatedTT = tt[i];
+			double oldEstimatedTT = linkTTs[offset + i];
 			double experiencedTT = travelTime.getLinkTravelTime(link, i * interval, null, null);
-			tt[i] = alpha * experiencedTT + (1 - alpha) * oldEstimatedTT;
+			linkTTs[offset + i] = alpha * experiencedTT + (1 - alpha) * oldEstimatedTT;
+			changed |= linkTTs[offset + i] != oldEstimatedTT;
+		}
+		return changed;
+	}
+
+	@Override
+	public void handleEvent(VehicleEntersTrafficEvent event) {
+		if (observedLinks != null && event.getNetworkMode().equals(mobsimMode)) {
+			vehiclesInTraffic.add(event.getVehicleId());
+		}
+	}
+
+	@Override
+	public void handleEvent(VehicleLeavesTrafficEvent event) {
+		if (observedLinks != null) {
+			vehiclesInTraffic.remove(event.getVehicleId());
+		}
+	}
+
+	@Override
+	public void handleEvent(LinkEnterEvent event) {
+		if (observedLinks != null && vehiclesInTraffic.contains(event.getVehicleId())) {
+			Integer linkIdx = linkIndices.get(event.getLinkId());
+			if (linkIdx != null) {// not in the routing network
+				observedLinks[linkIdx] = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes the current estimates (one row per link, one column per time bin); can be read with
+	 * {@link TravelTimeUtils#createTravelTimesFromEstimatesFile}.
+	 */
+	public void writeLinkTravelTimes(String filename) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("linkId");
+			for (int i = 0; i < intervalCount; i++) {
+				writer.write("\t" + i * interval);
+			}
+			writer.newLine();
+
+			for (int l = 0; l < links.size(); l++) {
+				writer.write(links.get(l).getId().toString());
+				for (int i = 0; i < intervalCount; i++) {
+					writer.write("\t" + linkTTs[l * intervalCount + i]);
+				}
+				writer.newLine();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
 		}
 	}
 }
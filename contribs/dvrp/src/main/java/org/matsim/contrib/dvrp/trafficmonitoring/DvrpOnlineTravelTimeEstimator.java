@@ -18,6 +18,9 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import javax.inject.Inject;
 
 import org.matsim.api.core.v01.network.Link;
@@ -25,8 +28,10 @@ import org.matsim.api.core.v01.population.Person;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
 import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
 import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
 import org.matsim.core.mobsim.framework.listeners.MobsimInitializedListener;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.vehicles.Vehicle;
@@ -37,15 +42,23 @@ import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime;
  * DvrpOfflineTravelTimeEstimator. The beta coefficient is provided in seconds and should be either 0 (no online
  * estimation) or positive (mixed online-offline estimation). If beta is sufficiently large, 'beta >> 0', only the
  * currently observed TT is used
+ * <p>
+ * The registered {@link TravelTimeUpdateListener}s (e.g. path caches) are notified only when the estimates change: for
+ * departures within [0, now + beta] when the QSim starts or ends (switching between the online and offline estimation)
+ * and in the time steps in which the observed TT have changed; and for all departures when the offline estimates
+ * change. The gradual shift from the observed to the offline TT (as time goes by) alone is not notified.
  * 
  * @author michalm
  */
-public class DvrpOnlineTravelTimeEstimator
-		implements DvrpTravelTimeEstimator, MobsimInitializedListener, MobsimBeforeCleanupListener {
+public class DvrpOnlineTravelTimeEstimator implements DvrpTravelTimeEstimator, MobsimInitializedListener,
+		MobsimBeforeSimStepListener, MobsimBeforeCleanupListener {
 	private final WithinDayTravelTime withinDayTT;
 	private final DvrpOfflineTravelTimeEstimator offlineTTEstimator;
 	private MobsimTimer mobsimTimer;
 	private final double beta;
+	private long withinDayTTUpdateCount;
+
+	private final List<TravelTimeUpdateListener> updateListeners = new CopyOnWriteArrayList<>();
 
 	@Inject
 	public DvrpOnlineTravelTimeEstimator(WithinDayTravelTime withinDayTT,
@@ -57,6 +70,8 @@ public class DvrpOnlineTravelTimeEstimator
 		if (beta < 0) {
 			throw new IllegalArgumentException("travelTimeEstimationBeta must be zero or positive");
 		}
+
+		offlineTTEstimator.addTravelTimeUpdateListener(this::notifyUpdateListeners);
 	}
 
 	@Override
@@ -76,13 +91,43 @@ public class DvrpOnlineTravelTimeEstimator
 		// return correction * currentTT * offlineTT / currentOfflineTT + (1-correction) * offlineTT
 	}
 
+	@Override
+	public void addTravelTimeUpdateListener(TravelTimeUpdateListener listener) {
+		updateListeners.add(listener);
+	}
+
+	@Override
+	public void removeTravelTimeUpdateListener(TravelTimeUpdateListener listener) {
+		updateListeners.remove(listener);
+	}
+
+	private void notifyUpdateListeners(double fromTime, double toTime) {
+		for (TravelTimeUpdateListener listener : updateListeners) {
+			listener.travelTimesUpdated(fromTime, toTime);
+		}
+	}
+
 	@Override
 	public void notifyMobsimInitialized(@SuppressWarnings("rawtypes") MobsimInitializedEvent e) {
 		mobsimTimer = ((QSim)e.getQueueSimulation()).getSimTimer();
+		withinDayTTUpdateCount = withinDayTT.getTravelTimeUpdateCount();
+		// beyond now + beta, the estimates are offline (as before the QSim)
+		notifyUpdateListeners(0, mobsimTimer.getTimeOfDay() + beta);
+	}
+
+	@Override
+	public void notifyMobsimBeforeSimStep(@SuppressWarnings("rawtypes") MobsimBeforeSimStepEvent e) {
+		long updateCount = withinDayTT.getTravelTimeUpdateCount();
+		if (updateCount != withinDayTTUpdateCount) {
+			withinDayTTUpdateCount = updateCount;
+			notifyUpdateListeners(0, e.getSimulationTime() + beta);
+		}
 	}
 
 	@Override
 	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		double now = mobsimTimer.getTimeOfDay();
 		mobsimTimer = null;
+		notifyUpdateListeners(0, now + beta);
 	}
 }
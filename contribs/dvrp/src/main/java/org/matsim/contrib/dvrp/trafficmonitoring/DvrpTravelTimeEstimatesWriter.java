@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.trafficmonitoring;
+
+import javax.inject.Inject;
+
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+/**
+ * Writes the final offline travel time estimates, so that they can be used as the initial estimates of another run
+ * (see {@link org.matsim.contrib.dvrp.run.DvrpConfigGroup#getInitialTravelTimesFile()}).
+ */
+public class DvrpTravelTimeEstimatesWriter implements ShutdownListener {
+	public static final String OUTPUT_FILE = "output_dvrp_travel_times.txt.gz";
+
+	private final DvrpOfflineTravelTimeEstimator offlineEstimator;
+	private final OutputDirectoryHierarchy controlerIO;
+
+	@Inject
+	public DvrpTravelTimeEstimatesWriter(DvrpOfflineTravelTimeEstimator offlineEstimator,
+			OutputDirectoryHierarchy controlerIO) {
+		this.offlineEstimator = offlineEstimator;
+		this.controlerIO = controlerIO;
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		offlineEstimator.writeLinkTravelTimes(controlerIO.getOutputFilename(OUTPUT_FILE));
+	}
+}
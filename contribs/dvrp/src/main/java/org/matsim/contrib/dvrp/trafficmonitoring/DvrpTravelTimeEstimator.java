@@ -25,4 +25,10 @@ import org.matsim.core.router.util.TravelTime;
  * @author michalm
  */
 public interface DvrpTravelTimeEstimator extends TravelTime {
+	/**
+	 * The listener is notified whenever the estimated travel times change (e.g. to invalidate cached paths).
+	 */
+	void addTravelTimeUpdateListener(TravelTimeUpdateListener listener);
+
+	void removeTravelTimeUpdateListener(TravelTimeUpdateListener listener);
 }
@@ -19,6 +19,7 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorCacheManager;
 import org.matsim.contrib.dvrp.run.DvrpConfigGroup;
 import org.matsim.core.controler.AbstractModule;
 import org.matsim.core.router.util.TravelTime;
@@ -40,13 +41,30 @@ public class DvrpTravelTimeModule extends AbstractModule {
 	private DvrpConfigGroup dvrpCfg;
 
 	public void install() {
-		addTravelTimeBinding(DvrpTravelTimeModule.DVRP_INITIAL).to(QSimFreeSpeedTravelTime.class).asEagerSingleton();
+		if (dvrpCfg.getInitialTravelTimesFile() != null) {// warm start
+			addTravelTimeBinding(DvrpTravelTimeModule.DVRP_INITIAL).toInstance(
+					TravelTimeUtils.createTravelTimesFromEstimatesFile(
+							dvrpCfg.getInitialTravelTimesFileUrl(getConfig().getContext()),
+							new QSimFreeSpeedTravelTime(getConfig().qsim())));
+		} else {
+			addTravelTimeBinding(DvrpTravelTimeModule.DVRP_INITIAL).to(QSimFreeSpeedTravelTime.class)
+					.asEagerSingleton();
+		}
 		addTravelTimeBinding(DvrpTravelTimeModule.DVRP_OBSERVED).to(
 				Key.get(TravelTime.class, Names.named(dvrpCfg.getMobsimMode())));
 		addTravelTimeBinding(DVRP_ESTIMATED).to(DvrpTravelTimeEstimator.class);
 
 		bind(DvrpOfflineTravelTimeEstimator.class).asEagerSingleton();
 		addMobsimListenerBinding().to(DvrpOfflineTravelTimeEstimator.class);
+		if (dvrpCfg.isTravelTimeEstimationObservedLinksOnly()) {
+			addEventHandlerBinding().to(DvrpOfflineTravelTimeEstimator.class);
+		}
+		if (dvrpCfg.isWriteTravelTimeEstimates()) {
+			addControlerListenerBinding().to(DvrpTravelTimeEstimatesWriter.class);
+		}
+
+		bind(LeastCostPathCalculatorCacheManager.class).asEagerSingleton();
+		addControlerListenerBinding().to(LeastCostPathCalculatorCacheManager.class);
 
 		if (dvrpCfg.getTravelTimeEstimationBeta() > 0) {// online estimation
 			bind(DvrpOnlineTravelTimeEstimator.class).asEagerSingleton();
@@ -0,0 +1,30 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.trafficmonitoring;
+
+/**
+ * Notified when the estimated travel times may have changed, e.g. to invalidate cached paths.
+ */
+public interface TravelTimeUpdateListener {
+	/**
+	 * @param fromTime earliest departure time affected by the update
+	 * @param toTime   latest departure time affected by the update (may be infinite)
+	 */
+	void travelTimesUpdated(double fromTime, double toTime);
+}
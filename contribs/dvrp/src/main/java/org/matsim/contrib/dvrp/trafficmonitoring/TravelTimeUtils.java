@@ -19,12 +19,22 @@
 
 package org.matsim.contrib.dvrp.trafficmonitoring;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.events.MatsimEventsReader;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.core.utils.io.IOUtils;
 
 /**
  * @author michalm
@@ -42,4 +52,42 @@ public class TravelTimeUtils {
 		events.addHandler(ttCalculator);
 		new MatsimEventsReader(events).readFile(eventsFile);
 	}
+
+	/**
+	 * Reads the travel times written by {@link DvrpOfflineTravelTimeEstimator#writeLinkTravelTimes(String)}. For links
+	 * not present in the file, defaultTT is used. Times beyond the last time bin are mapped to the last bin.
+	 */
+	public static TravelTime createTravelTimesFromEstimatesFile(URL url, TravelTime defaultTT) {
+		Map<Id<Link>, double[]> linkTTs = new HashMap<>();
+		int interval;
+		try (BufferedReader reader = IOUtils.getBufferedReader(url)) {
+			String[] header = reader.readLine().split("\t");
+			int intervalCount = header.length - 1;
+			interval = intervalCount > 1 ? Integer.parseInt(header[2]) - Integer.parseInt(header[1]) : Integer.MAX_VALUE;
+
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] cols = line.split("\t");
+				if (cols.length != header.length) {
+					throw new IllegalArgumentException("Wrong number of columns in line: " + line);
+				}
+				double[] tt = new double[intervalCount];
+				for (int i = 0; i < intervalCount; i++) {
+					tt[i] = Double.parseDouble(cols[i + 1]);
+				}
+				linkTTs.put(Id.createLinkId(cols[0]), tt);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return (link, time, person, vehicle) -> {
+			double[] tt = linkTTs.get(link.getId());
+			if (tt == null) {
+				return defaultTT.getLinkTravelTime(link, time, person, vehicle);
+			}
+			int idx = Math.min(Math.max((int)(time / interval), 0), tt.length - 1);
+			return tt[idx];
+		};
+	}
 }
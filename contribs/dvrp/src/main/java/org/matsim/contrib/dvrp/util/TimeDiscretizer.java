@@ -102,4 +102,8 @@ public class TimeDiscretizer {
 	public int getIntervalCount() {
 		return intervalCount;
 	}
+
+	public Type getType() {
+		return type;
+	}
 }
@@ -0,0 +1,179 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer.Type;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.DijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Compares the stop-to-stop matrix with one-to-one path searches.
+ */
+public class ManyToManyPathDataTest {
+	private static final int GRID_SIZE = 4;
+	private static final TimeDiscretizer DISCRETIZER = new TimeDiscretizer(2 * 3600, 3600, Type.ACYCLIC);
+
+	private final Network network = createGridNetwork();
+
+	// free speed, but twice as slow from 1:00 on
+	private double slowdownFactor = 2;
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (
+			time < 3600 ? 1 : slowdownFactor);
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+	private final LeastCostPathCalculator router = new DijkstraFactory().createPathCalculator(network,
+			travelDisutility, travelTime);
+
+	@Test
+	public void testSameTravelTimesAsOneToOneSearches() {
+		List<Link> links = selectLinks();
+		ManyToManyPathData pathData = new ManyToManyPathData(network, travelTime, travelDisutility, links, DISCRETIZER,
+				2);
+
+		for (double time : new double[] { 0, 3600 }) {
+			for (Link from : links) {
+				for (Link to : links) {
+					double expected = VrpPaths.calcAndCreatePath(from, to, time, router, travelTime).getTravelTime();
+					assertEquals(expected, pathData.getTravelTime(from.getId(), to.getId(), time), 1e-3);
+					assertEquals(expected, pathData.getOutgoingPathData(from.getId(), time).get(to.getId()).getTravelTime(),
+							1e-3);
+					assertEquals(expected, pathData.getIncomingPathData(to.getId(), time).get(from.getId()).getTravelTime(),
+							1e-3);
+				}
+			}
+		}
+		// the values are taken from the bin the start time is in
+		Link from = links.get(0);
+		Link to = links.get(links.size() - 1);
+		assertEquals(pathData.getTravelTime(from.getId(), to.getId(), 3600),
+				pathData.getTravelTime(from.getId(), to.getId(), 7199), 0);
+		assertTrue(pathData.getTravelTime(from.getId(), to.getId(), 3600) > pathData.getTravelTime(from.getId(),
+				to.getId(), 0));
+	}
+
+	@Test
+	public void testSameTravelDistancesAsOneToOneSearches() {
+		List<Link> links = selectLinks();
+		ManyToManyPathData pathData = new ManyToManyPathData(network, travelTime, travelDisutility, links, DISCRETIZER,
+				2);
+
+		for (double time : new double[] { 0, 3600 }) {
+			for (Link from : links) {
+				for (Link to : links) {
+					double expected = VrpPaths.calcDistance(
+							VrpPaths.calcAndCreatePath(from, to, time, router, travelTime));
+					assertEquals(expected, pathData.getTravelDistance(from.getId(), to.getId(), time), 1e-3);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testUpdateRecalculatesOnlyGivenBins() {
+		List<Link> links = selectLinks();
+		ManyToManyPathData pathData = new ManyToManyPathData(network, travelTime, travelDisutility, links, DISCRETIZER,
+				2);
+		Link from = links.get(0);
+		Link to = links.get(links.size() - 1);
+		double ttBin0 = pathData.getTravelTime(from.getId(), to.getId(), 0);
+		double ttBin1 = pathData.getTravelTime(from.getId(), to.getId(), 3600);
+
+		slowdownFactor = 3;
+		pathData.update(3600, 7199);
+
+		assertEquals(ttBin0, pathData.getTravelTime(from.getId(), to.getId(), 0), 0);
+		assertTrue(pathData.getTravelTime(from.getId(), to.getId(), 3600) > ttBin1);
+		assertEquals(VrpPaths.calcAndCreatePath(from, to, 3600, router, travelTime).getTravelTime(),
+				pathData.getTravelTime(from.getId(), to.getId(), 3600), 1e-3);
+	}
+
+	@Test
+	public void testLinksOutsideMatrix() {
+		List<Link> links = selectLinks();
+		ManyToManyPathData pathData = new ManyToManyPathData(network, travelTime, travelDisutility, links, DISCRETIZER,
+				1);
+		Link outside = network.getLinks().values().stream().filter(l -> !links.contains(l)).findFirst().get();
+
+		assertFalse(pathData.containsLink(outside.getId()));
+		assertNull(pathData.getPathData(outside.getId(), links.get(0).getId(), 0));
+		assertNull(pathData.getOutgoingPathData(links.get(0).getId(), 0).get(outside.getId()));
+		assertEquals(links.size(), pathData.getOutgoingPathData(links.get(0).getId(), 0).entrySet().size());
+	}
+
+	// every third link (in both directions, so that some links share nodes)
+	private List<Link> selectLinks() {
+		List<Link> links = new ArrayList<>();
+		int i = 0;
+		for (Link link : network.getLinks().values()) {
+			if (i++ % 3 == 0) {
+				links.add(link);
+			}
+		}
+		return links;
+	}
+
+	// links of different lengths and speeds, so that the shortest and fastest paths differ
+	private static Network createGridNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(1000 * x, 1000 * y));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				double freespeed = 5 + 5 * ((x + y) % 3);
+				if (x + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x + 1][y], 1000 + 100 * y, freespeed);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLinks(network, nodes[x][y], nodes[x][y + 1], 1000 + 100 * x, freespeed);
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Node a, Node b, double length, double freespeed) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a.getId() + "-" + b.getId()), a, b, length, freespeed,
+				1800, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b.getId() + "-" + a.getId()), b, a, length, freespeed,
+				1800, 1);
+	}
+}
@@ -0,0 +1,238 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.path.ManyToManyPathSearch.TravelMatrix;
+import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Compares the parallel matrix search with the one-to-many searches it is made of.
+ */
+public class ManyToManyPathSearchTest {
+	private static final int GRID_SIZE = 4;
+
+	private final Network network = createNetwork();
+	private final Link sourceLink = network.getLinks().get(Id.createLinkId("source-0_0"));// cannot be entered
+	private final Link sinkLink = network.getLinks().get(Id.createLinkId("0_0-sink"));// cannot be left
+
+	// free speed, but twice as slow from 1:00 on
+	private final TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (
+			time < 3600 ? 1 : 2);
+	private final TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+
+	@After
+	public void shutdown() {
+		forkJoinPool.shutdown();
+	}
+
+	@Test
+	public void testForwardSearch() {
+		List<Link> rowLinks = selectLinks(0);
+		List<Link> colLinks = selectLinks(1);
+		double[] startTimes = createStartTimes(rowLinks.size());
+		TravelMatrix matrix = ManyToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				forkJoinPool).calcTravelMatrix(rowLinks, colLinks, startTimes);
+
+		OneToManyPathSearch search = OneToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility);
+		for (int row = 0; row < rowLinks.size(); row++) {
+			Link from = rowLinks.get(row);
+			assertRow(matrix, row, search, from, colLinks, startTimes[row]);
+
+			// the same as the path data (which cannot be calculated for unreachable links)
+			for (int col = 0; col < colLinks.size(); col++) {
+				Link to = colLinks.get(col);
+				if (to == from) {
+					assertEquals(0, matrix.getTravelTime(row, col), 0);
+					continue;
+				} else if (to == sourceLink || from == sinkLink) {
+					assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelTime(row, col), 0);
+					assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelDistance(row, col), 0);
+					continue;
+				}
+				PathData pathData = search.calcPathDataArray(from, Collections.singletonList(to),
+						startTimes[row])[0];
+				VrpPath path = VrpPaths.createPath(from, to, startTimes[row], pathData, travelTime);
+				assertEquals(pathData.getTravelTime(), matrix.getTravelTime(row, col), 1e-9);
+				assertEquals(VrpPaths.calcDistance(path), matrix.getTravelDistance(row, col), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testBackwardSearch() {
+		List<Link> rowLinks = selectLinks(0);
+		List<Link> colLinks = selectLinks(1);
+		double[] startTimes = createStartTimes(rowLinks.size());
+		TravelMatrix matrix = ManyToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility,
+				forkJoinPool).calcTravelMatrix(rowLinks, colLinks, startTimes);
+
+		OneToManyPathSearch search = OneToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility);
+		for (int row = 0; row < rowLinks.size(); row++) {
+			Link to = rowLinks.get(row);// trips end at the row links
+			assertRow(matrix, row, search, to, colLinks, startTimes[row]);
+
+			for (int col = 0; col < colLinks.size(); col++) {
+				Link from = colLinks.get(col);
+				if (to == from) {
+					assertEquals(0, matrix.getTravelTime(row, col), 0);
+					continue;
+				} else if (from == sinkLink || to == sourceLink) {
+					assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelTime(row, col), 0);
+					assertEquals(Double.POSITIVE_INFINITY, matrix.getTravelDistance(row, col), 0);
+					continue;
+				}
+				PathData pathData = search.calcPathDataArray(to, Collections.singletonList(from),
+						startTimes[row])[0];
+				VrpPath path = VrpPaths.createPath(from, to, startTimes[row], pathData, travelTime);
+				assertEquals(pathData.getTravelTime(), matrix.getTravelTime(row, col), 1e-9);
+				assertEquals(VrpPaths.calcDistance(path), matrix.getTravelDistance(row, col), 1e-9);
+			}
+		}
+	}
+
+	@Test
+	public void testSingleStartTime() {
+		List<Link> rowLinks = selectLinks(0);
+		List<Link> colLinks = selectLinks(1);
+		ManyToManyPathSearch search = ManyToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+				forkJoinPool);
+		TravelMatrix matrix = search.calcTravelMatrix(rowLinks, colLinks, 3600);
+		double[] startTimes = new double[rowLinks.size()];
+		Arrays.fill(startTimes, 3600);
+		TravelMatrix expectedMatrix = search.calcTravelMatrix(rowLinks, colLinks, startTimes);
+
+		assertEquals(rowLinks.size(), matrix.getRowCount());
+		assertEquals(colLinks.size(), matrix.getColCount());
+		for (int row = 0; row < rowLinks.size(); row++) {
+			for (int col = 0; col < colLinks.size(); col++) {
+				assertEquals(expectedMatrix.getTravelTime(row, col), matrix.getTravelTime(row, col), 0);
+				assertEquals(expectedMatrix.getTravelDistance(row, col), matrix.getTravelDistance(row, col), 0);
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testOneStartTimePerRow() {
+		ManyToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility, forkJoinPool)
+				.calcTravelMatrix(selectLinks(0), selectLinks(1), new double[] { 0 });
+	}
+
+	@Test
+	public void testCellCount() {
+		assertEquals(0, ManyToManyPathSearch.getCellCount(0, 50_000));
+		assertEquals(40_000 * 40_000, ManyToManyPathSearch.getCellCount(40_000, 40_000));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyCells() {
+		ManyToManyPathSearch.getCellCount(50_000, 50_000);// would overflow int
+	}
+
+	private static void assertRow(TravelMatrix matrix, int row, OneToManyPathSearch search, Link rowLink,
+			List<Link> colLinks, double startTime) {
+		double[] travelTimes = new double[colLinks.size()];
+		double[] travelDistances = new double[colLinks.size()];
+		search.calcTravelTimesAndDistances(rowLink, colLinks, startTime, travelTimes, travelDistances, 0);
+		double[] matrixTravelTimes = new double[colLinks.size()];
+		double[] matrixTravelDistances = new double[colLinks.size()];
+		for (int col = 0; col < colLinks.size(); col++) {
+			matrixTravelTimes[col] = matrix.getTravelTime(row, col);
+			matrixTravelDistances[col] = matrix.getTravelDistance(row, col);
+		}
+		assertArrayEquals(travelTimes, matrixTravelTimes, 0);
+		assertArrayEquals(travelDistances, matrixTravelDistances, 0);
+	}
+
+	// spread over the day, so that some searches start in the slower period
+	private static double[] createStartTimes(int count) {
+		double[] startTimes = new double[count];
+		for (int i = 0; i < count; i++) {
+			startTimes[i] = i * 900;
+		}
+		return startTimes;
+	}
+
+	// every other link, plus the source and sink links (the columns overlap the rows)
+	private List<Link> selectLinks(int offset) {
+		List<Link> links = new ArrayList<>();
+		int i = 0;
+		for (Link link : network.getLinks().values()) {
+			if (link == sourceLink || link == sinkLink || i++ % 2 == offset) {
+				links.add(link);
+			}
+		}
+		return links;
+	}
+
+	private static Network createNetwork() {
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[GRID_SIZE][GRID_SIZE];
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(1000 * x, 1000 * y));
+			}
+		}
+		for (int x = 0; x < GRID_SIZE; x++) {
+			for (int y = 0; y < GRID_SIZE; y++) {
+				double freespeed = 5 + 5 * ((x + y) % 3);
+				if (x + 1 < GRID_SIZE) {
+					addLink(network, nodes[x][y], nodes[x + 1][y], 1000 + 100 * y, freespeed);
+					addLink(network, nodes[x + 1][y], nodes[x][y], 1000 + 100 * y, freespeed);
+				}
+				if (y + 1 < GRID_SIZE) {
+					addLink(network, nodes[x][y], nodes[x][y + 1], 1000 + 100 * x, freespeed);
+					addLink(network, nodes[x][y + 1], nodes[x][y], 1000 + 100 * x, freespeed);
+				}
+			}
+		}
+		Node source = NetworkUtils.createAndAddNode(network, Id.createNodeId("source"), new Coord(-1000, 0));
+		Node sink = NetworkUtils.createAndAddNode(network, Id.createNodeId("sink"), new Coord(0, -1000));
+		addLink(network, source, nodes[0][0], 1000, 10);
+		addLink(network, nodes[0][0], sink, 1000, 10);
+		return network;
+	}
+
+	private static void addLink(Network network, Node from, Node to, double length, double freespeed) {
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to, length,
+				freespeed, 1800, 1);
+	}
+}
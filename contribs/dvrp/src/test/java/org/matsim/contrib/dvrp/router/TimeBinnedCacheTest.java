@@ -0,0 +1,136 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.router;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.matsim.contrib.dvrp.router.LeastCostPathCalculatorWithCache.CacheStats;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer;
+import org.matsim.contrib.dvrp.util.TimeDiscretizer.Type;
+
+public class TimeBinnedCacheTest {
+	private static final TimeDiscretizer DISCRETIZER = new TimeDiscretizer(3 * 3600, 3600, Type.ACYCLIC);
+
+	private final CacheStats stats = new CacheStats();
+	private final TimeBinnedCache<String, String> cache = new TimeBinnedCache<>(DISCRETIZER, 1000, String::length,
+			stats);
+	private final AtomicInteger calculations = new AtomicInteger();
+
+	private String get(double time, String key) {
+		return cache.get(time, key, () -> {
+			calculations.incrementAndGet();
+			return key + "@" + DISCRETIZER.getIdx(time);
+		});
+	}
+
+	private void assertStats(long hits, long misses, long evictions, long invalidations) {
+		assertEquals("hits", hits, stats.getHits());
+		assertEquals("misses", misses, stats.getMisses());
+		assertEquals("evictions", evictions, stats.getEvictions());
+		assertEquals("invalidations", invalidations, stats.getInvalidations());
+	}
+
+	@Test
+	public void testHitsAndMisses() {
+		assertEquals("a@0", get(0, "a"));// miss
+		assertEquals("a@0", get(3599, "a"));// hit (the same time bin)
+		assertEquals("a@1", get(3600, "a"));// miss (another time bin)
+		assertEquals("b@1", get(3600, "b"));// miss (another key)
+		assertEquals("a@1", get(7199, "a"));// hit
+		assertStats(2, 3, 0, 0);
+		assertEquals(3, calculations.get());
+	}
+
+	@Test
+	public void testNullValuesAreNotCached() {
+		assertNull(cache.get(0, "a", () -> null));
+		assertNull(cache.get(0, "a", () -> null));
+		assertStats(0, 2, 0, 0);
+	}
+
+	@Test
+	public void testEviction() {
+		TimeBinnedCache<String, String> smallCache = new TimeBinnedCache<>(DISCRETIZER, 10, String::length, stats);
+		for (int i = 0; i < 100; i++) {
+			String key = "k" + i;// weight: 2 or 3
+			smallCache.get(0, key, () -> key);
+		}
+		assertStats(0, 100, stats.getEvictions(), 0);
+		// at most 5 entries (of weight >= 2) remain
+		assertTrue(stats.getEvictions() >= 95);
+
+		int hits = 0;
+		for (int i = 0; i < 100; i++) {
+			String key = "k" + i;
+			long hitsBefore = stats.getHits();
+			smallCache.get(0, key, () -> null);// not cached again
+			hits += stats.getHits() - hitsBefore;
+		}
+		assertTrue(hits <= 5);
+	}
+
+	@Test
+	public void testInvalidation() {
+		get(0, "a");
+		get(3600, "a");
+		get(7200, "a");
+		assertStats(0, 3, 0, 0);
+
+		cache.invalidate(3600, 3600);// only the 2nd bin
+		get(0, "a");// hit
+		get(3600, "a");// invalidated
+		get(7200, "a");// hit
+		assertStats(2, 4, 0, 1);
+
+		get(3600, "a");// recalculated and cached again
+		assertStats(3, 4, 0, 1);
+
+		cache.invalidate(1800, Double.POSITIVE_INFINITY);// bins 0-2
+		get(0, "a");
+		get(3600, "a");
+		get(7200, "a");
+		assertStats(3, 7, 0, 4);
+		assertEquals(7, calculations.get());
+	}
+
+	@Test
+	public void testInvalidationBeyondLastTimeBin() {
+		get(7200, "a");
+		cache.invalidate(3 * 3600, Double.POSITIVE_INFINITY);// ACYCLIC: no bins after 3:00
+		get(7200, "a");
+		assertStats(1, 1, 0, 0);
+	}
+
+	@Test
+	public void testInvalidateAll() {
+		get(0, "a");
+		get(3600, "b");
+		cache.invalidateAll();
+		assertStats(0, 2, 0, 2);
+
+		get(0, "a");
+		get(3600, "b");
+		assertStats(0, 4, 0, 2);
+	}
+}
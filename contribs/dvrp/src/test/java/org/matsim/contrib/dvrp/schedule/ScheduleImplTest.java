@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.schedule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.path.DivertedVrpPath;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
+import org.matsim.contrib.dvrp.path.VrpPathWithTravelDataImpl;
+import org.matsim.core.network.NetworkUtils;
+
+/**
+ * Checks which changes of the schedule increment {@link Schedule#getModificationCount()}.
+ */
+public class ScheduleImplTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = createNode("A", 0);
+	private final Node nodeB = createNode("B", 1000);
+	private final Node nodeC = createNode("C", 2000);
+	private final Link linkAB = createLink(nodeA, nodeB);
+	private final Link linkBC = createLink(nodeB, nodeC);
+	private final Link linkCB = createLink(nodeC, nodeB);
+
+	private final Vehicle vehicle = new VehicleImpl(Id.create("v", Vehicle.class), linkAB, 1, 0, 1000);
+	private final Schedule schedule = vehicle.getSchedule();
+
+	@Test
+	public void testAddAndRemoveTask() {
+		long count = schedule.getModificationCount();
+		StayTask stayTask = new StayTaskImpl(0, 100, linkAB);
+		schedule.addTask(stayTask);
+		assertEquals(++count, schedule.getModificationCount());
+
+		schedule.addTask(new StayTaskImpl(100, 200, linkAB));
+		assertEquals(++count, schedule.getModificationCount());
+
+		schedule.removeLastTask();
+		assertEquals(++count, schedule.getModificationCount());
+
+		schedule.removeTask(stayTask);
+		assertEquals(++count, schedule.getModificationCount());
+
+		// removed tasks are not tracked any more
+		stayTask.setEndTime(50);
+		assertEquals(count, schedule.getModificationCount());
+	}
+
+	@Test
+	public void testNextTask() {
+		schedule.addTask(new StayTaskImpl(0, 100, linkAB));
+		schedule.addTask(new StayTaskImpl(100, 200, linkAB));
+		long count = schedule.getModificationCount();
+
+		schedule.nextTask();// PLANNED -> STARTED
+		assertEquals(++count, schedule.getModificationCount());
+
+		schedule.nextTask();
+		assertEquals(++count, schedule.getModificationCount());
+
+		schedule.nextTask();// STARTED -> COMPLETED
+		assertEquals(++count, schedule.getModificationCount());
+	}
+
+	@Test
+	public void testTimeChange() {
+		StayTask stayTask = new StayTaskImpl(0, 100, linkAB);
+		schedule.addTask(stayTask);
+		long count = schedule.getModificationCount();
+
+		stayTask.setEndTime(150);
+		assertEquals(++count, schedule.getModificationCount());
+
+		stayTask.setBeginTime(10);
+		assertEquals(++count, schedule.getModificationCount());
+
+		// setting the same times is not a modification
+		stayTask.setBeginTime(10);
+		stayTask.setEndTime(150);
+		assertEquals(count, schedule.getModificationCount());
+	}
+
+	@Test
+	public void testPathDiverted() {
+		VrpPathWithTravelData path = new VrpPathWithTravelDataImpl(0, 200, new Link[] { linkAB, linkBC },
+				new double[] { 100, 100 });
+		DriveTask driveTask = new DriveTaskImpl(path);
+		schedule.addTask(driveTask);
+		schedule.nextTask();// only the current drive task can be diverted
+		long count = schedule.getModificationCount();
+
+		VrpPathWithTravelData newSubPath = new VrpPathWithTravelDataImpl(100, 200, new Link[] { linkBC, linkCB },
+				new double[] { 100, 100 });
+		driveTask.pathDiverted(new DivertedVrpPath(path, newSubPath, 1), newSubPath.getArrivalTime());
+		assertEquals(300, driveTask.getEndTime(), 0);
+		assertTrue(schedule.getModificationCount() > count);
+	}
+
+	private Node createNode(String id, double x) {
+		return NetworkUtils.createAndAddNode(network, Id.createNodeId(id), new Coord(x, 0));
+	}
+
+	private Link createLink(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "" + to.getId()), from, to,
+				1000, 10, 1000, 1);
+	}
+}
@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.dvrp.trafficmonitoring;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class DvrpOfflineTravelTimeEstimatorTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final Network network = NetworkUtils.createNetwork();
+	private final Link linkAB;
+	private final Link linkBA;
+	private final TravelTimeCalculatorConfigGroup ttcConfig = new TravelTimeCalculatorConfigGroup();
+
+	// 100 s in the 1st hour, 110 s in the 2nd, and so on
+	private final TravelTime initialTT = (link, time, person, vehicle) -> 100 + 10 * (int)(time / 3600);
+	private double observedTTFactor = 1;// relative to the initial TT
+	private final TravelTime observedTT = (link, time, person, vehicle) -> observedTTFactor * initialTT.getLinkTravelTime(
+			link, time, person, vehicle);
+
+	private final List<double[]> updates = new ArrayList<>();
+
+	public DvrpOfflineTravelTimeEstimatorTest() {
+		Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+		linkAB = NetworkUtils.createAndAddLink(network, Id.createLinkId("AB"), a, b, 1000, 10, 1000, 1);
+		linkBA = NetworkUtils.createAndAddLink(network, Id.createLinkId("BA"), b, a, 1000, 10, 1000, 1);
+
+		ttcConfig.setTraveltimeBinSize(3600);
+		ttcConfig.setMaxTime(3 * 3600);
+	}
+
+	private DvrpOfflineTravelTimeEstimator createEstimator() {
+		DvrpOfflineTravelTimeEstimator estimator = new DvrpOfflineTravelTimeEstimator(initialTT, observedTT, network,
+				ttcConfig, 0.5);
+		estimator.addTravelTimeUpdateListener((fromTime, toTime) -> updates.add(new double[] { fromTime, toTime }));
+		return estimator;
+	}
+
+	@Test
+	public void testListenersNotifiedOnlyIfEstimatesChange() {
+		DvrpOfflineTravelTimeEstimator estimator = createEstimator();
+
+		estimator.notifyMobsimBeforeCleanup(null);// observed == estimated
+		assertEquals(0, updates.size());
+		assertEquals(100, estimator.getLinkTravelTime(linkAB, 0, null, null), 0);
+
+		observedTTFactor = 3;
+		estimator.notifyMobsimBeforeCleanup(null);
+		assertEquals(1, updates.size());
+		assertEquals(0, updates.get(0)[0], 0);
+		assertEquals(Double.POSITIVE_INFINITY, updates.get(0)[1], 0);
+		assertEquals(200, estimator.getLinkTravelTime(linkAB, 0, null, null), 0);
+		assertEquals(240, estimator.getLinkTravelTime(linkBA, 2 * 3600, null, null), 0);
+	}
+
+	@Test
+	public void testWriteAndReadEstimates() throws MalformedURLException {
+		DvrpOfflineTravelTimeEstimator estimator = createEstimator();
+		observedTTFactor = 2;
+		estimator.notifyMobsimBeforeCleanup(null);// estimates: 1.5 * initial
+
+		File file = new File(tempFolder.getRoot(), DvrpTravelTimeEstimatesWriter.OUTPUT_FILE);
+		estimator.writeLinkTravelTimes(file.getPath());
+		TravelTime defaultTT = (link, time, person, vehicle) -> -1;
+		TravelTime readTT = TravelTimeUtils.createTravelTimesFromEstimatesFile(file.toURI().toURL(), defaultTT);
+
+		// incl. times beyond the last time bin
+		for (int time = 0; time < 6 * 3600; time += 1800) {
+			for (Link link : network.getLinks().values()) {
+				double expectedTT = 1.5 * initialTT.getLinkTravelTime(link, Math.min(time, 3 * 3600), null, null);
+				assertEquals(expectedTT, estimator.getLinkTravelTime(link, time, null, null), 1e-9);
+				assertEquals(expectedTT, readTT.getLinkTravelTime(link, time, null, null), 0);
+			}
+		}
+
+		// not in the file
+		Network otherNetwork = NetworkUtils.createNetwork();
+		Node c = NetworkUtils.createAndAddNode(otherNetwork, Id.createNodeId("C"), new Coord(0, 0));
+		Node d = NetworkUtils.createAndAddNode(otherNetwork, Id.createNodeId("D"), new Coord(1000, 0));
+		Link linkCD = NetworkUtils.createAndAddLink(otherNetwork, Id.createLinkId("CD"), c, d, 1000, 10, 1000, 1);
+		assertEquals(-1, readTT.getLinkTravelTime(linkCD, 0, null, null), 0);
+	}
+
+	@Test
+	public void testObservedLinksOnly() {
+		DvrpOfflineTravelTimeEstimator estimator = new DvrpOfflineTravelTimeEstimator(initialTT, observedTT, network,
+				ttcConfig, 0.5, "car", true);
+		estimator.addTravelTimeUpdateListener((fromTime, toTime) -> updates.add(new double[] { fromTime, toTime }));
+		observedTTFactor = 3;
+
+		// a car enters linkBA (departing from linkAB), a bike (not of the mobsim mode) enters linkAB
+		Id<Vehicle> car = Id.create("car", Vehicle.class);
+		Id<Vehicle> bike = Id.create("bike", Vehicle.class);
+		estimator.handleEvent(new VehicleEntersTrafficEvent(0, null, linkAB.getId(), car, "car", 1));
+		estimator.handleEvent(new VehicleEntersTrafficEvent(0, null, linkBA.getId(), bike, "bike", 1));
+		estimator.handleEvent(new LinkEnterEvent(10, car, linkBA.getId()));
+		estimator.handleEvent(new LinkEnterEvent(10, bike, linkAB.getId()));
+		estimator.handleEvent(new VehicleLeavesTrafficEvent(100, null, linkBA.getId(), car, "car", 1));
+		estimator.handleEvent(new LinkEnterEvent(110, car, linkAB.getId()));// not in traffic any more
+
+		estimator.notifyMobsimBeforeCleanup(null);
+		assertEquals(1, updates.size());
+		assertEquals(100, estimator.getLinkTravelTime(linkAB, 0, null, null), 0);// not updated
+		assertEquals(200, estimator.getLinkTravelTime(linkBA, 0, null, null), 0);
+
+		// the observed links are forgotten in the next iteration
+		estimator.reset(1);
+		estimator.notifyMobsimBeforeCleanup(null);
+		assertEquals(1, updates.size());
+		assertEquals(100, estimator.getLinkTravelTime(linkAB, 0, null, null), 0);
+		assertEquals(200, estimator.getLinkTravelTime(linkBA, 0, null, null), 0);
+	}
+}
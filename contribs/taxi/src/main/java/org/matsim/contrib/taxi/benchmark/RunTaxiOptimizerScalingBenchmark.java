@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.taxi.benchmark;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration.MapConfiguration;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.contrib.dvrp.benchmark.OptimizerScalingBenchmark;
+import org.matsim.contrib.dvrp.benchmark.OptimizerScalingBenchmark.OptimizerFactory;
+import org.matsim.contrib.dvrp.data.Fleet;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.taxi.data.TaxiRequest;
+import org.matsim.contrib.taxi.optimizer.DefaultTaxiOptimizerParams;
+import org.matsim.contrib.taxi.optimizer.TaxiOptimizer;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentTaxiOptimizer;
+import org.matsim.contrib.taxi.optimizer.assignment.AssignmentTaxiOptimizerParams;
+import org.matsim.contrib.taxi.optimizer.assignment.TaxiToRequestAssignmentCostProvider.Mode;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.Solver;
+import org.matsim.contrib.taxi.optimizer.rules.RuleBasedRequestInserter.Goal;
+import org.matsim.contrib.taxi.optimizer.rules.RuleBasedTaxiOptimizer;
+import org.matsim.contrib.taxi.optimizer.rules.RuleBasedTaxiOptimizerParams;
+import org.matsim.contrib.taxi.optimizer.zonal.ZonalTaxiOptimizer;
+import org.matsim.contrib.taxi.optimizer.zonal.ZonalTaxiOptimizerParams;
+import org.matsim.contrib.taxi.run.TaxiConfigGroup;
+import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
+import org.matsim.contrib.util.CompactCSVWriter;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Measures how the rule-based, assignment (with the Hungarian and the sparse solver) and zonal taxi optimizers scale
+ * with the fleet size, using {@link OptimizerScalingBenchmark} on a synthetic grid network. The number of requests is
+ * proportional to the fleet size.
+ * <p>
+ * Destinations are not known in advance and vehicle diversion is off (as in the default taxi configuration).
+ */
+public class RunTaxiOptimizerScalingBenchmark {
+	private static final int[] FLEET_SIZES = { 100, 200, 500, 1000, 2000 };
+	private static final int REQUESTS_PER_VEHICLE = 10;
+	private static final int WARMUP_RUNS = 1;
+
+	private static final int GRID_SIZE = 30;// nodes per row/column
+	private static final double CELL_SIZE = 500;// [m]
+	private static final double FREESPEED = 10;// [m/s]
+	private static final double START_TIME = 0;
+	private static final double END_TIME = 6 * 3600;
+	private static final long RANDOM_SEED = 1234;
+
+	public static void run(String outputDir, int[] fleetSizes, int requestsPerVehicle, int warmupRuns) {
+		new File(outputDir).mkdirs();
+
+		int[] requestCounts = new int[fleetSizes.length];
+		for (int i = 0; i < fleetSizes.length; i++) {
+			requestCounts[i] = requestsPerVehicle * fleetSizes[i];
+		}
+
+		TaxiConfigGroup taxiCfg = new TaxiConfigGroup();
+		taxiCfg.setDestinationKnown(false);
+		taxiCfg.setVehicleDiversion(false);
+		taxiCfg.setOnlineVehicleTracker(false);
+		taxiCfg.setPickupDuration(120);
+		taxiCfg.setDropoffDuration(60);
+
+		Network network = OptimizerScalingBenchmark.createGridNetwork(GRID_SIZE, CELL_SIZE, FREESPEED);
+
+		List<OptimizerScalingBenchmark<TaxiOptimizer>> benchmarks = Arrays.asList(//
+				createBenchmark("rule_based", network, taxiCfg,
+						(net, fleet, timer, tt, td, scheduler) -> RuleBasedTaxiOptimizer.create(taxiCfg, fleet,
+								scheduler, net, timer, tt, td,
+								new RuleBasedTaxiOptimizerParams(createRuleBasedParams()))),
+				createBenchmark("assignment", network, taxiCfg,
+						(net, fleet, timer, tt, td, scheduler) -> new AssignmentTaxiOptimizer(taxiCfg, fleet, net,
+								timer, tt, td, scheduler,
+								new AssignmentTaxiOptimizerParams(createAssignmentParams(Solver.HUNGARIAN)))),
+				createBenchmark("assignment_sparse", network, taxiCfg,
+						(net, fleet, timer, tt, td, scheduler) -> new AssignmentTaxiOptimizer(taxiCfg, fleet, net,
+								timer, tt, td, scheduler,
+								new AssignmentTaxiOptimizerParams(createAssignmentParams(Solver.SPARSE)))),
+				createBenchmark("zonal", network, taxiCfg,
+						(net, fleet, timer, tt, td, scheduler) -> ZonalTaxiOptimizer.createWithGridZones(taxiCfg,
+								fleet, scheduler, net, timer, tt, td,
+								new ZonalTaxiOptimizerParams(createZonalParams()))));
+
+		try (CompactCSVWriter writer = new CompactCSVWriter(
+				IOUtils.getBufferedWriter(outputDir + "/" + OptimizerScalingBenchmark.SUMMARY_FILE))) {
+			writer.writeNext(OptimizerScalingBenchmark.SUMMARY_HEADER);
+			for (OptimizerScalingBenchmark<TaxiOptimizer> benchmark : benchmarks) {
+				benchmark.run(fleetSizes, requestCounts, warmupRuns, outputDir, writer);
+			}
+		}
+	}
+
+	interface TaxiOptimizerFactory {
+		TaxiOptimizer create(Network network, Fleet fleet, MobsimTimer timer, TravelTime travelTime,
+				TravelDisutility travelDisutility, TaxiScheduler scheduler);
+	}
+
+	static OptimizerScalingBenchmark<TaxiOptimizer> createBenchmark(String name, Network network,
+			TaxiConfigGroup taxiCfg, TaxiOptimizerFactory factory) {
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new TimeAsTravelDisutility(travelTime);
+
+		OptimizerFactory<TaxiOptimizer> optimizerFactory = (net, fleet, timer, eventsManager, cleanupListeners) -> {
+			TaxiScheduler scheduler = new TaxiScheduler(taxiCfg, fleet, net, timer, travelTime, travelDisutility);
+			return factory.create(net, fleet, timer, travelTime, travelDisutility, scheduler);
+		};
+
+		return new OptimizerScalingBenchmark<>(name, network, optimizerFactory,
+				(id, passenger, fromLink, toLink, submissionTime) -> new TaxiRequest(id, passenger, fromLink, toLink,
+						submissionTime, submissionTime), taxiCfg.getMode(), 1, START_TIME, END_TIME, RANDOM_SEED);
+	}
+
+	static MapConfiguration createRuleBasedParams() {
+		return new MapConfiguration(fillRuleBasedParams(new HashMap<>()));
+	}
+
+	static MapConfiguration createZonalParams() {
+		Map<String, String> params = fillRuleBasedParams(new HashMap<>());
+		params.put(ZonalTaxiOptimizerParams.EXPANSION_DISTANCE, 0 + "");
+		return new MapConfiguration(params);
+	}
+
+	private static Map<String, String> fillRuleBasedParams(Map<String, String> params) {
+		params.put(RuleBasedTaxiOptimizerParams.GOAL, Goal.DEMAND_SUPPLY_EQUIL.name());
+		params.put(RuleBasedTaxiOptimizerParams.NEAREST_REQUESTS_LIMIT, 10 + "");
+		params.put(RuleBasedTaxiOptimizerParams.NEAREST_VEHICLES_LIMIT, 10 + "");
+		params.put(RuleBasedTaxiOptimizerParams.CELL_SIZE, 1000 + "");
+		return params;
+	}
+
+	static MapConfiguration createAssignmentParams(Solver solver) {
+		Map<String, String> params = new HashMap<>();
+		params.put(AssignmentTaxiOptimizerParams.MODE, Mode.DSE.name());
+		params.put(AssignmentTaxiOptimizerParams.VEH_PLANNING_HORIZON_OVERSUPPLY, 120 + "");
+		params.put(AssignmentTaxiOptimizerParams.VEH_PLANNING_HORIZON_UNDERSUPPLY, 30 + "");
+		params.put(AssignmentTaxiOptimizerParams.NEAREST_REQUESTS_LIMIT, 10 + "");
+		params.put(AssignmentTaxiOptimizerParams.NEAREST_VEHICLES_LIMIT, 10 + "");
+		params.put(AssignmentTaxiOptimizerParams.SOLVER, solver.name());
+		params.put(DefaultTaxiOptimizerParams.REOPTIMIZATION_TIME_STEP, 10 + "");
+		return new MapConfiguration(params);
+	}
+
+	public static void main(String[] args) {
+		String outputDir = args.length > 0 ? args[0] : "./output/taxi_optimizer_scaling";
+		run(outputDir, FLEET_SIZES, REQUESTS_PER_VEHICLE, WARMUP_RUNS);
+	}
+}
@@ -20,9 +20,11 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.data.Fleet;
+import org.matsim.contrib.dvrp.path.ManyToManyPathSearch;
 import org.matsim.contrib.locationchoice.router.BackwardFastMultiNodeDijkstraFactory;
 import org.matsim.contrib.locationchoice.router.BackwardMultiNodePathCalculator;
 import org.matsim.contrib.taxi.data.TaxiRequest;
@@ -58,19 +60,32 @@ public class AssignmentRequestInserter implements UnplannedRequestInserter {
 						travelDisutility, travelTime),
 				(BackwardMultiNodePathCalculator)new BackwardFastMultiNodeDijkstraFactory(true)
 						.createPathCalculator(network, travelDisutility, travelTime),
-				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime));
+				new FastAStarEuclideanFactory().createPathCalculator(network, travelDisutility, travelTime),
+				// the common pool is shared, so there are no threads to be shut down after the simulation
+				ManyToManyPathSearch.createForwardSearch(network, travelTime, travelDisutility,
+						ForkJoinPool.commonPool()),
+				ManyToManyPathSearch.createBackwardSearch(network, travelTime, travelDisutility,
+						ForkJoinPool.commonPool()));
 	}
 
 	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TravelTime travelTime, TaxiScheduler scheduler,
 			AssignmentTaxiOptimizerParams params, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router) {
+		this(fleet, timer, travelTime, scheduler, params, multiNodeRouter, backwardMultiNodeRouter, router, null, null);
+	}
+
+	public AssignmentRequestInserter(Fleet fleet, MobsimTimer timer, TravelTime travelTime, TaxiScheduler scheduler,
+			AssignmentTaxiOptimizerParams params, MultiNodePathCalculator multiNodeRouter,
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
+			ManyToManyPathSearch forwardMatrixSearch, ManyToManyPathSearch backwardMatrixSearch) {
 		this.fleet = fleet;
 		this.scheduler = scheduler;
 		this.timer = timer;
 		this.params = params;
 
 		assignmentProblem = new VehicleAssignmentProblem<>(travelTime, multiNodeRouter, backwardMultiNodeRouter, router,
-				params.nearestRequestsLimit, params.nearestVehiclesLimit);
+				forwardMatrixSearch, backwardMatrixSearch, params.nearestRequestsLimit, params.nearestVehiclesLimit,
+				params.solver);
 
 		assignmentCostProvider = new TaxiToRequestAssignmentCostProvider(params);
 	}
@@ -22,6 +22,7 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 import org.apache.commons.configuration.Configuration;
 import org.matsim.contrib.taxi.optimizer.DefaultTaxiOptimizerParams;
 import org.matsim.contrib.taxi.optimizer.assignment.TaxiToRequestAssignmentCostProvider.Mode;
+import org.matsim.contrib.taxi.optimizer.assignment.VehicleAssignmentProblem.Solver;
 
 public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public static final String MODE = "mode";
@@ -34,6 +35,8 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public static final String NEAREST_REQUESTS_LIMIT = "nearestRequestsLimit";
 	public static final String NEAREST_VEHICLES_LIMIT = "nearestVehiclesLimit";
 
+	public static final String SOLVER = "solver";
+
 	public final Mode mode;
 	public final double nullPathCost;
 
@@ -43,6 +46,8 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 	public final int nearestRequestsLimit;
 	public final int nearestVehiclesLimit;
 
+	public final Solver solver;
+
 	public AssignmentTaxiOptimizerParams(Configuration optimizerConfig) {
 		super(optimizerConfig, true, true);
 
@@ -57,5 +62,10 @@ public class AssignmentTaxiOptimizerParams extends DefaultTaxiOptimizerParams {
 
 		nearestRequestsLimit = optimizerConfig.getInt(NEAREST_REQUESTS_LIMIT);
 		nearestVehiclesLimit = optimizerConfig.getInt(NEAREST_VEHICLES_LIMIT);
+
+		// SPARSE scales better with large fleets (memory and time), but does not use nullPathCost: requests that
+		// are not among the kNN of any vehicle (and vice versa) stay unassigned, whereas HUNGARIAN assigns them at
+		// nullPathCost and routes the path
+		solver = Solver.valueOf(optimizerConfig.getString(SOLVER, Solver.HUNGARIAN.name()));
 	}
 }
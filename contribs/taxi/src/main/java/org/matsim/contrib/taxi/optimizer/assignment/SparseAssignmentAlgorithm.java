@@ -0,0 +1,219 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Solves a sparse (and possibly rectangular) linear assignment problem: each row (e.g. vehicle) can be assigned only to
+ * the columns (e.g. requests) it has an edge to, and the goal is to minimise the total cost of the assignment.
+ * <p>
+ * The rows are processed one by one. For each row, the shortest augmenting path (in terms of the reduced costs) is
+ * searched for with Dijkstra's algorithm, which stops as soon as a free column is reached (as in the augmentation
+ * phase of the Jonker-Volgenant algorithm). In the worst case, this takes O(n m log m) time (n - rows, m - edges), but
+ * typically the searches are very short. The memory usage is O(m), compared to O(n^2) for {@link HungarianAlgorithm}.
+ * <p>
+ * If all rows are assigned, the assignment is optimal. Rows that cannot be assigned (no augmenting path) remain
+ * unassigned (-1), and the assignment is optimal for the assigned rows. Therefore, the rows should be the smaller side
+ * of the problem.
+ * <p>
+ * The column prices (dual variables) of a previous solution of a similar problem can be used as the initial prices
+ * (warm start), which typically makes the searches shorter. Any initial column prices are valid, since the initial row
+ * prices are calculated accordingly.
+ */
+public class SparseAssignmentAlgorithm {
+	private final int[][] colsByRow;
+	private final double[][] costsByRow;
+	private final int rows, cols;
+
+	// reduced cost of edge (i, j): cost - rowPrices[i] - colPrices[j] >= 0
+	private final double[] rowPrices, colPrices;
+	// colPrices[j] >= minFreeColPrice if j is free, and colPrices[j] <= minFreeColPrice if j is assigned
+	private final double minFreeColPrice;
+	private final int[] colByRow, rowByCol;
+
+	// shortest path search
+	private final double[] dist;
+	private final int[] predRowByCol;
+	private final boolean[] settled;
+	private final int[] touchedCols;
+	private int touchedCount;
+	private final PriorityQueue<Label> queue = new PriorityQueue<>();
+
+	private static class Label implements Comparable<Label> {
+		private final int col;
+		private final double dist;
+		private final boolean end;// the path ends at the (free) column
+
+		private Label(int col, double dist, boolean end) {
+			this.col = col;
+			this.dist = dist;
+			this.end = end;
+		}
+
+		@Override
+		public int compareTo(Label o) {
+			return Double.compare(dist, o.dist);
+		}
+	}
+
+	/**
+	 * @param colCount   number of columns
+	 * @param colsByRow  colsByRow[i] - columns of the edges of row i
+	 * @param costsByRow costsByRow[i][k] - cost of the edge (i, colsByRow[i][k])
+	 * @param colPrices  initial column prices (e.g. from the previous solution), or null (all zeros)
+	 */
+	public SparseAssignmentAlgorithm(int colCount, int[][] colsByRow, double[][] costsByRow, double[] colPrices) {
+		this.colsByRow = colsByRow;
+		this.costsByRow = costsByRow;
+		this.rows = colsByRow.length;
+		this.cols = colCount;
+
+		this.colPrices = colPrices == null ? new double[cols] : Arrays.copyOf(colPrices, cols);
+		minFreeColPrice = cols == 0 ? 0 : Arrays.stream(this.colPrices).min().getAsDouble();
+		rowPrices = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			if (colsByRow[i].length != costsByRow[i].length) {
+				throw new IllegalArgumentException("Irregular edge data for row " + i);
+			}
+			double minReducedCost = Double.POSITIVE_INFINITY;
+			for (int k = 0; k < colsByRow[i].length; k++) {
+				minReducedCost = Math.min(minReducedCost, costsByRow[i][k] - this.colPrices[colsByRow[i][k]]);
+			}
+			rowPrices[i] = colsByRow[i].length == 0 ? 0 : minReducedCost;
+		}
+
+		colByRow = new int[rows];
+		Arrays.fill(colByRow, -1);
+		rowByCol = new int[cols];
+		Arrays.fill(rowByCol, -1);
+
+		dist = new double[cols];
+		Arrays.fill(dist, Double.POSITIVE_INFINITY);
+		predRowByCol = new int[cols];
+		settled = new boolean[cols];
+		touchedCols = new int[cols];
+	}
+
+	/**
+	 * @return the column assigned to each row (-1 if unassigned)
+	 */
+	public int[] execute() {
+		for (int i = 0; i < rows; i++) {
+			augment(i);
+		}
+		return Arrays.copyOf(colByRow, rows);
+	}
+
+	public double[] getColPrices() {
+		return Arrays.copyOf(colPrices, cols);
+	}
+
+	public double[] getRowPrices() {
+		return Arrays.copyOf(rowPrices, rows);
+	}
+
+	private void augment(int startRow) {
+		relaxEdges(startRow, 0);
+
+		// the path may end at any free column j, at the extra cost of (colPrices[j] - minFreeColPrice)
+		int freeCol = -1;
+		while (!queue.isEmpty()) {
+			Label label = queue.poll();
+			int j = label.col;
+			if (label.end) {
+				freeCol = j;
+				break;
+			}
+			if (settled[j] || label.dist > dist[j]) {
+				continue;// outdated label
+			}
+			settled[j] = true;
+
+			int i = rowByCol[j];
+			if (i == -1) {
+				queue.add(new Label(j, dist[j] + colPrices[j] - minFreeColPrice, true));
+			} else {
+				relaxEdges(i, dist[j]);
+			}
+		}
+		queue.clear();
+
+		if (freeCol != -1) {
+			updatePrices(startRow, dist[freeCol] + colPrices[freeCol] - minFreeColPrice);
+
+			// flip the path
+			int j = freeCol;
+			while (true) {
+				int i = predRowByCol[j];
+				int nextJ = colByRow[i];
+				rowByCol[j] = i;
+				colByRow[i] = j;
+				if (i == startRow) {
+					break;
+				}
+				j = nextJ;
+			}
+		}
+
+		for (int t = 0; t < touchedCount; t++) {
+			int j = touchedCols[t];
+			dist[j] = Double.POSITIVE_INFINITY;
+			settled[j] = false;
+		}
+		touchedCount = 0;
+	}
+
+	private void relaxEdges(int i, double rowDist) {
+		int[] rowCols = colsByRow[i];
+		double[] rowCosts = costsByRow[i];
+		for (int k = 0; k < rowCols.length; k++) {
+			int j = rowCols[k];
+			if (settled[j]) {
+				continue;
+			}
+			double newDist = rowDist + rowCosts[k] - rowPrices[i] - colPrices[j];
+			if (newDist < dist[j]) {
+				if (dist[j] == Double.POSITIVE_INFINITY) {
+					touchedCols[touchedCount++] = j;
+				}
+				dist[j] = newDist;
+				predRowByCol[j] = i;
+				queue.add(new Label(j, newDist, false));
+			}
+		}
+	}
+
+	// keeps the reduced costs non-negative, and makes them zero along the shortest path
+	private void updatePrices(int startRow, double pathLength) {
+		for (int t = 0; t < touchedCount; t++) {
+			int j = touchedCols[t];
+			if (settled[j]) {
+				double delta = pathLength - dist[j];
+				colPrices[j] -= delta;
+				int i = rowByCol[j];
+				if (i != -1) {
+					rowPrices[i] += delta;
+				}
+			}
+		}
+		rowPrices[startRow] += pathLength;
+	}
+}
@@ -19,7 +19,6 @@
 
 package org.matsim.contrib.taxi.optimizer.assignment;
 
-import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.taxi.data.TaxiRequest;
 import org.matsim.contrib.taxi.optimizer.VehicleData;
 import org.matsim.contrib.taxi.optimizer.VehicleData.Entry;
@@ -51,8 +50,8 @@ public class TaxiToRequestAssignmentCostProvider {
 	public AssignmentCost<TaxiRequest> getCost(AssignmentRequestData rData, VehicleData vData) {
 		final Mode currentMode = getCurrentMode(rData, vData);
 		return new AssignmentCost<TaxiRequest>() {
-			public double calc(Entry departure, DestEntry<TaxiRequest> reqEntry, PathData pathData) {
-				double pickupBeginTime = calcPickupBeginTime(departure, reqEntry, pathData);
+			public double calc(Entry departure, DestEntry<TaxiRequest> reqEntry, double travelTime) {
+				double pickupBeginTime = calcPickupBeginTime(departure, reqEntry, travelTime);
 				switch (currentMode) {
 					case PICKUP_TIME:
 						// this will work different than ARRIVAL_TIME at oversupply -> will reduce T_P and fairness
@@ -85,10 +84,10 @@ public class TaxiToRequestAssignmentCostProvider {
 	}
 
 	private double calcPickupBeginTime(VehicleData.Entry departure, DestEntry<TaxiRequest> reqEntry,
-			PathData pathData) {
-		double travelTime = pathData == null ? //
-				params.nullPathCost : // no path (too far away)
-				pathData.getTravelTime();
+			double travelTime) {
+		if (travelTime == Double.POSITIVE_INFINITY) {
+			travelTime = params.nullPathCost; // no path (too far away)
+		}
 		return Math.max(reqEntry.destination.getEarliestStartTime(), departure.time + travelTime);
 	}
 }
@@ -21,9 +21,17 @@ package org.matsim.contrib.taxi.optimizer.assignment;
 
 import java.lang.reflect.Array;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.path.ManyToManyPathSearch;
+import org.matsim.contrib.dvrp.path.ManyToManyPathSearch.TravelMatrix;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch;
 import org.matsim.contrib.dvrp.path.OneToManyPathSearch.PathData;
 import org.matsim.contrib.dvrp.path.VrpPathWithTravelData;
@@ -44,7 +52,54 @@ import com.google.common.collect.Lists;
  */
 public class VehicleAssignmentProblem<D> {
 	public static interface AssignmentCost<D> {
-		double calc(VehicleData.Entry departure, DestEntry<D> dest, PathData pathData);
+		/**
+		 * @param travelTime travel time from departure to dest; {@link Double#POSITIVE_INFINITY} if unknown (filtered
+		 *                   out by kNN, or unreachable)
+		 */
+		double calc(VehicleData.Entry departure, DestEntry<D> dest, double travelTime);
+	}
+
+	/**
+	 * HUNGARIAN: {@link HungarianAlgorithm} on the full cost matrix (pairs filtered out by kNN get the cost of null
+	 * path data, i.e. {@code nullPathCost}). Every vehicle (or request, whichever are fewer) gets assigned; if the
+	 * assigned pair has no path data, the path is routed when the dispatch is created.
+	 * <p>
+	 * SPARSE: {@link SparseAssignmentAlgorithm} on the kNN pairs only, warm-started with the prices of the previous
+	 * optimisation. Pairs filtered out by kNN are never assigned, so a request without any kNN vehicle stays
+	 * unassigned (and is retried in the next optimisation) instead of being served by a distant vehicle.
+	 * {@code nullPathCost} is not used.
+	 */
+	public enum Solver {
+		HUNGARIAN, SPARSE;
+	}
+
+	private interface PairConsumer {
+		// pathData is null if the travel time is unknown, or if only the travel time is known (taken from the matrix)
+		void accept(int v, int d, double travelTime, PathData pathData);
+	}
+
+	// kNN-filtered pairs with known travel times (only SPARSE), in the order they are calculated
+	private static class SparsePairs {
+		private int size = 0;
+		private int[] vehicles = new int[16];
+		private int[] destinations = new int[16];
+		private double[] costs = new double[16];
+		private PathData[] pathData = new PathData[16];
+
+		private void add(int v, int d, double cost, PathData pd) {
+			if (size == vehicles.length) {
+				int capacity = 2 * size;
+				vehicles = Arrays.copyOf(vehicles, capacity);
+				destinations = Arrays.copyOf(destinations, capacity);
+				costs = Arrays.copyOf(costs, capacity);
+				pathData = Arrays.copyOf(pathData, capacity);
+			}
+			vehicles[size] = v;
+			destinations[size] = d;
+			costs[size] = cost;
+			pathData[size] = pd;
+			size++;
+		}
 	}
 
 	private final TravelTime travelTime;
@@ -53,12 +108,25 @@ public class VehicleAssignmentProblem<D> {
 	private final OneToManyPathSearch forwardPathSearch;
 	private final OneToManyPathSearch backwardPathSearch;
 
+	// used instead of the one-to-many searches if all pairs are needed (no kNN filtering); null if not available
+	private final ManyToManyPathSearch forwardMatrixSearch;
+	private final ManyToManyPathSearch backwardMatrixSearch;
+
+	private final int nearestDestinationLimit;
+	private final int nearestVehicleLimit;
 	private final StraightLineKnnFinder<VehicleData.Entry, DestEntry<D>> destinationFinder;
 	private final StraightLineKnnFinder<DestEntry<D>, VehicleData.Entry> vehicleFinder;
 
+	private final Solver solver;
+
+	// prices (dual variables) from the previous optimisation (only SPARSE)
+	private Map<Id<Vehicle>, Double> vehiclePrices = new HashMap<>();
+	private Map<D, Double> destinationPrices = new HashMap<>();
+
 	private AssignmentCost<D> assignmentCost;
 	private VehicleData vData;
 	private AssignmentDestinationData<D> dData;
+	private boolean travelTimesOnly;// travel times taken from the matrix search, no path data
 
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator router,
 			BackwardMultiNodePathCalculator backwardRouter) {
@@ -69,11 +137,40 @@ public class VehicleAssignmentProblem<D> {
 	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
 			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
 			int nearestDestinationLimit, int nearestVehicleLimit) {
+		this(travelTime, multiNodeRouter, backwardMultiNodeRouter, router, nearestDestinationLimit,
+				nearestVehicleLimit, Solver.HUNGARIAN);
+	}
+
+	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
+			int nearestDestinationLimit, int nearestVehicleLimit, Solver solver) {
+		this(travelTime, multiNodeRouter, backwardMultiNodeRouter, router, null, null, nearestDestinationLimit,
+				nearestVehicleLimit, solver);
+	}
+
+	/**
+	 * @param forwardMatrixSearch  (with backwardMatrixSearch) calculates the travel times between all vehicles and
+	 *                             destinations if kNN filtering is off (or would not filter anything); the costs are
+	 *                             then calculated directly from the travel times, and the paths are searched only for
+	 *                             the assigned pairs. With kNN filtering on, the one-to-many searches are used (they
+	 *                             also return the paths, so no second search is needed for the assigned pairs)
+	 * @param backwardMatrixSearch see forwardMatrixSearch
+	 */
+	public VehicleAssignmentProblem(TravelTime travelTime, MultiNodePathCalculator multiNodeRouter,
+			BackwardMultiNodePathCalculator backwardMultiNodeRouter, LeastCostPathCalculator router,
+			ManyToManyPathSearch forwardMatrixSearch, ManyToManyPathSearch backwardMatrixSearch,
+			int nearestDestinationLimit, int nearestVehicleLimit, Solver solver) {
 		this.travelTime = travelTime;
 		this.router = router;
+		this.solver = solver;
 
 		forwardPathSearch = OneToManyPathSearch.create(multiNodeRouter);
 		backwardPathSearch = OneToManyPathSearch.create(backwardMultiNodeRouter);
+		this.forwardMatrixSearch = forwardMatrixSearch;
+		this.backwardMatrixSearch = backwardMatrixSearch;
+
+		this.nearestDestinationLimit = nearestDestinationLimit;
+		this.nearestVehicleLimit = nearestVehicleLimit;
 
 		// TODO this kNN is slow
 		destinationFinder = nearestDestinationLimit < 0 ? null
@@ -88,37 +185,182 @@ public class VehicleAssignmentProblem<D> {
 		this.dData = dData;
 		this.assignmentCost = assignmentCost;
 
-		PathData[][] pathDataMatrix = createPathDataMatrix();
-		double[][] costMatrix = createCostMatrix(pathDataMatrix);
+		travelTimesOnly = dData.getSize() > vData.getSize() ?
+				forwardMatrixSearch != null && isAllPairs(destinationFinder, nearestDestinationLimit, dData.getSize()) :
+				backwardMatrixSearch != null && isAllPairs(vehicleFinder, nearestVehicleLimit, vData.getSize());
+
+		return solver == Solver.SPARSE ? findSparseAssignments() : findHungarianAssignments();
+	}
+
+	private List<Dispatch<D>> findHungarianAssignments() {
+		double[][] costMatrix = new double[vData.getSize()][dData.getSize()];
+		for (double[] costs : costMatrix) {
+			Arrays.fill(costs, Double.NaN);
+		}
+		PathData[][] pathDataMatrix = travelTimesOnly ?
+				null :
+				(PathData[][])Array.newInstance(PathData.class, vData.getSize(), dData.getSize());
+		calcTravelTimes((v, d, travelTime, pathData) -> {
+			costMatrix[v][d] = assignmentCost.calc(vData.getEntry(v), dData.getEntry(d), travelTime);
+			if (pathDataMatrix != null) {
+				pathDataMatrix[v][d] = pathData;
+			}
+		});
+
+		// pairs filtered out by kNN
+		for (int v = 0; v < vData.getSize(); v++) {
+			VehicleData.Entry departure = vData.getEntry(v);
+			for (int d = 0; d < dData.getSize(); d++) {
+				if (Double.isNaN(costMatrix[v][d])) {
+					costMatrix[v][d] = assignmentCost.calc(departure, dData.getEntry(d), Double.POSITIVE_INFINITY);
+				}
+			}
+		}
+
 		int[] assignments = new HungarianAlgorithm(costMatrix).execute();
-		return createDispatches(assignments, pathDataMatrix, travelTime);
+
+		List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vData.getSize(), dData.getSize()));
+		for (int v = 0; v < assignments.length; v++) {
+			int d = assignments[v];
+			if (d == -1 || // no request assigned
+					d >= dData.getSize()) {// non-existing (dummy) request assigned
+				continue;
+			}
+			dispatches.add(createDispatch(v, d, pathDataMatrix == null ? null : pathDataMatrix[v][d]));
+		}
+		return dispatches;
 	}
 
-	// private static int calcPathsForVehiclesCount = 0;
-	// private static int calcPathsForDestinationsCount = 0;
+	private List<Dispatch<D>> findSparseAssignments() {
+		// only the (kNN-filtered) pairs with known travel times are considered
+		SparsePairs pairs = new SparsePairs();
+		calcTravelTimes((v, d, travelTime, pathData) -> {
+			if (travelTime != Double.POSITIVE_INFINITY) {
+				pairs.add(v, d, assignmentCost.calc(vData.getEntry(v), dData.getEntry(d), travelTime), pathData);
+			}
+		});
+
+		// rows are the smaller side, so that all of them can be assigned (if there are enough pairs)
+		boolean vehicleRows = vData.getSize() <= dData.getSize();
+		int rowCount = vehicleRows ? vData.getSize() : dData.getSize();
+		int colCount = vehicleRows ? dData.getSize() : vData.getSize();
+		int[] rows = vehicleRows ? pairs.vehicles : pairs.destinations;
+		int[] cols = vehicleRows ? pairs.destinations : pairs.vehicles;
+
+		int[] rowSizes = new int[rowCount];
+		for (int i = 0; i < pairs.size; i++) {
+			rowSizes[rows[i]]++;
+		}
+		int[][] colsByRow = new int[rowCount][];
+		double[][] costsByRow = new double[rowCount][];
+		int[][] pairsByRow = new int[rowCount][];
+		for (int row = 0; row < rowCount; row++) {
+			colsByRow[row] = new int[rowSizes[row]];
+			costsByRow[row] = new double[rowSizes[row]];
+			pairsByRow[row] = new int[rowSizes[row]];
+			rowSizes[row] = 0;
+		}
+		for (int i = 0; i < pairs.size; i++) {
+			int row = rows[i];
+			int k = rowSizes[row]++;
+			colsByRow[row][k] = cols[i];
+			costsByRow[row][k] = pairs.costs[i];
+			pairsByRow[row][k] = i;
+		}
+
+		double[] initialColPrices = new double[colCount];
+		for (int col = 0; col < colCount; col++) {
+			initialColPrices[col] = vehicleRows ? //
+					destinationPrices.getOrDefault(dData.getEntry(col).destination, 0.) : //
+					vehiclePrices.getOrDefault(vData.getEntry(col).vehicle.getId(), 0.);
+		}
+
+		SparseAssignmentAlgorithm algorithm = new SparseAssignmentAlgorithm(colCount, colsByRow, costsByRow,
+				initialColPrices);
+		int[] colByRow = algorithm.execute();
+		storePrices(vehicleRows ? algorithm.getRowPrices() : algorithm.getColPrices(),
+				vehicleRows ? algorithm.getColPrices() : algorithm.getRowPrices());
+
+		List<Dispatch<D>> dispatches = new ArrayList<>(rowCount);
+		for (int row = 0; row < rowCount; row++) {
+			int col = colByRow[row];
+			if (col == -1) {
+				continue;
+			}
+			int k = 0;
+			while (colsByRow[row][k] != col) {
+				k++;
+			}
+			int i = pairsByRow[row][k];
+			dispatches.add(createDispatch(pairs.vehicles[i], pairs.destinations[i], pairs.pathData[i]));
+		}
+		return dispatches;
+	}
 
-	private PathData[][] createPathDataMatrix() {
-		PathData[][] pathDataMatrix = (PathData[][])Array.newInstance(PathData.class, vData.getSize(), dData.getSize());
+	// the prices are used as the initial prices in the next optimisation, regardless of which side the rows are
+	private void storePrices(double[] vehPrices, double[] destPrices) {
+		vehiclePrices = new HashMap<>();
+		for (int v = 0; v < vData.getSize(); v++) {
+			vehiclePrices.put(vData.getEntry(v).vehicle.getId(), vehPrices[v]);
+		}
+		destinationPrices = new HashMap<>();
+		for (int d = 0; d < dData.getSize(); d++) {
+			destinationPrices.put(dData.getEntry(d).destination, destPrices[d]);
+		}
+	}
 
+	private void calcTravelTimes(PairConsumer consumer) {
 		if (dData.getSize() > vData.getSize()) {
-			calcPathsForVehicles(pathDataMatrix);
-			// calcPathsForVehiclesCount++;
+			if (travelTimesOnly) {
+				calcTravelMatrixForVehicles(consumer);
+			} else {
+				calcPathsForVehicles(consumer);
+			}
 		} else {
-			calcPathsForDestinations(pathDataMatrix);
-			// calcPathsForDestinationsCount++;
+			if (travelTimesOnly) {
+				calcTravelMatrixForDestinations(consumer);
+			} else {
+				calcPathsForDestinations(consumer);
+			}
+		}
+	}
+
+	private static boolean isAllPairs(StraightLineKnnFinder<?, ?> finder, int limit, int size) {
+		return finder == null || limit >= size;
+	}
+
+	private void calcTravelMatrixForVehicles(PairConsumer consumer) {
+		List<VehicleData.Entry> vehs = vData.getEntries();
+		List<DestEntry<D>> dests = dData.getEntries();
+		TravelMatrix matrix = forwardMatrixSearch.calcTravelMatrix(Lists.transform(vehs, veh -> veh.link),
+				Lists.transform(dests, dest -> dest.link), vehs.stream().mapToDouble(veh -> veh.time).toArray());
+
+		for (int v = 0; v < vehs.size(); v++) {
+			for (int d = 0; d < dests.size(); d++) {
+				consumer.accept(vehs.get(v).idx, dests.get(d).idx, matrix.getTravelTime(v, d), null);
+			}
 		}
+	}
+
+	private void calcTravelMatrixForDestinations(PairConsumer consumer) {
+		List<VehicleData.Entry> vehs = vData.getEntries();
+		List<DestEntry<D>> dests = dData.getEntries();
+		TravelMatrix matrix = backwardMatrixSearch.calcTravelMatrix(Lists.transform(dests, dest -> dest.link),
+				Lists.transform(vehs, veh -> veh.link), dests.stream().mapToDouble(dest -> dest.time).toArray());
 
-		// if ( (calcPathsForDestinationsCount + calcPathsForVehiclesCount) % 100 == 0) {
-		// System.err.println("PathsForDestinations = " + calcPathsForDestinationsCount
-		// + " PathsForVehicles = " + calcPathsForVehiclesCount);
-		// System.err.println("dests = " + dData.getSize() + " vehs = " + vData.getSize()
-		// + " idleVehs = " + vData.getIdleCount());
-		// }
+		for (int d = 0; d < dests.size(); d++) {
+			for (int v = 0; v < vehs.size(); v++) {
+				consumer.accept(vehs.get(v).idx, dests.get(d).idx, matrix.getTravelTime(d, v), null);
+			}
+		}
+	}
 
-		return pathDataMatrix;
+	// unreachable destinations are treated as if filtered out by kNN
+	private static double getTravelTime(PathData pathData) {
+		return pathData == null ? Double.POSITIVE_INFINITY : pathData.getTravelTime();
 	}
 
-	private void calcPathsForVehicles(PathData[][] pathDataMatrix) {
+	private void calcPathsForVehicles(PairConsumer consumer) {
 		for (int v = 0; v < vData.getSize(); v++) {
 			VehicleData.Entry departure = vData.getEntry(v);
 
@@ -128,14 +370,13 @@ public class VehicleAssignmentProblem<D> {
 			PathData[] paths = forwardPathSearch.calcPathDataArray(departure.link, toLinks, departure.time);
 
 			for (int i = 0; i < filteredDests.size(); i++) {
-				int d = filteredDests.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				consumer.accept(v, filteredDests.get(i).idx, getTravelTime(paths[i]), paths[i]);
 			}
 		}
 	}
 
 	// TODO does not support adv reqs
-	private void calcPathsForDestinations(PathData[][] pathDataMatrix) {
+	private void calcPathsForDestinations(PairConsumer consumer) {
 		for (int d = 0; d < dData.getSize(); d++) {
 			DestEntry<D> dest = dData.getEntry(d);
 
@@ -145,47 +386,25 @@ public class VehicleAssignmentProblem<D> {
 			PathData[] paths = backwardPathSearch.calcPathDataArray(dest.link, toLinks, dest.time);
 
 			for (int i = 0; i < filteredVehs.size(); i++) {
-				int v = filteredVehs.get(i).idx;
-				pathDataMatrix[v][d] = paths[i];
+				consumer.accept(filteredVehs.get(i).idx, d, getTravelTime(paths[i]), paths[i]);
 			}
 		}
 	}
 
-	private double[][] createCostMatrix(PathData[][] pathDataMatrix) {
+	private Dispatch<D> createDispatch(int v, int d, PathData pathData) {
+		VehicleData.Entry departure = vData.getEntry(v);
+		DestEntry<D> dest = dData.getEntry(d);
 
-		double[][] costMatrix = new double[vData.getSize()][dData.getSize()];
-
-		for (int v = 0; v < vData.getSize(); v++) {
-			VehicleData.Entry departure = vData.getEntry(v);
-			for (int r = 0; r < dData.getSize(); r++) {
-				costMatrix[v][r] = assignmentCost.calc(departure, dData.getEntry(r), pathDataMatrix[v][r]);
-			}
+		if (travelTimesOnly) {
+			pathData = forwardPathSearch.calcPathDataArray(departure.link, Collections.singletonList(dest.link),
+					departure.time)[0];
 		}
 
-		return costMatrix;
-	}
-
-	private List<Dispatch<D>> createDispatches(int[] assignments, PathData[][] pathDataMatrix, TravelTime travelTime) {
-		List<Dispatch<D>> dispatches = new ArrayList<>(Math.min(vData.getSize(), dData.getSize()));
-		for (int v = 0; v < assignments.length; v++) {
-			int d = assignments[v];
-			if (d == -1 || // no request assigned
-					d >= dData.getSize()) {// non-existing (dummy) request assigned
-				continue;
-			}
-
-			VehicleData.Entry departure = vData.getEntry(v);
-			DestEntry<D> dest = dData.getEntry(d);
-			PathData pathData = pathDataMatrix[v][d];
-
-			// TODO if null is frequent we may be more efficient by increasing the neighbourhood
-			VrpPathWithTravelData vrpPath = pathData == null ? //
-					VrpPaths.calcAndCreatePath(departure.link, dest.link, departure.time, router, travelTime)
-					: VrpPaths.createPath(departure.link, dest.link, departure.time, pathData, travelTime);
+		// TODO if null is frequent we may be more efficient by increasing the neighbourhood
+		VrpPathWithTravelData vrpPath = pathData == null ?
+				VrpPaths.calcAndCreatePath(departure.link, dest.link, departure.time, router, travelTime) :
+				VrpPaths.createPath(departure.link, dest.link, departure.time, pathData, travelTime);
 
-			dispatches.add(new Dispatch<>(departure.vehicle, dest.destination, vrpPath));
-		}
-
-		return dispatches;
+		return new Dispatch<>(departure.vehicle, dest.destination, vrpPath);
 	}
 }
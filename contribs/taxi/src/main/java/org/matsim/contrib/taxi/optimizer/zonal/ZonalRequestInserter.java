@@ -66,17 +66,35 @@ public class ZonalRequestInserter implements UnplannedRequestInserter {
 	public ZonalRequestInserter(Fleet fleet, TaxiScheduler scheduler, MobsimTimer timer, Network network,
 			TravelTime travelTime, TravelDisutility travelDisutility, ZonalTaxiOptimizerParams params,
 			IdleTaxiZonalRegistry idleTaxiRegistry, UnplannedRequestZonalRegistry unplannedRequestRegistry) {
+		this(fleet, scheduler, timer, network, travelTime, travelDisutility, params, idleTaxiRegistry,
+				unplannedRequestRegistry, Zones.readZones(params.zonesXmlFile, params.zonesShpFile));
+	}
+
+	private ZonalRequestInserter(Fleet fleet, TaxiScheduler scheduler, MobsimTimer timer, Network network,
+			TravelTime travelTime, TravelDisutility travelDisutility, ZonalTaxiOptimizerParams params,
+			IdleTaxiZonalRegistry idleTaxiRegistry, UnplannedRequestZonalRegistry unplannedRequestRegistry,
+			Map<Id<Zone>, Zone> zones) {
+		this(fleet, scheduler, timer, network, travelTime, travelDisutility, params, idleTaxiRegistry,
+				unplannedRequestRegistry, zones,
+				NetworkWithZonesUtils.createLinkToZoneMap(network, new ZoneFinderImpl(zones, params.expansionDistance)));
+		System.err.println("No conversion of SRS is done");
+	}
+
+	/**
+	 * Uses the given zones (instead of reading them from the files specified in the params), e.g. zones of a
+	 * {@link org.matsim.contrib.zone.SquareGridSystem}, which have no geometries.
+	 */
+	public ZonalRequestInserter(Fleet fleet, TaxiScheduler scheduler, MobsimTimer timer, Network network,
+			TravelTime travelTime, TravelDisutility travelDisutility, ZonalTaxiOptimizerParams params,
+			IdleTaxiZonalRegistry idleTaxiRegistry, UnplannedRequestZonalRegistry unplannedRequestRegistry,
+			Map<Id<Zone>, Zone> zones, Map<Id<Link>, Zone> linkToZone) {
 		this.fleet = fleet;
 		this.scheduler = scheduler;
 		this.dispatchFinder = new BestDispatchFinder(scheduler, network, timer, travelTime, travelDisutility);
 		this.requestInserter = new RuleBasedRequestInserter(scheduler, timer, dispatchFinder, params, idleTaxiRegistry,
 				unplannedRequestRegistry);
-
-		zones = Zones.readZones(params.zonesXmlFile, params.zonesShpFile);
-		System.err.println("No conversion of SRS is done");
-
-		this.linkToZone = NetworkWithZonesUtils.createLinkToZoneMap(network,
-				new ZoneFinderImpl(zones, params.expansionDistance));
+		this.zones = zones;
+		this.linkToZone = linkToZone;
 
 		// FIXME zonal system used in RuleBasedTaxiOptim (for registers) should be equivalent to
 		// the zones used in ZonalTaxiOptim (for dispatching)
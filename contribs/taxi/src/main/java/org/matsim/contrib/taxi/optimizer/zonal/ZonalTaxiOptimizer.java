@@ -19,6 +19,11 @@
 
 package org.matsim.contrib.taxi.optimizer.zonal;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
 import org.matsim.contrib.dvrp.data.Fleet;
 import org.matsim.contrib.taxi.optimizer.rules.IdleTaxiZonalRegistry;
@@ -28,6 +33,7 @@ import org.matsim.contrib.taxi.run.TaxiConfigGroup;
 import org.matsim.contrib.taxi.scheduler.TaxiScheduler;
 import org.matsim.contrib.zone.SquareGridSystem;
 import org.matsim.contrib.zone.ZonalSystem;
+import org.matsim.contrib.zone.Zone;
 import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
@@ -51,6 +57,28 @@ public class ZonalTaxiOptimizer extends RuleBasedTaxiOptimizer {
 				unplannedRequestRegistry, requestInserter);
 	}
 
+	/**
+	 * Dispatching zones are the same as the zones of the registers (i.e. the square grid of {@code params.cellSize}),
+	 * so no zone files are needed.
+	 */
+	public static ZonalTaxiOptimizer createWithGridZones(TaxiConfigGroup taxiCfg, Fleet fleet, TaxiScheduler scheduler,
+			Network network, MobsimTimer timer, TravelTime travelTime, TravelDisutility travelDisutility,
+			ZonalTaxiOptimizerParams params) {
+		ZonalSystem zonalSystem = new SquareGridSystem(network, params.cellSize);
+		Map<Id<Link>, Zone> linkToZone = new HashMap<>();
+		for (Link l : network.getLinks().values()) {
+			linkToZone.put(l.getId(), zonalSystem.getZone(l.getToNode()));
+		}
+
+		IdleTaxiZonalRegistry idleTaxiRegistry = new IdleTaxiZonalRegistry(zonalSystem, scheduler);
+		UnplannedRequestZonalRegistry unplannedRequestRegistry = new UnplannedRequestZonalRegistry(zonalSystem);
+		ZonalRequestInserter requestInserter = new ZonalRequestInserter(fleet, scheduler, timer, network, travelTime,
+				travelDisutility, params, idleTaxiRegistry, unplannedRequestRegistry, zonalSystem.getZones(),
+				linkToZone);
+		return new ZonalTaxiOptimizer(taxiCfg, fleet, scheduler, network, params, idleTaxiRegistry,
+				unplannedRequestRegistry, requestInserter);
+	}
+
 	public ZonalTaxiOptimizer(TaxiConfigGroup taxiCfg, Fleet fleet, TaxiScheduler scheduler, Network network,
 			ZonalTaxiOptimizerParams params, IdleTaxiZonalRegistry idleTaxiRegistry,
 			UnplannedRequestZonalRegistry unplannedRequestRegistry, ZonalRequestInserter requestInserter) {
@@ -389,7 +389,9 @@ public class TaxiScheduler implements TaxiScheduleInquiry {
 			TaxiTask task = (TaxiTask)tasks.get(i);
 			double calcEndTime = calcNewEndTime(vehicle, task, newBeginTime);
 
-			if (calcEndTime == Time.UNDEFINED_TIME) {
+			if (task.getBeginTime() == newBeginTime && task.getEndTime() == calcEndTime) {
+				return;// the remaining tasks are not affected
+			} else if (calcEndTime == Time.UNDEFINED_TIME) {
 				schedule.removeTask(task);
 				i--;
 			} else if (calcEndTime < newBeginTime) {// 0 s is fine (e.g. last 'wait')
@@ -0,0 +1,64 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.contrib.taxi.benchmark;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.contrib.dvrp.benchmark.OptimizerScalingBenchmark;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class RunTaxiOptimizerScalingBenchmarkTest {
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testRunSmallFleets() throws IOException {
+		int[] fleetSizes = { 5, 20 };
+		RunTaxiOptimizerScalingBenchmark.run(utils.getOutputDirectory(), fleetSizes, 5, 0);
+
+		List<String[]> lines;
+		try (BufferedReader reader = IOUtils.getBufferedReader(
+				utils.getOutputDirectory() + OptimizerScalingBenchmark.SUMMARY_FILE)) {
+			lines = reader.lines().map(line -> line.split("\t")).collect(Collectors.toList());
+		}
+		assertArrayEquals(OptimizerScalingBenchmark.SUMMARY_HEADER, lines.get(0));
+
+		// one row per (optimizer, fleet size) configuration
+		String[] optimizers = { "rule_based", "assignment", "assignment_sparse", "zonal" };
+		assertEquals(1 + optimizers.length * fleetSizes.length, lines.size());
+		int row = 1;
+		for (String optimizer : optimizers) {
+			for (int fleetSize : fleetSizes) {
+				String[] line = lines.get(row++);
+				assertEquals(OptimizerScalingBenchmark.SUMMARY_HEADER.length, line.length);
+				assertEquals(optimizer, line[0]);
+				assertEquals(fleetSize + "", line[1]);
+				assertEquals(5 * fleetSize + "", line[2]);
+			}
+		}
+	}
+}
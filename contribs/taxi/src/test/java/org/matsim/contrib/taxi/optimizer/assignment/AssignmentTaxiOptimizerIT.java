@@ -55,5 +55,9 @@ public class AssignmentTaxiOptimizerIT {
 		params.put(AssignmentTaxiOptimizerParams.NEAREST_VEHICLES_LIMIT, 10 + "");
 		params.put(DefaultTaxiOptimizerParams.REOPTIMIZATION_TIME_STEP, 10 + "");
 		runBenchmark(variants, params, benchmark, utils.getOutputDirectory() + "_B");
+
+		// as _B, but solved only for the kNN pairs (compare the stats with _B)
+		params.put(AssignmentTaxiOptimizerParams.SOLVER, VehicleAssignmentProblem.Solver.SPARSE.name());
+		runBenchmark(variants, params, benchmark, utils.getOutputDirectory() + "_C");
 	}
 }
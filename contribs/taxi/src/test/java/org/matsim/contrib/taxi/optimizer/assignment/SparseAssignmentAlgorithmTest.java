@@ -0,0 +1,140 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.optimizer.assignment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SparseAssignmentAlgorithmTest {
+	@Test
+	public void testSameCostAsHungarian_dense() {
+		Random random = new Random(123);
+		for (int t = 0; t < 200; t++) {
+			int rows = 1 + random.nextInt(10);
+			int cols = rows + random.nextInt(10);
+			double[][] costMatrix = new double[rows][cols];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < cols; j++) {
+					// many ties
+					costMatrix[i][j] = random.nextBoolean() ? random.nextInt(3) : 100 * random.nextDouble();
+				}
+			}
+
+			double[] initialColPrices = null;
+			if (t % 2 == 0) {
+				initialColPrices = new double[cols];
+				for (int j = 0; j < cols; j++) {
+					initialColPrices[j] = 50 * random.nextDouble() - 25;
+				}
+			}
+
+			assertSameCostAsHungarian(costMatrix, createDenseColsByRow(rows, cols), costMatrix, initialColPrices);
+		}
+	}
+
+	@Test
+	public void testSameCostAsHungarian_sparseWithWarmStart() {
+		Random random = new Random(456);
+		double noEdgeCost = 1e6;
+		for (int t = 0; t < 200; t++) {
+			int rows = 1 + random.nextInt(15);
+			int cols = rows + random.nextInt(10);
+			double[][] costMatrix = new double[rows][cols];
+			for (int i = 0; i < rows; i++) {
+				for (int j = 0; j < cols; j++) {
+					// edge (i, i) ensures that all rows can be assigned
+					costMatrix[i][j] = i == j || random.nextInt(3) == 0 ? 100 * random.nextDouble() : noEdgeCost;
+				}
+			}
+
+			int[][] colsByRow = new int[rows][];
+			double[][] costsByRow = new double[rows][];
+			for (int i = 0; i < rows; i++) {
+				int size = 0;
+				for (int j = 0; j < cols; j++) {
+					size += costMatrix[i][j] == noEdgeCost ? 0 : 1;
+				}
+				colsByRow[i] = new int[size];
+				costsByRow[i] = new double[size];
+				for (int j = 0, k = 0; j < cols; j++) {
+					if (costMatrix[i][j] != noEdgeCost) {
+						colsByRow[i][k] = j;
+						costsByRow[i][k++] = costMatrix[i][j];
+					}
+				}
+			}
+
+			// solve a similar problem first, and start with its prices
+			double[][] similarCostsByRow = new double[rows][];
+			for (int i = 0; i < rows; i++) {
+				similarCostsByRow[i] = costsByRow[i].clone();
+				for (int k = 0; k < similarCostsByRow[i].length; k++) {
+					similarCostsByRow[i][k] += 20 * random.nextDouble();
+				}
+			}
+			SparseAssignmentAlgorithm similar = new SparseAssignmentAlgorithm(cols, colsByRow, similarCostsByRow,
+					null);
+			similar.execute();
+
+			assertSameCostAsHungarian(costMatrix, colsByRow, costsByRow, similar.getColPrices());
+		}
+	}
+
+	@Test
+	public void testUnassignableRows() {
+		// row 2 has no edges, row 1 gets the more expensive column so that row 0 can be assigned
+		int[][] colsByRow = { { 0 }, { 0, 1 }, {}, { 1, 2 } };
+		double[][] costsByRow = { { 5 }, { 1, 10 }, {}, { 1, 3 } };
+		int[] assignments = new SparseAssignmentAlgorithm(3, colsByRow, costsByRow, null).execute();
+		assertArrayEquals(new int[] { 0, 1, -1, 2 }, assignments);
+	}
+
+	private static int[][] createDenseColsByRow(int rows, int cols) {
+		int[][] colsByRow = new int[rows][cols];
+		for (int i = 0; i < rows; i++) {
+			for (int j = 0; j < cols; j++) {
+				colsByRow[i][j] = j;
+			}
+		}
+		return colsByRow;
+	}
+
+	private static void assertSameCostAsHungarian(double[][] costMatrix, int[][] colsByRow, double[][] costsByRow,
+			double[] initialColPrices) {
+		int cols = costMatrix[0].length;
+		int[] sparse = new SparseAssignmentAlgorithm(cols, colsByRow, costsByRow, initialColPrices).execute();
+		int[] hungarian = new HungarianAlgorithm(costMatrix).execute();
+
+		boolean[] assigned = new boolean[cols];
+		double sparseCost = 0;
+		double hungarianCost = 0;
+		for (int i = 0; i < costMatrix.length; i++) {
+			assertFalse(assigned[sparse[i]]);
+			assigned[sparse[i]] = true;
+			sparseCost += costMatrix[i][sparse[i]];
+			hungarianCost += costMatrix[i][hungarian[i]];
+		}
+		assertEquals(hungarianCost, sparseCost, 1e-9);
+	}
+}
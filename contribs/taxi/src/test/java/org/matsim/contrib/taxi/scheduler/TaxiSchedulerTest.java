@@ -0,0 +1,118 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.contrib.taxi.scheduler;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.contrib.dvrp.data.FleetImpl;
+import org.matsim.contrib.dvrp.data.Request;
+import org.matsim.contrib.dvrp.data.Vehicle;
+import org.matsim.contrib.dvrp.data.VehicleImpl;
+import org.matsim.contrib.dvrp.router.TimeAsTravelDisutility;
+import org.matsim.contrib.dvrp.schedule.Schedule;
+import org.matsim.contrib.dvrp.schedule.Task;
+import org.matsim.contrib.taxi.data.TaxiRequest;
+import org.matsim.contrib.taxi.run.TaxiConfigGroup;
+import org.matsim.contrib.taxi.schedule.TaxiPickupTask;
+import org.matsim.contrib.taxi.schedule.TaxiStayTask;
+import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+/**
+ * The delay of the current task is propagated only until it gets absorbed by a waiting (stay) task.
+ */
+public class TaxiSchedulerTest {
+	private final Network network = NetworkUtils.createNetwork();
+	private final Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0, 0));
+	private final Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(1000, 0));
+	private final Link link = createLink(nodeA, nodeB);
+	private final Link otherLink = createLink(nodeB, nodeA);
+
+	private final Vehicle vehicle = new VehicleImpl(Id.create("v", Vehicle.class), link, 1, 0, 1000);
+	private final MobsimTimer timer = new MobsimTimer(1);
+
+	private final TaxiRequest request = new TaxiRequest(Id.create("r", Request.class), null, link, otherLink, 0, 0);
+	private final TaxiStayTask currentStayTask = new TaxiStayTask(0, 100, link);
+	private final TaxiStayTask stayTask = new TaxiStayTask(100, 200, link);
+	private final TaxiPickupTask pickupTask = new TaxiPickupTask(200, 320, request);
+	// inconsistent with the service end time, updated only if the delay is propagated up to here
+	private final TaxiStayTask lastStayTask = new TaxiStayTask(320, 900, link);
+
+	private TaxiScheduler scheduler;
+	private Schedule schedule;
+
+	@Before
+	public void init() {
+		TaxiConfigGroup taxiCfg = new TaxiConfigGroup();
+		taxiCfg.setPickupDuration(120);
+		FleetImpl fleet = new FleetImpl();
+		fleet.addVehicle(vehicle);
+		FreeSpeedTravelTime travelTime = new FreeSpeedTravelTime();
+		scheduler = new TaxiScheduler(taxiCfg, fleet, network, timer, travelTime,
+				new TimeAsTravelDisutility(travelTime));
+
+		schedule = vehicle.getSchedule();// reset by the scheduler
+		schedule.removeLastTask();// the initial stay task
+		schedule.addTask(currentStayTask);
+		schedule.addTask(stayTask);
+		schedule.addTask(pickupTask);
+		schedule.addTask(lastStayTask);
+		schedule.nextTask();
+	}
+
+	@Test
+	public void testDelayAbsorbedByStayTask() {
+		timer.setTime(150);
+		scheduler.updateTimeline(vehicle);
+
+		assertTimes(currentStayTask, 0, 150);
+		assertTimes(stayTask, 150, 200);
+		assertTimes(pickupTask, 200, 320);
+		assertTimes(lastStayTask, 320, 900);// not visited
+	}
+
+	@Test
+	public void testDelayPropagatedToLastTask() {
+		timer.setTime(230);
+		scheduler.updateTimeline(vehicle);
+
+		assertEquals(3, schedule.getTaskCount());// the stay task has been removed
+		assertTimes(currentStayTask, 0, 230);
+		assertTimes(pickupTask, 230, 350);
+		assertTimes(lastStayTask, 350, 1000);
+	}
+
+	private static void assertTimes(Task task, double beginTime, double endTime) {
+		assertEquals(beginTime, task.getBeginTime(), 0);
+		assertEquals(endTime, task.getEndTime(), 0);
+	}
+
+	private Link createLink(Node from, Node to) {
+		return NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "" + to.getId()), from, to, 1000,
+				10, 1000, 1);
+	}
+}
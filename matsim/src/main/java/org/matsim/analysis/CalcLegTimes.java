@@ -75,6 +75,20 @@ public class CalcLegTimes implements PersonDepartureEventHandler, PersonArrivalE
 
 	}
 
+	/**
+	 * Creates a copy of the leg statistics, e.g. to write them while the original is already reset for the next
+	 * iteration.  Legs that are not finished are not copied.
+	 */
+	CalcLegTimes copy() {
+		CalcLegTimes copy = new CalcLegTimes();
+		for (Map.Entry<String, int[]> e : this.legStats.entrySet()) {
+			copy.legStats.put(e.getKey(), e.getValue().clone());
+		}
+		copy.sumTripDurations = this.sumTripDurations;
+		copy.sumTrips = this.sumTrips;
+		return copy;
+	}
+
 	@Override
 	public void handleEvent(ActivityEndEvent event) {
 		this.previousActivityTypes.put(event.getPersonId(), event.getActType());
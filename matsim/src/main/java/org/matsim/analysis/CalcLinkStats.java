@@ -86,6 +86,35 @@ public class CalcLinkStats {
 		this.volScaleFactor = vol_scale_factor;
 	}
 
+	/**
+	 * Deep copy, see {@link #copy()}.
+	 */
+	private CalcLinkStats(final CalcLinkStats other) {
+		this.network = other.network;
+		this.linkData = new TreeMap<>();
+		this.nofHours = other.nofHours;
+		this.volScaleFactor = other.volScaleFactor;
+		this.count = other.count;
+		for (Map.Entry<Id<Link>, LinkData> e : other.linkData.entrySet()) {
+			this.linkData.put(e.getKey(), new LinkData(deepCopy(e.getValue().volumes), deepCopy(e.getValue().ttimes)));
+		}
+	}
+
+	private static double[][] deepCopy(final double[][] data) {
+		double[][] copy = new double[data.length][];
+		for (int i = 0; i < data.length; i++) {
+			copy[i] = data[i].clone();
+		}
+		return copy;
+	}
+
+	/**
+	 * @return a copy of the collected data, e.g. to write it to a file while this instance is already reset.
+	 */
+	/*package*/ CalcLinkStats copy() {
+		return new CalcLinkStats(this);
+	}
+
 	public void addData(final VolumesAnalyzer analyzer, final TravelTime ttimes) {
 		this.count++;
 		// TODO verify ttimes has hourly timeBin-Settings
@@ -0,0 +1,60 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationEndsAnalysis.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.matsim.api.core.v01.population.Plan;
+
+/**
+ * An analysis that is run at the end of each iteration by the {@link IterationEndsAnalysisRunner}, when
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#isParallelIterationEndsAnalysis()} is switched on.
+ * <p></p>
+ * The runner makes a single pass over the population and then runs all analyses concurrently on a thread pool, while
+ * the controler continues with the next iteration.  The life cycle per iteration is:
+ * <ol>
+ * <li> {@link #prepareIteration(int)} on the controler thread;
+ * <li> {@link #handleSelectedPlan(Plan)} for all selected plans, on a pool thread;
+ * <li> {@link #finishIteration(int)} on the same pool thread.
+ * </ol>
+ * The methods of one analysis are never called concurrently.  Bind implementations with
+ * <code>Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding()</code>.
+ *
+ * @see IterationEndsAnalysisModule
+ */
+public interface IterationEndsAnalysis {
+
+	/**
+	 * Called on the controler thread, before any analysis is started.  Everything that the next iteration may change
+	 * while the analysis is still running must be copied here.  This is in particular the state of event handlers, since
+	 * they are reset before the next mobsim.
+	 */
+	default void prepareIteration(int iteration) {}
+
+	/**
+	 * Called once per person with the plan that was selected at the end of the iteration.  The plans must only be read.
+	 */
+	default void handleSelectedPlan(Plan plan) {}
+
+	/**
+	 * Computes the results and writes the output of the iteration.
+	 */
+	void finishIteration(int iteration);
+
+}
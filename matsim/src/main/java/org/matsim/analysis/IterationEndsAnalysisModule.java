@@ -0,0 +1,45 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationEndsAnalysisModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.matsim.core.controler.AbstractModule;
+
+import com.google.inject.multibindings.Multibinder;
+
+/**
+ * Installs the {@link IterationEndsAnalysisRunner} if
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#isParallelIterationEndsAnalysis()} is set.
+ * <p></p>
+ * Needs to be installed after the modules of the analyses: controler listeners are notified in the reverse order of
+ * their registration, so the runner is then notified before the analyses at shutdown and can wait for the last
+ * iteration before they close their files.
+ */
+public final class IterationEndsAnalysisModule extends AbstractModule {
+	@Override
+	public void install() {
+		// always declare the set, so that it can be injected even if no analysis is bound:
+		Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class);
+		if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+			bind(IterationEndsAnalysisRunner.class);
+			addControlerListenerBinding().to(IterationEndsAnalysisRunner.class);
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationEndsAnalysisRunner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+/**
+ * Runs all bound {@link IterationEndsAnalysis} instances concurrently at the end of an iteration.
+ * <p></p>
+ * The selected plans are collected in one pass over the population, then every analysis gets its own task on a pool
+ * of <code>global.numberOfThreads</code> threads.  The controler does not wait for the tasks at the end of the
+ * iteration, so the next iteration (including replanning) can already start.  The tasks are awaited before the next
+ * mobsim starts, at the end of the last iteration and at shutdown; an exception in one of the tasks is re-thrown there,
+ * so the run still aborts.
+ * <p></p>
+ * The {@link VolumesAnalyzer} is not an analysis of its own; its volumes are aggregated into the link stats in
+ * {@link IterationEndsAnalysis#prepareIteration(int)}, on the controler thread.
+ * <p></p>
+ * Replanning only changes which plan is selected and modifies copies of plans, so the collected plans stay unchanged
+ * while the analyses read them.
+ */
+@Singleton
+final class IterationEndsAnalysisRunner implements IterationEndsListener, BeforeMobsimListener, ShutdownListener {
+
+	private final static Logger log = Logger.getLogger(IterationEndsAnalysisRunner.class);
+
+	private final Population population;
+	private final Set<IterationEndsAnalysis> analyses;
+	private final int lastIteration;
+	private final ExecutorService pool;
+	private final List<Future<?>> pending = new ArrayList<>();
+
+	@Inject
+	IterationEndsAnalysisRunner(Population population, Set<IterationEndsAnalysis> analyses, GlobalConfigGroup globalConfig,
+			ControlerConfigGroup controlerConfig) {
+		this.population = population;
+		this.analyses = analyses;
+		this.lastIteration = controlerConfig.getLastIteration();
+		int numOfThreads = Math.max(1, Math.min(globalConfig.getNumberOfThreads(), analyses.size()));
+		this.pool = Executors.newFixedThreadPool(numOfThreads, new NamedThreadFactory());
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		// normally already done before the mobsim; only relevant if the controler is run without mobsim
+		awaitPendingAnalyses();
+
+		final int iteration = event.getIteration();
+		for (IterationEndsAnalysis analysis : this.analyses) {
+			analysis.prepareIteration(iteration);
+		}
+
+		final Plan[] selectedPlans = new Plan[this.population.getPersons().size()];
+		int i = 0;
+		for (Person person : this.population.getPersons().values()) {
+			selectedPlans[i++] = person.getSelectedPlan();
+		}
+
+		for (final IterationEndsAnalysis analysis : this.analyses) {
+			this.pending.add(this.pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					long start = System.currentTimeMillis();
+					for (Plan plan : selectedPlans) {
+						analysis.handleSelectedPlan(plan);
+					}
+					analysis.finishIteration(iteration);
+					log.info("[it." + iteration + "] " + analysis.getClass().getSimpleName() + " took " + (System.currentTimeMillis() - start) + " ms.");
+				}
+			}));
+		}
+		log.info("[it." + iteration + "] started " + this.analyses.size() + " iteration ends analyses in the background.");
+
+		if (iteration == this.lastIteration) {
+			// the analyses close their files at shutdown, so the last iteration must be completely written before
+			awaitPendingAnalyses();
+		}
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		awaitPendingAnalyses();
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try {
+			if (event.isUnexpected()) {
+				this.pool.shutdownNow();
+			} else {
+				awaitPendingAnalyses();
+			}
+		} finally {
+			this.pool.shutdown();
+		}
+	}
+
+	private void awaitPendingAnalyses() {
+		if (this.pending.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		try {
+			for (Future<?> future : this.pending) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception in iteration ends analysis.", e.getCause());
+		} finally {
+			this.pending.clear();
+		}
+		log.info("waited " + (System.currentTimeMillis() - start) + " ms for iteration ends analyses to finish.");
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "IterationEndsAnalysis_PooledThread_" + count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -0,0 +1,221 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfiler.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.inject.Inject;
+
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.ProfilingType;
+
+/**
+ * Collects run time measurements from the hot paths of an iteration, complementing the coarse operations of the
+ * {@link IterationStopWatch}.
+ * <p></p>
+ * Instrumented code asks for its {@link Timer}s once (e.g. when the mobsim is prepared) and only if
+ * {@link #isEnabled()} returns <code>true</code>; otherwise it keeps <code>null</code> and does not even call
+ * {@link System#nanoTime()}.  So a disabled profiler costs one null check per measured section.
+ * <p></p>
+ * The following names are used by the instrumented code in the core:
+ * <ul>
+ * <li> <code>mobsim.*</code>: one sim step, the engines, the node and link moves of the QNetsimEngine, the mobsim listeners,
+ * and processing the events at the end of a sim step
+ * <li> <code>events.*</code>: the time spent in each event handler
+ * <li> <code>replanning.*</code>: the persons handled by each strategy
+ * <li> <code>router.*</code>: the routing requests per main mode
+ * </ul>
+ * The timers are thread-safe.  {@link #finishIteration(int)} takes a snapshot of the timers, resets them, and adds
+ * garbage collection and heap statistics.  Both {@link #beginIteration()} and {@link #finishIteration(int)} are called by
+ * the controler if profiling is switched on in the config.
+ *
+ * @see IterationProfilerModule
+ */
+public final class IterationProfiler {
+
+	/**
+	 * Counts measurements and sums up their durations.  Can be called concurrently.
+	 */
+	public static final class Timer {
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+
+		private Timer() {
+		}
+
+		public void add(long nanos) {
+			this.count.increment();
+			this.nanos.add(nanos);
+		}
+
+		public void add(long count, long nanos) {
+			this.count.add(count);
+			this.nanos.add(nanos);
+		}
+	}
+
+	/**
+	 * The measurements of one iteration.
+	 */
+	public static final class IterationProfile {
+		private final int iteration;
+		private final SortedMap<String, Long> counts;
+		private final SortedMap<String, Long> nanos;
+		private final SortedMap<String, Long> gauges;
+
+		IterationProfile(int iteration, SortedMap<String, Long> counts, SortedMap<String, Long> nanos, SortedMap<String, Long> gauges) {
+			this.iteration = iteration;
+			this.counts = Collections.unmodifiableSortedMap(counts);
+			this.nanos = Collections.unmodifiableSortedMap(nanos);
+			this.gauges = Collections.unmodifiableSortedMap(gauges);
+		}
+
+		public int getIteration() {
+			return this.iteration;
+		}
+
+		/**
+		 * @return the number of measurements per timer
+		 */
+		public SortedMap<String, Long> getCounts() {
+			return this.counts;
+		}
+
+		/**
+		 * @return the sum of the measured durations per timer, in nanoseconds
+		 */
+		public SortedMap<String, Long> getNanos() {
+			return this.nanos;
+		}
+
+		/**
+		 * @return values that are not timed, e.g. the heap usage at the end of the iteration in MB or the number of garbage
+		 * collections during the iteration
+		 */
+		public SortedMap<String, Long> getGauges() {
+			return this.gauges;
+		}
+	}
+
+	private final boolean enabled;
+
+	private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final Map<String, long[]> lastGcValues = new HashMap<>();
+
+	@Inject
+	IterationProfiler(ControlerConfigGroup config) {
+		this(config.getProfiling() != ProfilingType.none);
+	}
+
+	public IterationProfiler(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * @return the timer with the given name, which is created if it does not exist yet.  Should only be called if the
+	 * profiler {@link #isEnabled()}, but works anyway.
+	 */
+	public Timer getTimer(String name) {
+		Timer timer = this.timers.get(name);
+		if (timer == null) {
+			timer = new Timer();
+			Timer existing = this.timers.putIfAbsent(name, timer);
+			if (existing != null) {
+				timer = existing;
+			}
+		}
+		return timer;
+	}
+
+	/**
+	 * Discards everything measured so far, e.g. during the preparation of the first iteration.
+	 */
+	public synchronized void beginIteration() {
+		for (Timer timer : this.timers.values()) {
+			timer.count.reset();
+			timer.nanos.reset();
+		}
+		collectGcValues(new TreeMap<String, Long>());
+	}
+
+	/**
+	 * @return the measurements since {@link #beginIteration()}, which are then reset.  Timers that were not used are
+	 * left out.
+	 */
+	public synchronized IterationProfile finishIteration(int iteration) {
+		SortedMap<String, Long> counts = new TreeMap<>();
+		SortedMap<String, Long> nanos = new TreeMap<>();
+		for (Map.Entry<String, Timer> entry : this.timers.entrySet()) {
+			Timer timer = entry.getValue();
+			// (not atomic with respect to concurrent measurements, but those are not expected between iterations)
+			long count = timer.count.sumThenReset();
+			long sum = timer.nanos.sumThenReset();
+			if (count > 0) {
+				counts.put(entry.getKey(), count);
+				nanos.put(entry.getKey(), sum);
+			}
+		}
+
+		SortedMap<String, Long> gauges = new TreeMap<>();
+		collectGcValues(gauges);
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		gauges.put("heap.used_MB", heap.getUsed() / (1024 * 1024));
+		gauges.put("heap.committed_MB", heap.getCommitted() / (1024 * 1024));
+		if (heap.getMax() >= 0) {
+			gauges.put("heap.max_MB", heap.getMax() / (1024 * 1024));
+		}
+		return new IterationProfile(iteration, counts, nanos, gauges);
+	}
+
+	/**
+	 * Adds the number of collections and the collection time of every garbage collector since the previous call.
+	 */
+	private void collectGcValues(SortedMap<String, Long> gauges) {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			String name = gc.getName().replace(' ', '_');
+			long count = Math.max(0, gc.getCollectionCount());
+			long time = Math.max(0, gc.getCollectionTime());
+			long[] last = this.lastGcValues.get(name);
+			if (last == null) {
+				last = new long[] {0, 0};
+			}
+			gauges.put("gc." + name + ".count", count - last[0]);
+			gauges.put("gc." + name + ".time_ms", time - last[1]);
+			this.lastGcValues.put(name, new long[] {count, time});
+		}
+	}
+
+}
@@ -0,0 +1,201 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfilerListener.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler.IterationProfile;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.config.groups.ControlerConfigGroup.ProfilingType;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes the measurements of the {@link IterationProfiler}: one line per measurement and iteration to
+ * <code>profiling.txt</code> in the output directory, and all measurements of an iteration to
+ * <code>profiling.json</code> in the iteration directory.  Optionally, the last iteration is published as an
+ * {@link IterationProfilerMXBean}.
+ */
+@Singleton
+final class IterationProfilerListener implements IterationStartsListener, IterationEndsListener, ShutdownListener {
+
+	public static final String FILENAME_PROFILING = "profiling";
+
+	private final static Logger log = Logger.getLogger(IterationProfilerListener.class);
+
+	private final IterationProfiler profiler;
+	private final OutputDirectoryHierarchy controlerIO;
+	private final BufferedWriter out;
+	private final ProfileMXBean mxBean;
+
+	@Inject
+	IterationProfilerListener(IterationProfiler profiler, OutputDirectoryHierarchy controlerIO, ControlerConfigGroup config) {
+		this.profiler = profiler;
+		this.controlerIO = controlerIO;
+		this.out = IOUtils.getBufferedWriter(controlerIO.getOutputFilename(FILENAME_PROFILING + ".txt"));
+		try {
+			this.out.write("ITERATION\tNAME\tCOUNT\tTOTAL_MS\tVALUE\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		this.mxBean = config.getProfiling() == ProfilingType.filesAndJmx ? registerMXBean() : null;
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		this.profiler.beginIteration();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		IterationProfile profile = this.profiler.finishIteration(event.getIteration());
+		try {
+			for (Map.Entry<String, Long> entry : profile.getCounts().entrySet()) {
+				this.out.write(profile.getIteration() + "\t" + entry.getKey() + "\t" + entry.getValue() + "\t"
+						+ toMillis(profile.getNanos().get(entry.getKey())) + "\t\n");
+			}
+			for (Map.Entry<String, Long> entry : profile.getGauges().entrySet()) {
+				this.out.write(profile.getIteration() + "\t" + entry.getKey() + "\t\t\t" + entry.getValue() + "\n");
+			}
+			this.out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		writeJson(profile, this.controlerIO.getIterationFilename(event.getIteration(), FILENAME_PROFILING + ".json"));
+		if (this.mxBean != null) {
+			this.mxBean.profile = profile;
+		}
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		try {
+			this.out.close();
+		} catch (IOException e) {
+			log.error("could not close " + FILENAME_PROFILING + ".txt", e);
+		}
+		if (this.mxBean != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(IterationProfilerMXBean.OBJECT_NAME));
+			} catch (JMException e) {
+				log.warn("could not unregister " + IterationProfilerMXBean.OBJECT_NAME, e);
+			}
+		}
+	}
+
+	/*package*/ static void writeJson(IterationProfile profile, String filename) {
+		try (BufferedWriter writer = IOUtils.getBufferedWriter(filename)) {
+			writer.write("{\n");
+			writer.write("\t\"iteration\": " + profile.getIteration() + ",\n");
+			writer.write("\t\"timers\": {");
+			String separator = "\n";
+			for (Map.Entry<String, Long> entry : profile.getCounts().entrySet()) {
+				writer.write(separator + "\t\t\"" + entry.getKey() + "\": {\"count\": " + entry.getValue() + ", \"total_ms\": "
+						+ toMillis(profile.getNanos().get(entry.getKey())) + "}");
+				separator = ",\n";
+			}
+			writer.write("\n\t},\n");
+			writer.write("\t\"gauges\": {");
+			separator = "\n";
+			for (Map.Entry<String, Long> entry : profile.getGauges().entrySet()) {
+				writer.write(separator + "\t\t\"" + entry.getKey() + "\": " + entry.getValue());
+				separator = ",\n";
+			}
+			writer.write("\n\t}\n");
+			writer.write("}\n");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static double toMillis(long nanos) {
+		return Math.round(nanos / 1000.0) / 1000.0;
+	}
+
+	private static ProfileMXBean registerMXBean() {
+		ProfileMXBean bean = new ProfileMXBean();
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(IterationProfilerMXBean.OBJECT_NAME);
+			if (server.isRegistered(name)) {
+				// e.g. from an earlier run in the same JVM
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(bean, name);
+		} catch (JMException e) {
+			log.warn("could not register " + IterationProfilerMXBean.OBJECT_NAME + "; profiling results are only written to files.", e);
+			return null;
+		}
+		return bean;
+	}
+
+	private static final class ProfileMXBean implements IterationProfilerMXBean {
+		volatile IterationProfile profile = null;
+
+		@Override
+		public int getIteration() {
+			IterationProfile p = this.profile;
+			return p == null ? -1 : p.getIteration();
+		}
+
+		@Override
+		public Map<String, Long> getCounts() {
+			IterationProfile p = this.profile;
+			return p == null ? new TreeMap<String, Long>() : p.getCounts();
+		}
+
+		@Override
+		public Map<String, Double> getMilliseconds() {
+			IterationProfile p = this.profile;
+			Map<String, Double> millis = new TreeMap<>();
+			if (p != null) {
+				for (Map.Entry<String, Long> entry : p.getNanos().entrySet()) {
+					millis.put(entry.getKey(), toMillis(entry.getValue()));
+				}
+			}
+			return millis;
+		}
+
+		@Override
+		public Map<String, Long> getGauges() {
+			IterationProfile p = this.profile;
+			return p == null ? new TreeMap<String, Long>() : p.getGauges();
+		}
+	}
+}
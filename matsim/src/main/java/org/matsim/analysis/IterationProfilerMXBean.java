@@ -0,0 +1,44 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfilerMXBean.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.util.Map;
+
+/**
+ * The measurements of the {@link IterationProfiler} for the last finished iteration, as published under
+ * {@link #OBJECT_NAME} if <code>controler.profiling</code> is set to <code>filesAndJmx</code>.
+ */
+public interface IterationProfilerMXBean {
+
+	String OBJECT_NAME = "org.matsim:type=IterationProfiler";
+
+	/**
+	 * @return the last finished iteration, or -1 if no iteration is finished yet
+	 */
+	int getIteration();
+
+	Map<String, Long> getCounts();
+
+	Map<String, Double> getMilliseconds();
+
+	Map<String, Long> getGauges();
+
+}
@@ -0,0 +1,39 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfilerModule.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.matsim.core.config.groups.ControlerConfigGroup.ProfilingType;
+import org.matsim.core.controler.AbstractModule;
+
+/**
+ * Binds the {@link IterationProfiler}, which is always available but only measures something if
+ * <code>controler.profiling</code> is not <code>none</code>.  In that case, the measurements are written by the
+ * {@link IterationProfilerListener}.
+ */
+public final class IterationProfilerModule extends AbstractModule {
+	@Override
+	public void install() {
+		bind(IterationProfiler.class).asEagerSingleton();
+		if (getConfig().controler().getProfiling() != ProfilingType.none) {
+			addControlerListenerBinding().to(IterationProfilerListener.class);
+		}
+	}
+}
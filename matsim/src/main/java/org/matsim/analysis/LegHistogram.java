@@ -81,6 +81,22 @@ public class LegHistogram implements PersonDepartureEventHandler, PersonArrivalE
 		reset(0);
 	}
 
+	/**
+	 * Creates a copy of the gathered data, e.g. to write it while the original is already reset for the next iteration.
+	 * The copy does not filter by persons anymore.
+	 */
+	LegHistogram copy() {
+		LegHistogram copy = new LegHistogram(this.binSize, this.nofBins);
+		copy.iteration = this.iteration;
+		for (Map.Entry<String, DataFrame> e : this.data.entrySet()) {
+			DataFrame dataFrame = copy.getDataForMode(e.getKey());
+			System.arraycopy(e.getValue().countsDep, 0, dataFrame.countsDep, 0, dataFrame.countsDep.length);
+			System.arraycopy(e.getValue().countsArr, 0, dataFrame.countsArr, 0, dataFrame.countsArr.length);
+			System.arraycopy(e.getValue().countsStuck, 0, dataFrame.countsStuck, 0, dataFrame.countsStuck.length);
+		}
+		return copy;
+	}
+
 	/** Creates a new LegHistogram with the specified binSize and a default number of bins, such
 	 * that 30 hours are analyzed.
 	 *
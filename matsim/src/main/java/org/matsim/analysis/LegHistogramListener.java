@@ -38,12 +38,14 @@ import javax.inject.Inject;
  *
  * @author mrieser
  */
-final class LegHistogramListener implements IterationEndsListener, IterationStartsListener {
+final class LegHistogramListener implements IterationEndsListener, IterationStartsListener, IterationEndsAnalysis {
 
 	@Inject private LegHistogram histogram;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
 	@Inject private OutputDirectoryHierarchy controlerIO;
 
+	private LegHistogram snapshot = null;
+
 	static private final Logger log = Logger.getLogger(LegHistogramListener.class);
 
 	@Override
@@ -53,26 +55,46 @@ final class LegHistogramListener implements IterationEndsListener, IterationStar
 
 	@Override
 	public void notifyIterationEnds(final IterationEndsEvent event) {
-		this.histogram.write(controlerIO.getIterationFilename(event.getIteration(), "legHistogram.txt"));
-		this.printStats();
+		if (controlerConfigGroup.isParallelIterationEndsAnalysis()) {
+			// done by the IterationEndsAnalysisRunner
+			return;
+		}
+		writeOutput(this.histogram, event.getIteration());
+	}
+
+	@Override
+	public void prepareIteration(final int iteration) {
+		// the histogram is reset with the other event handlers before the next mobsim, thus work on a copy
+		this.snapshot = this.histogram.copy();
+	}
+
+	@Override
+	public void finishIteration(final int iteration) {
+		writeOutput(this.snapshot, iteration);
+		this.snapshot = null;
+	}
+
+	private void writeOutput(final LegHistogram histogram, final int iteration) {
+		histogram.write(controlerIO.getIterationFilename(iteration, "legHistogram.txt"));
+		this.printStats(histogram);
 		if (controlerConfigGroup.isCreateGraphs()) {
-			LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_all.png"));
-			for (String legMode : this.histogram.getLegModes()) {
-				LegHistogramChart.writeGraphic(this.histogram, controlerIO.getIterationFilename(event.getIteration(), "legHistogram_" + legMode + ".png"), legMode);
+			LegHistogramChart.writeGraphic(histogram, controlerIO.getIterationFilename(iteration, "legHistogram_all.png"));
+			for (String legMode : histogram.getLegModes()) {
+				LegHistogramChart.writeGraphic(histogram, controlerIO.getIterationFilename(iteration, "legHistogram_" + legMode + ".png"), legMode);
 			}
 		}
 
 	}
 
-	private void printStats() {
+	private void printStats(final LegHistogram histogram) {
 		int nofLegs = 0;
-		for (int nofDepartures : this.histogram.getDepartures()) {
+		for (int nofDepartures : histogram.getDepartures()) {
 			nofLegs += nofDepartures;
 		}
 		log.info("number of legs:\t"  + nofLegs + "\t100%");
-		for (String legMode : this.histogram.getLegModes()) {
+		for (String legMode : histogram.getLegModes()) {
 			int nofModeLegs = 0;
-			for (int nofDepartures : this.histogram.getDepartures(legMode)) {
+			for (int nofDepartures : histogram.getDepartures(legMode)) {
 				nofModeLegs += nofDepartures;
 			}
 			if (nofModeLegs != 0) {
@@ -24,10 +24,17 @@ package org.matsim.analysis;
 
 import org.matsim.core.controler.AbstractModule;
 
+import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
+
 public final class LegHistogramModule extends AbstractModule {
 	@Override
 	public void install() {
 		bind(LegHistogram.class);
+		bind(LegHistogramListener.class).in(Singleton.class);
 		addControlerListenerBinding().to(LegHistogramListener.class);
+		if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+			Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().to(LegHistogramListener.class);
+		}
 	}
 }
@@ -21,6 +21,7 @@
 package org.matsim.analysis;
 
 import org.apache.log4j.Logger;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.AfterMobsimEvent;
 import org.matsim.core.controler.listener.AfterMobsimListener;
@@ -28,30 +29,54 @@ import org.matsim.core.utils.misc.Time;
 
 import javax.inject.Inject;
 
-class LegTimesControlerListener implements AfterMobsimListener {
+class LegTimesControlerListener implements AfterMobsimListener, IterationEndsAnalysis {
 
 	private static Logger log = Logger.getLogger(LegTimesControlerListener.class);
 	
 	private CalcLegTimes legTimes;
 	
 	private OutputDirectoryHierarchy controlerIO;
+
+	private ControlerConfigGroup controlerConfigGroup;
+
+	private CalcLegTimes snapshot = null;
 	
 	@Inject
-    LegTimesControlerListener(CalcLegTimes legTimes, OutputDirectoryHierarchy controlerIO) {
+    LegTimesControlerListener(CalcLegTimes legTimes, OutputDirectoryHierarchy controlerIO, ControlerConfigGroup controlerConfigGroup) {
 		this.legTimes = legTimes;
 		this.controlerIO = controlerIO;
+		this.controlerConfigGroup = controlerConfigGroup;
 	}
 
 	@Override
 	public void notifyAfterMobsim(AfterMobsimEvent event) {
+		if (controlerConfigGroup.isParallelIterationEndsAnalysis()) {
+			// done by the IterationEndsAnalysisRunner
+			return;
+		}
+		writeOutput(this.legTimes, event.getIteration());
+	}
+
+	@Override
+	public void prepareIteration(int iteration) {
+		// the leg times are reset with the other event handlers before the next mobsim, thus work on a copy
+		this.snapshot = this.legTimes.copy();
+	}
+
+	@Override
+	public void finishIteration(int iteration) {
+		writeOutput(this.snapshot, iteration);
+		this.snapshot = null;
+	}
 
-			legTimes.writeStats(controlerIO.getIterationFilename(event.getIteration(), "tripdurations.txt"));
-			// - print averages in log
-			log.info("[" + event.getIteration() + "] average trip (probably: leg) duration is: " + (int) legTimes.getAverageTripDuration()
-					+ " seconds = " + Time.writeTime(legTimes.getAverageTripDuration(), Time.TIMEFORMAT_HHMMSS));
-			// trips are from "true" activity to "true" activity.  legs may also go
-			// from/to ptInteraction activity.  This, in my opinion "legs" is the correct (matsim) term
-			// kai, jul'11
+	private void writeOutput(CalcLegTimes legTimes, int iteration) {
+		legTimes.writeStats(controlerIO.getIterationFilename(iteration, "tripdurations.txt"));
+		// - print averages in log
+		log.info("[" + iteration + "] average trip (probably: leg) duration is: " + (int) legTimes.getAverageTripDuration()
+				+ " seconds = " + Time.writeTime(legTimes.getAverageTripDuration(), Time.TIMEFORMAT_HHMMSS));
+		// trips are from "true" activity to "true" activity.  legs may also go
+		// from/to ptInteraction activity.  This, in my opinion "legs" is the correct (matsim) term
+		// kai, jul'11
 
 	}
 
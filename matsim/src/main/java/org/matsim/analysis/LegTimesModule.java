@@ -23,12 +23,17 @@
 package org.matsim.analysis;
 
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
 import org.matsim.core.controler.AbstractModule;
 
 public class LegTimesModule extends AbstractModule {
     @Override
     public void install() {
         bind(CalcLegTimes.class).in(Singleton.class);
+        bind(LegTimesControlerListener.class).in(Singleton.class);
         addControlerListenerBinding().to(LegTimesControlerListener.class);
+        if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+            Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().to(LegTimesControlerListener.class);
+        }
     }
 }
@@ -37,7 +37,7 @@ import java.util.Map;
 /**
  * @author mrieser
  */
-final class LinkStatsControlerListener implements IterationEndsListener, IterationStartsListener {
+final class LinkStatsControlerListener implements IterationEndsListener, IterationStartsListener, IterationEndsAnalysis {
 
 	@Inject private LinkStatsConfigGroup linkStatsConfigGroup;
 	@Inject private ControlerConfigGroup controlerConfigGroup;
@@ -47,9 +47,14 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 	@Inject private Map<String, TravelTime> travelTime;
     private int iterationsUsed = 0;
 	private boolean doReset = false;
+	private CalcLinkStats linkStatsToWrite = null;
 
     @Override
 	public void notifyIterationEnds(IterationEndsEvent event) {
+		if (controlerConfigGroup.isParallelIterationEndsAnalysis()) {
+			// done by the IterationEndsAnalysisRunner
+			return;
+		}
 		int iteration = event.getIteration();
 		
 		if (useVolumesOfIteration(iteration, controlerConfigGroup.getFirstIteration())) {
@@ -63,6 +68,28 @@ final class LinkStatsControlerListener implements IterationEndsListener, Iterati
 		}
 	}
 
+	@Override
+	public void prepareIteration(int iteration) {
+		// volumes and travel times are reset before the next mobsim, so they are aggregated right away.  Only the writing
+		// is done in the background, on a copy since linkStats is reset when the next iteration starts.
+		if (useVolumesOfIteration(iteration, controlerConfigGroup.getFirstIteration())) {
+			this.iterationsUsed++;
+			linkStats.addData(volumes, travelTime.get(TransportMode.car));
+		}
+		if (createLinkStatsInIteration(iteration)) {
+			this.linkStatsToWrite = linkStats.copy();
+			this.doReset = true;
+		}
+	}
+
+	@Override
+	public void finishIteration(int iteration) {
+		if (this.linkStatsToWrite != null) {
+			this.linkStatsToWrite.writeFile(this.controlerIO.getIterationFilename(iteration, Controler.FILENAME_LINKSTATS));
+			this.linkStatsToWrite = null;
+		}
+	}
+
 	@Override
 	public void notifyIterationStarts(IterationStartsEvent event) {
 		if (this.doReset) {
@@ -23,6 +23,7 @@
 package org.matsim.analysis;
 
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.AbstractModule;
@@ -45,6 +46,9 @@ public final class LinkStatsModule extends AbstractModule {
 		    xx.15, and not between xx.00 and xx.59*/
             bind(LinkStatsControlerListener.class).asEagerSingleton();
             addControlerListenerBinding().to(LinkStatsControlerListener.class);
+            if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+                Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().to(LinkStatsControlerListener.class);
+            }
         }
     }
 
@@ -64,7 +64,7 @@ import org.matsim.core.utils.io.UncheckedIOException;
  * @author mrieser
  */
 public class ModeStatsControlerListener implements StartupListener, IterationEndsListener, 
-ShutdownListener {
+ShutdownListener, IterationEndsAnalysis {
 
 	public static final String FILENAME_MODESTATS = "modestats";
 
@@ -119,33 +119,41 @@ ShutdownListener {
 
 	@Override
 	public void notifyIterationEnds(final IterationEndsEvent event) {
-		collectModeShareInfo(event) ;
+		if ( this.controlerConfigGroup.isParallelIterationEndsAnalysis() ) {
+			// done by the IterationEndsAnalysisRunner
+			return ;
+		}
+		for (Person person : this.population.getPersons().values()) {
+			handleSelectedPlan( person.getSelectedPlan() ) ;
+		}
+		finishIteration( event.getIteration() ) ;
 	}
 
-	private void collectModeShareInfo(final IterationEndsEvent event) {
-		for (Person person : this.population.getPersons().values()) {
-			Plan plan = person.getSelectedPlan() ;
-			List<Trip> trips = TripStructureUtils.getTrips(plan, stageActivities) ;
-			for ( Trip trip : trips ) {
-				String mode = this.mainModeIdentifier.identifyMainMode( trip.getTripElements() ) ;
-				// yy as stated elsewhere, the "computer science" mode identification may not be the same as the "transport planning" 
-				// mode identification.  Maybe revise.  kai, nov'16
-				
-				Double cnt = this.modeCnt.get( mode );
-				if ( cnt==null ) {
-					cnt = 0. ;
-				}
-				this.modeCnt.put( mode, cnt + 1 ) ;
+	@Override
+	public void handleSelectedPlan(final Plan plan) {
+		List<Trip> trips = TripStructureUtils.getTrips(plan, stageActivities) ;
+		for ( Trip trip : trips ) {
+			String mode = this.mainModeIdentifier.identifyMainMode( trip.getTripElements() ) ;
+			// yy as stated elsewhere, the "computer science" mode identification may not be the same as the "transport planning" 
+			// mode identification.  Maybe revise.  kai, nov'16
+			
+			Double cnt = this.modeCnt.get( mode );
+			if ( cnt==null ) {
+				cnt = 0. ;
 			}
+			this.modeCnt.put( mode, cnt + 1 ) ;
 		}
+	}
 
+	@Override
+	public void finishIteration(final int iteration) {
 		double sum = 0 ;
 		for ( Double val : this.modeCnt.values() ) {
 			sum += val ;
 		}
 		
 		try {
-			this.modeOut.write( String.valueOf(event.getIteration()) ) ;
+			this.modeOut.write( String.valueOf(iteration) ) ;
 			for ( String mode : modes ) {
 				Double cnt = this.modeCnt.get(mode) ;
 				double share = 0. ;
@@ -160,7 +168,7 @@ ShutdownListener {
 					modeHistory = new TreeMap<>() ;
 					this.modeHistories.put(mode, modeHistory) ;
 				}
-				modeHistory.put( event.getIteration(), share ) ;
+				modeHistory.put( iteration, share ) ;
 				
 			}
 			this.modeOut.write("\n");
@@ -172,7 +180,7 @@ ShutdownListener {
 
 		// yyyy the following does not work!!
 		// Why? The charts seem to be useful (JB, April 2017)
-		if (this.createPNG && event.getIteration() > this.minIteration) {
+		if (this.createPNG && iteration > this.minIteration) {
 			// create chart when data of more than one iteration is available.
 			XYLineChart chart = new XYLineChart("Mode Statistics", "iteration", "mode");
 			for ( Entry<String, Map<Integer, Double>> entry : this.modeHistories.entrySet() ) {
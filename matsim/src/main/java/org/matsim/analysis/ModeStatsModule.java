@@ -23,6 +23,7 @@
 package org.matsim.analysis;
 
 import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
 import org.matsim.core.controler.AbstractModule;
 
 public class ModeStatsModule extends AbstractModule {
@@ -30,5 +31,8 @@ public class ModeStatsModule extends AbstractModule {
     public void install() {
         bind(ModeStatsControlerListener.class).in(Singleton.class);
         addControlerListenerBinding().to(ModeStatsControlerListener.class);
+        if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+            Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().to(ModeStatsControlerListener.class);
+        }
     }
 }
@@ -42,6 +42,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.controler.corelisteners.OutputWriterService;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.events.StartupEvent;
@@ -86,6 +87,10 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 	private final boolean createPNG;
 	private final ControlerConfigGroup controlerConfigGroup;
 
+	@com.google.inject.Inject(optional = true)
+	private OutputWriterService outputWriterService = null;
+	// (optional, since this listener is also used with injectors without the core listeners)
+
 	Map<ScoreItem,Map< Integer, Double>> scoreHistory = new HashMap<>() ;
 	private int minIteration = 0;
 
@@ -210,7 +215,8 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 
 		if (this.createPNG && event.getIteration() > this.minIteration) {
 			// create chart when data of more than one iteration is available.
-			XYLineChart chart = new XYLineChart("Score Statistics", "iteration", "score");
+			// (the series are copied into the chart, so only the rendering is left to the output writer)
+			final XYLineChart chart = new XYLineChart("Score Statistics", "iteration", "score");
 //			double[] iterations = new double[index + 1];
 //			for (int i = 0; i <= index; i++) {
 //				iterations[i] = i + this.minIteration;
@@ -220,7 +226,16 @@ public class ScoreStatsControlerListener implements StartupListener, IterationEn
 			chart.addSeries("avg. of plans' average score", this.scoreHistory.get( ScoreItem.average) );
 			chart.addSeries("avg. executed score", this.scoreHistory.get( ScoreItem.executed ) );
 			chart.addMatsimLogo();
-			chart.saveAsPng(this.fileName + ".png", 800, 600);
+			if (this.outputWriterService == null) {
+				chart.saveAsPng(this.fileName + ".png", 800, 600);
+			} else {
+				this.outputWriterService.submit("score statistics chart", new Runnable() {
+					@Override
+					public void run() {
+						chart.saveAsPng(fileName + ".png", 800, 600);
+					}
+				});
+			}
 		}
 	}
 
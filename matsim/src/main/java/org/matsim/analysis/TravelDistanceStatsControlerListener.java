@@ -1,6 +1,10 @@
 package org.matsim.analysis;
 
 
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.controler.events.IterationEndsEvent;
 import org.matsim.core.controler.events.ShutdownEvent;
 import org.matsim.core.controler.listener.IterationEndsListener;
@@ -8,8 +12,10 @@ import org.matsim.core.controler.listener.ShutdownListener;
 import org.matsim.core.scoring.ExperiencedPlansService;
 
 import javax.inject.Inject;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
-class TravelDistanceStatsControlerListener implements IterationEndsListener, ShutdownListener {
+class TravelDistanceStatsControlerListener implements IterationEndsListener, ShutdownListener, IterationEndsAnalysis {
 
 	@Inject
 	private ExperiencedPlansService experiencedPlansService;
@@ -17,11 +23,32 @@ class TravelDistanceStatsControlerListener implements IterationEndsListener, Shu
 	@Inject
 	private TravelDistanceStats travelDistanceStats;
 
+	@Inject
+	private ControlerConfigGroup controlerConfigGroup;
+
+	private Map<Id<Person>, Plan> experiencedPlans = null;
+
 	@Override
 	public void notifyIterationEnds(IterationEndsEvent event) {
+		if (controlerConfigGroup.isParallelIterationEndsAnalysis()) {
+			// done by the IterationEndsAnalysisRunner
+			return;
+		}
 		travelDistanceStats.addIteration(event.getIteration(), experiencedPlansService.getExperiencedPlans());
 	}
 
+	@Override
+	public void prepareIteration(int iteration) {
+		// the service gets new (empty) plans at the start of the next iteration, so a shallow copy is enough
+		this.experiencedPlans = new LinkedHashMap<>(experiencedPlansService.getExperiencedPlans());
+	}
+
+	@Override
+	public void finishIteration(int iteration) {
+		travelDistanceStats.addIteration(iteration, this.experiencedPlans);
+		this.experiencedPlans = null;
+	}
+
 	@Override
 	public void notifyShutdown(ShutdownEvent event) {
 		travelDistanceStats.close();
@@ -3,12 +3,19 @@ package org.matsim.analysis;
 
 import org.matsim.core.controler.AbstractModule;
 
+import com.google.inject.Singleton;
+import com.google.inject.multibindings.Multibinder;
+
 public class TravelDistanceStatsModule extends AbstractModule {
 
 	@Override
 	public void install() {
 		bind(TravelDistanceStats.class).asEagerSingleton();
+		bind(TravelDistanceStatsControlerListener.class).in(Singleton.class);
 		addControlerListenerBinding().to(TravelDistanceStatsControlerListener.class);
+		if (getConfig().controler().isParallelIterationEndsAnalysis()) {
+			Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().to(TravelDistanceStatsControlerListener.class);
+		}
 	}
 
 }
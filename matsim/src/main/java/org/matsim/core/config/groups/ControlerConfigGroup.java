@@ -56,6 +56,11 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final String OVERWRITE_FILE = "overwriteFiles";
 	private static final String CREATE_GRAPHS = "createGraphs";
 	private static final String DUMP_DATA_AT_END = "dumpDataAtEnd";
+	private static final String PARALLEL_ITERATION_ENDS_ANALYSIS = "parallelIterationEndsAnalysis";
+	private static final String NUMBER_OF_OUTPUT_WRITER_THREADS = "numberOfOutputWriterThreads";
+
+	private static final String PROFILING = "profiling";
+	public enum ProfilingType {none, files, filesAndJmx}
 
 	/*package*/ static final String MOBSIM = "mobsim";
 	public enum MobsimType {qsim, JDEQSim}
@@ -81,6 +86,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private int writeSnapshotsInterval = 1;
 	private boolean createGraphs = true;
 	private boolean dumpDataAtEnd = true;
+	private boolean parallelIterationEndsAnalysis = false;
+	private int numberOfOutputWriterThreads = 0;
+	private ProfilingType profiling = ProfilingType.none;
 	private OverwriteFileSetting overwriteFileSetting = OverwriteFileSetting.failIfDirectoryExists;
 
 	public ControlerConfigGroup() {
@@ -120,6 +128,17 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		map.put(WRITE_SNAPSHOTS_INTERVAL, "iterationNumber % " + WRITE_SNAPSHOTS_INTERVAL + " == 0 defines in which iterations snapshots are written " +
 				"to a file. `0' disables snapshots writing completely");
 		map.put(DUMP_DATA_AT_END, "true if at the end of a run, plans, network, config etc should be dumped to a file");
+		map.put(PARALLEL_ITERATION_ENDS_ANALYSIS, "Default=false. If true, the standard analyses (mode stats, leg histogram, link stats, travel distance stats) " +
+				"are computed and written on background threads after the end of each iteration, while the next iteration starts. " +
+				"The controler waits for them before the next mobsim starts.");
+		map.put(NUMBER_OF_OUTPUT_WRITER_THREADS, "Default=0. If larger than 0, plans dumps, events files, charts and the output " +
+				"at the end of the run are written by that many background threads, while the controler continues. Output of an " +
+				"iteration is complete at the latest when the mobsim of the next iteration starts. 0 means that everything " +
+				"is written on the controler thread.");
+		map.put(PROFILING, "Default=none. Possible values: none, files, filesAndJmx. If not none, run times of the mobsim " +
+				"steps, event handlers, replanning strategies and routers as well as garbage collection and heap usage are " +
+				"recorded per iteration and written to profiling.txt in the output directory and to profiling.json in the " +
+				"iteration directories. filesAndJmx additionally publishes them as an MBean.");
 		return map;
 	}
 
@@ -342,6 +361,36 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public void setDumpDataAtEnd(boolean dumpDataAtEnd) {
 		this.dumpDataAtEnd = dumpDataAtEnd;
 	}
+
+	@StringGetter(PARALLEL_ITERATION_ENDS_ANALYSIS)
+	public boolean isParallelIterationEndsAnalysis() {
+		return parallelIterationEndsAnalysis;
+	}
+
+	@StringSetter(PARALLEL_ITERATION_ENDS_ANALYSIS)
+	public void setParallelIterationEndsAnalysis(boolean parallelIterationEndsAnalysis) {
+		this.parallelIterationEndsAnalysis = parallelIterationEndsAnalysis;
+	}
+
+	@StringGetter(NUMBER_OF_OUTPUT_WRITER_THREADS)
+	public int getNumberOfOutputWriterThreads() {
+		return numberOfOutputWriterThreads;
+	}
+
+	@StringSetter(NUMBER_OF_OUTPUT_WRITER_THREADS)
+	public void setNumberOfOutputWriterThreads(int numberOfOutputWriterThreads) {
+		this.numberOfOutputWriterThreads = numberOfOutputWriterThreads;
+	}
+
+	@StringGetter(PROFILING)
+	public ProfilingType getProfiling() {
+		return profiling;
+	}
+
+	@StringSetter(PROFILING)
+	public void setProfiling(ProfilingType profiling) {
+		this.profiling = profiling;
+	}
 	// ---
 	int writePlansUntilIteration = 1 ;
 	public int getWritePlansUntilIteration() {
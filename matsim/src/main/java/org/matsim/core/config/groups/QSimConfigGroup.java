@@ -109,6 +109,10 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	public static enum SnapshotStyle { equiDist, queue, withHoles, withHolesAndShowHoles,
 		kinematicWaves /*kinematicWaves and withHoles produce same snapshots Amit Mar'17*/ } ;
 	private SnapshotStyle snapshotStyle = SnapshotStyle.equiDist ;
+	private static final String SNAPSHOT_WRITER_QUEUE_CAPACITY = "snapshotWriterQueueCapacity";
+	private int snapshotWriterQueueCapacity = 0 ;
+	private static final String SNAPSHOT_SAMPLE = "snapshotSample";
+	private double snapshotSample = 1. ;
 
 	// ---
 	private static final String MAIN_MODE = "mainMode";
@@ -120,10 +124,18 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 	private LinkDynamics linkDynamics = LinkDynamics.FIFO ;
 	private static final String LINK_DYNAMICS = "linkDynamics" ;
 
+	public static enum NetworkPartitioning { roundRobin, regions }
+	private NetworkPartitioning networkPartitioning = NetworkPartitioning.roundRobin ;
+	private static final String NETWORK_PARTITIONING = "networkPartitioning" ;
+
 	// ---
 	private double nodeOffset = 0;
 	private float linkWidth = 30;
 	private boolean usingThreadpool = true;
+	private boolean usingDeterministicParallelism = false;
+	private boolean usingEventDrivenActivation = false;
+	private boolean usingLinkFastForward = false;
+	private double linkFastForwardMaxOccupancy = 0.25;
 
 	public static final String LINK_WIDTH = "linkWidth";
 
@@ -219,6 +231,13 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			}
 			map.put(SNAPSHOT_STYLE,"snapshotStyle. One of: " + options.toString()) ;
 		}
+		map.put(SNAPSHOT_WRITER_QUEUE_CAPACITY, "If larger than zero, the snapshots are written by a background thread, and at most "
+				+ "this many snapshots wait to be written; if there are more, the mobsim waits for the writer.  The mobsim only copies "
+				+ "the state of the vehicles; their positions are computed by the writer thread.  This only pays off if a core is free for the writer; on a single core it makes "
+				+ "the mobsim slower.  Default is 0, i.e. the mobsim writes the snapshots itself.") ;
+		map.put(SNAPSHOT_SAMPLE, "The share of the agents that are written into the snapshots.  The sample is drawn by agent id, so the "
+				+ "same agents are in every snapshot; passengers are in the sample if the driver of their vehicle is.  Only the vehicles "
+				+ "in the sample are positioned.  Default is 1.0, i.e. all agents.") ;
 		map.put(NUMBER_OF_THREADS, "Number of threads used for the QSim.  "
 				+ "Note that this setting is independent from the \"global\" threads setting.  "
 				+ "In contrast to earlier versions, the non-parallel special version is no longer there." ) ;
@@ -261,9 +280,31 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 			}
 			map.put(LINK_DYNAMICS, "default: FIFO; options:" + stb ) ;
 		}
+		map.put(NETWORK_PARTITIONING, "How the nodes and links of the network are distributed among the threads of the qsim.  "
+				+ NetworkPartitioning.roundRobin + ": one after the other.  " + NetworkPartitioning.regions + ": every thread gets a "
+				+ "spatially contiguous region with about the same number of links, so that fewer vehicles cross over to links of "
+				+ "another thread.  All threads run in the same process.  Default is " + NetworkPartitioning.roundRobin + ".") ;
 		map.put(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID, "If a route does not reference a vehicle, agents will use the vehicle with the same id as their own.");
 		map.put(USING_THREADPOOL, "if the qsim should use as many runners as there are threads (Christoph's dissertation version)"
 				+ " or more of them, together with a thread pool (seems to be faster in some situations, but is not tested).") ;
+		map.put(DETERMINISTIC_PARALLELISM, "If true, the results of the qsim do not depend on the number of threads: the nodes draw "
+				+ "from their own random number generators, and the events of the nodes and links are passed on in the order of "
+				+ "their ids at the end of every time step.  The results are then the same for every run and number of threads, but "
+				+ "differ from those with false.  Default is false.") ;
+		map.put(EVENT_DRIVEN_ACTIVATION, "If true, links on which nothing can happen before the first vehicle may leave or the next hole "
+				+ "arrives are not moved until then, and the qsim jumps over time steps in which no engine has anything to do.  "
+				+ "Only has an effect with usingFastCapacityUpdate, without lanes, and with trafficDynamics queue or withHoles; "
+				+ "time steps are only skipped if no MobsimBeforeSimStep/AfterSimStep listeners are registered.  "
+				+ "The results are the same as with false.  Default is false.") ;
+		map.put(LINK_FAST_FORWARD, "If true, links that are occupied to at most " + LINK_FAST_FORWARD_MAX_OCCUPANCY + " of their "
+				+ "storage capacity are fast-forwarded: they are not moved until the first vehicle may leave or the next hole arrives, "
+				+ "and vehicles entering such a link do not interrupt this unless they may leave earlier.  Links that are occupied more "
+				+ "are moved in every time step again.  In contrast to " + EVENT_DRIVEN_ACTIVATION + ", this also works with "
+				+ "trafficDynamics kinematicWaves, and no time steps of the qsim are skipped; both can be combined.  Only has an effect "
+				+ "with usingFastCapacityUpdate, without lanes, and without seepage.  The results are the same as with false.  "
+				+ "Default is false.") ;
+		map.put(LINK_FAST_FORWARD_MAX_OCCUPANCY, "The share of the storage capacity up to which a link is fast-forwarded, see "
+				+ LINK_FAST_FORWARD + ".  Default is 0.25.") ;
 		map.put(FAST_CAPACITY_UPDATE, "If false, the qsim accumulates fractional flows up to one flow unit in every time step.  If true, "
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
@@ -386,6 +427,26 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		return this.snapshotStyle;
 	}
 
+	@StringGetter(SNAPSHOT_WRITER_QUEUE_CAPACITY)
+	public int getSnapshotWriterQueueCapacity() {
+		return this.snapshotWriterQueueCapacity;
+	}
+
+	@StringSetter(SNAPSHOT_WRITER_QUEUE_CAPACITY)
+	public void setSnapshotWriterQueueCapacity(final int snapshotWriterQueueCapacity) {
+		this.snapshotWriterQueueCapacity = snapshotWriterQueueCapacity;
+	}
+
+	@StringGetter(SNAPSHOT_SAMPLE)
+	public double getSnapshotSample() {
+		return this.snapshotSample;
+	}
+
+	@StringSetter(SNAPSHOT_SAMPLE)
+	public void setSnapshotSample(final double snapshotSample) {
+		this.snapshotSample = snapshotSample;
+	}
+
 	@StringSetter(TRAFFIC_DYNAMICS)
 	public void setTrafficDynamics(final TrafficDynamics str) {
 		this.trafficDynamics = str;
@@ -498,6 +559,16 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.linkDynamics = linkDynamics ;
 	}
 
+	@StringGetter(NETWORK_PARTITIONING)
+	public NetworkPartitioning getNetworkPartitioning() {
+		return this.networkPartitioning ;
+	}
+
+	@StringSetter(NETWORK_PARTITIONING)
+	public void setNetworkPartitioning(NetworkPartitioning networkPartitioning) {
+		this.networkPartitioning = networkPartitioning ;
+	}
+
 	@StringGetter(USE_PERSON_ID_FOR_MISSING_VEHICLE_ID)
 	public boolean getUsePersonIdForMissingVehicleId() {
 		return usePersonIdForMissingVehicleId;
@@ -528,6 +599,46 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.usingThreadpool = val ;
 	}
 
+	private static final String DETERMINISTIC_PARALLELISM = "usingDeterministicParallelism" ;
+	@StringGetter(DETERMINISTIC_PARALLELISM)
+	public boolean isUsingDeterministicParallelism() {
+		return this.usingDeterministicParallelism ;
+	}
+	@StringSetter(DETERMINISTIC_PARALLELISM)
+	public void setUsingDeterministicParallelism( boolean val ) {
+		this.usingDeterministicParallelism = val ;
+	}
+
+	private static final String EVENT_DRIVEN_ACTIVATION = "usingEventDrivenActivation" ;
+	@StringGetter(EVENT_DRIVEN_ACTIVATION)
+	public boolean isUsingEventDrivenActivation() {
+		return this.usingEventDrivenActivation ;
+	}
+	@StringSetter(EVENT_DRIVEN_ACTIVATION)
+	public void setUsingEventDrivenActivation( boolean val ) {
+		this.usingEventDrivenActivation = val ;
+	}
+
+	private static final String LINK_FAST_FORWARD = "usingLinkFastForward" ;
+	@StringGetter(LINK_FAST_FORWARD)
+	public boolean isUsingLinkFastForward() {
+		return this.usingLinkFastForward ;
+	}
+	@StringSetter(LINK_FAST_FORWARD)
+	public void setUsingLinkFastForward( boolean val ) {
+		this.usingLinkFastForward = val ;
+	}
+
+	private static final String LINK_FAST_FORWARD_MAX_OCCUPANCY = "linkFastForwardMaxOccupancy" ;
+	@StringGetter(LINK_FAST_FORWARD_MAX_OCCUPANCY)
+	public double getLinkFastForwardMaxOccupancy() {
+		return this.linkFastForwardMaxOccupancy ;
+	}
+	@StringSetter(LINK_FAST_FORWARD_MAX_OCCUPANCY)
+	public void setLinkFastForwardMaxOccupancy( double val ) {
+		this.linkFastForwardMaxOccupancy = val ;
+	}
+
 	private static final String USE_LANES="useLanes" ;
 	private boolean useLanes = false ;
 
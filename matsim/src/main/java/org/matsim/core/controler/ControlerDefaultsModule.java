@@ -56,6 +56,7 @@ public final class ControlerDefaultsModule extends AbstractModule {
         install(new TravelDistanceStatsModule());
         install(new ScoreStatsModule());
         install(new ModeStatsModule());
+        install(new IterationEndsAnalysisModule()); // after the analyses, see there
         install(new CountsModule());
         install(new PtCountsModule());
         install(new VspPlansCleanerModule());
@@ -1,5 +1,6 @@
 package org.matsim.core.controler;
 
+import org.matsim.analysis.IterationProfilerModule;
 import org.matsim.analysis.IterationStopWatch;
 
 public final class NewControlerModule extends AbstractModule {
@@ -10,6 +11,7 @@ public final class NewControlerModule extends AbstractModule {
 		bind(ControlerListenerManager.class).to(ControlerListenerManagerImpl.class);
 		
 		bind(IterationStopWatch.class).asEagerSingleton();
+		install(new IterationProfilerModule());
 		bind(OutputDirectoryHierarchy.class).asEagerSingleton();
 		bind(TerminationCriterion.class).to(TerminateAtFixedIterationNumber.class);
 		bind(MatsimServices.class).to(MatsimServicesImpl.class);
@@ -39,6 +39,11 @@ public class ControlerDefaultCoreListenersModule extends AbstractModule {
 		bind( PlansDumping.class ).to( PlansDumpingImpl.class );
 		bind( EventsHandling.class ).to( EventsHandlingImpl.class );
 		bind( DumpDataAtEnd.class ).to( DumpDataAtEndImpl.class );
+		bind( OutputWriterService.class ).to( OutputWriterServiceImpl.class );
+		if ( getConfig().controler().getNumberOfOutputWriterThreads() > 0 ) {
+			// (a normal listener, so that it is notified after the core listeners which submit the writers)
+			addControlerListenerBinding().to( OutputWriterServiceImpl.class );
+		}
 	}
 }
 
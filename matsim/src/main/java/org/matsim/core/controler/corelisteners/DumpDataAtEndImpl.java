@@ -110,6 +110,9 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 	@Inject
 	private OutputDirectoryHierarchy controlerIO;
 
+	@Inject
+	private OutputWriterService outputWriterService;
+
 	@Inject
 	private Map<Class<?>,AttributeConverter<?>> attributeConverters = Collections.emptyMap();
 
@@ -118,24 +121,25 @@ final class DumpDataAtEndImpl implements DumpDataAtEnd, ShutdownListener {
 		if ( event.isUnexpected() ) {
 			return ;
 		}
-		dumpPlans();
-		dumpNetwork();
-		dumpConfig();
-		dumpFacilities();
-		dumpNetworkChangeEvents();
-
-		dumpTransitSchedule();
-		dumpTransitVehicles();
-		dumpVehicles();
-		dumpHouseholds();
-		dumpLanes();
-		dumpCounts();
+		// (the files are independent of each other, so they can be written concurrently if the service is asynchronous)
+		outputWriterService.submit("output plans", this::dumpPlans);
+		outputWriterService.submit("output network", this::dumpNetwork);
+		outputWriterService.submit("output config", this::dumpConfig);
+		outputWriterService.submit("output facilities", this::dumpFacilities);
+		outputWriterService.submit("output network change events", this::dumpNetworkChangeEvents);
+
+		outputWriterService.submit("output transit schedule", this::dumpTransitSchedule);
+		outputWriterService.submit("output transit vehicles", this::dumpTransitVehicles);
+		outputWriterService.submit("output vehicles", this::dumpVehicles);
+		outputWriterService.submit("output households", this::dumpHouseholds);
+		outputWriterService.submit("output lanes", this::dumpLanes);
+		outputWriterService.submit("output counts", this::dumpCounts);
 
 		if (!event.isUnexpected() && vspConfig.isWritingOutputEvents() && (controlerConfigGroup.getWriteEventsInterval()!=0)) {
-			dumpOutputEvents();
+			outputWriterService.submit("output events", this::dumpOutputEvents);
 		}
 		
-		dumpExperiencedPlans() ;
+		outputWriterService.submit("output experienced plans", this::dumpExperiencedPlans);
 	}
 
 	private void dumpOutputEvents() {
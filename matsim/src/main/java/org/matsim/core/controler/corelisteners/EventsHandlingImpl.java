@@ -20,9 +20,13 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
@@ -60,12 +64,18 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 
 	private int writeMoreUntilIteration;
 
+	private final OutputWriterService outputWriterService;
+
+	private final List<Future<?>> closingWriters = new ArrayList<>();
+
 	@Inject
 	EventsHandlingImpl(
 			final EventsManager eventsManager,
 			final ControlerConfigGroup config,
-			final OutputDirectoryHierarchy controlerIO) {
+			final OutputDirectoryHierarchy controlerIO,
+			final OutputWriterService outputWriterService) {
 		this.eventsManager = eventsManager;
+		this.outputWriterService = outputWriterService;
 		this.writeEventsInterval = config.getWriteEventsInterval();
 		this.lastIteration = config.getLastIteration() ;
 		this.eventsFileFormats = config.getEventsFileFormats();
@@ -104,18 +114,48 @@ final class EventsHandlingImpl implements EventsHandling, BeforeMobsimListener,
 		 * Events that are produced after the Mobsim has ended, e.g. by the RoadProcing 
 		 * module, should also be written to the events file.
 		 */
-		for (EventWriter writer : this.eventWriters) {
-			writer.closeFile();
+		removeClosedWriters();
+		for (final EventWriter writer : this.eventWriters) {
 			this.eventsManager.removeHandler(writer);
+			// (flushing and closing a large compressed file may take a while)
+			this.closingWriters.add(this.outputWriterService.submit("events of iteration " + event.getIteration(), new Runnable() {
+				@Override
+				public void run() {
+					writer.closeFile();
+				}
+			}));
 		}
 		this.eventWriters.clear();
 	}
 
+	private void removeClosedWriters() {
+		// (failures are reported by the OutputWriterService)
+		Iterator<Future<?>> it = this.closingWriters.iterator();
+		while (it.hasNext()) {
+			if (it.next().isDone()) {
+				it.remove();
+			}
+		}
+	}
+
 	@Override
 	public void notifyShutdown(ShutdownEvent event) {
 		for (EventWriter writer : this.eventWriters) {
 			writer.closeFile();
 		}
+		// the events of the last iteration need to be complete before they are copied by DumpDataAtEnd:
+		try {
+			for (Future<?> closing : this.closingWriters) {
+				closing.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while writing events.", e.getCause());
+		} finally {
+			this.closingWriters.clear();
+		}
 	}
 	
 }
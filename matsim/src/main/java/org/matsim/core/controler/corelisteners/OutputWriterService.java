@@ -0,0 +1,50 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OutputWriterService.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.util.concurrent.Future;
+
+/**
+ * Writes output files off the controler thread, if
+ * {@link org.matsim.core.config.groups.ControlerConfigGroup#getNumberOfOutputWriterThreads()} is larger than 0.
+ * Otherwise, all writers are run immediately on the calling thread.
+ * <p></p>
+ * A writer must not read anything that the controler may change afterwards; copy it before submitting the writer.
+ * Writers submitted during an iteration are finished at the latest before the mobsim of the next iteration starts, and
+ * all writers are finished before the run ends.  The first writer (in order of submission) that fails aborts the run
+ * at that point.
+ */
+public interface OutputWriterService {
+
+	/**
+	 * @param description used for logging and in the message of the exception if the writer fails
+	 * @param writer writes the output
+	 * @return a future that is done when the output is written
+	 */
+	Future<?> submit(String description, Runnable writer);
+
+	/**
+	 * @return <code>true</code> if the writers are run on background threads, i.e. if the data must be copied before it is
+	 * submitted.
+	 */
+	boolean isAsynchronous();
+
+}
@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OutputWriterServiceImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.controler.corelisteners;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.controler.events.BeforeMobsimEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.events.ShutdownEvent;
+import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.controler.listener.ShutdownListener;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Default implementation of the {@link OutputWriterService}.
+ * <p></p>
+ * The writers are executed by a fixed pool with a bounded queue.  If the queue is full, the submitting thread runs the
+ * writer itself, so the controler is slowed down rather than the memory filled with data waiting to be written.
+ * <p></p>
+ * Needs to be notified <i>after</i> the core listeners, which is the case if it is bound as a normal controler listener.
+ * This way, the writers submitted by {@link DumpDataAtEnd} are awaited at shutdown.
+ */
+@Singleton
+final class OutputWriterServiceImpl implements OutputWriterService, IterationStartsListener, BeforeMobsimListener, ShutdownListener {
+
+	private final static Logger log = Logger.getLogger(OutputWriterServiceImpl.class);
+
+	private static final int MAX_QUEUED_WRITERS = 8;
+
+	private final ThreadPoolExecutor pool;
+	private final List<PendingWriter> pending = new ArrayList<>();
+	private int iteration = Integer.MIN_VALUE;
+	private boolean shutdown = false;
+
+	@Inject
+	OutputWriterServiceImpl(ControlerConfigGroup config) {
+		int numOfThreads = config.getNumberOfOutputWriterThreads();
+		if (numOfThreads > 0) {
+			this.pool = new ThreadPoolExecutor(numOfThreads, numOfThreads, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(MAX_QUEUED_WRITERS), new NamedThreadFactory(), new ThreadPoolExecutor.CallerRunsPolicy());
+			log.info("output files are written by " + numOfThreads + " background threads.");
+		} else {
+			this.pool = null;
+		}
+	}
+
+	@Override
+	public boolean isAsynchronous() {
+		return this.pool != null;
+	}
+
+	@Override
+	public Future<?> submit(String description, Runnable writer) {
+		FutureTask<Object> task = new FutureTask<>(writer, null);
+		synchronized (this) {
+			if (this.pool == null || this.shutdown) {
+				writer.run();
+				return CompletableFuture.completedFuture(null);
+			}
+			this.pending.add(new PendingWriter(this.iteration, description, task));
+		}
+		this.pool.execute(task);
+		return task;
+	}
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		synchronized (this) {
+			this.iteration = event.getIteration();
+		}
+	}
+
+	@Override
+	public void notifyBeforeMobsim(BeforeMobsimEvent event) {
+		// everything from the previous iterations; the writers of this iteration may still run during the mobsim
+		awaitPendingWriters(event.getIteration());
+	}
+
+	@Override
+	public void notifyShutdown(ShutdownEvent event) {
+		if (this.pool == null) {
+			return;
+		}
+		try {
+			if (event.isUnexpected()) {
+				this.pool.shutdownNow();
+			} else {
+				awaitPendingWriters(Integer.MAX_VALUE);
+			}
+		} finally {
+			synchronized (this) {
+				this.shutdown = true;
+			}
+			this.pool.shutdown();
+		}
+	}
+
+	/**
+	 * Waits for all writers submitted before the given iteration, in the order in which they were submitted.
+	 */
+	private void awaitPendingWriters(int beforeIteration) {
+		List<PendingWriter> due = new ArrayList<>();
+		synchronized (this) {
+			Iterator<PendingWriter> it = this.pending.iterator();
+			while (it.hasNext()) {
+				PendingWriter writer = it.next();
+				if (writer.iteration < beforeIteration) {
+					due.add(writer);
+					it.remove();
+				}
+			}
+		}
+		if (due.isEmpty()) {
+			return;
+		}
+		long start = System.currentTimeMillis();
+		for (PendingWriter writer : due) {
+			try {
+				writer.task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Exception while writing " + writer.description + ".", e.getCause());
+			}
+		}
+		log.info("waited " + (System.currentTimeMillis() - start) + " ms for " + due.size() + " output writers to finish.");
+	}
+
+	private static final class PendingWriter {
+		final int iteration;
+		final String description;
+		final Future<?> task;
+
+		PendingWriter(int iteration, String description, Future<?> task) {
+			this.iteration = iteration;
+			this.description = description;
+			this.task = task;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "OutputWriter_PooledThread_" + count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
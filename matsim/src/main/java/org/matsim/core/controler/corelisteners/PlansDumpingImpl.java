@@ -20,6 +20,9 @@
 
 package org.matsim.core.controler.corelisteners;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
 import org.apache.log4j.Logger;
 import org.matsim.analysis.IterationStopWatch;
 import org.matsim.api.core.v01.network.Network;
@@ -31,6 +34,7 @@ import org.matsim.core.controler.Controler;
 import org.matsim.core.controler.OutputDirectoryHierarchy;
 import org.matsim.core.controler.events.BeforeMobsimEvent;
 import org.matsim.core.controler.listener.BeforeMobsimListener;
+import org.matsim.core.population.PopulationUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -43,6 +47,8 @@ import org.matsim.core.utils.geometry.transformations.TransformationFactory;
  * ({@link ControlerConfigGroup#getWritePlansInterval()} as well as in the first
  * iteration, just in case someone might check that the replanning worked
  * correctly in the first iteration.
+ * <p></p>
+ * If the {@link OutputWriterService} is asynchronous, a copy of the population is written in the background.
  *
  * @author mrieser
  */
@@ -56,10 +62,13 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 	@Inject private Population population;
 	@Inject private IterationStopWatch stopwatch;
 	@Inject private OutputDirectoryHierarchy controlerIO;
+	@Inject private OutputWriterService outputWriterService;
 	private int writePlansInterval ;
 
 	private int writeMoreUntilIteration;
 
+	private Future<?> previousDump = null;
+
 	@Inject
 	PlansDumpingImpl(ControlerConfigGroup config) {
 		this.writePlansInterval = config.getWritePlansInterval();
@@ -77,8 +86,9 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 			final String inputCRS = config.plans().getInputCRS();
 			final String internalCRS = config.global().getCoordinateSystem();
 
+			final PopulationWriter writer;
 			if ( inputCRS == null ) {
-				new PopulationWriter(population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+				writer = new PopulationWriter(population(), network);
 			}
 			else {
 				log.info( "re-projecting population from "+internalCRS+" back to "+inputCRS+" for export" );
@@ -88,11 +98,48 @@ final class PlansDumpingImpl implements PlansDumping, BeforeMobsimListener {
 								internalCRS,
 								inputCRS );
 
-				new PopulationWriter(transformation, population, network).write(controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION));
+				writer = new PopulationWriter(transformation, population(), network);
 			}
-			log.info("finished plans dump.");
+			final String filename = controlerIO.getIterationFilename(event.getIteration(), Controler.FILENAME_POPULATION);
+			this.previousDump = outputWriterService.submit("plans of iteration " + event.getIteration(), new Runnable() {
+				@Override
+				public void run() {
+					writer.write(filename);
+				}
+			});
+			log.info(outputWriterService.isAsynchronous() ? "plans are written in the background." : "finished plans dump.");
 			stopwatch.endOperation("dump all plans");
 		}
 	}
 
+	/**
+	 * @return the population, or a copy of it if it is written in the background while the next iteration already runs
+	 */
+	private Population population() {
+		if ( !outputWriterService.isAsynchronous() ) {
+			return population;
+		}
+		// wait for the previous dump, so that there is never more than one copy in memory:
+		awaitPreviousDump();
+		final Population copy = PopulationUtils.createPopulation(config, network);
+		PopulationUtils.copyFromTo(population, copy);
+		return copy;
+	}
+
+	private void awaitPreviousDump() {
+		if ( this.previousDump == null ) {
+			return;
+		}
+		try {
+			this.previousDump.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while dumping plans.", e.getCause());
+		} finally {
+			this.previousDump = null;
+		}
+	}
+
 }
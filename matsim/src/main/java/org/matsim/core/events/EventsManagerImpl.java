@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.events.ActivityEndEvent;
 import org.matsim.api.core.v01.events.ActivityStartEvent;
 import org.matsim.api.core.v01.events.Event;
@@ -102,11 +103,13 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final IterationProfiler.Timer timer;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final IterationProfiler.Timer timer) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.timer = timer;
 		}
 	}
 
@@ -117,6 +120,8 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	private IterationProfiler profiler = null;
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -128,6 +133,9 @@ public final class EventsManagerImpl implements EventsManager {
 
 	@Override
 	public void processEvent(final Event event) {
+		if (OrderedEventsBuffer.offer(this, event)) {
+			return;
+		}
 		this.counter++;
 		if (this.counter == this.nextCounterMsg) {
 			this.nextCounterMsg *= 4;
@@ -137,6 +145,14 @@ public final class EventsManagerImpl implements EventsManager {
 	}
 
 
+	/**
+	 * If the profiler is enabled, the time spent in each event handler is measured, see {@link IterationProfiler}.
+	 */
+	public void setProfiler(IterationProfiler profiler) {
+		this.profiler = profiler != null && profiler.isEnabled() ? profiler : null;
+		this.cacheHandlers.clear();
+	}
+
 	@Override
 	public void addHandler (final EventHandler handler) {
 		Set<Class<?>> addedHandlers = new HashSet<Class<?>>();
@@ -219,20 +235,29 @@ public final class EventsManagerImpl implements EventsManager {
 	private void computeEvent(final Event event) {
 		for (HandlerInfo info : getHandlersForClass(event.getClass())) {
 			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler)) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event);
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+				final long profilerStart = info.timer != null ? System.nanoTime() : 0;
+				if (!callHandlerFast(info.eventClass, event, info.eventHandler)) {
+					try {
+						info.method.invoke(info.eventHandler, event);
+					} catch (IllegalArgumentException | IllegalAccessException e) {
+						throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+					} catch (InvocationTargetException e) {
+						throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
+					}
 				}
+				if (info.timer != null) info.timer.add(System.nanoTime() - profilerStart);
 			}
 		}
 	}
 
+	private IterationProfiler.Timer getTimer(final EventHandler handler) {
+		if (this.profiler == null) {
+			return null;
+		}
+		String name = handler.getClass().getSimpleName();
+		return this.profiler.getTimer("events." + (name.isEmpty() ? handler.getClass().getName() : name));
+	}
+
 	private HandlerInfo[] getHandlersForClass(final Class<?> eventClass) {
 		Class<?> klass = eventClass;
 		HandlerInfo[] cache = this.cacheHandlers.get(eventClass);
@@ -246,7 +271,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat.method, getTimer(handler)));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -256,7 +281,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat.method, getTimer(handler)));
 				}
 			}
 		}
@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OrderedEventsBuffer.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+
+/**
+ * Collects the events that are thrown on one thread, so that events thrown concurrently on several threads can be passed
+ * on in an order that does not depend on the thread scheduling.
+ * <p></p>
+ * While a buffer is bound to a thread, the events managers of this package do not process events thrown on that thread,
+ * but add them to the buffer.  The code running on the thread announces with {@link #startElement(int)} for which
+ * element (e.g. a node or a link of the mobsim) it throws the following events.  {@link #flush(List)} then passes the
+ * events of all buffers on, sorted by element; the events of one element stay in the order in which they were thrown.
+ * <p></p>
+ * Each element must be handled by only one thread between two flushes, and only once.  Otherwise, the order of its
+ * events is not defined.
+ *
+ * @see org.matsim.core.config.groups.QSimConfigGroup#isUsingDeterministicParallelism()
+ */
+public final class OrderedEventsBuffer {
+
+	private static final ThreadLocal<OrderedEventsBuffer> boundBuffer = new ThreadLocal<>();
+
+	/**
+	 * Avoids the thread local lookup for every event as long as no buffer was ever bound.
+	 */
+	private static volatile boolean inUse = false;
+
+	private final List<Event> events = new ArrayList<>();
+	private final List<EventsManager> targets = new ArrayList<>();
+
+	private int[] runKeys = new int[16];
+	private int[] runStarts = new int[16];
+	private int numberOfRuns = 0;
+
+	/**
+	 * Events thrown on the current thread are added to this buffer from now on.
+	 */
+	public void bindToCurrentThread() {
+		inUse = true;
+		boundBuffer.set(this);
+	}
+
+	public void unbindFromCurrentThread() {
+		boundBuffer.remove();
+	}
+
+	/**
+	 * The following events are thrown for the element with the given key, until the next call.  Events are passed on in
+	 * ascending order of the keys.
+	 */
+	public void startElement(int key) {
+		if (this.numberOfRuns > 0 && this.runStarts[this.numberOfRuns - 1] == this.events.size()) {
+			// the previous element did not throw any events
+			this.runKeys[this.numberOfRuns - 1] = key;
+			return;
+		}
+		if (this.numberOfRuns == this.runKeys.length) {
+			this.runKeys = Arrays.copyOf(this.runKeys, 2 * this.numberOfRuns);
+			this.runStarts = Arrays.copyOf(this.runStarts, 2 * this.numberOfRuns);
+		}
+		this.runKeys[this.numberOfRuns] = key;
+		this.runStarts[this.numberOfRuns] = this.events.size();
+		this.numberOfRuns++;
+	}
+
+	/**
+	 * Called by the events managers before they process an event.
+	 *
+	 * @return <code>true</code> if the event was added to the buffer of the current thread, i.e. must not be processed now
+	 */
+	/*package*/ static boolean offer(EventsManager target, Event event) {
+		if (!inUse) {
+			return false;
+		}
+		OrderedEventsBuffer buffer = boundBuffer.get();
+		if (buffer == null) {
+			return false;
+		}
+		if (buffer.numberOfRuns == 0) {
+			// events before the first element come first
+			buffer.startElement(Integer.MIN_VALUE);
+		}
+		buffer.events.add(event);
+		buffer.targets.add(target);
+		return true;
+	}
+
+	/**
+	 * Passes the events of all given buffers to the events managers they were thrown at, sorted by element, and empties
+	 * the buffers.  Must be called on a thread no buffer is bound to, after the threads filling the buffers are done.
+	 */
+	public static void flush(List<OrderedEventsBuffer> buffers) {
+		int totalRuns = 0;
+		for (OrderedEventsBuffer buffer : buffers) {
+			totalRuns += buffer.numberOfRuns;
+		}
+		if (totalRuns == 0) {
+			return;
+		}
+
+		// sort the runs by key; the lower bits hold the index of the run, which makes the order total
+		long[] sortedRuns = new long[totalRuns];
+		OrderedEventsBuffer[] runBuffers = new OrderedEventsBuffer[totalRuns];
+		int[] runIndices = new int[totalRuns];
+		int run = 0;
+		for (OrderedEventsBuffer buffer : buffers) {
+			for (int i = 0; i < buffer.numberOfRuns; i++) {
+				sortedRuns[run] = ((long) buffer.runKeys[i] << 32) | run;
+				runBuffers[run] = buffer;
+				runIndices[run] = i;
+				run++;
+			}
+		}
+		Arrays.sort(sortedRuns);
+
+		for (long sortedRun : sortedRuns) {
+			int r = (int) (sortedRun & 0xFFFFFFFFL);
+			OrderedEventsBuffer buffer = runBuffers[r];
+			int i = runIndices[r];
+			int end = i + 1 < buffer.numberOfRuns ? buffer.runStarts[i + 1] : buffer.events.size();
+			for (int e = buffer.runStarts[i]; e < end; e++) {
+				buffer.targets.get(e).processEvent(buffer.events.get(e));
+			}
+		}
+
+		for (OrderedEventsBuffer buffer : buffers) {
+			buffer.events.clear();
+			buffer.targets.clear();
+			buffer.numberOfRuns = 0;
+		}
+	}
+
+}
@@ -122,6 +122,9 @@ public final class ParallelEventsManager implements EventsManager {
 	
 	@Override
 	public void processEvent(final Event event) {
+		if (OrderedEventsBuffer.offer(this, event)) {
+			return;
+		}
 		if (this.parallelMode) this.distributor.processEvent(event);
 		else this.singleThreadEventsHandler.processEvent(event);
 	}
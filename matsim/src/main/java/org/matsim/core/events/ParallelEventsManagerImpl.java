@@ -24,6 +24,7 @@ import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
@@ -89,6 +90,13 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		init(config.parallelEventHandling().getNumberOfThreads());
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setProfiler(IterationProfiler profiler) {
+		for (EventsManagerImpl eventsManager : this.events) {
+			eventsManager.setProfiler(profiler);
+		}
+	}
+
 	/**
 	 * @param numberOfThreads
 	 *            - specify the number of threads used for the events handler
@@ -111,6 +119,9 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void processEvent(final Event event) {
+		if (OrderedEventsBuffer.offer(this, event)) {
+			return;
+		}
 		if (parallelMode) {
 			for (int i = 0; i < eventsProcessThread.length; i++) {
 				eventsProcessThread[i].processEvent(event);
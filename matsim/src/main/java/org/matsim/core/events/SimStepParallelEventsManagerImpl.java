@@ -21,6 +21,7 @@
 package org.matsim.core.events;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.ParallelEventHandlingConfigGroup;
@@ -70,6 +71,12 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setProfiler(IterationProfiler profiler) {
+		this.delegate.setProfiler(profiler);
+		for (EventsManagerImpl eventsManager : this.eventsManagers) eventsManager.setProfiler(profiler);
+	}
+
     public SimStepParallelEventsManagerImpl() {
 		this(1);
 	}
@@ -94,6 +101,9 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 
 	@Override
 	public void processEvent(final Event event) {
+		if (OrderedEventsBuffer.offer(this, event)) {
+			return;
+		}
 		this.counter.incrementAndGet();
 		
 		if (parallelMode) {
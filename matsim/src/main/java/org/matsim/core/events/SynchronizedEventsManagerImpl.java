@@ -52,6 +52,9 @@ class SynchronizedEventsManagerImpl implements EventsManager {
 
 	@Override
 	public synchronized void processEvent(Event event) {
+		if (OrderedEventsBuffer.offer(this, event)) {
+			return;
+		}
 		this.delegate.processEvent(event);
 	}
 	
@@ -89,6 +89,20 @@ public abstract class MatsimRandom {
 		return r;
 	}
 
+	/** Returns an instance of a random number generator which only depends on the seed of the last
+	 * {@link #reset(long)} and the given key, but not on how many instances were requested before.
+	 * So objects that are identified by the key draw the same random numbers, no matter in which order they
+	 * are created.
+	 *
+	 * @param key e.g. the id of the object that uses the instance
+	 * @return pseudo random number generator
+	 */
+	public static Random getLocalInstance(final String key) {
+		Random r = new Random(lastUsedSeed + 0x9E3779B97F4A7C15L * key.hashCode());
+		prepareRNG(r);
+		return r;
+	}
+
 	/**
 	 * Draw some random numbers to better initialize the pseudo-random number generator.
 	 *
@@ -36,6 +36,8 @@ public class EnterRoadMessage extends EventMessage {
 		// enter the next road
 		Road road = Road.getRoad(vehicle.getCurrentLinkId());
 		road.enterRoad(vehicle, getMessageArrivalTime());
+		// nothing refers to the message any more, so it can be reused
+		MessageFactory.disposeEnterRoadMessage(this);
 	}
 
 	public EnterRoadMessage(Scheduler scheduler, Vehicle vehicle) {
@@ -19,6 +19,8 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.Map;
+
 import org.matsim.core.config.ReflectiveConfigGroup;
 import org.matsim.core.utils.misc.Time;
 
@@ -57,6 +59,10 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	public final static String CAR_SIZE = "carSize";
 	public final static String GAP_TRAVEL_SPEED = "gapTravelSpeed";
 	public final static String END_TIME = "endTime";
+	public final static String MESSAGE_QUEUE = "messageQueue";
+	public final static String FIFO_MESSAGE_ORDER = "fifoMessageOrder";
+
+	public enum MessageQueueType { binaryHeap, pairingHeap }
 
 	// INPUT
 	private double simulationEndTime = Double.MAX_VALUE; // in s
@@ -71,6 +77,8 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 	 * 'stuckTime' for entering next road, it will enter the next. in seconds
 	 */
 	private double squeezeTime = 1800;
+	private MessageQueueType messageQueueType = MessageQueueType.binaryHeap;
+	private boolean fifoMessageOrder = false;
 
 	public JDEQSimConfigGroup() {
 		super(NAME);
@@ -169,4 +177,37 @@ public class JDEQSimConfigGroup extends ReflectiveConfigGroup {
 		this.squeezeTime = squeezeTime;
 	}
 
+	@StringGetter(MESSAGE_QUEUE)
+	public MessageQueueType getMessageQueueType() {
+		return messageQueueType;
+	}
+
+	@StringSetter(MESSAGE_QUEUE)
+	public void setMessageQueueType(MessageQueueType messageQueueType) {
+		this.messageQueueType = messageQueueType;
+	}
+
+	@StringGetter(FIFO_MESSAGE_ORDER)
+	public boolean isFifoMessageOrder() {
+		return fifoMessageOrder;
+	}
+
+	@StringSetter(FIFO_MESSAGE_ORDER)
+	public void setFifoMessageOrder(boolean fifoMessageOrder) {
+		this.fifoMessageOrder = fifoMessageOrder;
+	}
+
+	@Override
+	public Map<String, String> getComments() {
+		Map<String, String> map = super.getComments();
+		map.put(MESSAGE_QUEUE, "the heap of the message queue. " + MessageQueueType.binaryHeap + " only marks removed messages as dead; "
+				+ MessageQueueType.pairingHeap + " removes them, which helps when many deadlock prevention messages are removed. "
+				+ "Both give the same results if " + FIFO_MESSAGE_ORDER + " is true.");
+		map.put(FIFO_MESSAGE_ORDER, "if true, messages with the same time and priority are processed in the order in which "
+				+ "they were scheduled (otherwise, the order depends on the heap), and the initial messages are sorted once "
+				+ "instead of being put into the heap. This is faster for large populations, but changes the order of "
+				+ "simultaneous events compared to the default.");
+		return map;
+	}
+
 }
@@ -66,7 +66,8 @@ public class JDEQSimulation implements Mobsim {
 		Timer t = new Timer();
 		t.startTimer();
 
-		Scheduler scheduler = new Scheduler(new MessageQueue(), config.getSimulationEndTime());
+		Scheduler scheduler = new Scheduler(new MessageQueue(config.getMessageQueueType(), config.isFifoMessageOrder()),
+				config.getSimulationEndTime());
 		Road.setAllRoads(new HashMap<Id<Link>, Road>());
 
 		// initialize network
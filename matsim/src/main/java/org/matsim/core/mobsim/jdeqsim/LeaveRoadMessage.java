@@ -34,6 +34,8 @@ public class LeaveRoadMessage extends EventMessage {
 	public void handleMessage() {
 		Road road = (Road) this.getReceivingUnit();
 		road.leaveRoad(vehicle, getMessageArrivalTime());
+		// nothing refers to the message any more, so it can be reused
+		MessageFactory.disposeLeaveRoadMessage(this);
 	}
 
 	public LeaveRoadMessage(Scheduler scheduler, Vehicle vehicle) {
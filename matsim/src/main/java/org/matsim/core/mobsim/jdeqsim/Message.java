@@ -39,6 +39,13 @@ public abstract class Message implements Comparable<Message> {
 	private SimUnit receivingUnit;
 	protected int priority = 0;
 	private boolean isAlive = true;
+	private long sequenceNumber = 0;
+
+	// the links of the message when it is in a PairingMessageHeap
+	Message heapChild = null;
+	Message heapNextSibling = null;
+	Message heapPrevious = null;
+	boolean inHeap = false;
 
 	public Message() {
 	}
@@ -108,4 +115,15 @@ public abstract class Message implements Comparable<Message> {
 		return isAlive;
 	}
 
+	/**
+	 * Set by the {@link MessageQueue} when the message is scheduled (only with the FIFO message order).
+	 */
+	void setSequenceNumber(long sequenceNumber) {
+		this.sequenceNumber = sequenceNumber;
+	}
+
+	long getSequenceNumber() {
+		return sequenceNumber;
+	}
+
 }
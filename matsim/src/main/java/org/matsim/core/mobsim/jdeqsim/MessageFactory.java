@@ -19,7 +19,8 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 /**
  * The message factory is used for creating and disposing messages - mainly for
@@ -29,13 +30,13 @@ import java.util.LinkedList;
  */
 public class MessageFactory {
 
-	private static LinkedList<EndLegMessage> endLegMessageQueue = new LinkedList<EndLegMessage>();
-	private static LinkedList<EnterRoadMessage> enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-	private static LinkedList<StartingLegMessage> startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-	private static LinkedList<LeaveRoadMessage> leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-	private static LinkedList<EndRoadMessage> endRoadMessageQueue = new LinkedList<EndRoadMessage>();
+	private static ArrayDeque<EndLegMessage> endLegMessageQueue = new ArrayDeque<EndLegMessage>();
+	private static ArrayDeque<EnterRoadMessage> enterRoadMessageQueue = new ArrayDeque<EnterRoadMessage>();
+	private static ArrayDeque<StartingLegMessage> startingLegMessageQueue = new ArrayDeque<StartingLegMessage>();
+	private static ArrayDeque<LeaveRoadMessage> leaveRoadMessageQueue = new ArrayDeque<LeaveRoadMessage>();
+	private static ArrayDeque<EndRoadMessage> endRoadMessageQueue = new ArrayDeque<EndRoadMessage>();
 
-	private static LinkedList<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+	private static ArrayDeque<DeadlockPreventionMessage> deadlockPreventionMessageQueue = new ArrayDeque<DeadlockPreventionMessage>();
 
 	public static void disposeEndLegMessage(EndLegMessage message) {
 		if (!JDEQSimConfigGroup.isGC_MESSAGES()) {
@@ -134,36 +135,36 @@ public class MessageFactory {
 	}
 
 	public static void GC_ALL_MESSAGES() {
-		endLegMessageQueue = new LinkedList<EndLegMessage>();
-		enterRoadMessageQueue = new LinkedList<EnterRoadMessage>();
-		startingLegMessageQueue = new LinkedList<StartingLegMessage>();
-		leaveRoadMessageQueue = new LinkedList<LeaveRoadMessage>();
-		endRoadMessageQueue = new LinkedList<EndRoadMessage>();
+		endLegMessageQueue = new ArrayDeque<EndLegMessage>();
+		enterRoadMessageQueue = new ArrayDeque<EnterRoadMessage>();
+		startingLegMessageQueue = new ArrayDeque<StartingLegMessage>();
+		leaveRoadMessageQueue = new ArrayDeque<LeaveRoadMessage>();
+		endRoadMessageQueue = new ArrayDeque<EndRoadMessage>();
 
-		deadlockPreventionMessageQueue = new LinkedList<DeadlockPreventionMessage>();
+		deadlockPreventionMessageQueue = new ArrayDeque<DeadlockPreventionMessage>();
 	}
 
-	public static LinkedList<EndLegMessage> getEndLegMessageQueue() {
+	public static Deque<EndLegMessage> getEndLegMessageQueue() {
 		return endLegMessageQueue;
 	}
 
-	public static LinkedList<EnterRoadMessage> getEnterRoadMessageQueue() {
+	public static Deque<EnterRoadMessage> getEnterRoadMessageQueue() {
 		return enterRoadMessageQueue;
 	}
 
-	public static LinkedList<StartingLegMessage> getStartingLegMessageQueue() {
+	public static Deque<StartingLegMessage> getStartingLegMessageQueue() {
 		return startingLegMessageQueue;
 	}
 
-	public static LinkedList<LeaveRoadMessage> getLeaveRoadMessageQueue() {
+	public static Deque<LeaveRoadMessage> getLeaveRoadMessageQueue() {
 		return leaveRoadMessageQueue;
 	}
 
-	public static LinkedList<EndRoadMessage> getEndRoadMessageQueue() {
+	public static Deque<EndRoadMessage> getEndRoadMessageQueue() {
 		return endRoadMessageQueue;
 	}
 
-	public static LinkedList<DeadlockPreventionMessage> getDeadlockPreventionMessageQueue() {
+	public static Deque<DeadlockPreventionMessage> getDeadlockPreventionMessageQueue() {
 		return deadlockPreventionMessageQueue;
 	}
 
@@ -19,17 +19,74 @@
 
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.PriorityQueue;
 
 /**
  * The message queue of the micro-simulation.
+ * <p></p>
+ * By default, messages with the same time and priority are taken out in an order that depends on the layout of the
+ * heap.  With the FIFO message order (see {@link JDEQSimConfigGroup#isFifoMessageOrder()}), they are taken out in the
+ * order in which they were put in, and the queue is partitioned: the messages put before the first message is taken
+ * out (i.e. the first departures of all agents) are sorted once, in parallel, and then streamed from an array, and
+ * only the messages scheduled during the simulation go into the heap.  So the heap only holds the messages of the
+ * agents that are under way, which makes its operations cheaper for large populations.  As the order of simultaneous
+ * messages changes, so do the events (e.g. who gets through a bottleneck first).
+ * <p></p>
+ * The heap is either a binary heap, from which removed messages are only taken out
+ * when they reach the front, or a {@link PairingMessageHeap}, from which removed
+ * messages are taken out immediately, see {@link JDEQSimConfigGroup.MessageQueueType}.
  *
  * @author rashid_waraich
  */
 public class MessageQueue {
-	private PriorityQueue<Message> queue1 = new PriorityQueue<Message>();
+	// time, then priority, then the scheduling order
+	private static final Comparator<Message> FIFO_ORDER = (m1, m2) -> {
+		int comparison = m1.compareTo(m2);
+		return comparison != 0 ? comparison : Long.compare(m1.getSequenceNumber(), m2.getSequenceNumber());
+	};
+
+	private PriorityQueue<Message> queue1 = null;
+	private PairingMessageHeap pairingHeap = null;
 	private int queueSize = 0;
 
+	private final boolean fifoMessageOrder;
+	private long nextSequenceNumber = 0;
+
+	// only with the FIFO message order
+	private ArrayList<Message> initialMessages = new ArrayList<Message>();
+	private Message[] streamedMessages = null;
+	private int nextStreamedMessage = 0;
+
+	public MessageQueue() {
+		this(JDEQSimConfigGroup.MessageQueueType.binaryHeap);
+	}
+
+	public MessageQueue(JDEQSimConfigGroup.MessageQueueType messageQueueType) {
+		this(messageQueueType, false);
+	}
+
+	public MessageQueue(JDEQSimConfigGroup.MessageQueueType messageQueueType, boolean fifoMessageOrder) {
+		this.fifoMessageOrder = fifoMessageOrder;
+		Comparator<Message> comparator = fifoMessageOrder ? FIFO_ORDER : Comparator.naturalOrder();
+		switch (messageQueueType) {
+			case binaryHeap:
+				queue1 = new PriorityQueue<Message>(comparator);
+				break;
+			case pairingHeap:
+				pairingHeap = new PairingMessageHeap(comparator);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown message queue type " + messageQueueType);
+		}
+		if (!fifoMessageOrder) {
+			initialMessages = null;
+			streamedMessages = new Message[0];
+		}
+	}
+
 	/**
 	 * 
 	 * Putting a message into the queue
@@ -37,7 +94,16 @@ public class MessageQueue {
 	 * @param m
 	 */
 	public void putMessage(Message m) {
-		queue1.add(m);
+		if (fifoMessageOrder) {
+			m.setSequenceNumber(nextSequenceNumber++);
+		}
+		if (streamedMessages == null) {
+			initialMessages.add(m);
+		} else if (pairingHeap != null) {
+			pairingHeap.add(m);
+		} else {
+			queue1.add(m);
+		}
 		queueSize++;
 	}
 
@@ -54,7 +120,9 @@ public class MessageQueue {
 	 * @param m
 	 */
 	public void removeMessage(Message m) {
-		m.killMessage();
+		if (pairingHeap == null || !pairingHeap.remove(m)) {
+			m.killMessage();
+		}
 		queueSize--;
 	}
 
@@ -65,27 +133,72 @@ public class MessageQueue {
 	 * @return
 	 */
 	public Message getNextMessage() {
+		startStreaming();
 		Message m = null;
-		if (queue1.peek() != null) {
-			// skip over dead messages
-			while ((m = queue1.poll()) != null && !m.isAlive()) {
+		// skip over dead messages
+		while ((m = pollFirstMessage()) != null && !m.isAlive()) {
 
-			}
-			// only decrement, if message fetched
-			if (m != null) {
-				queueSize--;
-			}
+		}
+		// only decrement, if message fetched
+		if (m != null) {
+			queueSize--;
 		}
 
 		return m;
 	}
 
 	public boolean isEmpty() {
-		return queue1.size() == 0;
+		if (streamedMessages == null) {
+			return initialMessages.isEmpty();
+		}
+		return heapSize() == 0 && nextStreamedMessage == streamedMessages.length;
+	}
+
+	/**
+	 * @return the arrival time of the first message in the queue, or positive infinity if the queue is empty.  Messages
+	 * that have been removed from the queue may still be taken into account, so the time may be too early, but never too
+	 * late.
+	 */
+	public double getNextMessageArrivalTime() {
+		startStreaming();
+		double time = Double.POSITIVE_INFINITY;
+		if (nextStreamedMessage < streamedMessages.length) {
+			time = streamedMessages[nextStreamedMessage].getMessageArrivalTime();
+		}
+		Message queued = pairingHeap != null ? pairingHeap.peek() : queue1.peek();
+		if (queued != null) {
+			time = Math.min(time, queued.getMessageArrivalTime());
+		}
+		return time;
+	}
+
+	private void startStreaming() {
+		if (streamedMessages == null) {
+			streamedMessages = initialMessages.toArray(new Message[initialMessages.size()]);
+			initialMessages = null;
+			Arrays.parallelSort(streamedMessages, FIFO_ORDER);
+		}
+	}
+
+	private Message pollFirstMessage() {
+		Message streamed = nextStreamedMessage < streamedMessages.length ? streamedMessages[nextStreamedMessage] : null;
+		if (streamed != null) {
+			Message queued = pairingHeap != null ? pairingHeap.peek() : queue1.peek();
+			if (queued == null || FIFO_ORDER.compare(streamed, queued) < 0) {
+				// release the reference, so that the message can be collected or reused
+				streamedMessages[nextStreamedMessage++] = null;
+				return streamed;
+			}
+		}
+		return pairingHeap != null ? pairingHeap.poll() : queue1.poll();
+	}
+
+	private int heapSize() {
+		return pairingHeap != null ? pairingHeap.size() : queue1.size();
 	}
 
 	public int getQueueSize() {
 		return queueSize;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * PairingMessageHeap.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+/**
+ * A pairing heap of messages.  The messages are the nodes of the heap (the links are
+ * fields of {@link Message}), so adding a message does not allocate anything, and a
+ * message can really be removed from the heap instead of only being marked as dead.
+ */
+/*package*/ final class PairingMessageHeap {
+
+	private final Comparator<Message> comparator;
+	private Message root = null;
+	private int size = 0;
+
+	// reused by mergePairs
+	private final ArrayList<Message> pairs = new ArrayList<>();
+
+	PairingMessageHeap(Comparator<Message> comparator) {
+		this.comparator = comparator;
+	}
+
+	void add(Message m) {
+		m.heapChild = null;
+		m.heapNextSibling = null;
+		m.heapPrevious = null;
+		m.inHeap = true;
+		root = meld(root, m);
+		size++;
+	}
+
+	Message peek() {
+		return root;
+	}
+
+	Message poll() {
+		Message m = root;
+		if (m != null) {
+			root = mergePairs(m.heapChild);
+			if (root != null) {
+				root.heapPrevious = null;
+			}
+			clear(m);
+			size--;
+		}
+		return m;
+	}
+
+	/**
+	 * @return false if the message is not in this heap
+	 */
+	boolean remove(Message m) {
+		if (!m.inHeap) {
+			return false;
+		}
+		if (m == root) {
+			poll();
+			return true;
+		}
+		// cut the subtree of the message out of the tree ...
+		if (m.heapPrevious.heapChild == m) {
+			m.heapPrevious.heapChild = m.heapNextSibling;
+		} else {
+			m.heapPrevious.heapNextSibling = m.heapNextSibling;
+		}
+		if (m.heapNextSibling != null) {
+			m.heapNextSibling.heapPrevious = m.heapPrevious;
+		}
+		// ... and put the children of the message back
+		Message children = mergePairs(m.heapChild);
+		if (children != null) {
+			children.heapPrevious = null;
+			root = meld(root, children);
+		}
+		clear(m);
+		size--;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/*
+	 * Both arguments must be roots, i.e. without siblings.
+	 */
+	private Message meld(Message a, Message b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (comparator.compare(b, a) < 0) {
+			Message tmp = a;
+			a = b;
+			b = tmp;
+		}
+		// b becomes the first child of a
+		b.heapPrevious = a;
+		b.heapNextSibling = a.heapChild;
+		if (a.heapChild != null) {
+			a.heapChild.heapPrevious = b;
+		}
+		a.heapChild = b;
+		return a;
+	}
+
+	/*
+	 * The standard two pass merge: meld the siblings pairwise from left to right,
+	 * then meld the results from right to left.
+	 */
+	private Message mergePairs(Message first) {
+		if (first == null) {
+			return null;
+		}
+		Message current = first;
+		while (current != null) {
+			Message a = current;
+			Message b = a.heapNextSibling;
+			current = b == null ? null : b.heapNextSibling;
+			a.heapNextSibling = null;
+			a.heapPrevious = null;
+			if (b != null) {
+				b.heapNextSibling = null;
+				b.heapPrevious = null;
+			}
+			pairs.add(meld(a, b));
+		}
+		Message result = pairs.get(pairs.size() - 1);
+		for (int i = pairs.size() - 2; i >= 0; i--) {
+			result = meld(pairs.get(i), result);
+		}
+		pairs.clear();
+		return result;
+	}
+
+	private static void clear(Message m) {
+		m.heapChild = null;
+		m.heapNextSibling = null;
+		m.heapPrevious = null;
+		m.inHeap = false;
+	}
+
+}
@@ -64,6 +64,14 @@ class MobsimListenerManager implements MatsimManager {
 		}
 	}
 
+	/**
+	 * @return whether there are listeners that are notified in every time step
+	 */
+	public boolean hasSimStepListeners() {
+		return this.listenerList.getListenerCount(MobsimBeforeSimStepListener.class) > 0
+				|| this.listenerList.getListenerCount(MobsimAfterSimStepListener.class) > 0;
+	}
+
 	/**
 	 * Creates the event and notifies all listeners
 	 */
@@ -21,6 +21,7 @@
 package org.matsim.core.mobsim.qsim;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonDepartureEvent;
@@ -109,11 +110,14 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private TeleportationEngine teleportationEngine;
 
 	private WithinDayEngine withindayEngine = null;
+	private NetworkChangeEventsEngineI networkChangeEventsEngine = null;
 
 	private ActivityHandler activityEngine;
 
 	private final Date realWorldStarttime = new Date();
 	private double stopTime = 100 * 3600;
+	/** see {@link QSimConfigGroup#isUsingEventDrivenActivation()} */
+	private boolean skippingIdleTimeSteps = false;
 	private final MobsimListenerManager listenerManager;
 	private final Scenario scenario;
 	private final List<ActivityHandler> activityHandlers = new ArrayList<>();
@@ -133,6 +137,13 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		else this.mobsimEngineRunTimes = null;
 	}
 
+	// for the iteration profiler; all null if it is not enabled
+	private IterationProfiler profiler = null;
+	private IterationProfiler.Timer simStepTimer = null;
+	private IterationProfiler.Timer listenersTimer = null;
+	private IterationProfiler.Timer eventsAfterSimStepTimer = null;
+	private Map<MobsimEngine, IterationProfiler.Timer> engineTimers = null;
+
 	/*package (for tests)*/ final InternalInterface internalInterface = new InternalInterface() {
 
 		// These methods must be synchronized, because they are called back
@@ -232,6 +243,8 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 				arrangeNextAgentAction(agent);
 			}
 
+			this.skippingIdleTimeSteps = canSkipIdleTimeSteps();
+
 			// do iterations
 			boolean doContinue = true;
 			while (doContinue) {
@@ -265,6 +278,16 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
+
+		if (this.profiler != null && this.profiler.isEnabled()) {
+			this.simStepTimer = this.profiler.getTimer("mobsim.simStep");
+			this.listenersTimer = this.profiler.getTimer("mobsim.listeners");
+			this.eventsAfterSimStepTimer = this.profiler.getTimer("mobsim.eventsAfterSimStep");
+			this.engineTimers = new IdentityHashMap<>();
+			for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+				this.engineTimers.put(mobsimEngine, this.profiler.getTimer("mobsim.engine." + mobsimEngine.getClass().getSimpleName()));
+			}
+		}
 	}
 
 	private void createAgents() {
@@ -336,13 +359,27 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	 */
 	/*package*/ boolean doSimStep() {
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
+		final long profilerStart = this.simStepTimer != null ? System.nanoTime() : 0;
+		long profilerSectionStart = profilerStart;
 
 		final double now = this.getSimTimer().getTimeOfDay();
 
 		this.listenerManager.fireQueueSimulationBeforeSimStepEvent(now);
+		if (this.listenersTimer != null) profilerSectionStart = addTime(this.listenersTimer, profilerSectionStart);
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
 		
+		/*
+		 * The network change events have to be applied before the
+		 * links are used in the sim step.
+		 */
+		if (this.networkChangeEventsEngine != null) {
+			if (analyzeRunTimes) startTime = System.nanoTime();
+			this.networkChangeEventsEngine.doSimStep(now);
+			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(this.networkChangeEventsEngine).addAndGet(System.nanoTime() - this.startTime);
+			if (this.engineTimers != null) profilerSectionStart = addTime(this.engineTimers.get(this.networkChangeEventsEngine), profilerSectionStart);
+		}
+
 		/*
 		 * The WithinDayEngine has to perform its replannings before
 		 * the other engines simulate the sim step.
@@ -351,18 +388,20 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			if (analyzeRunTimes) startTime = System.nanoTime();
 			this.withindayEngine.doSimStep(now);
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(this.withindayEngine).addAndGet(System.nanoTime() - this.startTime);
+			if (this.engineTimers != null) profilerSectionStart = addTime(this.engineTimers.get(this.withindayEngine), profilerSectionStart);
 		}
 
 		// "added" engines
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			if (analyzeRunTimes) this.startTime = System.nanoTime();
 			
-			// withindayEngine.doSimStep(time) has already been called
-			if (mobsimEngine == this.withindayEngine) continue;
+			// withindayEngine.doSimStep(time) and networkChangeEventsEngine.doSimStep(time) have already been called
+			if (mobsimEngine == this.withindayEngine || mobsimEngine == this.networkChangeEventsEngine) continue;
 
 			mobsimEngine.doSimStep(now);
 			
 			if (analyzeRunTimes) this.mobsimEngineRunTimes.get(mobsimEngine).addAndGet(System.nanoTime() - this.startTime);
+			if (this.engineTimers != null) profilerSectionStart = addTime(this.engineTimers.get(mobsimEngine), profilerSectionStart);
 		}
 
 		if (analyzeRunTimes) this.startTime = System.nanoTime();
@@ -370,8 +409,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		// console printout:
 		this.printSimLog(now);
 		boolean doContinue =  (this.agentCounter.isLiving() && (this.stopTime > now));
+		if (this.eventsAfterSimStepTimer != null) profilerSectionStart = System.nanoTime();
 		this.events.afterSimStep(now);
+		if (this.eventsAfterSimStepTimer != null) profilerSectionStart = addTime(this.eventsAfterSimStepTimer, profilerSectionStart);
 		this.listenerManager.fireQueueSimulationAfterSimStepEvent(now);
+		if (this.listenersTimer != null) addTime(this.listenersTimer, profilerSectionStart);
 
 		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
 		if ( qsimConfigGroup.getSimEndtimeInterpretation()==EndtimeInterpretation.onlyUseEndtime ) {
@@ -383,14 +425,70 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 
 		if (doContinue) {
+			if (this.skippingIdleTimeSteps) {
+				skipIdleTimeSteps(now);
+			}
 			this.simTimer.incrementTime();
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startTime;
+		if (this.simStepTimer != null) this.simStepTimer.add(System.nanoTime() - profilerStart);
 
 		return doContinue;
 	}
 
+	/**
+	 * Time steps can only be skipped if every engine can tell when it has something to do next, and if nothing else needs to be
+	 * called in every time step.
+	 */
+	private boolean canSkipIdleTimeSteps() {
+		if (!this.scenario.getConfig().qsim().isUsingEventDrivenActivation()) {
+			return false;
+		}
+		if (this.listenerManager.hasSimStepListeners()) {
+			log.info("not skipping idle time steps since there are listeners that are called in every time step.");
+			return false;
+		}
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			if (!(mobsimEngine instanceof MobsimEngineWithNextActionTime)) {
+				log.info("not skipping idle time steps since " + mobsimEngine.getClass().getName()
+						+ " cannot tell when it has something to do next.");
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets the timer to the time step before the first one in which an engine has something to do, so that incrementing
+	 * the timer leads to that time step.  Times in between time steps are rounded up to the next time step, as in the
+	 * time-stepped simulation.
+	 */
+	private void skipIdleTimeSteps(final double now) {
+		double nextActionTime = this.stopTime;
+		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
+			nextActionTime = Math.min(nextActionTime, ((MobsimEngineWithNextActionTime) mobsimEngine).getNextActionTime());
+		}
+		if (nextActionTime == Double.MAX_VALUE) {
+			// no end time, and nothing to do for the engines; the time-stepped simulation would not end either
+			return;
+		}
+		final double stepSize = this.simTimer.getSimTimestepSize();
+		final double idleTimeSteps = Math.ceil((nextActionTime - now) / stepSize) - 1;
+		if (idleTimeSteps >= 1) {
+			this.simTimer.setTime(now + idleTimeSteps * stepSize);
+		}
+	}
+
+	/**
+	 * Adds the time since the given start to the timer, and returns the current time as start of the next section.
+	 */
+	private static long addTime(IterationProfiler.Timer timer, long sectionStart) {
+		long now = System.nanoTime();
+		timer.add(now - sectionStart);
+		return now;
+	}
+
 	public void insertAgentIntoMobsim(final MobsimAgent agent) {
 		if (this.agents.containsKey(agent.getId())) {
 			throw new RuntimeException("Agent with same Id (" + agent.getId().toString() + ") already in mobsim; aborting ... ") ;
@@ -567,6 +665,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		if (mobsimEngine instanceof WithinDayEngine) {
 			this.withindayEngine = (WithinDayEngine) mobsimEngine;
 		}
+		if (mobsimEngine instanceof NetworkChangeEventsEngineI) {
+			this.networkChangeEventsEngine = (NetworkChangeEventsEngineI) mobsimEngine;
+		}
 		mobsimEngine.setInternalInterface(this.internalInterface);
 		this.mobsimEngines.add(mobsimEngine);
 		
@@ -598,6 +699,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		this.listenerManager.addQueueSimulationListener(listener);
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setProfiler(IterationProfiler profiler) {
+		this.profiler = profiler;
+	}
+
 	@Inject
 	void addQueueSimulationListeners(Set<MobsimListener> listeners) {
 		for (MobsimListener listener : listeners) {
@@ -1,65 +1,94 @@
 package org.matsim.core.mobsim.qsim.changeeventsengine;
 
 import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Network;
-import org.matsim.core.mobsim.jdeqsim.Message;
-import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngineWithNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimLink;
 import org.matsim.core.mobsim.qsim.interfaces.TimeVariantLink;
 import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkUtils;
 
 import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.Set;
 
-class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
+/**
+ * Tells the links of the mobsim to re-read their time variant attributes when a network change event starts.
+ * <p></p>
+ * The change events of the network are sorted by start time once before the simulation; the ones added during the
+ * simulation go into a separate queue.  In every time step, all events that have started by then are taken from the
+ * front, and every link affected by them is updated once, no matter how many of the events refer to it.  The QSim calls
+ * this engine before the other engines, so that the links are updated before they are used in the time step.
+ */
+class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI, MobsimEngineWithNextActionTime {
 	private static final Logger log = Logger.getLogger( NetworkChangeEventsEngine.class ) ;
 
-	private final MessageQueue messageQueue;
+	private static final NetworkChangeEvent[] NO_EVENTS = new NetworkChangeEvent[0];
+
 	private final Network network;
 	private InternalInterface internalInterface;
 
+	private NetworkChangeEvent[] sortedChangeEvents = NO_EVENTS;
+	private int nextChangeEventIndex = 0;
+	private final Queue<NetworkChangeEvent> withinDayChangeEvents = new PriorityQueue<>(11, new NetworkChangeEvent.StartTimeComparator());
+	private final Set<Id<Link>> linksToRecalc = new LinkedHashSet<>();
+
 	@Inject
-	NetworkChangeEventsEngine(Network network, MessageQueue messageQueue) {
+	NetworkChangeEventsEngine(Network network) {
 		this.network = network;
-		this.messageQueue = messageQueue;
 	}
 
 	@Override
 	public void onPrepareSim() {
 		Queue<NetworkChangeEvent> changeEvents = NetworkUtils.getNetworkChangeEvents(this.network);
-		for (final NetworkChangeEvent changeEvent : changeEvents) {
-			addNetworkChangeEventToMessageQ(changeEvent);
-		}
+		this.sortedChangeEvents = changeEvents == null ? NO_EVENTS : changeEvents.toArray(NO_EVENTS);
+		Arrays.sort(this.sortedChangeEvents, new NetworkChangeEvent.StartTimeComparator());
+		this.nextChangeEventIndex = 0;
+		this.withinDayChangeEvents.clear();
 	}
-	
-	private void addNetworkChangeEventToMessageQ(NetworkChangeEvent changeEvent) {
-		Message m = new Message() {
-			@Override
-			public void processEvent() {
 
+	private void applyChangeEventsUntil(double time) {
+		while (this.nextChangeEventIndex < this.sortedChangeEvents.length
+				&& this.sortedChangeEvents[this.nextChangeEventIndex].getStartTime() <= time) {
+			addLinksToRecalc(this.sortedChangeEvents[this.nextChangeEventIndex]);
+			this.sortedChangeEvents[this.nextChangeEventIndex] = null;
+			this.nextChangeEventIndex++;
+		}
+		while (!this.withinDayChangeEvents.isEmpty() && this.withinDayChangeEvents.peek().getStartTime() <= time) {
+			addLinksToRecalc(this.withinDayChangeEvents.poll());
+		}
+		if (!this.linksToRecalc.isEmpty()) {
+			for (Id<Link> linkId : this.linksToRecalc) {
+				recalcLink(linkId);
 			}
+			this.linksToRecalc.clear();
+		}
+	}
 
-			@Override
-			public void handleMessage() {
-				applyTheChangeEvent(changeEvent);
-			}
-		};
-		m.setMessageArrivalTime(changeEvent.getStartTime());
-		this.messageQueue.putMessage(m);
+	private void addLinksToRecalc(NetworkChangeEvent changeEvent) {
+		for (Link link : changeEvent.getLinks()) {
+			this.linksToRecalc.add(link.getId());
+		}
 	}
-	
+
 	private void applyTheChangeEvent(NetworkChangeEvent changeEvent) {
 		for (Link link : changeEvent.getLinks()) {
-			final NetsimLink netsimLink = this.internalInterface.getMobsim().getNetsimNetwork().getNetsimLink(link.getId());
-			if ( netsimLink instanceof TimeVariantLink) {
-				((TimeVariantLink) netsimLink).recalcTimeVariantAttributes();
-			} else {
-				throw new RuntimeException("link not time variant") ;
-			}
+			recalcLink(link.getId());
+		}
+	}
 
+	private void recalcLink(Id<Link> linkId) {
+		final NetsimLink netsimLink = this.internalInterface.getMobsim().getNetsimNetwork().getNetsimLink(linkId);
+		if ( netsimLink instanceof TimeVariantLink) {
+			((TimeVariantLink) netsimLink).recalcTimeVariantAttributes();
+		} else {
+			throw new RuntimeException("link not time variant") ;
 		}
 	}
 	
@@ -81,7 +110,7 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 		if ( event.getStartTime()<= this.internalInterface.getMobsim().getSimTimer().getTimeOfDay() ) {
 			this.applyTheChangeEvent(event);
 		} else {
-			this.addNetworkChangeEventToMessageQ(event);
+			this.withinDayChangeEvents.add(event);
 		}
 		
 	}
@@ -99,6 +128,18 @@ class NetworkChangeEventsEngine implements NetworkChangeEventsEngineI {
 
 	@Override
 	public void doSimStep(double time) {
+		applyChangeEventsUntil(time);
+	}
 
+	@Override
+	public double getNextActionTime() {
+		double nextActionTime = Double.POSITIVE_INFINITY;
+		if (this.nextChangeEventIndex < this.sortedChangeEvents.length) {
+			nextActionTime = this.sortedChangeEvents[this.nextChangeEventIndex].getStartTime();
+		}
+		if (!this.withinDayChangeEvents.isEmpty()) {
+			nextActionTime = Math.min(nextActionTime, this.withinDayChangeEvents.peek().getStartTime());
+		}
+		return nextActionTime;
 	}
 }
@@ -0,0 +1,36 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MobsimEngineWithNextActionTime.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+package org.matsim.core.mobsim.qsim.interfaces;
+
+/**
+ * A {@link MobsimEngine} that can tell when it has something to do next.  If all engines of the QSim can tell this, the
+ * QSim may jump over the time steps in which none of them has anything to do, see
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#isUsingEventDrivenActivation()}.
+ */
+public interface MobsimEngineWithNextActionTime extends MobsimEngine {
+
+	/**
+	 * @return the earliest time at which {@link #doSimStep(double)} may do anything, given the current state of the engine.
+	 * A time that is not after the current time means that the engine needs the next time step; positive infinity means
+	 * that the engine has nothing to do until something is handed to it.
+	 */
+	double getNextActionTime();
+
+}
@@ -41,6 +41,18 @@ public class SteppableScheduler extends Scheduler implements Steppable {
         finished = true; // queue has run dry.
     }
 
+    /**
+     * @return the earliest time at which {@link #doSimStep(double)} may handle a message, or positive infinity if there
+     * are no messages.
+     */
+    public double getNextMessageArrivalTime() {
+        double time = queue.getNextMessageArrivalTime();
+        if (lookahead != null) {
+            time = Math.min(time, lookahead.getMessageArrivalTime());
+        }
+        return time;
+    }
+
     public boolean isFinished() {
         return finished;
     }
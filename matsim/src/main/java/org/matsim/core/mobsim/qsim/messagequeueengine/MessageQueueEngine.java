@@ -1,12 +1,16 @@
 package org.matsim.core.mobsim.qsim.messagequeueengine;
 
-import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
-import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.InternalInterface;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngineWithNextActionTime;
 import org.matsim.core.mobsim.qsim.jdeqsimengine.SteppableScheduler;
 
 import javax.inject.Inject;
 
-class MessageQueueEngine implements MobsimBeforeSimStepListener {
+/**
+ * Handles the messages of the {@link SteppableScheduler} that are due.  Since it can tell when the next message is due,
+ * it does not prevent the QSim from skipping idle time steps.
+ */
+class MessageQueueEngine implements MobsimEngineWithNextActionTime {
 
 	private final SteppableScheduler scheduler;
 
@@ -16,8 +20,25 @@ class MessageQueueEngine implements MobsimBeforeSimStepListener {
 	}
 
 	@Override
-	public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
-		scheduler.doSimStep(e.getSimulationTime());
+	public void doSimStep(double time) {
+		scheduler.doSimStep(time);
+	}
+
+	@Override
+	public double getNextActionTime() {
+		return scheduler.getNextMessageArrivalTime();
+	}
+
+	@Override
+	public void onPrepareSim() {
+	}
+
+	@Override
+	public void afterSim() {
+	}
+
+	@Override
+	public void setInternalInterface(InternalInterface internalInterface) {
 	}
 
 }
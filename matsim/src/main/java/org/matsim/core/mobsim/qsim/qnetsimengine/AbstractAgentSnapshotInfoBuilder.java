@@ -20,6 +20,9 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.*;
 import org.matsim.api.core.v01.network.Link;
@@ -31,12 +34,11 @@ import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.PassengerAgent;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.pt.TransitDriverAgent;
-import org.matsim.core.mobsim.qsim.qnetsimengine.QueueWithBuffer.Hole;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfo.AgentState;
 import org.matsim.vis.snapshotwriters.AgentSnapshotInfoFactory;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
-import org.matsim.vis.snapshotwriters.VisVehicle;
+import org.matsim.vehicles.Vehicle;
 
 
 /**
@@ -60,9 +62,13 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	 * constructor for handling this situation.
 	 */
 	public final int positionVehiclesFromWaitingList(final Collection<AgentSnapshotInfo> positions,
-			final Link link, int cnt2, final Queue<QVehicle> waitingList) {
+			final Link link, int cnt2, final Queue<QVehicle> waitingList, Predicate<Id<?>> isInSample) {
 		for (QVehicle veh : waitingList) {
 			Collection<Identifiable<?>> peopleInVehicle = VisUtils.getPeopleInVehicle(veh);
+			if (!isInSample.test(veh.getDriver().getId())) {
+				cnt2 += peopleInVehicle.size();
+				continue;
+			}
 			boolean first = true;
 			for (Identifiable passenger : peopleInVehicle) {
 				cnt2++ ;
@@ -83,8 +89,12 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	}
 
 	public final int positionAgentsInActivities(final Collection<AgentSnapshotInfo> positions, Link link,
-			Collection<MobsimAgent> agentsInActivities,  int cnt2) {
+			Collection<MobsimAgent> agentsInActivities,  int cnt2, Predicate<Id<?>> isInSample) {
 		for (MobsimAgent pa : agentsInActivities) {
+			if (!isInSample.test(pa.getId())) {
+				cnt2++ ;
+				continue;
+			}
 			AgentSnapshotInfo agInfo = snapshotInfoFactory.createAgentSnapshotInfo(pa.getId(), link, 0.9*link.getLength(), cnt2) ;
 			agInfo.setAgentState( AgentState.PERSON_AT_ACTIVITY ) ;
 			positions.add(agInfo) ;
@@ -98,10 +108,14 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	 * @param transitVehicleStopQueue 
 	 */
 	public final int positionVehiclesFromTransitStop(final Collection<AgentSnapshotInfo> positions, Link link, 
-			Queue<QVehicle> transitVehicleStopQueue, int cnt2 ) {
+			Queue<QVehicle> transitVehicleStopQueue, int cnt2, Predicate<Id<?>> isInSample ) {
 		if (transitVehicleStopQueue.size() > 0) {
 			for (QVehicle veh : transitVehicleStopQueue) {
 				List<Identifiable<?>> peopleInVehicle = VisUtils.getPeopleInVehicle(veh);
+				if (!isInSample.test(veh.getDriver().getId())) {
+					cnt2 += peopleInVehicle.size() ;
+					continue;
+				}
 				boolean last = false ;
 				cnt2 += peopleInVehicle.size() ;
 				for ( ListIterator<Identifiable<?>> it = peopleInVehicle.listIterator( peopleInVehicle.size() ) ; it.hasPrevious(); ) {
@@ -134,22 +148,19 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		// I think that the main reason why this exists as public method is that AssignmentEmulatingQLane wants to use it directly.
 		// The reason for this, in return, is that positionVehiclesAlongLine(...) is a service method for queue models only.  kai, apr'16
 		
-		MobsimDriverAgent driverAgent = veh.getDriver();
-		AgentSnapshotInfo pos = snapshotInfoFactory.createAgentSnapshotInfo(driverAgent.getId(), startCoord, endCoord, 
+		positionAgentGivenDistanceFromFNode(positions, startCoord, endCoord, lengthOfCurve, new VehicleAgents(veh),
+				distanceFromFromNode, lane, speedValueBetweenZeroAndOne);
+	}
+
+	private void positionAgentGivenDistanceFromFNode(final Collection<AgentSnapshotInfo> positions, Coord startCoord, Coord endCoord,
+			double lengthOfCurve, VehicleAgents agents, double distanceFromFromNode,
+			Integer lane,	double speedValueBetweenZeroAndOne){
+		AgentSnapshotInfo pos = snapshotInfoFactory.createAgentSnapshotInfo(agents.driverId, startCoord, endCoord, 
 				distanceFromFromNode, lane, lengthOfCurve);
 		pos.setColorValueBetweenZeroAndOne(speedValueBetweenZeroAndOne);
-		if (driverAgent instanceof TransitDriverAgent){
-			pos.setAgentState(AgentState.TRANSIT_DRIVER);
-		} else if ( driverAgent.getMode().equals(TransportMode.car)) {
-			pos.setAgentState(AgentState.PERSON_DRIVING_CAR);
-		} else {
-			pos.setAgentState(AgentState.PERSON_OTHER_MODE );
-		}
-		if ( scenario.getPopulation().getPersonAttributes().getAttribute( driverAgent.getId().toString(), "marker" ) != null ) { 
-			pos.setAgentState( AgentState.PERSON_OTHER_MODE ) ;
-		}
+		pos.setAgentState(agents.driverState);
 
-		this.positionPassengers(positions, veh.getPassengers(), distanceFromFromNode, startCoord, 
+		this.positionPassengers(positions, agents.passengerIds, distanceFromFromNode, startCoord, 
 				endCoord, lengthOfCurve, lane+5, speedValueBetweenZeroAndOne);
 		// (this is deliberately first memorizing "pos" but then filling in the passengers first)
 
@@ -158,16 +169,50 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	
 	private static int wrnCnt = 0 ;
 
-	public final Collection<AgentSnapshotInfo> positionVehiclesAlongLine(Collection<AgentSnapshotInfo> positions,
+	/**
+	 * Copies the state of the vehicles and holes on a lane that is needed to position them.  The positions are computed from
+	 * the copy when the returned job is run, which can be later and on another thread, since the copy does not refer to
+	 * the vehicles any more.
+	 * <p></p>
+	 * Only the agents of the vehicles whose driver is in the sample are copied and positioned; of the other vehicles, only
+	 * the exit time and the size are copied, since they take up space in front of the sampled ones.
+	 */
+	final Consumer<Collection<AgentSnapshotInfo>> copyVehiclesAlongLine(Predicate<Id<?>> isInSample,
 			double now, Collection<MobsimVehicle> vehs, double curvedLength, double storageCapacity, 
 			Coord upstreamCoord, Coord downstreamCoord, double inverseFlowCapPerTS, double freeSpeed, 
-			int numberOfLanesAsInt, Queue<Hole> holes)
+			int numberOfLanesAsInt, HoleQueue holes)
 	{
-		double spacingOfOnePCE = this.calculateVehicleSpacing( curvedLength, storageCapacity, vehs );
+		VehiclesAlongLine line = new VehiclesAlongLine(now, curvedLength, storageCapacity, upstreamCoord, downstreamCoord,
+				inverseFlowCapPerTS, freeSpeed, numberOfLanesAsInt, vehs.size());
+		int i = 0;
+		for (MobsimVehicle mveh : vehs) {
+			QVehicle veh = (QVehicle) mveh;
+			line.exitTimes[i] = veh.getEarliestLinkExitTime();
+			line.sizes[i] = veh.getSizeInEquivalents();
+			if (isInSample.test(veh.getDriver().getId())) {
+				line.agents[i] = new VehicleAgents(veh);
+			}
+			i++;
+		}
+		line.holeExitTimes = holes.copyEarliestLinkExitTimes();
+		line.holeSizes = holes.copySizesInEquivalents();
+		return line;
+	}
+
+	private void positionVehiclesAlongLine(Collection<AgentSnapshotInfo> positions, VehiclesAlongLine line) {
+		double now = line.now;
+		double curvedLength = line.curvedLength;
+
+		double sizeOfVehicles = 0.;
+		for (double size : line.sizes) {
+			sizeOfVehicles += size;
+		}
+		double spacingOfOnePCE = this.calculateVehicleSpacing( curvedLength, line.storageCapacity, sizeOfVehicles );
 
 		double ttimeOfHoles = curvedLength / (QueueWithBuffer.HOLE_SPEED_KM_H*1000./3600.);
 
-		TreeMap<Double,Hole> consumableHoles = new TreeMap<>() ;
+		// the sizes of the holes by their distance from the from node
+		TreeMap<Double,Double> consumableHoles = new TreeMap<>() ;
 		
 		// holes or kinematicWaves, if applicable:
 
@@ -178,13 +223,13 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 			case withHoles:
 			case withHolesAndShowHoles:
 			case kinematicWaves:
-				if ( !holes.isEmpty() ) {
+				if ( line.holeExitTimes.length > 0 ) {
 					double firstHolePosition = Double.NaN ;
 					double distanceOfHoleFromFromNode = Double.NaN ;
 					double sum = 0 ;
-					for (Hole hole : holes) {
-						sum += hole.getSizeInEquivalents() ;
-						distanceOfHoleFromFromNode = computeHolePositionAndReturnDistance( ttimeOfHoles, hole, now, curvedLength);
+					for (int i = 0; i < line.holeExitTimes.length; i++) {
+						sum += line.holeSizes[i] ;
+						distanceOfHoleFromFromNode = computeHolePositionAndReturnDistance( ttimeOfHoles, line.holeExitTimes[i], now, curvedLength);
 						if ( Double.isNaN( firstHolePosition ) ) {
 							firstHolePosition = distanceOfHoleFromFromNode ;
 							sum = 0 ; // don't include first vehicle
@@ -194,11 +239,11 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 							// since hole is already created even if vehicle is in buffer, thus excluding such holes in vehicle position updating
 							// probably, don't create hole in visualizer also. amit May 2016
 						} else {
-							consumableHoles.put( distanceOfHoleFromFromNode, hole ) ;
+							consumableHoles.put( distanceOfHoleFromFromNode, line.holeSizes[i] ) ;
 						}
 
 						if ( QSimConfigGroup.SnapshotStyle.withHolesAndShowHoles==scenario.getConfig().qsim().getSnapshotStyle() ) {
-							addHolePosition( positions, distanceOfHoleFromFromNode, hole, curvedLength, upstreamCoord, downstreamCoord ) ;
+							addHolePosition( positions, distanceOfHoleFromFromNode, curvedLength, line.upstreamCoord, line.downstreamCoord ) ;
 						}
 					}
 					final double spaceConsumptionOfHoles = sum*spacingOfOnePCE;
@@ -221,26 +266,28 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 
 		// yyyyyy might be faster by sorting holes into a regular array list ...
 
-		double freespeedTraveltime = curvedLength / freeSpeed ;
+		double freespeedTraveltime = curvedLength / line.freeSpeed ;
 
 		double distanceFromFromNode = Double.NaN;
 
-		for ( MobsimVehicle mveh : vehs ) {
-			final QVehicle veh = (QVehicle) mveh ;
-
-			final double remainingTravelTime = veh.getEarliestLinkExitTime() - now ;
+		for ( int i = 0; i < line.exitTimes.length; i++ ) {
+			final double remainingTravelTime = line.exitTimes[i] - now ;
 			// (starts off relatively small (rightmost vehicle))
 			
-			final double vehicleSpacing = mveh.getSizeInEquivalents()*spacingOfOnePCE;
+			final double vehicleSpacing = line.sizes[i]*spacingOfOnePCE;
 			distanceFromFromNode = this.calculateOdometerDistanceFromFromNode(curvedLength, vehicleSpacing , distanceFromFromNode, 
 					now, freespeedTraveltime, remainingTravelTime);
 			// (starts off relatively large (rightmost vehicle))
 			
-			Integer lane = VisUtils.guessLane(veh, numberOfLanesAsInt );
-			double speedValue = VisUtils.calcSpeedValueBetweenZeroAndOne(veh, inverseFlowCapPerTS, now, freeSpeed);
-			Gbl.assertNotNull( upstreamCoord ) ;
-			Gbl.assertNotNull( downstreamCoord ) ;
-			this.positionAgentGivenDistanceFromFNode(positions, upstreamCoord, downstreamCoord, curvedLength, veh, distanceFromFromNode, lane, speedValue);
+			VehicleAgents agents = line.agents[i];
+			if (agents != null) {
+				Integer lane = VisUtils.guessLane(agents.vehicleId, line.numberOfLanesAsInt );
+				double speedValue = VisUtils.calcSpeedValueBetweenZeroAndOne(line.exitTimes[i], line.inverseFlowCapPerTS, now);
+				Gbl.assertNotNull( line.upstreamCoord ) ;
+				Gbl.assertNotNull( line.downstreamCoord ) ;
+				this.positionAgentGivenDistanceFromFNode(positions, line.upstreamCoord, line.downstreamCoord, curvedLength, agents,
+						distanceFromFromNode, lane, speedValue);
+			}
 
 			switch (this.scenario.getConfig().qsim().getTrafficDynamics()) {
 				case queue:
@@ -248,8 +295,8 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 				case withHoles:
 				case kinematicWaves:
 					while ( !consumableHoles.isEmpty() && distanceFromFromNode < consumableHoles.lastKey() ) {
-						Map.Entry<Double, Hole> entry = consumableHoles.pollLastEntry() ;
-						distanceFromFromNode -= spacingOfOnePCE * entry.getValue().getSizeInEquivalents() ;
+						Map.Entry<Double, Double> entry = consumableHoles.pollLastEntry() ;
+						distanceFromFromNode -= spacingOfOnePCE * entry.getValue() ;
 					}
 					break;
 				default: throw new RuntimeException("The traffic dynmics "+this.scenario.getConfig().qsim().getTrafficDynamics()+" is not implemented yet.");
@@ -260,18 +307,17 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		 * the holes that this generates.  That space is added up until a full vehicle fits into it.  There must be some better way of
 		 * explaining this, but I don't know it right now.  kai, apr'16
 		 */
-		return positions;
 	}
 
 
-	 private static double computeHolePositionAndReturnDistance(double freespeedTraveltime, Hole hole, double now, double curvedLength) 
+	 private static double computeHolePositionAndReturnDistance(double freespeedTraveltime, double holeExitTime, double now, double curvedLength) 
 	{
-		double remainingTravelTime = hole.getEarliestLinkExitTime() - now ;
+		double remainingTravelTime = holeExitTime - now ;
 		double distanceFromFromNode = remainingTravelTime/freespeedTraveltime * curvedLength ;
 		return distanceFromFromNode;
 	}
 		
-	private void addHolePosition(final Collection<AgentSnapshotInfo> positions, double distanceFromFromNode, Hole veh, 
+	private void addHolePosition(final Collection<AgentSnapshotInfo> positions, double distanceFromFromNode, 
 			double curvedLength, Coord upstreamCoord, Coord downstreamCoord)
 	{
 		Integer lane = 20 ;
@@ -284,16 +330,16 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 	}
 	
 	final void positionPassengers(Collection<AgentSnapshotInfo> positions,
-			Collection<? extends PassengerAgent> passengers, double distanceOnLink, Coord startCoord, Coord endCoord,
+			List<Id<Person>> passengerIds, double distanceOnLink, Coord startCoord, Coord endCoord,
 			double lengthOfCurve, Integer lane, double speedValueBetweenZeroAndOne) {
-		int cnt = passengers.size();
+		int cnt = passengerIds.size();
 		int laneInt = 2*(cnt+1);
 		if (lane != null){
 			laneInt += lane;
 		}
-		for (PassengerAgent passenger : passengers) {
+		for (Id<Person> passengerId : passengerIds) {
 			int lanePos = laneInt - 2*cnt ;
-			AgentSnapshotInfo passengerPosition = snapshotInfoFactory.createAgentSnapshotInfo(passenger.getId(), startCoord, endCoord, 
+			AgentSnapshotInfo passengerPosition = snapshotInfoFactory.createAgentSnapshotInfo(passengerId, startCoord, endCoord, 
 					distanceOnLink, lanePos, lengthOfCurve);
 			passengerPosition.setColorValueBetweenZeroAndOne(speedValueBetweenZeroAndOne);
 			passengerPosition.setAgentState(AgentState.PERSON_OTHER_MODE); // in 2010, probably a passenger
@@ -302,8 +348,87 @@ abstract class AbstractAgentSnapshotInfoBuilder {
 		}
 	}
 
-	public abstract double calculateVehicleSpacing(double linkLength, double overallStorageCapacity, Collection<? extends VisVehicle> vehs);
+	public abstract double calculateVehicleSpacing(double linkLength, double overallStorageCapacity, double sizeInEquivalentsOfVehicles);
 
 	public abstract double calculateOdometerDistanceFromFromNode(double length, double spacing, double lastDistanceFromFromNode, 
 			double now, double freespeedTraveltime, double remainingTravelTime);
+
+	/**
+	 * The agents in a vehicle, and the state of the driver.
+	 */
+	private final class VehicleAgents {
+		final Id<Vehicle> vehicleId;
+		final Id<Person> driverId;
+		final AgentState driverState;
+		final List<Id<Person>> passengerIds;
+
+		VehicleAgents(QVehicle veh) {
+			MobsimDriverAgent driverAgent = veh.getDriver();
+			this.vehicleId = veh.getId();
+			this.driverId = driverAgent.getId();
+			AgentState state;
+			if (driverAgent instanceof TransitDriverAgent){
+				state = AgentState.TRANSIT_DRIVER;
+			} else if ( driverAgent.getMode().equals(TransportMode.car)) {
+				state = AgentState.PERSON_DRIVING_CAR;
+			} else {
+				state = AgentState.PERSON_OTHER_MODE;
+			}
+			if ( scenario.getPopulation().getPersonAttributes().getAttribute( driverAgent.getId().toString(), "marker" ) != null ) { 
+				state = AgentState.PERSON_OTHER_MODE;
+			}
+			this.driverState = state;
+			Collection<? extends PassengerAgent> passengers = veh.getPassengers();
+			if (passengers.isEmpty()) {
+				this.passengerIds = Collections.emptyList();
+			} else {
+				this.passengerIds = new ArrayList<>(passengers.size());
+				for (PassengerAgent passenger : passengers) {
+					this.passengerIds.add(passenger.getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * The copied state of the vehicles and holes on a lane, see {@link #copyVehiclesAlongLine}.
+	 */
+	private final class VehiclesAlongLine implements Consumer<Collection<AgentSnapshotInfo>> {
+		final double now;
+		final double curvedLength;
+		final double storageCapacity;
+		final Coord upstreamCoord;
+		final Coord downstreamCoord;
+		final double inverseFlowCapPerTS;
+		final double freeSpeed;
+		final int numberOfLanesAsInt;
+
+		// first vehicle first; the agents are null if the vehicle is not in the sample
+		final double[] exitTimes;
+		final double[] sizes;
+		final VehicleAgents[] agents;
+
+		double[] holeExitTimes;
+		double[] holeSizes;
+
+		VehiclesAlongLine(double now, double curvedLength, double storageCapacity, Coord upstreamCoord, Coord downstreamCoord,
+				double inverseFlowCapPerTS, double freeSpeed, int numberOfLanesAsInt, int numberOfVehicles) {
+			this.now = now;
+			this.curvedLength = curvedLength;
+			this.storageCapacity = storageCapacity;
+			this.upstreamCoord = upstreamCoord;
+			this.downstreamCoord = downstreamCoord;
+			this.inverseFlowCapPerTS = inverseFlowCapPerTS;
+			this.freeSpeed = freeSpeed;
+			this.numberOfLanesAsInt = numberOfLanesAsInt;
+			this.exitTimes = new double[numberOfVehicles];
+			this.sizes = new double[numberOfVehicles];
+			this.agents = new VehicleAgents[numberOfVehicles];
+		}
+
+		@Override
+		public void accept(Collection<AgentSnapshotInfo> positions) {
+			positionVehiclesAlongLine(positions, this);
+		}
+	}
 }
@@ -103,6 +103,13 @@ abstract class AbstractQLink implements QLinkI {
 
 	private boolean active = false;
 
+	/*
+	 * Only used if links are activated event-driven, see QNetsimEngineRunner: the position of the link in the order in which
+	 * its runner moves the active links, and the time until which the link is not moved although vehicles are on it.
+	 */
+	private long activationSequence = 0;
+	private double sleepingUntil = Double.NEGATIVE_INFINITY;
+
 	private TransitQLink transitQLink;
 	
 	private final QNodeI toQNode ;
@@ -139,6 +146,15 @@ abstract class AbstractQLink implements QLinkI {
 		}
 		// This is a bit involved since we do not want to ask the registry in every time step if the link is already active.
 	}
+	/**
+	 * Like {@link #activateLink()}, but leaves the link sleeping if it wakes up no later than the given time anyway.
+	 */
+	private void activateLinkUnlessWakingUpBefore(double time) {
+		if (!this.active && this.sleepingUntil != Double.NEGATIVE_INFINITY && this.sleepingUntil <= time) {
+			return;
+		}
+		activateLink();
+	}
 	private static int wrnCnt = 0 ;
 	@Override
 	public final void addParkedVehicle(MobsimVehicle vehicle) {
@@ -469,6 +485,34 @@ abstract class AbstractQLink implements QLinkI {
 		this.active = active;
 	}
 
+	/**
+	 * The earliest time at which {@link #doSimStep()} may change anything, assuming that nothing is added to the link in
+	 * between (which activates the link anew).  Links that cannot tell return <code>now</code>, i.e. are moved in every
+	 * time step.
+	 */
+	double getNextActionTime(double now) {
+		return now;
+	}
+
+	long getActivationSequence() {
+		return activationSequence;
+	}
+
+	void setActivationSequence(long activationSequence) {
+		this.activationSequence = activationSequence;
+	}
+
+	/**
+	 * @return the time until which the link is sleeping, or negative infinity if it is not sleeping
+	 */
+	double getSleepingUntil() {
+		return sleepingUntil;
+	}
+
+	void setSleepingUntil(double sleepingUntil) {
+		this.sleepingUntil = sleepingUntil;
+	}
+
 	Queue<QVehicle> getWaitingList() {
 		return waitingList;
 	}
@@ -525,6 +569,10 @@ abstract class AbstractQLink implements QLinkI {
 			AbstractQLink.this.activateLink();
 		}
 		
+		public void activateLinkUnlessWakingUpBefore(double time) {
+			AbstractQLink.this.activateLinkUnlessWakingUpBefore(time);
+		}
+		
 		public double getMaximumVelocityFromLinkSpeedCalculator(QVehicle veh, double now) {
 			final LinkSpeedCalculator linkSpeedCalculator = AbstractQLink.this.linkSpeedCalculator;
 			Gbl.assertNotNull(linkSpeedCalculator);
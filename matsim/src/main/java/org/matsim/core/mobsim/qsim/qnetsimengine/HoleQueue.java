@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleQueue.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+/**
+ * FIFO queue of the holes traveling upstream on a {@link QueueWithBuffer}.  The exit times and sizes are held in a
+ * growable ring buffer of primitives, so adding and removing holes does not allocate anything.
+ */
+final class HoleQueue {
+
+	private double[] exitTimes = new double[4];
+	private double[] sizes = new double[4];
+	private int head = 0;
+	private int size = 0;
+
+	void add(double earliestLinkExitTime, double sizeInEquivalents) {
+		if (this.size == this.exitTimes.length) {
+			grow();
+		}
+		int tail = (this.head + this.size) & (this.exitTimes.length - 1);
+		this.exitTimes[tail] = earliestLinkExitTime;
+		this.sizes[tail] = sizeInEquivalents;
+		this.size++;
+	}
+
+	boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the earliest link exit time of the first hole; only valid if the queue is not empty
+	 */
+	double peekEarliestLinkExitTime() {
+		return this.exitTimes[this.head];
+	}
+
+	/**
+	 * Removes the first hole.
+	 *
+	 * @return its size in equivalents
+	 */
+	double poll() {
+		double sizeInEquivalents = this.sizes[this.head];
+		this.head = (this.head + 1) & (this.exitTimes.length - 1);
+		this.size--;
+		return sizeInEquivalents;
+	}
+
+	void clear() {
+		this.head = 0;
+		this.size = 0;
+	}
+
+	/**
+	 * @return a copy of the earliest link exit times, first hole first.  Only meant for the visualizer.
+	 */
+	double[] copyEarliestLinkExitTimes() {
+		return copy(this.exitTimes);
+	}
+
+	/**
+	 * @return a copy of the sizes in equivalents, first hole first.  Only meant for the visualizer.
+	 */
+	double[] copySizesInEquivalents() {
+		return copy(this.sizes);
+	}
+
+	private double[] copy(double[] ring) {
+		double[] copy = new double[this.size];
+		int firstPart = Math.min(this.size, ring.length - this.head);
+		System.arraycopy(ring, this.head, copy, 0, firstPart);
+		System.arraycopy(ring, 0, copy, firstPart, this.size - firstPart);
+		return copy;
+	}
+
+	private void grow() {
+		// the capacity stays a power of two, so the indices can be wrapped with a mask
+		int capacity = this.exitTimes.length;
+		double[] newExitTimes = new double[2 * capacity];
+		double[] newSizes = new double[2 * capacity];
+		int firstPart = capacity - this.head;
+		System.arraycopy(this.exitTimes, this.head, newExitTimes, 0, firstPart);
+		System.arraycopy(this.exitTimes, 0, newExitTimes, firstPart, this.head);
+		System.arraycopy(this.sizes, this.head, newSizes, 0, firstPart);
+		System.arraycopy(this.sizes, 0, newSizes, firstPart, this.head);
+		this.exitTimes = newExitTimes;
+		this.sizes = newSizes;
+		this.head = 0;
+	}
+
+}
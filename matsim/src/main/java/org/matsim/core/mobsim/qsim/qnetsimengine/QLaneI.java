@@ -19,7 +19,11 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Identifiable;
@@ -53,6 +57,15 @@ public interface QLaneI extends Identifiable<Lane> {
 	
 	static interface VisData {
 		public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> positions, double now ) ;
+
+		/**
+		 * See {@link org.matsim.vis.snapshotwriters.VisData#addDeferredAgentSnapshotInfo}.
+		 */
+		public default void addDeferredAgentSnapshotInfo(Predicate<Id<?>> isInSample,
+				List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs, double now) {
+			org.matsim.vis.snapshotwriters.VisData.addPositionsInSample(addAgentSnapshotInfo(new ArrayList<>(), now), isInSample,
+					positionJobs);
+		}
 	}
 
 	VisData getVisData();
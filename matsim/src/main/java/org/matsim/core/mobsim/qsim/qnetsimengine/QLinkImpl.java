@@ -23,6 +23,8 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
@@ -167,6 +169,15 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		}
 	}
 
+	@Override
+	double getNextActionTime(double now) {
+		if ( !this.getWaitingList().isEmpty() || !this.getTransitQLink().getTransitVehicleStopQueue().isEmpty()
+				|| !(qlane instanceof QueueWithBuffer) ) {
+			return now;
+		}
+		return ((QueueWithBuffer) qlane).getNextActionTime(now);
+	}
+
 	@Override
 	public boolean isNotOfferingVehicle() {
 		return qlane.isNotOfferingVehicle();
@@ -285,29 +296,51 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		public Collection<AgentSnapshotInfo> addAgentSnapshotInfo( Collection<AgentSnapshotInfo> positions) {
 //			AbstractAgentSnapshotInfoBuilder snapshotInfoBuilder = qnetwork.simEngine.getAgentSnapshotInfoBuilder();
 
+			double now = context.getSimTimer().getTimeOfDay() ;
+			positions = getRoadVisData().addAgentSnapshotInfo(positions,now) ;
+
+			positionAgentsOffRoad(positions, id -> true);
+
+			return positions;
+		}
+
+		@Override
+		public void addDeferredAgentSnapshotInfo(Predicate<Id<?>> isInSample,
+				List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs) {
+			double now = context.getSimTimer().getTimeOfDay() ;
+			getRoadVisData().addDeferredAgentSnapshotInfo(isInSample, positionJobs, now);
+
+			// there are usually few agents off the road, so they are positioned right away
+			List<AgentSnapshotInfo> positions = new ArrayList<>();
+			positionAgentsOffRoad(positions, isInSample);
+			if (!positions.isEmpty()) {
+				positionJobs.add(allPositions -> allPositions.addAll(positions));
+			}
+		}
+
+		private QLaneI.VisData getRoadVisData() {
 			QLaneI.VisData roadVisData = getAcceptingQLane().getVisData() ;
 			if (visLink != null) {
 				((QueueWithBuffer.VisDataImpl)roadVisData).setVisInfo(visLink.getLinkStartCoord(), visLink.getLinkEndCoord()) ;
 				// yyyy not so great but an elegant solution needs more thinking about visualizer structure. kai, jun'13
 			}
+			return roadVisData;
+		}
 
-			double now = context.getSimTimer().getTimeOfDay() ;
-			positions = roadVisData.addAgentSnapshotInfo(positions,now) ;
-
+		private void positionAgentsOffRoad(Collection<AgentSnapshotInfo> positions, Predicate<Id<?>> isInSample) {
 			int cnt2 = 10 ; // a counter according to which non-moving items can be "spread out" in the visualization
 			// initialize a bit away from the lane
 
 			// treat vehicles from transit stops
-			cnt2 = context.snapshotInfoBuilder.positionVehiclesFromTransitStop(positions, getLink(), getTransitQLink().getTransitVehicleStopQueue(), cnt2 );
+			cnt2 = context.snapshotInfoBuilder.positionVehiclesFromTransitStop(positions, getLink(), getTransitQLink().getTransitVehicleStopQueue(), cnt2,
+					isInSample );
 
 			// treat vehicles from waiting list:
 			cnt2 = context.snapshotInfoBuilder.positionVehiclesFromWaitingList(positions, QLinkImpl.this.getLink(), cnt2,
-					QLinkImpl.this.getWaitingList());
+					QLinkImpl.this.getWaitingList(), isInSample);
 
 			cnt2 = context.snapshotInfoBuilder.positionAgentsInActivities(positions, QLinkImpl.this.getLink(),
-					QLinkImpl.this.getAdditionalAgentsOnLink(), cnt2);
-
-			return positions;
+					QLinkImpl.this.getAdditionalAgentsOnLink(), cnt2, isInSample);
 		}
 
 	}
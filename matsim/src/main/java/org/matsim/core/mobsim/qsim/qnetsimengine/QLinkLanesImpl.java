@@ -566,13 +566,13 @@ public final class QLinkLanesImpl extends AbstractQLink {
 
 			// treat vehicles from transit stops
 			cnt2 = context.snapshotInfoBuilder.positionVehiclesFromTransitStop(positions, getLink(),
-					getTransitQLink().getTransitVehicleStopQueue(), cnt2);
+					getTransitQLink().getTransitVehicleStopQueue(), cnt2, id -> true);
 			// treat vehicles from waiting list:
 			context.snapshotInfoBuilder.positionVehiclesFromWaitingList(positions,
-					QLinkLanesImpl.this.getLink(), cnt2, QLinkLanesImpl.this.getWaitingList());
+					QLinkLanesImpl.this.getLink(), cnt2, QLinkLanesImpl.this.getWaitingList(), id -> true);
 			cnt2 = QLinkLanesImpl.this.getWaitingList().size();
 			context.snapshotInfoBuilder.positionAgentsInActivities(positions, QLinkLanesImpl.this.getLink(),
-					QLinkLanesImpl.this.getAdditionalAgentsOnLink(), cnt2);
+					QLinkLanesImpl.this.getAdditionalAgentsOnLink(), cnt2, id -> true);
 
 			return positions;
 		}
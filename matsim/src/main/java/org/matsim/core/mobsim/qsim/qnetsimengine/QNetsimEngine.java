@@ -21,6 +21,7 @@
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
@@ -30,9 +31,11 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.StarttimeInterpretation;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
+import org.matsim.core.events.OrderedEventsBuffer;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
@@ -40,9 +43,10 @@ import org.matsim.core.mobsim.framework.MobsimTimer;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
-import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
+import org.matsim.core.mobsim.qsim.interfaces.MobsimEngineWithNextActionTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.NetsimNetwork;
+import org.matsim.core.network.algorithms.NetworkRegionPartitioning;
 import org.matsim.core.utils.misc.Time;
 import org.matsim.vehicles.Vehicle;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -52,9 +56,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -69,7 +75,7 @@ import java.util.concurrent.ThreadFactory;
  * @author dgrether
  * @author dstrippgen
  */
-public class QNetsimEngine implements MobsimEngine, NetsimEngine {
+public class QNetsimEngine implements MobsimEngineWithNextActionTime, NetsimEngine {
 
 	public interface NetsimInternalInterface {
 		QNetwork getNetsimNetwork();
@@ -107,6 +113,10 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 
 	private List<QNetsimEngineRunner> engines;
 
+	private IterationProfiler profiler = null;
+
+	private List<OrderedEventsBuffer> eventsBuffers = null;
+
 	private Phaser startBarrier;
 	private Phaser endBarrier;
 
@@ -129,6 +139,11 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		this.internalInterface = internalInterface;
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setProfiler(IterationProfiler profiler) {
+		this.profiler = profiler;
+	}
+
 	public QNetsimEngine(final QSim sim) {
 		this(sim, null);
 	}
@@ -335,9 +350,25 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 			this.startBarrier.arriveAndAwaitAdvance();
 			this.endBarrier.arriveAndAwaitAdvance();
 		}
+
+		if (this.eventsBuffers != null) {
+			OrderedEventsBuffer.flush(this.eventsBuffers);
+		}
 	}
 
 
+	/**
+	 * @return negative infinity if a node or link is active, otherwise the time at which the first sleeping link wakes up
+	 */
+	@Override
+	public double getNextActionTime() {
+		double nextActionTime = Double.POSITIVE_INFINITY;
+		for (QNetsimEngineRunner engine : this.engines) {
+			nextActionTime = Math.min(nextActionTime, engine.getNextActionTime());
+		}
+		return nextActionTime;
+	}
+
 	/*package*/ void printSimLog(double time) {
 		if (time >= this.infoTime) {
 			this.infoTime += INFO_PERIOD;
@@ -435,6 +466,25 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 					new NamedThreadFactory());
 		}
 
+		/*
+		 * With deterministic parallelism, the events of the nodes and links are passed on at the end of the time step,
+		 * nodes before links, each sorted by id.  So their order does not depend on which runner moved which element.
+		 */
+		Map<QNodeI, Integer> nodeKeys = null;
+		Map<QLinkI, Integer> linkKeys = null;
+		if (this.qsim.getScenario().getConfig().qsim().isUsingDeterministicParallelism()) {
+			this.eventsBuffers = new ArrayList<>();
+			nodeKeys = new IdentityHashMap<>();
+			linkKeys = new IdentityHashMap<>();
+			int key = 0;
+			for (QNodeI node : new TreeMap<>(this.network.getNetsimNodes()).values()) {
+				nodeKeys.put(node, key++);
+			}
+			for (QLinkI link : new TreeMap<>(this.network.getNetsimLinks()).values()) {
+				linkKeys.put(link, key++);
+			}
+		}
+
 		// setup threads
 		for (int i = 0; i < numOfRunners; i++) {
 			QNetsimEngineRunner engine ;
@@ -447,6 +497,19 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 				thread.setDaemon(true);	// make the Thread Daemons so they will terminate automatically
 				thread.start();
 			}
+			if (this.eventsBuffers != null) {
+				OrderedEventsBuffer eventsBuffer = new OrderedEventsBuffer();
+				engine.setOrderedEventsBuffer(eventsBuffer, nodeKeys, linkKeys);
+				this.eventsBuffers.add(eventsBuffer);
+			}
+			if (this.qsim.getScenario().getConfig().qsim().isUsingEventDrivenActivation()
+					|| this.qsim.getScenario().getConfig().qsim().isUsingLinkFastForward()) {
+				// (fast forward uses the same calendar of sleeping links, but not the skipping of idle time steps)
+				engine.setEventDrivenActivation(this.qsim.getScenario().getConfig().qsim().getTimeStepSize());
+			}
+			if (this.profiler != null && this.profiler.isEnabled()) {
+				engine.setProfilerTimers(this.profiler.getTimer("mobsim.qnetsim.moveNodes"), this.profiler.getTimer("mobsim.qnetsim.moveLinks"));
+			}
 			this.engines.add(engine);
 		}
 
@@ -469,9 +532,16 @@ public class QNetsimEngine implements MobsimEngine, NetsimEngine {
 		int nodes[] = new int[numOfRunners];
 		int links[] = new int[numOfRunners];
 
+		NetworkRegionPartitioning regions = null;
+		if (this.qsim.getScenario().getConfig().qsim().getNetworkPartitioning() == NetworkPartitioning.regions) {
+			regions = new NetworkRegionPartitioning(this.numOfRunners);
+			regions.run(this.network.getNetwork());
+			log.info(regions.getNumberOfBoundaryLinks() + " links lead from the region of one QSimEngineRunner into the region of another.");
+		}
+
 		int roundRobin = 0;
 		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.numOfRunners;
+			int i = regions == null ? roundRobin % this.numOfRunners : regions.getRegion(node.getNode().getId());
 			if ( node instanceof QNodeImpl ) {
 				((QNodeImpl) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
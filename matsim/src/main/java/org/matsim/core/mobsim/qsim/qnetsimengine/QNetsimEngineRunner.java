@@ -20,6 +20,8 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import org.matsim.analysis.IterationProfiler;
+import org.matsim.core.events.OrderedEventsBuffer;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.qsim.QSim;
 
@@ -60,7 +62,7 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 * no concurrent add operation can occur.
 	 * cdobler, sep'14
 	 */
-	private final List<QLinkI> linksList = new LinkedList<>();
+	private List<QLinkI> linksList = new LinkedList<>();
 
 	/*
 	 * Ensure that nodes and links are only activate during times where we expect it.
@@ -82,6 +84,39 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		if (QSim.analyzeRunTimes) runTimes = new long[QNetsimEngine.numObservedTimeSteps];
 		else runTimes = null;
 	}
+
+	// null if the iteration profiler is not enabled
+	private IterationProfiler.Timer moveNodesTimer = null;
+	private IterationProfiler.Timer moveLinksTimer = null;
+
+	// only for deterministic parallelism, otherwise null
+	private OrderedEventsBuffer eventsBuffer = null;
+	private Map<QNodeI, Integer> nodeKeys = null;
+	private Map<QLinkI, Integer> linkKeys = null;
+
+	/*
+	 * Only for event-driven activation, otherwise null.  Links on which nothing can happen for more than one time step are
+	 * taken out of the linksList and put to sleep in the calendar until their next action time, or until they are activated
+	 * from the outside.  Links that wake up go back to their old position in the linksList, so that the links are moved in the
+	 * same order as without sleeping.  This matters since the order of the links determines the order in which the nodes are
+	 * activated, and thus in which they draw random numbers.
+	 */
+	private PriorityQueue<SleepingLink> wakeUpCalendar = null;
+	private List<QLinkI> movedLinks = null;
+	private final List<AbstractQLink> wokenLinks = new ArrayList<>();
+	private long activationCounter = 0;
+	private int numberOfSleepingLinks = 0;
+	private double timeStepSize = 1.;
+
+	private static final class SleepingLink {
+		final AbstractQLink link;
+		final double wakeUpTime;
+
+		SleepingLink(AbstractQLink link, double wakeUpTime) {
+			this.link = link;
+			this.wakeUpTime = wakeUpTime;
+		}
+	}
 	
 	/*package*/ QNetsimEngineRunner(Phaser startBarrier, Phaser separationBarrier, Phaser endBarrier) {
 		this.startBarrier = startBarrier;
@@ -96,6 +131,45 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		this.endBarrier = null;
 	}
 
+	/*package*/ void setProfilerTimers(IterationProfiler.Timer moveNodesTimer, IterationProfiler.Timer moveLinksTimer) {
+		this.moveNodesTimer = moveNodesTimer;
+		this.moveLinksTimer = moveLinksTimer;
+	}
+
+	/**
+	 * Collects the events of the nodes and links moved by this runner in the buffer, instead of passing them on immediately.
+	 * The keys define the order of the nodes and links when the buffers of all runners are flushed.
+	 */
+	/*package*/ void setOrderedEventsBuffer(OrderedEventsBuffer eventsBuffer, Map<QNodeI, Integer> nodeKeys, Map<QLinkI, Integer> linkKeys) {
+		this.eventsBuffer = eventsBuffer;
+		this.nodeKeys = nodeKeys;
+		this.linkKeys = linkKeys;
+	}
+
+	/**
+	 * Lets links sleep while nothing can happen on them, see {@link AbstractQLink#getNextActionTime(double)}.  Must be called
+	 * before the first link is activated.
+	 */
+	/*package*/ void setEventDrivenActivation(double timeStepSize) {
+		this.timeStepSize = timeStepSize;
+		this.wakeUpCalendar = new PriorityQueue<>(Comparator.comparingDouble(sleepingLink -> sleepingLink.wakeUpTime));
+		// the lists are swapped in every time step, see moveLinks()
+		this.linksList = new ArrayList<>();
+		this.movedLinks = new ArrayList<>();
+	}
+
+	/**
+	 * @return the earliest time at which a node or link of this runner may have something to do; negative infinity if this is
+	 * the case in every time step
+	 */
+	/*package*/ double getNextActionTime() {
+		if (!this.nodesQueue.isEmpty() || !this.linksList.isEmpty() || !this.wokenLinks.isEmpty()) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		// (may be the time of a link that was already woken up from the outside; this is too early, but not wrong)
+		return this.wakeUpCalendar == null || this.wakeUpCalendar.isEmpty() ? Double.POSITIVE_INFINITY : this.wakeUpCalendar.peek().wakeUpTime;
+	}
+
 	/*package*/ void setTime(final double t) {
 		time = t;
 	}
@@ -165,30 +239,99 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 		}
 	}
 	private void moveNodes() {
+		final long profilerStart = this.moveNodesTimer != null ? System.nanoTime() : 0;
 		boolean remainsActive;
 		this.lockNodes = true;
+		if (this.eventsBuffer != null) this.eventsBuffer.bindToCurrentThread();
 		QNodeImpl node;
 		Iterator<QNodeImpl> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.eventsBuffer != null) this.eventsBuffer.startElement(this.nodeKeys.get(node));
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
+		if (this.eventsBuffer != null) this.eventsBuffer.unbindFromCurrentThread();
 		this.lockNodes = false;
+		if (this.moveNodesTimer != null) this.moveNodesTimer.add(System.nanoTime() - profilerStart);
 	}
 	private void moveLinks() {
+		final long profilerStart = this.moveLinksTimer != null ? System.nanoTime() : 0;
 		boolean remainsActive;
 		lockLinks = true;
-		QLinkI link;
-		ListIterator<QLinkI> simLinks = this.linksList.listIterator();
-		while (simLinks.hasNext()) {
-			link = simLinks.next();
+		if (this.eventsBuffer != null) this.eventsBuffer.bindToCurrentThread();
+		if (this.wakeUpCalendar != null) {
+			moveLinksEventDriven();
+		} else {
+			QLinkI link;
+			ListIterator<QLinkI> simLinks = this.linksList.listIterator();
+			while (simLinks.hasNext()) {
+				link = simLinks.next();
+				if (this.eventsBuffer != null) this.eventsBuffer.startElement(this.linkKeys.get(link));
 
-			remainsActive = link.doSimStep();
+				remainsActive = link.doSimStep();
 
-			if (!remainsActive) simLinks.remove();
+				if (!remainsActive) simLinks.remove();
+			}
 		}
+		if (this.eventsBuffer != null) this.eventsBuffer.unbindFromCurrentThread();
 		lockLinks = false;
+		if (this.moveLinksTimer != null) this.moveLinksTimer.add(System.nanoTime() - profilerStart);
+	}
+
+	private void moveLinksEventDriven() {
+		while (!this.wakeUpCalendar.isEmpty() && this.wakeUpCalendar.peek().wakeUpTime <= this.time) {
+			SleepingLink sleepingLink = this.wakeUpCalendar.poll();
+			// (entries of links that were woken up from the outside in the meantime are outdated)
+			if (sleepingLink.link.getSleepingUntil() == sleepingLink.wakeUpTime) {
+				sleepingLink.link.setSleepingUntil(Double.NEGATIVE_INFINITY);
+				sleepingLink.link.setActive(true);
+				this.numberOfSleepingLinks--;
+				this.wokenLinks.add(sleepingLink.link);
+			}
+		}
+		if (this.wokenLinks.size() > 1) {
+			this.wokenLinks.sort(Comparator.comparingLong(AbstractQLink::getActivationSequence));
+		}
+
+		// merge the woken links into the active links, both are sorted by activation sequence
+		int woken = 0;
+		for (QLinkI link : this.linksList) {
+			long activationSequence = ((AbstractQLink) link).getActivationSequence();
+			while (woken < this.wokenLinks.size() && this.wokenLinks.get(woken).getActivationSequence() < activationSequence) {
+				moveLinkEventDriven(this.wokenLinks.get(woken++));
+			}
+			moveLinkEventDriven(link);
+		}
+		while (woken < this.wokenLinks.size()) {
+			moveLinkEventDriven(this.wokenLinks.get(woken++));
+		}
+		this.wokenLinks.clear();
+
+		List<QLinkI> tmp = this.linksList;
+		this.linksList = this.movedLinks;
+		this.movedLinks = tmp;
+		this.movedLinks.clear();
+	}
+
+	private void moveLinkEventDriven(QLinkI link) {
+		if (this.eventsBuffer != null) this.eventsBuffer.startElement(this.linkKeys.get(link));
+
+		if (!link.doSimStep()) {
+			return;
+		}
+
+		AbstractQLink qLink = (AbstractQLink) link;
+		double nextActionTime = qLink.getNextActionTime(this.time);
+		if (nextActionTime > this.time + this.timeStepSize) {
+			// inactive for the outside, so that it is woken up when something is added to it
+			qLink.setActive(false);
+			qLink.setSleepingUntil(nextActionTime);
+			this.numberOfSleepingLinks++;
+			this.wakeUpCalendar.add(new SleepingLink(qLink, nextActionTime));
+		} else {
+			this.movedLinks.add(link);
+		}
 	}
 
 	/*
@@ -198,13 +341,27 @@ class QNetsimEngineRunner extends NetElementActivationRegistry implements Runnab
 	 */
 	@Override
 	protected void registerLinkAsActive(QLinkI link) {
-		if (!lockLinks) linksList.add(link);
-		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		if (lockLinks) {
+			throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		}
+		if (this.wakeUpCalendar != null) {
+			AbstractQLink qLink = (AbstractQLink) link;
+			if (qLink.getSleepingUntil() != Double.NEGATIVE_INFINITY) {
+				// a sleeping link goes back to its old position, as if it had been active all the time
+				qLink.setSleepingUntil(Double.NEGATIVE_INFINITY);
+				this.numberOfSleepingLinks--;
+				this.wokenLinks.add(qLink);
+				return;
+			}
+			qLink.setActivationSequence(this.activationCounter++);
+		}
+		linksList.add(link);
 	}
 
 	@Override
 	public int getNumberOfSimulatedLinks() {
-		return this.linksList.size();
+		// (sleeping links are counted since they are active in the sense of the time-stepped engine)
+		return this.linksList.size() + this.wokenLinks.size() + this.numberOfSleepingLinks;
 	}
 
 	/*
@@ -95,7 +95,10 @@ final class QNodeImpl implements QNodeI {
 		int nofInLinks = this.node.getInLinks().size();
 		this.inLinksArrayCache = new QLinkI[nofInLinks];
 		this.tempLinks = new QLinkI[nofInLinks];
-		if (this.context.qsimConfig.getNumberOfThreads() > 1) {
+		if (this.context.qsimConfig.isUsingDeterministicParallelism()) {
+			// independent of the number of threads and of the order in which the nodes are created
+			this.random = MatsimRandom.getLocalInstance(n.getId().toString());
+		} else if (this.context.qsimConfig.getNumberOfThreads() > 1) {
 			// This could just as well be the "normal" case. The second alternative
 			// is just there so some scenarios / test cases stay
 			// "event-file-compatible". Consider removing the second alternative.
@@ -19,13 +19,10 @@
  * *********************************************************************** */
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
-import java.util.Collection;
-
 import javax.inject.Inject;
 
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
-import org.matsim.vis.snapshotwriters.VisVehicle;
 
 
 /**
@@ -46,14 +43,10 @@ class QueueAgentSnapshotInfoBuilder extends AbstractAgentSnapshotInfoBuilder {
 
 	@Override
 	public double calculateVehicleSpacing(double curvedLength, double overallStorageCapacity,
-			Collection<? extends VisVehicle> vehs) {
+			double sizeInEquivalentsOfVehicles) {
 		// the length of a vehicle in visualization
 		
-		double sum = 0. ;
-		for ( VisVehicle veh : vehs ) {
-			sum += veh.getSizeInEquivalents() ;
-		}
-
+		double sum = sizeInEquivalentsOfVehicles ;
 
 		double vehLen = Math.min( 
 				curvedLength / overallStorageCapacity , // number of ``cells''
@@ -50,6 +50,8 @@ import org.matsim.vis.snapshotwriters.AgentSnapshotInfo;
 import org.matsim.vis.snapshotwriters.VisVehicle;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Separating out the "lane" functionality from the "link" functionality.
@@ -142,7 +144,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final HoleQueue holes = new HoleQueue();
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Time.getUndefinedTime() ;
@@ -157,7 +159,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -175,6 +177,9 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private final double length ;
 	private double unscaledFlowCapacity_s = Double.NaN ;
 	private double effectiveNumberOfLanes = Double.NaN ;
+	// the values the capacities were last calculated for:
+	private double calculatedForUnscaledFlowCapacity_s = Double.NaN ;
+	private double calculatedForEffectiveNumberOfLanes = Double.NaN ;
 
 	private final VisData visData = new VisDataImpl() ;
 	private final NetsimEngineContext context;
@@ -203,8 +208,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 //		if (Double.isNaN(freespeedTravelTime)) {
 //			throw new IllegalStateException("Double.NaN is not a valid freespeed travel time for a link. Please check the attributes length and freespeed!");
 //		}
-		this.calculateFlowCapacity();
-		this.calculateStorageCapacity();
+		this.calculateCapacities();
 
 		flowcap_accumulate.setValue(flowCapacityPerTimeStep);
 
@@ -299,6 +303,13 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 	}
 	private static int wrnCnt=0 ;
+	private void calculateCapacities() {
+		calculateFlowCapacity();
+		calculateStorageCapacity();
+		this.calculatedForUnscaledFlowCapacity_s = this.unscaledFlowCapacity_s ;
+		this.calculatedForEffectiveNumberOfLanes = this.effectiveNumberOfLanes ;
+	}
+
 	private void calculateFlowCapacity() {
 		// the following is not looking at time because it simply assumes that the lookups are "now". kai, feb'18
 		// I am currently not sure if this statement is correct. kai, feb'18
@@ -450,9 +461,8 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	private void processArrivalOfHoles() {
 		double now = context.getSimTimer().getTimeOfDay() ;
-		while ( this.holes.size()>0 && this.holes.peek().getEarliestLinkExitTime() < now ) {
-			Hole hole = this.holes.poll() ; // ???
-			this.remainingHolesStorageCapacity += hole.getSizeInEquivalents() ;
+		while ( !this.holes.isEmpty() && this.holes.peekEarliestLinkExitTime() < now ) {
+			this.remainingHolesStorageCapacity += this.holes.poll() ;
 		}
 	}
 
@@ -538,7 +548,6 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 				break;
 			case withHoles:
 			case kinematicWaves:
-				QueueWithBuffer.Hole hole = new QueueWithBuffer.Hole() ;
 				double ttimeOfHoles = length*3600./HOLE_SPEED_KM_H/1000. ;
 
 				//			double offset = this.storageCapacity/this.flowCapacityPerTimeStep ;
@@ -555,9 +564,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 				//			double nLanes = 2. * flowCapacityPerTimeStep ; // pseudo-lanes
 				//			double ttimeOfHoles = 0.1 * this.storageCapacity/this.flowCapacityPerTimeStep/nLanes ;
 
-				hole.setEarliestLinkExitTime( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles ) ;
-				hole.setSizeInEquivalents(veh2Remove.getSizeInEquivalents());
-				holes.add( hole ) ;
+				holes.add( now + 1.0*ttimeOfHoles + 0.0*MatsimRandom.getRandom().nextDouble()*ttimeOfHoles, veh2Remove.getSizeInEquivalents() ) ;
 				break;
 			default: throw new RuntimeException("The traffic dynmics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
 		}
@@ -577,6 +584,52 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 	}
 
+	/**
+	 * The earliest time at which {@link #doSimStep()} may change anything, assuming that no vehicle is added in between: the
+	 * first vehicle may leave the queue, or the next hole arrives.  Returns <code>now</code> if the lane needs to be moved in
+	 * every time step, e.g. because the flow capacity is accumulated step by step.
+	 * <p></p>
+	 * With fast forward, lanes that are occupied more than {@link QSimConfigGroup#getLinkFastForwardMaxOccupancy()} are
+	 * moved in every time step, and lanes with kinematic waves can tell their next action time as long as their inflow
+	 * capacity is fully accumulated.
+	 */
+	final double getNextActionTime( final double now ) {
+		if ( !context.qsimConfig.isUsingFastCapacityUpdate() || context.qsimConfig.isUseLanes()
+				|| context.qsimConfig.getLinkDynamics()==LinkDynamics.SeepageQ ) {
+			// (with seepage, vehicles further back in the queue may leave before the first one)
+			return now ;
+		}
+		final boolean fastForward = context.qsimConfig.isUsingLinkFastForward() ;
+		if ( fastForward && this.usedStorageCapacity > context.qsimConfig.getLinkFastForwardMaxOccupancy() * this.storageCapacity ) {
+			// congested; back to the time-stepped queue simulation
+			return now ;
+		}
+		double nextActionTime = Double.POSITIVE_INFINITY ;
+		switch (context.qsimConfig.getTrafficDynamics()) {
+			case queue:
+				break;
+			case kinematicWaves:
+				if ( !fastForward || this.accumulatedInflowCap < this.maxFlowFromFdiag ) {
+					// the inflow capacity is accumulated in every time step, see doSimStep(); once it is full, this changes nothing
+					return now ;
+				}
+				// fall through
+			case withHoles:
+				if ( !this.holes.isEmpty() ) {
+					// holes arrive in the first time step _after_ their earliest link exit time, see processArrivalOfHoles()
+					nextActionTime = Math.nextUp( this.holes.peekEarliestLinkExitTime() ) ;
+				}
+				break;
+			default:
+				return now ;
+		}
+		QVehicle veh = this.vehQueue.peek() ;
+		if ( veh != null ) {
+			nextActionTime = Math.min( nextActionTime, veh.getEarliestLinkExitTime() ) ;
+		}
+		return nextActionTime ;
+	}
+
 	@Override
 	public final void setSignalStateAllTurningMoves( final SignalGroupState state) {
 		qSignalizedItem.setSignalStateAllTurningMoves(state);
@@ -620,13 +673,17 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	@Override
 	public void recalcTimeVariantAttributes() {
 		// not speed, since that is looked up anyways.
-		// yy might also make flow and storage self-detecting changes (not really that
-		// much more expensive). kai, feb'18
 		
 //		log.debug("just entered recalcTimeVariantAttributes; now=" + this.context.getSimTimer().getTimeOfDay() ) ;
 		
-		calculateFlowCapacity();
-		calculateStorageCapacity();
+		if ( this.unscaledFlowCapacity_s != this.calculatedForUnscaledFlowCapacity_s
+				|| this.effectiveNumberOfLanes != this.calculatedForEffectiveNumberOfLanes ) {
+			calculateCapacities();
+		} else if ( context.qsimConfig.getTrafficDynamics() != TrafficDynamics.queue ) {
+			// nothing to recalculate (e.g. a change event of the freespeed only), but keep resetting the holes
+			// storage capacity as calculateStorageCapacity() does it:
+			remainingHolesStorageCapacity = this.storageCapacity;
+		}
 		flowcap_accumulate.setValue(flowCapacityPerTimeStep);
 	}
 
@@ -760,8 +817,10 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 			}
 		}
 
-		// activate link since there is now action on it:
-		qLink.activateLink();
+		// activate link since there is now action on it (with fast forward, only if needed, see below):
+		if ( !context.qsimConfig.isUsingLinkFastForward() ) {
+			qLink.activateLink();
+		}
 
 		if(context.qsimConfig.isSeepModeStorageFree() && context.qsimConfig.getSeepModes().contains( veh.getVehicle().getType().getId().toString() ) ){
 			// do nothing
@@ -801,6 +860,11 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 				break;
 			default: throw new RuntimeException("The traffic dynamics "+context.qsimConfig.getTrafficDynamics()+" is not implemented yet.");
 		}
+
+		if ( context.qsimConfig.isUsingLinkFastForward() ) {
+			// a sleeping link need not be woken up if the vehicle cannot leave before the link wakes up anyway:
+			qLink.activateLinkUnlessWakingUpBefore( this.getNextActionTime( now ) );
+		}
 	}
 
 	private boolean hasMoreThanOneLane() {
@@ -844,95 +908,77 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 
 	@Override
 	public final void changeUnscaledFlowCapacityPerSecond( final double val ) {
-		this.unscaledFlowCapacity_s = val ;
-		// be defensive (might now be called twice):
-		this.recalcTimeVariantAttributes();
+		if ( val != this.unscaledFlowCapacity_s ) {
+			this.unscaledFlowCapacity_s = val ;
+			// be defensive (might now be called twice):
+			this.recalcTimeVariantAttributes();
+		}
 	}
 
 	@Override
 	public final void changeEffectiveNumberOfLanes( final double val ) {
-		this.effectiveNumberOfLanes = val ;
-		// be defensive (might now be called twice):
-		this.recalcTimeVariantAttributes();
+		if ( val != this.effectiveNumberOfLanes ) {
+			this.effectiveNumberOfLanes = val ;
+			// be defensive (might now be called twice):
+			this.recalcTimeVariantAttributes();
+		}
 	}
 
 	@Override public Id<Lane> getId() {
 		return this.id;
 	}
 
-	static final class Hole implements QItem {
-		private double earliestLinkEndTime ;
-		private double pcu;
-
-		@Override
-		public final double getEarliestLinkExitTime() {
-			return earliestLinkEndTime;
-		}
-
-		@Override
-		public final void setEarliestLinkExitTime( double earliestLinkEndTime ) {
-			this.earliestLinkEndTime = earliestLinkEndTime;
-		}
-
-		@Override
-		public final double getSizeInEquivalents() {
-			return this.pcu;
-		}
-
-		final void setSizeInEquivalents(double pcuFactorOfHole) {
-			this.pcu = pcuFactorOfHole;
-		}
-
-		@Override
-		public Vehicle getVehicle() {
-			return null ;
-		}
-
-		@Override
-		public MobsimDriverAgent getDriver() {
-			return null ;
-		}
-
-		@Override
-		public Id<Vehicle> getId() {
-			return null ;
-		}
-	}
-
 	class VisDataImpl implements QLaneI.VisData {
 		private Coord upstreamCoord;
 		private Coord downstreamCoord;
 
 		@Override
 		public final Collection<AgentSnapshotInfo> addAgentSnapshotInfo(Collection<AgentSnapshotInfo> positions, double now) {
-			if ( !buffer.isEmpty() || !vehQueue.isEmpty() || !holes.isEmpty() ) {
-				Gbl.assertNotNull(positions);
-				Gbl.assertNotNull( context.snapshotInfoBuilder );
-				if ( this.upstreamCoord==null ) {
-					this.upstreamCoord = qLink.getFromNode().getCoord() ;
-				}
-				if ( this.downstreamCoord==null ) {
-					this.downstreamCoord = qLink.getToNode().getCoord() ;
-				}
-				// vehicle positions are computed in snapshotInfoBuilder as a service:
-				positions = context.snapshotInfoBuilder.positionVehiclesAlongLine(
-						positions,
-						now,
-						getAllVehicles(),
-						length,
-						storageCapacity + getBufferStorageCapacity(),
-						this.upstreamCoord,
-						this.downstreamCoord,
-						inverseFlowCapacityPerTimeStep,
-						qLink.getFreespeed(now),
-//						NetworkUtils.getNumberOfLanesAsInt(now, qLink.getLink()),
-						qLink.getNumberOfLanesAsInt(now) ,
-						holes
-						);
+			Gbl.assertNotNull(positions);
+			Consumer<Collection<AgentSnapshotInfo>> positionJob = copyVehiclesAlongLine(id -> true, now);
+			if ( positionJob != null ) {
+				positionJob.accept(positions);
 			}
 			return positions ;
 		}
 
+		@Override
+		public final void addDeferredAgentSnapshotInfo(Predicate<Id<?>> isInSample,
+				List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs, double now) {
+			Consumer<Collection<AgentSnapshotInfo>> positionJob = copyVehiclesAlongLine(isInSample, now);
+			if ( positionJob != null ) {
+				positionJobs.add(positionJob);
+			}
+		}
+
+		private Consumer<Collection<AgentSnapshotInfo>> copyVehiclesAlongLine(Predicate<Id<?>> isInSample, double now) {
+			if ( buffer.isEmpty() && vehQueue.isEmpty() && holes.isEmpty() ) {
+				return null;
+			}
+			Gbl.assertNotNull( context.snapshotInfoBuilder );
+			if ( this.upstreamCoord==null ) {
+				this.upstreamCoord = qLink.getFromNode().getCoord() ;
+			}
+			if ( this.downstreamCoord==null ) {
+				this.downstreamCoord = qLink.getToNode().getCoord() ;
+			}
+			// vehicle positions are computed in snapshotInfoBuilder as a service:
+			return context.snapshotInfoBuilder.copyVehiclesAlongLine(
+					isInSample,
+					now,
+					getAllVehicles(),
+					length,
+					storageCapacity + getBufferStorageCapacity(),
+					this.upstreamCoord,
+					this.downstreamCoord,
+					inverseFlowCapacityPerTimeStep,
+					qLink.getFreespeed(now),
+//					NetworkUtils.getNumberOfLanesAsInt(now, qLink.getLink()),
+					qLink.getNumberOfLanesAsInt(now) ,
+					holes
+					);
+		}
+
 		void setVisInfo(Coord upstreamCoord, Coord downstreamCoord) {
 			this.upstreamCoord = upstreamCoord;
 			this.downstreamCoord = downstreamCoord;
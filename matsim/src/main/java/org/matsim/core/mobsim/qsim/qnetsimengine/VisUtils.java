@@ -21,8 +21,10 @@ package org.matsim.core.mobsim.qsim.qnetsimengine;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Identifiable;
 import org.matsim.core.mobsim.framework.PassengerAgent;
+import org.matsim.vehicles.Vehicle;
 
 /**
  * @author nagel
@@ -46,12 +48,12 @@ final class VisUtils {
 		return people;
 	}
 
-	public final static Integer guessLane(QVehicle veh, int numberOfLanes){
+	public final static Integer guessLane(Id<Vehicle> vehicleId, int numberOfLanes){
 		Integer tmpLane;
 		try {
-			tmpLane = Integer.parseInt(veh.getId().toString()) ;
+			tmpLane = Integer.parseInt(vehicleId.toString()) ;
 		} catch ( NumberFormatException ee ) {
-			tmpLane = veh.getId().hashCode() ;
+			tmpLane = vehicleId.hashCode() ;
 			if (tmpLane < 0 ){
 				tmpLane = -tmpLane;
 			}
@@ -60,8 +62,8 @@ final class VisUtils {
 		return lane;
 	}
 
-	public final static double calcSpeedValueBetweenZeroAndOne(QVehicle veh, double inverseSimulatedFlowCapacity, double now, double freespeed){
-		int cmp = (int) (veh.getEarliestLinkExitTime() + inverseSimulatedFlowCapacity + 2.0);
+	public final static double calcSpeedValueBetweenZeroAndOne(double earliestLinkExitTime, double inverseSimulatedFlowCapacity, double now){
+		int cmp = (int) (earliestLinkExitTime + inverseSimulatedFlowCapacity + 2.0);
 		// "inverseSimulatedFlowCapacity" is there to keep vehicles green that only wait for capacity (i.e. have no vehicle
 		// ahead). Especially important with small samples sizes.  This is debatable :-).  kai, jan'11
 	
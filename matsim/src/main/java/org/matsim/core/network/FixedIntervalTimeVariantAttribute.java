@@ -59,7 +59,7 @@ implements TimeVariantAttribute
 
 	//TODO before calling this method we could convert changeEvents into a sequence of non-null changeValues
 	@Override
-	public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
+	public void recalc(List<NetworkChangeEvent> changeEvents,
 			ChangeValueGetter valueGetter, double baseValue1)
 	{
 		this.baseValue = baseValue1;
@@ -79,7 +79,7 @@ implements TimeVariantAttribute
 		int fromBin = 0;//inclusive
 		double currentValue = baseValue1;
 		if (changeEvents != null) {
-			for (NetworkChangeEvent event : changeEvents.values()) {
+			for (NetworkChangeEvent event : changeEvents) {
 				ChangeValue value = valueGetter.getChangeValue(event);
 				if (value != null) {
 					numEvent++;
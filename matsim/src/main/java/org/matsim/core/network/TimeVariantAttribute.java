@@ -19,7 +19,7 @@
 
 package org.matsim.core.network;
 
-import java.util.TreeMap;
+import java.util.List;
 
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 
@@ -53,7 +53,11 @@ public interface TimeVariantAttribute
 
 	boolean isRecalcRequired();
 
-	void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents, ChangeValueGetter valueGetter, double baseValue);
+	/**
+	 * @param changeEvents the change events of the link, sorted by start time; events with the same start time in the order
+	 * in which they were applied to the link.  May be <code>null</code> if there are none.
+	 */
+	void recalc(List<NetworkChangeEvent> changeEvents, ChangeValueGetter valueGetter, double baseValue);
 
 	void incChangeEvents();
 
@@ -20,7 +20,8 @@
 
 package org.matsim.core.network;
 
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.*;
@@ -36,7 +37,11 @@ import org.matsim.api.core.v01.network.*;
 	// member variables
 	//////////////////////////////////////////////////////////////////////
 
-	private TreeMap<Double,NetworkChangeEvent> changeEvents;
+	/*
+	 * Sorted by start time; events with the same start time in the order in which they were applied.  (A map by start time
+	 * would lose all but one of several events with the same start time.)
+	 */
+	private List<NetworkChangeEvent> changeEvents;
 
 	private final TimeVariantAttribute variableFreespeed;
 	private final TimeVariantAttribute variableFlowCapacity;
@@ -85,9 +90,14 @@ import org.matsim.api.core.v01.network.*;
 	 */
 	protected synchronized void applyEvent(final NetworkChangeEvent event) {
 		if(this.changeEvents == null)
-			this.changeEvents = new TreeMap<>();
+			this.changeEvents = new ArrayList<>();
 
-		this.changeEvents.put(event.getStartTime(), event);
+		// the events are usually applied in chronological order, so they can simply be appended:
+		int index = this.changeEvents.size();
+		if (index > 0 && this.changeEvents.get(index - 1).getStartTime() > event.getStartTime()) {
+			index = getInsertionIndex(event.getStartTime());
+		}
+		this.changeEvents.add(index, event);
 
 		if (event.getFreespeedChange() != null) {
 			this.variableFreespeed.incChangeEvents();
@@ -102,6 +112,23 @@ import org.matsim.api.core.v01.network.*;
 
 
 
+	/**
+	 * @return the index after the last event that does not start later than the given time.
+	 */
+	private int getInsertionIndex(final double startTime) {
+		int low = 0;
+		int high = this.changeEvents.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (this.changeEvents.get(mid).getStartTime() <= startTime) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
 	/**
 	 * Removes all NetworkChangeEvents so that the link's attributes will be
 	 * reset to their initial values.
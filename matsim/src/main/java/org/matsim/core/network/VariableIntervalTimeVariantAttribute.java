@@ -28,6 +28,7 @@ final class VariableIntervalTimeVariantAttribute
 implements TimeVariantAttribute
 {
 	private int aEvents = 1;
+	private int aEventsWhenLastRecalc = -1;
 	private double[] aValues;
 	private double[] aTimes;
 
@@ -35,21 +36,14 @@ implements TimeVariantAttribute
 	@Override
 	public boolean isRecalcRequired()
 	{
-		return (this.aTimes == null) || (this.aTimes.length != this.aEvents);
-		// The first condition just says if there is no material, we don't need to do anything.
-		// yyyy The second condition is a bit weird.  It essentially checks if the cached data structure (aTimes) has
-		// as many entries as it should have (given by aEvents).  This does need, however, an honest calling of
-		// incChangeEvents().  Why not just compare aTimes.length to changeEvents.length?
-		// Counterargument might be that we may not have changeEvents.length available when we call isRecalcRequired().
-		// I do think, however, that this does not happen and also cannot happen, because we need the info anyway for recalculation.
-		// If going into this direction, then incChangeEvents(), isRecalcRequired(), recalc(...) might not be necessary
-		// as exposed interface methods any more; in contrast, getValue would need more arguments.
-		// kai, jul'17
+		return this.aEventsWhenLastRecalc != this.aEvents;
+		// This relies on an honest calling of incChangeEvents() for every change event of the attribute.  The arrays
+		// cannot be used for the check since change events with the same start time share one entry.
 	}
 
 
 	@Override
-	public void recalc(TreeMap<Double, NetworkChangeEvent> changeEvents,
+	public void recalc(List<NetworkChangeEvent> changeEvents,
 			ChangeValueGetter valueGetter, double baseValue)
 	{
 		this.aTimes = new double[this.aEvents];
@@ -58,28 +52,32 @@ implements TimeVariantAttribute
 		this.aValues[0] = baseValue;
 
 		int numEvent = 0;
+		int idx = 0;
 		if (changeEvents != null) {
 			// go through all change events in chronological sequence:
-			for (NetworkChangeEvent event : changeEvents.values()) {
+			for (NetworkChangeEvent event : changeEvents) {
 				ChangeValue value = valueGetter.getChangeValue(event);
 				if (value != null) {
+					numEvent++;
+					double currentValue = this.aValues[idx];
+					if (event.getStartTime() != this.aTimes[idx]) {
+						// a new entry; events with the same start time are combined into one entry, otherwise the
+						// binary search in getValue would not know which one to take:
+						idx++;
+						this.aTimes[idx] = event.getStartTime();
+					}
 					switch( value.getType() ) {
 					case ABSOLUTE_IN_SI_UNITS:
 						// here, we just need to replace the value:
-						this.aValues[++numEvent] = value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
+						this.aValues[idx] = value.getValue();
 						break;
-					case FACTOR: {
+					case FACTOR:
 						// there, the change event multiplies what we have so far:
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue * value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
-						break; }
-					case OFFSET_IN_SI_UNITS: {
-						double currentValue = this.aValues[numEvent];
-						this.aValues[++numEvent] = currentValue + value.getValue();
-						this.aTimes[numEvent] = event.getStartTime();
-						break; }
+						this.aValues[idx] = currentValue * value.getValue();
+						break;
+					case OFFSET_IN_SI_UNITS:
+						this.aValues[idx] = currentValue + value.getValue();
+						break;
 					default:
 						throw new RuntimeException( "unknown ChangeType" ) ;
 					}
@@ -91,6 +89,11 @@ implements TimeVariantAttribute
 			throw new RuntimeException("Expected number of change events (" + (this.aEvents - 1)
 					+ ") differs from the number of events found (" + numEvent + ")!");
 		}
+		if (idx + 1 < this.aEvents) {
+			this.aTimes = Arrays.copyOf(this.aTimes, idx + 1);
+			this.aValues = Arrays.copyOf(this.aValues, idx + 1);
+		}
+		this.aEventsWhenLastRecalc = this.aEvents;
 	}
 
 
@@ -117,5 +120,6 @@ implements TimeVariantAttribute
 		aTimes = null;
 		aValues = null;
 		aEvents = 1;
+		aEventsWhenLastRecalc = -1;
 	}
 }
@@ -0,0 +1,138 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRegionPartitioning.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.internal.NetworkRunnable;
+
+/**
+ * Splits the nodes of a network into spatially contiguous regions by recursive coordinate bisection: the nodes are split
+ * across the longer side of their bounding box, such that both halves get a share of the work proportional to the number
+ * of regions they are split into further.  The work of a node is one plus the number of its out-links.
+ * <p></p>
+ * A link belongs to the region of its from-node.  Links whose to-node is in another region are boundary links; these are
+ * the links on which vehicles cross from one region into another.
+ * <p></p>
+ * The regions are used for the threads of one {@link org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngine}, see
+ * {@link org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning}.  Running the regions in separate processes,
+ * i.e. sharding the population across JVMs, is not supported: the agents that cross a boundary link are live objects of
+ * the one QSim and cannot be handed over to another process.
+ */
+public final class NetworkRegionPartitioning implements NetworkRunnable {
+
+	private final int numberOfRegions;
+	private final Map<Id<Node>, Integer> regions = new HashMap<>();
+	private int numberOfBoundaryLinks = 0;
+
+	public NetworkRegionPartitioning(final int numberOfRegions) {
+		if (numberOfRegions < 1) {
+			throw new IllegalArgumentException("The number of regions must be at least 1, but is " + numberOfRegions);
+		}
+		this.numberOfRegions = numberOfRegions;
+	}
+
+	@Override
+	public void run(final Network network) {
+		this.regions.clear();
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		// sorted, so that the result does not depend on the order of the nodes in the network
+		nodes.sort(Comparator.comparing(Node::getId));
+		bisect(nodes, 0, this.numberOfRegions);
+
+		this.numberOfBoundaryLinks = 0;
+		for (Link link : network.getLinks().values()) {
+			if (!getRegion(link.getFromNode().getId()).equals(getRegion(link.getToNode().getId()))) {
+				this.numberOfBoundaryLinks++;
+			}
+		}
+	}
+
+	private void bisect(final List<Node> nodes, final int firstRegion, final int numberOfRegions) {
+		if (numberOfRegions == 1 || nodes.size() <= 1) {
+			for (Node node : nodes) {
+				this.regions.put(node.getId(), firstRegion);
+			}
+			return;
+		}
+
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		double totalWork = 0.;
+		for (Node node : nodes) {
+			minX = Math.min(minX, node.getCoord().getX());
+			minY = Math.min(minY, node.getCoord().getY());
+			maxX = Math.max(maxX, node.getCoord().getX());
+			maxY = Math.max(maxY, node.getCoord().getY());
+			totalWork += getWork(node);
+		}
+		Comparator<Node> byCoord = maxX - minX >= maxY - minY ?
+				Comparator.comparingDouble(node -> node.getCoord().getX()) :
+				Comparator.comparingDouble(node -> node.getCoord().getY());
+		// (the sort is stable, so nodes with the same coordinate keep a well-defined order)
+		nodes.sort(byCoord);
+
+		int regionsBelow = numberOfRegions / 2;
+		double workBelow = totalWork * regionsBelow / numberOfRegions;
+		double work = 0.;
+		int split = 0;
+		while (split < nodes.size() - 1 && work + getWork(nodes.get(split)) / 2. < workBelow) {
+			work += getWork(nodes.get(split));
+			split++;
+		}
+		// both halves get at least one node
+		split = Math.max(split, 1);
+
+		bisect(new ArrayList<>(nodes.subList(0, split)), firstRegion, regionsBelow);
+		bisect(new ArrayList<>(nodes.subList(split, nodes.size())), firstRegion + regionsBelow, numberOfRegions - regionsBelow);
+	}
+
+	private static double getWork(final Node node) {
+		return 1. + node.getOutLinks().size();
+	}
+
+	public int getNumberOfRegions() {
+		return this.numberOfRegions;
+	}
+
+	/**
+	 * @return the region of the node, between 0 (inclusive) and the number of regions (exclusive); <code>null</code> if the
+	 * node was not in the network
+	 */
+	public Integer getRegion(final Id<Node> nodeId) {
+		return this.regions.get(nodeId);
+	}
+
+	public int getNumberOfBoundaryLinks() {
+		return this.numberOfBoundaryLinks;
+	}
+
+}
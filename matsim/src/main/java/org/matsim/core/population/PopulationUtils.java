@@ -822,6 +822,35 @@ public final class PopulationUtils {
 		AttributesUtils.copyAttributesFromTo(in, out );
 	}
 
+	/**
+	 * Adds a copy of every person of <code>in</code>, including all plans and the selection of the plan, to <code>out</code>.
+	 * As everywhere else, the attribute values themselves are not copied.  The (deprecated) person attributes
+	 * of the population are not copied either.
+	 *
+	 * @param in the population to be copied
+	 * @param out the population the copies are added to; should normally be empty
+	 */
+	public static void copyFromTo(final Population in, Population out) {
+		out.setName(in.getName());
+		AttributesUtils.copyAttributesFromTo(in, out);
+		PopulationFactory factory = out.getFactory();
+		for (Person person : in.getPersons().values()) {
+			Person personCopy = factory.createPerson(person.getId());
+			AttributesUtils.copyAttributesFromTo(person, personCopy);
+			Plan selectedPlanCopy = null;
+			for (Plan plan : person.getPlans()) {
+				Plan planCopy = factory.createPlan();
+				copyFromTo(plan, planCopy);
+				personCopy.addPlan(planCopy);
+				if (plan == person.getSelectedPlan()) {
+					selectedPlanCopy = planCopy;
+				}
+			}
+			personCopy.setSelectedPlan(selectedPlanCopy);
+			out.addPerson(personCopy);
+		}
+	}
+
 	public static void copyFromTo(Leg in, Leg out) {
 		out.setMode( in.getMode() );
 		out.setDepartureTime(in.getDepartureTime());
@@ -22,12 +22,14 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.population.BasicPlan;
 import org.matsim.api.core.v01.population.HasPlansAndId;
 import org.matsim.core.api.internal.MatsimManager;
@@ -72,10 +74,20 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 	private PlanSelector<PL, AG> removalPlanSelector = new GenericWorstPlanForRemovalSelector<>();
 
 	private String subpopulationAttributeName = null;
+
+	private IterationProfiler profiler = null;
 	
 	public GenericStrategyManager() {
 	}
 
+	/**
+	 * If the profiler is enabled, the time spent in each strategy (including {@link GenericPlanStrategy#finish()}) is
+	 * measured, see {@link IterationProfiler}.
+	 */
+	public final void setProfiler(final IterationProfiler profiler) {
+		this.profiler = profiler != null && profiler.isEnabled() ? profiler : null;
+	}
+
 	/**
 	 * @param name the name of the subpopulation attribute
 	 * in the person's object attributes.
@@ -189,8 +201,12 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 					final ReplanningContext replanningContext) {
 
 		// initialize all strategies
+		Map<GenericPlanStrategy<PL, AG>, IterationProfiler.Timer> timers = this.profiler != null ? new IdentityHashMap<>() : null;
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
 			strategy.init(replanningContext);
+			if (timers != null) {
+				timers.put(strategy, this.profiler.getTimer("replanning." + strategy.toString()));
+			}
 		}
 
 		// then go through the population and ...
@@ -213,12 +229,16 @@ public class GenericStrategyManager<PL extends BasicPlan, AG extends HasPlansAnd
 			}
 			
 			// ... and run the strategy:
+			final long profilerStart = timers != null ? System.nanoTime() : 0;
 			strategy.run(person);
+			if (timers != null) timers.get(strategy).add(System.nanoTime() - profilerStart);
 		}
 
 		// finally make sure all strategies have finished there work
 		for (GenericPlanStrategy<PL, AG> strategy : distinctStrategies()) {
+			final long profilerStart = timers != null ? System.nanoTime() : 0;
 			strategy.finish();
+			if (timers != null) timers.get(strategy).add(0, System.nanoTime() - profilerStart);
 		}
 
 	}
@@ -21,6 +21,7 @@
 package org.matsim.core.replanning;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.population.Population;
@@ -278,6 +279,11 @@ public class StrategyManager implements MatsimManager {
 		delegate.setPlanSelectorForRemoval(planSelector);
 	}
 
+	@com.google.inject.Inject(optional = true)
+	final void setProfiler(final IterationProfiler profiler) {
+		delegate.setProfiler(profiler);
+	}
+
 	@Deprecated
 	public final List<GenericPlanStrategy<Plan, Person>> getStrategiesOfDefaultSubpopulation() {
 		return getStrategies(null);
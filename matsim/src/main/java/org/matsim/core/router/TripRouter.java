@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
+import org.matsim.analysis.IterationProfiler;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -70,6 +71,9 @@ public final class TripRouter implements MatsimExtensionPoint {
 	private Config config;
 	// (I need the config in the PlanRouter to figure out activity end times. And since the PlanRouter is not
 	// injected, I cannot get it there directly.  kai, oct'17)
+
+	private IterationProfiler profiler = null;
+	private final Map<String, IterationProfiler.Timer> routerTimers = new HashMap<>();// per main mode, if profiling
 	
 	public static final class Builder {
 		private final Config config;
@@ -115,6 +119,17 @@ public final class TripRouter implements MatsimExtensionPoint {
 		this.config = config ;
 	}
 
+	@com.google.inject.Inject(optional = true)
+	void setProfiler(IterationProfiler profiler) {
+		this.profiler = profiler != null && profiler.isEnabled() ? profiler : null;
+		this.routerTimers.clear();
+		if (this.profiler != null) {
+			for (String mainMode : this.routingModules.keySet()) {
+				this.routerTimers.put(mainMode, this.profiler.getTimer("router." + mainMode));
+			}
+		}
+	}
+
 	// /////////////////////////////////////////////////////////////////////////
 	// constructors
 	// /////////////////////////////////////////////////////////////////////////
@@ -150,6 +165,10 @@ public final class TripRouter implements MatsimExtensionPoint {
 		}
 		checker.addActivityTypes( types );
 
+		if ( this.profiler != null ) {
+			this.routerTimers.put( mainMode, this.profiler.getTimer( "router." + mainMode ) );
+		}
+
 		return old;
 	}
 
@@ -219,12 +238,15 @@ public final class TripRouter implements MatsimExtensionPoint {
 		RoutingModule module = routingModules.get( mainMode );
 		
 		if (module != null) {
+			final IterationProfiler.Timer timer = this.profiler != null ? this.routerTimers.get(mainMode) : null;
+			final long profilerStart = timer != null ? System.nanoTime() : 0;
 			final List<? extends PlanElement> trip =
 					module.calcRoute(
 						fromFacility,
 						toFacility,
 						departureTime,
 						person);
+			if (timer != null) timer.add(System.nanoTime() - profilerStart);
 
 			if ( trip == null ) {
 				throw new NullPointerException( "Routing module "+module+" returned a null Trip for main mode "+mainMode );
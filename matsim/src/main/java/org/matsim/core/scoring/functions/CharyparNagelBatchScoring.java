@@ -0,0 +1,494 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CharyparNagelBatchScoring.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring.functions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Scores many plans at once with the same math as {@link CharyparNagelActivityScoring} and {@link CharyparNagelLegScoring}
+ * inside a {@link org.matsim.core.scoring.SumScoringFunction}, but without events and without one scoring function object
+ * per person.
+ * <p></p>
+ * The {@link ScoringParameters} are flattened once into primitive arrays indexed by activity type and mode index; plans are
+ * encoded into {@link PlanArrays}, where activity types and modes are given as such indices.  {@link #score(PlanArrays, double[])}
+ * then runs over the whole batch in a tight loop.  The results are identical to feeding the same activities and legs into
+ * the scoring function from {@link CharyparNagelScoringFunctionFactory}, with the following exceptions, which all need events:
+ * <ul>
+ * <li> money and stuck contributions are zero;
+ * <li> the pt specific terms (line switches, waiting for pt) are not computed;
+ * <li> opening times are taken from the activity types, not from facilities.
+ * </ul>
+ * Instances are immutable after construction and can be used from several threads at the same time, e.g. by splitting a
+ * batch with {@link #score(PlanArrays, double[], int, int)}.
+ */
+public final class CharyparNagelBatchScoring {
+
+	/**
+	 * Activity type index that is used for types which are not known in the scoring parameters.  Such activities can still
+	 * be encoded, but scoring them throws an exception, same as the object-based scoring.
+	 */
+	public static final int UNKNOWN_INDEX = -1;
+
+	private static final String NOT_SPECIFIED = "not specified";
+	private static final int NOT_SPECIFIED_INDEX = -2;
+
+	private final ScoringParameters params;
+
+	private final Map<String, Integer> actTypeIndices = new HashMap<>();
+	private final String[] actTypes;
+	private final boolean[] scoreAtAll;
+	private final double[] typicalDuration_s;
+	private final double[] zeroUtilityDuration_h;
+	private final double[] openingTime;
+	private final double[] closingTime;
+	private final double[] latestStartTime;
+	private final double[] earliestEndTime;
+	private final double[] minimalDuration;
+	private final int notSpecifiedIndex;
+
+	private final Map<String, Integer> modeIndices = new HashMap<>();
+	private final String[] modes;
+	private final double[] marginalUtilityOfTraveling_s;
+	private final double[] marginalUtilityOfDistance_m;
+	private final double[] monetaryDistanceCostRate;
+	private final double[] constant;
+	private final double[] dailyConstant;
+
+	public CharyparNagelBatchScoring(final ScoringParameters params) {
+		this.params = params;
+
+		int nActs = params.utilParams.size();
+		this.actTypes = new String[nActs];
+		this.scoreAtAll = new boolean[nActs];
+		this.typicalDuration_s = new double[nActs];
+		this.zeroUtilityDuration_h = new double[nActs];
+		this.openingTime = new double[nActs];
+		this.closingTime = new double[nActs];
+		this.latestStartTime = new double[nActs];
+		this.earliestEndTime = new double[nActs];
+		this.minimalDuration = new double[nActs];
+		int i = 0;
+		for (Map.Entry<String, ActivityUtilityParameters> e : params.utilParams.entrySet()) {
+			ActivityUtilityParameters actParams = e.getValue();
+			this.actTypeIndices.put(e.getKey(), i);
+			this.actTypes[i] = e.getKey();
+			this.scoreAtAll[i] = actParams.isScoreAtAll();
+			this.typicalDuration_s[i] = actParams.getTypicalDuration();
+			this.zeroUtilityDuration_h[i] = actParams.getZeroUtilityDuration_h();
+			this.openingTime[i] = actParams.getOpeningTime();
+			this.closingTime[i] = actParams.getClosingTime();
+			this.latestStartTime[i] = actParams.getLatestStartTime();
+			this.earliestEndTime[i] = actParams.getEarliestEndTime();
+			this.minimalDuration[i] = actParams.getMinimalDuration();
+			i++;
+		}
+		Integer notSpecified = this.actTypeIndices.get(NOT_SPECIFIED);
+		this.notSpecifiedIndex = notSpecified == null ? NOT_SPECIFIED_INDEX : notSpecified;
+
+		// the walk variants are scored with the walk parameters, but count as modes of their own for the daily constants:
+		Map<String, ModeUtilityParameters> allModes = new TreeMap<>(params.modeParams);
+		ModeUtilityParameters walkParams = params.modeParams.get(TransportMode.walk);
+		if (walkParams != null) {
+			for (String walkMode : new String[]{TransportMode.transit_walk, TransportMode.access_walk, TransportMode.egress_walk}) {
+				allModes.putIfAbsent(walkMode, walkParams);
+			}
+		}
+		int nModes = allModes.size();
+		this.modes = new String[nModes];
+		this.marginalUtilityOfTraveling_s = new double[nModes];
+		this.marginalUtilityOfDistance_m = new double[nModes];
+		this.monetaryDistanceCostRate = new double[nModes];
+		this.constant = new double[nModes];
+		this.dailyConstant = new double[nModes];
+		i = 0;
+		for (Map.Entry<String, ModeUtilityParameters> e : allModes.entrySet()) {
+			ModeUtilityParameters modeParams = e.getValue();
+			this.modeIndices.put(e.getKey(), i);
+			this.modes[i] = e.getKey();
+			this.marginalUtilityOfTraveling_s[i] = modeParams.marginalUtilityOfTraveling_s;
+			this.marginalUtilityOfDistance_m[i] = modeParams.marginalUtilityOfDistance_m;
+			this.monetaryDistanceCostRate[i] = modeParams.monetaryDistanceCostRate;
+			this.constant[i] = modeParams.constant;
+			this.dailyConstant[i] = modeParams.dailyUtilityConstant + modeParams.dailyMoneyConstant * params.marginalUtilityOfMoney;
+			i++;
+		}
+	}
+
+	public int getActivityTypeIndex(final String type) {
+		Integer idx = this.actTypeIndices.get(type);
+		if (idx == null) {
+			// "not specified" needs to be recognizable even without parameters, see CharyparNagelActivityScoring
+			return NOT_SPECIFIED.equals(type) ? NOT_SPECIFIED_INDEX : UNKNOWN_INDEX;
+		}
+		return idx;
+	}
+
+	public int getModeIndex(final String mode) {
+		Integer idx = this.modeIndices.get(mode);
+		if (idx == null) {
+			throw new RuntimeException("just encountered mode for which no scoring parameters are defined: " + mode);
+		}
+		return idx;
+	}
+
+	public String getActivityType(final int index) {
+		return this.actTypes[index];
+	}
+
+	public String getMode(final int index) {
+		return this.modes[index];
+	}
+
+	public int getNumberOfModes() {
+		return this.modes.length;
+	}
+
+	/**
+	 * Scores all plans of the batch.
+	 *
+	 * @param scores receives one score per plan; must have at least {@link PlanArrays#getNumberOfPlans()} entries
+	 */
+	public void score(final PlanArrays plans, final double[] scores) {
+		score(plans, scores, 0, plans.getNumberOfPlans());
+	}
+
+	/**
+	 * Scores the plans with index <code>fromPlan</code> (inclusive) to <code>toPlan</code> (exclusive).  Disjoint ranges of
+	 * the same batch may be scored concurrently.
+	 */
+	public void score(final PlanArrays plans, final double[] scores, final int fromPlan, final int toPlan) {
+		// one flag per mode; reset for each plan instead of allocating a set per plan:
+		boolean[] dailyConstantConsidered = new boolean[this.modes.length];
+		for (int p = fromPlan; p < toPlan; p++) {
+			double actScore = scoreActivities(plans, p);
+			Arrays.fill(dailyConstantConsidered, false);
+			double legScore = scoreLegs(plans, p, dailyConstantConsidered);
+
+			// same summation order as in SumScoringFunction: activities first, then legs
+			double score = 0.0;
+			score += checkNotNaN(actScore, CharyparNagelActivityScoring.class);
+			score += checkNotNaN(legScore, CharyparNagelLegScoring.class);
+			scores[p] = score;
+		}
+	}
+
+	private static double checkNotNaN(final double contribution, final Class<?> scoringClass) {
+		if (Double.isNaN(contribution)) {
+			throw new RuntimeException("Contribution of scoring function: " + scoringClass.getName() + " is NaN! Behavior with NaN scores is undefined.");
+		}
+		return contribution;
+	}
+
+	private double scoreActivities(final PlanArrays plans, final int p) {
+		// this replays the state machine of CharyparNagelActivityScoring as driven by SumScoringFunction.handleActivity
+		double score = 0.0;
+		int firstType = UNKNOWN_INDEX;
+		boolean hasFirst = false;
+		double firstActivityEndTime = Time.UNDEFINED_TIME;
+
+		for (int a = plans.actOffsets[p]; a < plans.actOffsets[p + 1]; a++) {
+			final int type = plans.actTypes[a];
+			final double startTime = plans.actStartTimes[a];
+			final double endTime = plans.actEndTimes[a];
+			if (startTime == Time.UNDEFINED_TIME && endTime != Time.UNDEFINED_TIME) {
+				firstType = type;
+				hasFirst = true;
+				firstActivityEndTime = endTime;
+			} else if (startTime != Time.UNDEFINED_TIME && endTime != Time.UNDEFINED_TIME) {
+				score += calcActScore(startTime, endTime, type);
+			} else if (startTime != Time.UNDEFINED_TIME && endTime == Time.UNDEFINED_TIME) {
+				if (!hasFirst) {
+					throw new IllegalArgumentException("plan " + p + " has a last activity but no first activity.");
+				}
+				if (type == firstType || firstType == this.notSpecifiedIndex) {
+					score += calcActScore(startTime, firstActivityEndTime + 24*3600, type);
+				} else if (this.params.scoreActs) {
+					score += calcActScore(0.0, firstActivityEndTime, firstType);
+					score += calcActScore(startTime, this.params.simulationPeriodInDays * 24*3600, type);
+				}
+				hasFirst = false;
+			} else {
+				throw new RuntimeException("Trying to score an activity without start or end time. Should not happen.");
+			}
+		}
+		if (hasFirst) {
+			// morning activity only, see CharyparNagelActivityScoring.finish()
+			score += calcActScore(0.0, firstActivityEndTime, firstType);
+		}
+		return score;
+	}
+
+	private double calcActScore(final double arrivalTime, final double departureTime, final int type) {
+		if (type < 0) {
+			throw new IllegalArgumentException("activity type with index " + type + " is not known in utility parameters " +
+					"(module name=\"planCalcScore\" in the config file).");
+		}
+		double tmpScore = 0.0;
+		if (!this.scoreAtAll[type]) {
+			return tmpScore;
+		}
+		// see CharyparNagelActivityScoring.calcActScore for the explanation of the different cases.  The arithmetic
+		// is kept in exactly the same order so that the results are bit-identical.
+		final double openingTime = this.openingTime[type];
+		final double closingTime = this.closingTime[type];
+		final double zeroUtilityDuration_h = this.zeroUtilityDuration_h[type];
+		final double typicalDuration = this.typicalDuration_s[type];
+
+		double activityStart = arrivalTime;
+		double activityEnd = departureTime;
+		if ((openingTime >= 0) && (arrivalTime < openingTime)) {
+			activityStart = openingTime;
+		}
+		if ((closingTime >= 0) && (closingTime < departureTime)) {
+			activityEnd = closingTime;
+		}
+		if ((openingTime >= 0) && (closingTime >= 0)
+				&& ((openingTime > departureTime) || (closingTime < arrivalTime))) {
+			activityStart = departureTime;
+			activityEnd = departureTime;
+		}
+		double duration = activityEnd - activityStart;
+
+		if (arrivalTime < activityStart) {
+			tmpScore += this.params.marginalUtilityOfWaiting_s * (activityStart - arrivalTime);
+		}
+
+		final double latestStartTime = this.latestStartTime[type];
+		if ((latestStartTime >= 0) && (activityStart > latestStartTime)) {
+			tmpScore += this.params.marginalUtilityOfLateArrival_s * (activityStart - latestStartTime);
+		}
+
+		if (this.params.usingOldScoringBelowZeroUtilityDuration) {
+			if (duration > 0) {
+				double utilPerf = this.params.marginalUtilityOfPerforming_s * typicalDuration
+						* Math.log((duration / 3600.0) / zeroUtilityDuration_h);
+				double utilWait = this.params.marginalUtilityOfWaiting_s * duration;
+				tmpScore += Math.max(0, Math.max(utilPerf, utilWait));
+			} else {
+				tmpScore += 2*this.params.marginalUtilityOfLateArrival_s*Math.abs(duration);
+			}
+		} else {
+			if (duration >= 3600.*zeroUtilityDuration_h) {
+				double utilPerf = this.params.marginalUtilityOfPerforming_s * typicalDuration
+						* Math.log((duration / 3600.0) / zeroUtilityDuration_h);
+				tmpScore += utilPerf;
+			} else {
+				double slopeAtZeroUtility = this.params.marginalUtilityOfPerforming_s * typicalDuration / ( 3600.*zeroUtilityDuration_h );
+				if (slopeAtZeroUtility < 0.) {
+					throw new RuntimeException("slope at zero utility < 0.; this should not happen ...");
+				}
+				double durationUnderrun = zeroUtilityDuration_h*3600. - duration;
+				if (durationUnderrun < 0.) {
+					throw new RuntimeException("durationUnderrun < 0; this should not happen ...");
+				}
+				tmpScore -= slopeAtZeroUtility * durationUnderrun;
+			}
+		}
+
+		final double earliestEndTime = this.earliestEndTime[type];
+		if ((earliestEndTime >= 0) && (activityEnd < earliestEndTime)) {
+			tmpScore += this.params.marginalUtilityOfEarlyDeparture_s * (earliestEndTime - activityEnd);
+		}
+
+		if (activityEnd < departureTime) {
+			tmpScore += this.params.marginalUtilityOfWaiting_s * (departureTime - activityEnd);
+		}
+
+		final double minimalDuration = this.minimalDuration[type];
+		if ((minimalDuration >= 0) && (duration < minimalDuration)) {
+			tmpScore += this.params.marginalUtilityOfEarlyDeparture_s * (minimalDuration - duration);
+		}
+		return tmpScore;
+	}
+
+	private double scoreLegs(final PlanArrays plans, final int p, final boolean[] dailyConstantConsidered) {
+		double score = 0.0;
+		for (int l = plans.legOffsets[p]; l < plans.legOffsets[p + 1]; l++) {
+			final int mode = plans.legModes[l];
+			final double departureTime = plans.legDepartureTimes[l];
+			final double arrivalTime = departureTime + plans.legTravelTimes[l];
+
+			double tmpScore = 0.0;
+			double travelTime = arrivalTime - departureTime;
+			tmpScore += travelTime * this.marginalUtilityOfTraveling_s[mode];
+			if (this.marginalUtilityOfDistance_m[mode] != 0.0 || this.monetaryDistanceCostRate[mode] != 0.0) {
+				double dist = plans.legDistances[l];
+				tmpScore += this.marginalUtilityOfDistance_m[mode] * dist;
+				tmpScore += this.monetaryDistanceCostRate[mode] * this.params.marginalUtilityOfMoney * dist;
+			}
+			tmpScore += this.constant[mode];
+			if (!dailyConstantConsidered[mode]) {
+				tmpScore += this.dailyConstant[mode];
+				dailyConstantConsidered[mode] = true;
+			}
+			score += tmpScore;
+		}
+		return score;
+	}
+
+	/**
+	 * A batch of plans in flat primitive arrays.  Activities and legs of plan <code>p</code> are stored at the indices
+	 * <code>actOffsets[p]</code> to <code>actOffsets[p+1]</code> (exclusive), and similarly for legs.  Undefined times are
+	 * encoded as {@link Time#UNDEFINED_TIME}.
+	 */
+	public static final class PlanArrays {
+		private final int nPlans;
+		private final int[] actOffsets;
+		private final int[] actTypes;
+		private final double[] actStartTimes;
+		private final double[] actEndTimes;
+		private final int[] legOffsets;
+		private final int[] legModes;
+		private final double[] legDepartureTimes;
+		private final double[] legTravelTimes;
+		private final double[] legDistances;
+
+		private PlanArrays(Builder builder) {
+			this.nPlans = builder.nPlans;
+			this.actOffsets = Arrays.copyOf(builder.actOffsets, builder.nPlans + 1);
+			this.actTypes = Arrays.copyOf(builder.actTypes, builder.nActs);
+			this.actStartTimes = Arrays.copyOf(builder.actStartTimes, builder.nActs);
+			this.actEndTimes = Arrays.copyOf(builder.actEndTimes, builder.nActs);
+			this.legOffsets = Arrays.copyOf(builder.legOffsets, builder.nPlans + 1);
+			this.legModes = Arrays.copyOf(builder.legModes, builder.nLegs);
+			this.legDepartureTimes = Arrays.copyOf(builder.legDepartureTimes, builder.nLegs);
+			this.legTravelTimes = Arrays.copyOf(builder.legTravelTimes, builder.nLegs);
+			this.legDistances = Arrays.copyOf(builder.legDistances, builder.nLegs);
+		}
+
+		public int getNumberOfPlans() {
+			return this.nPlans;
+		}
+
+		public static final class Builder {
+			private final CharyparNagelBatchScoring scoring;
+
+			private int nPlans = 0;
+			private int nActs = 0;
+			private int nLegs = 0;
+			private int[] actOffsets = new int[16];
+			private int[] actTypes = new int[64];
+			private double[] actStartTimes = new double[64];
+			private double[] actEndTimes = new double[64];
+			private int[] legOffsets = new int[16];
+			private int[] legModes = new int[64];
+			private double[] legDepartureTimes = new double[64];
+			private double[] legTravelTimes = new double[64];
+			private double[] legDistances = new double[64];
+
+			/**
+			 * @param scoring used to translate activity types and modes into indices when adding {@link Plan}s
+			 */
+			public Builder(CharyparNagelBatchScoring scoring) {
+				this.scoring = scoring;
+			}
+
+			/**
+			 * Starts a new plan.  All subsequent activities and legs are added to this plan.
+			 */
+			public Builder startPlan() {
+				if (this.nPlans + 2 > this.actOffsets.length) {
+					this.actOffsets = Arrays.copyOf(this.actOffsets, 2 * this.actOffsets.length);
+					this.legOffsets = Arrays.copyOf(this.legOffsets, 2 * this.legOffsets.length);
+				}
+				this.nPlans++;
+				this.actOffsets[this.nPlans] = this.nActs;
+				this.legOffsets[this.nPlans] = this.nLegs;
+				return this;
+			}
+
+			public Builder addActivity(int type, double startTime, double endTime) {
+				checkPlanStarted();
+				if (this.nActs == this.actTypes.length) {
+					int n = 2 * this.nActs;
+					this.actTypes = Arrays.copyOf(this.actTypes, n);
+					this.actStartTimes = Arrays.copyOf(this.actStartTimes, n);
+					this.actEndTimes = Arrays.copyOf(this.actEndTimes, n);
+				}
+				this.actTypes[this.nActs] = type;
+				this.actStartTimes[this.nActs] = startTime;
+				this.actEndTimes[this.nActs] = endTime;
+				this.nActs++;
+				this.actOffsets[this.nPlans] = this.nActs;
+				return this;
+			}
+
+			public Builder addLeg(int mode, double departureTime, double travelTime, double distance) {
+				checkPlanStarted();
+				if (this.nLegs == this.legModes.length) {
+					int n = 2 * this.nLegs;
+					this.legModes = Arrays.copyOf(this.legModes, n);
+					this.legDepartureTimes = Arrays.copyOf(this.legDepartureTimes, n);
+					this.legTravelTimes = Arrays.copyOf(this.legTravelTimes, n);
+					this.legDistances = Arrays.copyOf(this.legDistances, n);
+				}
+				this.legModes[this.nLegs] = mode;
+				this.legDepartureTimes[this.nLegs] = departureTime;
+				this.legTravelTimes[this.nLegs] = travelTime;
+				this.legDistances[this.nLegs] = distance;
+				this.nLegs++;
+				this.legOffsets[this.nPlans] = this.nLegs;
+				return this;
+			}
+
+			/**
+			 * Adds a plan with the start and end times as they are set in its activities, i.e. the same input that the
+			 * scoring function gets when the plan elements are passed to it one by one.
+			 */
+			public Builder addPlan(Plan plan) {
+				startPlan();
+				for (PlanElement pe : plan.getPlanElements()) {
+					if (pe instanceof Activity) {
+						Activity act = (Activity) pe;
+						addActivity(this.scoring.getActivityTypeIndex(act.getType()), act.getStartTime(), act.getEndTime());
+					} else if (pe instanceof Leg) {
+						Leg leg = (Leg) pe;
+						Route route = leg.getRoute();
+						double distance = route == null ? Double.NaN : route.getDistance();
+						addLeg(this.scoring.getModeIndex(leg.getMode()), leg.getDepartureTime(), leg.getTravelTime(), distance);
+					}
+				}
+				return this;
+			}
+
+			private void checkPlanStarted() {
+				if (this.nPlans == 0) {
+					throw new IllegalStateException("call startPlan() before adding activities or legs.");
+				}
+			}
+
+			public PlanArrays build() {
+				return new PlanArrays(this);
+			}
+		}
+	}
+}
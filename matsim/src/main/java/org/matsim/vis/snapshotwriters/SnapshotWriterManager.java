@@ -20,6 +20,7 @@
 
 package org.matsim.vis.snapshotwriters;
 
+import org.matsim.api.core.v01.Id;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.ExternalMobimConfigGroup;
 import org.matsim.core.mobsim.framework.ObservableMobsim;
@@ -34,7 +35,23 @@ import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
+/**
+ * Computes the positions of the agents on the links every snapshot period and passes them to the snapshot writers.
+ * <p></p>
+ * The mobsim only copies the state of the links that is needed for the positions, see
+ * {@link VisData#addDeferredAgentSnapshotInfo}.  Computing the positions from the copies and writing them can be left
+ * to a background thread, see {@link org.matsim.core.config.groups.QSimConfigGroup#getSnapshotWriterQueueCapacity()},
+ * so the mobsim can go on in the meantime.  The background thread needs a core of its own to pay off.
+ * <p></p>
+ * With a sample (see {@link org.matsim.core.config.groups.QSimConfigGroup#getSnapshotSample()}), only the vehicles whose
+ * driver is in the sample, and the agents off the road who are in the sample, are copied and positioned.
+ */
 public class SnapshotWriterManager implements MobsimBeforeCleanupListener, MobsimAfterSimStepListener, MobsimInitializedListener {
 	
 	private final List<SnapshotWriter> snapshotWriters = new ArrayList<SnapshotWriter>();
@@ -44,8 +61,23 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 
 	final private int snapshotPeriod;
 
+	final private double sample;
+
+	final private Predicate<Id<?>> isInSample;
+
+	/** the snapshots waiting for the background thread; null if the snapshots are written by the mobsim */
+	private final BlockingQueue<Snapshot> queue;
+	private Thread writerThread = null;
+	private volatile Throwable writerException = null;
+
+	private static final Snapshot END_OF_SNAPSHOTS = new Snapshot(Double.NaN, null);
+
 	public SnapshotWriterManager(Config config) {
 		snapshotPeriod = findSnapshotPeriod(config);
+		int queueCapacity = config.qsim() != null ? config.qsim().getSnapshotWriterQueueCapacity() : 0;
+		this.queue = queueCapacity > 0 ? new ArrayBlockingQueue<>(queueCapacity) : null;
+		this.sample = config.qsim() != null ? config.qsim().getSnapshotSample() : 1.;
+		this.isInSample = this.sample < 1. ? this::isInSample : id -> true;
 	}
 
 	// yuck
@@ -76,6 +108,17 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 	}
 
 	private void closeSnapshotWriters() {
+		if (this.writerThread != null) {
+			putSnapshot(END_OF_SNAPSHOTS);
+			try {
+				this.writerThread.join();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(ex);
+			}
+			this.writerThread = null;
+			checkWriterThread();
+		}
 		for (SnapshotWriter writer : this.snapshotWriters) {
 			writer.finish();
 		}
@@ -92,26 +135,93 @@ public class SnapshotWriterManager implements MobsimBeforeCleanupListener, Mobsi
 	
 	private void doSnapshot(final double time, VisMobsim visMobsim) {
 		if (!this.snapshotWriters.isEmpty()) {
-			Collection<AgentSnapshotInfo> positions = new ArrayList<AgentSnapshotInfo>();
+			List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs = new ArrayList<>();
 			for (VisLink link : visMobsim.getVisNetwork().getVisLinks().values()) {
-				link.getVisData().addAgentSnapshotInfo(positions);
+				link.getVisData().addDeferredAgentSnapshotInfo(this.isInSample, positionJobs);
 			}
 			
 			// We do not put non-network agents in movies.
 			// Otherwise, we would add snapshots from visMobsim.getNonNetworkAgentSnapshots() here.
-			
-			for (SnapshotWriter writer : this.snapshotWriters) {
-				writer.beginSnapshot(time);
-				for (AgentSnapshotInfo position : positions) {
-					writer.addAgent(position);
+
+			if (this.queue == null) {
+				writeSnapshot(time, positionJobs);
+			} else {
+				if (this.writerThread == null) {
+					this.writerThread = new Thread(this::writeQueuedSnapshots, "SnapshotWriter");
+					this.writerThread.setDaemon(true);
+					this.writerThread.start();
 				}
-				writer.endSnapshot();
+				putSnapshot(new Snapshot(time, positionJobs));
 			}
 		}
 	}
 
+	private void writeSnapshot(final double time, List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs) {
+		List<AgentSnapshotInfo> positions = new ArrayList<AgentSnapshotInfo>();
+		for (Consumer<Collection<AgentSnapshotInfo>> positionJob : positionJobs) {
+			positionJob.accept(positions);
+		}
+		for (SnapshotWriter writer : this.snapshotWriters) {
+			writer.beginSnapshot(time);
+			for (AgentSnapshotInfo position : positions) {
+				writer.addAgent(position);
+			}
+			writer.endSnapshot();
+		}
+	}
+
+	private void writeQueuedSnapshots() {
+		try {
+			Snapshot snapshot;
+			while ((snapshot = this.queue.take()) != END_OF_SNAPSHOTS) {
+				writeSnapshot(snapshot.time, snapshot.positionJobs);
+			}
+		} catch (Throwable t) {
+			this.writerException = t;
+		}
+	}
+
+	/*
+	 * Waits while the queue is full, but not forever if the writer thread has died.
+	 */
+	private void putSnapshot(Snapshot snapshot) {
+		try {
+			while (!this.queue.offer(snapshot, 1, TimeUnit.SECONDS)) {
+				checkWriterThread();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		}
+		checkWriterThread();
+	}
+
+	private void checkWriterThread() {
+		if (this.writerException != null) {
+			throw new RuntimeException("Exception while writing snapshots.", this.writerException);
+		}
+	}
+
+	/*
+	 * The same agents are in every snapshot, and in every run.
+	 */
+	private boolean isInSample(Id<?> id) {
+		int hash = id.toString().hashCode() * 0x9E3779B9;
+		return (hash >>> 8) < this.sample * (1 << 24);
+	}
+
 	public final void addSnapshotWriter(SnapshotWriter snapshotWriter) {
 		this.snapshotWriters.add(snapshotWriter);
 	}
 
+	private static final class Snapshot {
+		final double time;
+		final List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs;
+
+		Snapshot(double time, List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs) {
+			this.time = time;
+			this.positionJobs = positionJobs;
+		}
+	}
+
 }
@@ -19,7 +19,13 @@
 
 package org.matsim.vis.snapshotwriters;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import org.matsim.api.core.v01.Id;
 
 /**
  * Interface for methods to provide a visualizer with data.
@@ -29,4 +35,25 @@ public interface VisData {
 
 	public Collection<AgentSnapshotInfo> addAgentSnapshotInfo(final Collection<AgentSnapshotInfo> positions);
 
+	/**
+	 * Adds jobs that add the positions of the agents in the sample to a collection, so that the positions can be computed
+	 * later, possibly on another thread.  Implementations copy the state that they need for the positions, so that the
+	 * mobsim can go on.  The default computes the positions right away and only keeps those in the sample.
+	 */
+	public default void addDeferredAgentSnapshotInfo(Predicate<Id<?>> isInSample,
+			List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs) {
+		addPositionsInSample(addAgentSnapshotInfo(new ArrayList<>()), isInSample, positionJobs);
+	}
+
+	/**
+	 * Adds a job that adds those of the given, already computed positions whose agent is in the sample.
+	 */
+	public static void addPositionsInSample(Collection<AgentSnapshotInfo> positions, Predicate<Id<?>> isInSample,
+			List<Consumer<Collection<AgentSnapshotInfo>>> positionJobs) {
+		positions.removeIf(position -> !isInSample.test(position.getId()));
+		if (!positions.isEmpty()) {
+			positionJobs.add(allPositions -> allPositions.addAll(positions));
+		}
+	}
+
 }
\ No newline at end of file
@@ -48,11 +48,45 @@ public final class WithinDayConfigGroup extends ReflectiveConfigGroup {
 		this.predictionMethod = predictionMethod;
 	}
 
+	// ---
+	// ---
+
+	private static final String USING_BATCHED_REPLANNING = "usingBatchedReplanning";
+	private static final String USING_BATCHED_REPLANNING_CMT = "if true, the agents identified in a time step by all during-activity and "
+			+ "during-leg replanners are replanned in one parallel job, with one set of threads for all replanners, instead of one "
+			+ "parallel replanner with its own threads and barriers per replanner type.  The threads are global.numberOfThreads." ;
+	private boolean usingBatchedReplanning = false ;
+
+	@StringGetter( USING_BATCHED_REPLANNING )
+	public boolean isUsingBatchedReplanning() {
+		return usingBatchedReplanning;
+	}
+	@StringSetter( USING_BATCHED_REPLANNING )
+	public void setUsingBatchedReplanning(boolean usingBatchedReplanning) {
+		this.usingBatchedReplanning = usingBatchedReplanning;
+	}
+
+	private static final String MIN_AGENTS_FOR_PARALLEL_REPLANNING = "minNumberOfAgentsForParallelReplanning";
+	private static final String MIN_AGENTS_FOR_PARALLEL_REPLANNING_CMT = "only with batched replanning: if fewer agents are identified "
+			+ "in a time step, they are replanned on the mobsim thread, without waking up the replanning threads." ;
+	private int minNumberOfAgentsForParallelReplanning = 100 ;
+
+	@StringGetter( MIN_AGENTS_FOR_PARALLEL_REPLANNING )
+	public int getMinNumberOfAgentsForParallelReplanning() {
+		return minNumberOfAgentsForParallelReplanning;
+	}
+	@StringSetter( MIN_AGENTS_FOR_PARALLEL_REPLANNING )
+	public void setMinNumberOfAgentsForParallelReplanning(int minNumberOfAgentsForParallelReplanning) {
+		this.minNumberOfAgentsForParallelReplanning = minNumberOfAgentsForParallelReplanning;
+	}
+
 	// ---
 	// ---
 	
 	@Override public Map<String, String> getComments() {
 		Map<String, String> comments = super.getComments();
+		comments.put( USING_BATCHED_REPLANNING, USING_BATCHED_REPLANNING_CMT ) ;
+		comments.put( MIN_AGENTS_FOR_PARALLEL_REPLANNING, MIN_AGENTS_FOR_PARALLEL_REPLANNING_CMT ) ;
 		return comments ;
 	}
 }
@@ -22,6 +22,8 @@ package org.matsim.withinday.mobsim;
 
 import org.apache.log4j.Logger;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.config.groups.GlobalConfigGroup;
 import org.matsim.core.mobsim.qsim.ActivityEndRescheduler;
 import org.matsim.core.mobsim.qsim.ActivityEndReschedulerProvider;
@@ -29,6 +31,8 @@ import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimEngine;
 import org.matsim.core.utils.collections.Tuple;
 import org.matsim.core.utils.misc.Time;
+import org.matsim.withinday.controller.WithinDayConfigGroup;
+import org.matsim.withinday.replanning.parallel.BatchedParallelReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelDuringActivityReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelDuringLegReplanner;
 import org.matsim.withinday.replanning.parallel.ParallelInitialReplanner;
@@ -50,6 +54,13 @@ import java.util.Map.Entry;
  * Also, it lives as long as the Controler, as opposed to all other parts of the QSim,
  * and is added to each new QSim instance in turn.
  *
+ * With {@link WithinDayConfigGroup#isUsingBatchedReplanning()}, the agents identified
+ * by the during-activity and during-leg replanners are replanned in one batch per time
+ * step by a {@link BatchedParallelReplanner}.  The agents identified by the during-leg
+ * identifiers are then collected before the during-activity replanning is performed;
+ * since an agent performs either an activity or a leg, this does not change which
+ * agents are identified.
+ *
  * @author cdobler
  */
 @Singleton
@@ -72,6 +83,7 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private ParallelInitialReplanner parallelInitialReplanner;
 	private ParallelDuringActivityReplanner parallelDuringActivityReplanner;
 	private ParallelDuringLegReplanner parallelDuringLegReplanner;
+	private BatchedParallelReplanner batchedParallelReplanner = null;
 	
 	private Map<WithinDayDuringActivityReplannerFactory, Tuple<Double, Double>> duringActivityReplannerFactory;
 	private Map<WithinDayDuringLegReplannerFactory, Tuple<Double, Double>> duringLegReplannerFactory;
@@ -79,6 +91,16 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 	private InternalInterface internalInterface;
 
 	@Inject
+	public WithinDayEngine(EventsManager eventsManager, Config config) {
+		this(eventsManager, config.global());
+		WithinDayConfigGroup withinDayConfigGroup = ConfigUtils.addOrGetModule(config, WithinDayConfigGroup.GROUP_NAME, WithinDayConfigGroup.class);
+		if (withinDayConfigGroup.isUsingBatchedReplanning()) {
+			log.info("Initialize Batched Replanning");
+			this.batchedParallelReplanner = new BatchedParallelReplanner(config.global().getNumberOfThreads(),
+					withinDayConfigGroup.getMinNumberOfAgentsForParallelReplanning(), eventsManager);
+		}
+	}
+
 	public WithinDayEngine(EventsManager eventsManager, GlobalConfigGroup globalConfigGroup) {
 		this.eventsManager = eventsManager;
 		
@@ -163,7 +185,12 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		 * that point in time. 
 		 */
 		if (!initialReplanningPerformed && isInitialReplanning()) {
-			initialReplanningModule.doReplanning(Time.UNDEFINED_TIME);
+			if (this.batchedParallelReplanner != null) {
+				this.batchedParallelReplanner.addReplanningTasks(this.parallelInitialReplanner.getWithinDayReplannerFactories(), Time.UNDEFINED_TIME);
+				this.batchedParallelReplanner.run(Time.UNDEFINED_TIME);
+			} else {
+				initialReplanningModule.doReplanning(Time.UNDEFINED_TIME);
+			}
 			initialReplanningPerformed = true;
 		}
 		
@@ -176,6 +203,17 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 			if (entry.getValue().getSecond() == time) this.parallelDuringLegReplanner.removeWithinDayReplannerFactory(entry.getKey());
 		}
 		
+		if (this.batchedParallelReplanner != null) {
+			if (isDuringActivityReplanning()) {
+				this.batchedParallelReplanner.addReplanningTasks(this.parallelDuringActivityReplanner.getWithinDayReplannerFactories(), time);
+			}
+			if (isDuringLegReplanning()) {
+				this.batchedParallelReplanner.addReplanningTasks(this.parallelDuringLegReplanner.getWithinDayReplannerFactories(), time);
+			}
+			this.batchedParallelReplanner.run(time);
+			return;
+		}
+
 		if (isDuringActivityReplanning()) {
 			duringActivityReplanningModule.doReplanning(time);
 		}
@@ -187,6 +225,14 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 
 	@Override
 	public void onPrepareSim() {
+		this.initialReplanningPerformed = false;
+
+		if (this.batchedParallelReplanner != null) {
+			// the parallel replanners only hold the replanner factories then, so their threads are not started
+			this.batchedParallelReplanner.onPrepareSim();
+			return;
+		}
+
 		this.parallelInitialReplanner.onPrepareSim();
 		this.parallelDuringActivityReplanner.onPrepareSim();
 		this.parallelDuringLegReplanner.onPrepareSim();
@@ -195,12 +241,15 @@ public class WithinDayEngine implements MobsimEngine, ActivityEndReschedulerProv
 		this.parallelInitialReplanner.resetReplanners();
 		this.parallelDuringActivityReplanner.resetReplanners();
 		this.parallelDuringLegReplanner.resetReplanners();
-		
-		this.initialReplanningPerformed = false;
 	}
 
 	@Override
 	public void afterSim() {
+		if (this.batchedParallelReplanner != null) {
+			this.batchedParallelReplanner.afterSim();
+			return;
+		}
+
 		this.parallelInitialReplanner.afterSim();
 		this.parallelDuringActivityReplanner.afterSim();
 		this.parallelDuringLegReplanner.afterSim();
@@ -0,0 +1,266 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * BatchedParallelReplanner.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.replanning.parallel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.utils.misc.Counter;
+import org.matsim.core.utils.misc.Time;
+import org.matsim.withinday.events.ReplanningEvent;
+import org.matsim.withinday.replanning.identifiers.interfaces.AgentSelector;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplanner;
+import org.matsim.withinday.replanning.replanners.interfaces.WithinDayReplannerFactory;
+
+/**
+ * Replans the agents identified in a time step by all {@link AgentSelector}s of all replanners in one job, as an alternative
+ * to running a {@link ParallelReplanner} per replanner type with its own threads and barriers.
+ * <p></p>
+ * The tasks are grouped by agent.  The tasks of an agent are performed one after the other by the same thread, in the order
+ * in which they were added and, per type, in the order of the replanner ids, i.e. in the order the {@link ParallelReplanner}s
+ * would perform them.  Different agents are replanned concurrently; the threads take chunks of agents from a shared cursor
+ * until none are left, so a thread that got cheap agents helps out with the rest.  If fewer agents than the threshold are
+ * identified, they are replanned on the calling thread and the threads are not woken up at all.
+ * <p></p>
+ * Each thread holds its own instance of every replanner (and thus of every trip router of the replanners); the instances are
+ * created once per iteration, or when a replanner factory is added during the iteration, and reused in all time steps.
+ *
+ * @see org.matsim.withinday.controller.WithinDayConfigGroup#isUsingBatchedReplanning()
+ */
+public final class BatchedParallelReplanner {
+
+	private final static Logger log = Logger.getLogger(BatchedParallelReplanner.class);
+
+	private final EventsManager eventsManager;
+	private final int numOfThreads;
+	private final int minNumberOfAgentsForParallelReplanning;
+
+	/*
+	 * One map of replanner instances per thread.  The first one is also used when replanning on the calling thread.
+	 */
+	private final List<Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>>> replanners = new ArrayList<>();
+	private final Map<Id<WithinDayReplanner>, WithinDayReplannerFactory<? extends AgentSelector>> factoriesOfTimeStep = new HashMap<>();
+	private final Map<Id<Person>, AgentTasks> tasksByAgent = new LinkedHashMap<>();
+	private final List<AgentTasks> batch = new ArrayList<>();
+	private final AtomicInteger nextAgentIndex = new AtomicInteger();
+	private final List<Callable<Boolean>> workers = new ArrayList<>();
+	private final Counter counter = new Counter("BatchedParallelReplanner replanned plans: ");
+
+	private ExecutorService pool = null;
+	private int chunkSize = 1;
+
+	public BatchedParallelReplanner(int numOfThreads, int minNumberOfAgentsForParallelReplanning, EventsManager eventsManager) {
+		this.numOfThreads = Math.max(numOfThreads, 1);
+		this.minNumberOfAgentsForParallelReplanning = minNumberOfAgentsForParallelReplanning;
+		this.eventsManager = eventsManager;
+
+		log.info("Using " + this.numOfThreads + " threads for batched within-day replanning; agents are replanned in parallel "
+				+ "if at least " + this.minNumberOfAgentsForParallelReplanning + " are identified in a time step.");
+		if (this.numOfThreads > Runtime.getRuntime().availableProcessors()) {
+			log.warn("The number of parallel running replanning threads is bigger than the number of available CPUs/Cores!");
+		}
+
+		for (int i = 0; i < this.numOfThreads; i++) {
+			this.replanners.add(new HashMap<>());
+			final int threadIndex = i;
+			this.workers.add(() -> {
+				replanChunks(threadIndex);
+				return true;
+			});
+		}
+	}
+
+	public void onPrepareSim() {
+		for (Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>> map : this.replanners) {
+			map.clear();
+		}
+		this.counter.reset();
+		if (this.numOfThreads > 1 && this.pool == null) {
+			this.pool = Executors.newFixedThreadPool(this.numOfThreads, new NamedThreadFactory());
+		}
+	}
+
+	public void afterSim() {
+		this.tasksByAgent.clear();
+		this.factoriesOfTimeStep.clear();
+		// the replanners are re-created from scratch for each iteration
+		for (Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>> map : this.replanners) {
+			map.clear();
+		}
+		if (this.pool != null) {
+			this.pool.shutdown();
+			this.pool = null;
+		}
+	}
+
+	/**
+	 * Asks the identifiers of the given replanner factories for the agents to replan and adds the tasks to the batch of the
+	 * current time step.  The identification is done on the calling thread, since the identifiers share the replanning maps.
+	 */
+	public <T extends WithinDayReplannerFactory<? extends AgentSelector>> void addReplanningTasks(Iterable<T> factories, double time) {
+		List<T> sortedFactories = new ArrayList<>();
+		for (T factory : factories) {
+			sortedFactories.add(factory);
+		}
+		sortedFactories.sort((f1, f2) -> f1.getId().compareTo(f2.getId()));
+
+		for (T factory : sortedFactories) {
+			Id<WithinDayReplanner> id = factory.getId();
+			for (AgentSelector identifier : factory.getIdentifers()) {
+				for (MobsimAgent agent : identifier.getAgentsToReplan(time)) {
+					AgentTasks tasks = this.tasksByAgent.get(agent.getId());
+					if (tasks == null) {
+						tasks = new AgentTasks(agent);
+						this.tasksByAgent.put(agent.getId(), tasks);
+					}
+					tasks.replannerIds.add(id);
+					this.factoriesOfTimeStep.put(id, factory);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Replans all agents that were added since the last call.
+	 */
+	public void run(double time) {
+		if (this.tasksByAgent.isEmpty()) {
+			return;
+		}
+
+		this.batch.addAll(this.tasksByAgent.values());
+		this.tasksByAgent.clear();
+
+		boolean parallel = this.pool != null && this.batch.size() >= this.minNumberOfAgentsForParallelReplanning;
+		int usedThreads = parallel ? this.numOfThreads : 1;
+
+		/*
+		 * Create missing replanner instances here and not on the replanning threads, since the factories and the trip router
+		 * providers behind them are not meant to be used concurrently.
+		 */
+		for (WithinDayReplannerFactory<? extends AgentSelector> factory : this.factoriesOfTimeStep.values()) {
+			for (int i = 0; i < usedThreads; i++) {
+				WithinDayReplanner<? extends AgentSelector> replanner = this.replanners.get(i).get(factory.getId());
+				if (replanner == null) {
+					replanner = factory.createReplanner();
+					this.replanners.get(i).put(factory.getId(), replanner);
+				}
+				replanner.setTime(time);
+			}
+		}
+		this.factoriesOfTimeStep.clear();
+
+		try {
+			this.nextAgentIndex.set(0);
+			if (parallel) {
+				// a few chunks per thread, so the load can still be balanced at the end
+				this.chunkSize = Math.max(1, this.batch.size() / (8 * this.numOfThreads));
+				for (Future<Boolean> future : this.pool.invokeAll(this.workers)) {
+					future.get();
+				}
+			} else {
+				this.chunkSize = this.batch.size();
+				replanChunks(0);
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Exception while replanning.", e.getCause());
+		} finally {
+			this.batch.clear();
+		}
+	}
+
+	public void resetReplanners() {
+		this.counter.reset();
+		for (Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>> map : this.replanners) {
+			for (WithinDayReplanner<? extends AgentSelector> replanner : map.values()) {
+				replanner.reset();
+			}
+		}
+	}
+
+	private void replanChunks(int threadIndex) {
+		Map<Id<WithinDayReplanner>, WithinDayReplanner<? extends AgentSelector>> replannersOfThread = this.replanners.get(threadIndex);
+		int size = this.batch.size();
+		int start;
+		while ((start = this.nextAgentIndex.getAndAdd(this.chunkSize)) < size) {
+			int end = Math.min(start + this.chunkSize, size);
+			for (int i = start; i < end; i++) {
+				AgentTasks tasks = this.batch.get(i);
+				for (Id<WithinDayReplanner> replannerId : tasks.replannerIds) {
+					replan(replannersOfThread.get(replannerId), tasks.agent);
+				}
+			}
+		}
+	}
+
+	private void replan(WithinDayReplanner<? extends AgentSelector> withinDayReplanner, MobsimAgent withinDayAgent) {
+		boolean replanningSuccessful = withinDayReplanner.doReplanning(withinDayAgent);
+
+		if (!replanningSuccessful) {
+			log.error("Replanning was not successful! Replanner " + withinDayReplanner.getClass().toString() +
+					", time " + Time.writeTime(withinDayReplanner.getTime()) + ", agent " + withinDayAgent.getId());
+		} else {
+			if (this.eventsManager != null) {
+				this.eventsManager.processEvent(new ReplanningEvent(withinDayReplanner.getTime(), withinDayAgent.getId(),
+						withinDayReplanner.getClass().getSimpleName()));
+			}
+			this.counter.incCounter();
+		}
+	}
+
+	private static final class AgentTasks {
+		final MobsimAgent agent;
+		final List<Id<WithinDayReplanner>> replannerIds = new ArrayList<>(2);
+
+		AgentTasks(MobsimAgent agent) {
+			this.agent = agent;
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "BatchedParallelReplanner_PooledThread_" + count++);
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+}
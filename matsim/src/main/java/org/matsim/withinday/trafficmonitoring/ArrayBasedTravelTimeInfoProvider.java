@@ -21,6 +21,7 @@
 package org.matsim.withinday.trafficmonitoring;
 
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
@@ -30,12 +31,13 @@ import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo
 
 public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider {
 
-	private final TravelTimeInfo[] arrayLinkData;
+	// filled lazily by the router threads, so the entries have to be published safely
+	private final AtomicReferenceArray<TravelTimeInfo> arrayLinkData;
 	private final TravelTimeInfoProvider delegate;
 	
 	public ArrayBasedTravelTimeInfoProvider(Map<Id<Link>, TravelTimeInfo> linkData, Network network) {
 		this.delegate = new MapBasedTravelTimeInfoProvider(linkData);
-		this.arrayLinkData = new TravelTimeInfo[linkData.size()];
+		this.arrayLinkData = new AtomicReferenceArray<>(linkData.size());
 	}
 	
 	/*
@@ -55,10 +57,10 @@ public class ArrayBasedTravelTimeInfoProvider implements TravelTimeInfoProvider
 	public TravelTimeInfo getTravelTimeInfo(Link link) {
 		if (link instanceof HasIndex) {
 			int index = ((HasIndex) link).getArrayIndex();
-			TravelTimeInfo data = this.arrayLinkData[index];
+			TravelTimeInfo data = this.arrayLinkData.get(index);
 			if (data == null) {
 				data = this.delegate.getTravelTimeInfo(link);
-				this.arrayLinkData[index] = data;
+				this.arrayLinkData.set(index, data);
 			}
 			return data;
 		} else {
@@ -56,6 +56,13 @@ import java.util.concurrent.CyclicBarrier;
 /**
  * Collects link travel times over a given time span (storedTravelTimesBinSize)
  * and calculates an average travel time over this time span.
+ * <p></p>
+ * The trips of the time span are kept per link in a ring buffer of primitives,
+ * so the average is updated in place without allocating anything.  The average
+ * is published through a volatile field, and the links are looked up in
+ * concurrent structures, so {@link #getLinkTravelTime(Link, double, Person, Vehicle)}
+ * does not lock and may be called from any thread, also while the travel times
+ * are updated.
  * 
  * TODO:
  * - make storedTravelTimesBinSize configurable (e.g. via config)
@@ -102,6 +109,8 @@ public class WithinDayTravelTime implements TravelTime,
 	private int resetCnt = 0;
 	
 	private double now = Double.NEGATIVE_INFINITY ;
+
+	private long travelTimeUpdateCount = 0;
 	
 	@Inject
 	WithinDayTravelTime(Scenario scenario) {
@@ -256,7 +265,7 @@ public class WithinDayTravelTime implements TravelTime,
 			double tripTime = tripBin.leaveTime - tripBin.enterTime;
 
 			TravelTimeInfo travelTimeInfo = this.travelTimeInfoProvider.getTravelTimeInfo(linkId);
-			travelTimeInfo.tripBins.add(tripBin);
+			travelTimeInfo.addTrip(tripBin.leaveTime, tripTime);
 			travelTimeInfo.addedTravelTimes += tripTime;
 			travelTimeInfo.addedTrips++;
 
@@ -324,6 +333,7 @@ public class WithinDayTravelTime implements TravelTime,
 			travelTimeInfo.travelTime = freeSpeedTravelTime;
 			travelTimeInfo.init(freeSpeedTravelTime);
 		}
+		travelTimeUpdateCount++;
 
 		// Now initialize the Parallel Update Threads
 		initParallelThreads();
@@ -433,7 +443,15 @@ public class WithinDayTravelTime implements TravelTime,
 	/*package*/ static class TravelTimeInfo {
 
 		UpdateMeanTravelTimesRunnable runnable;
-		List<TripBin> tripBins = new ArrayList<>();
+
+		/*
+		 * The trips of the current time window as a ring buffer, oldest trip first.
+		 * The capacity is a power of two, so the indices can be wrapped with a mask.
+		 */
+		private double[] tripLeaveTimes = new double[4];
+		private double[] tripTravelTimes = new double[4];
+		private int firstTrip = 0;
+		private int numTrips = 0;
 
 		boolean isActive = false;
 		// int numActiveTrips = 0;
@@ -442,7 +460,7 @@ public class WithinDayTravelTime implements TravelTime,
 		double sumTravelTimes = 0.0; // We cache the sum of the TravelTimes
 
 		double freeSpeedTravelTime = Double.MAX_VALUE; // We cache the FreeSpeedTravelTimes
-		double travelTime = Double.MAX_VALUE; 
+		volatile double travelTime = Double.MAX_VALUE; // read by the router threads
 
 		double dynamicBinSize = 0.0; // size of the time window that is taken into account
 
@@ -454,6 +472,43 @@ public class WithinDayTravelTime implements TravelTime,
 			this.dynamicBinSize = freeSpeedTravelTime * 2.5;
 		}
 
+		/*package*/ void addTrip(double leaveTime, double tripTime) {
+			if (this.numTrips == this.tripLeaveTimes.length) {
+				int capacity = this.tripLeaveTimes.length;
+				double[] newLeaveTimes = new double[2 * capacity];
+				double[] newTravelTimes = new double[2 * capacity];
+				int firstPart = capacity - this.firstTrip;
+				System.arraycopy(this.tripLeaveTimes, this.firstTrip, newLeaveTimes, 0, firstPart);
+				System.arraycopy(this.tripLeaveTimes, 0, newLeaveTimes, firstPart, this.firstTrip);
+				System.arraycopy(this.tripTravelTimes, this.firstTrip, newTravelTimes, 0, firstPart);
+				System.arraycopy(this.tripTravelTimes, 0, newTravelTimes, firstPart, this.firstTrip);
+				this.tripLeaveTimes = newLeaveTimes;
+				this.tripTravelTimes = newTravelTimes;
+				this.firstTrip = 0;
+			}
+			int last = (this.firstTrip + this.numTrips) & (this.tripLeaveTimes.length - 1);
+			this.tripLeaveTimes[last] = leaveTime;
+			this.tripTravelTimes[last] = tripTime;
+			this.numTrips++;
+		}
+
+		/*
+		 * Removes the trips that left the link before the time window and returns the sum of their travel times.
+		 */
+		/*package*/ double removeTripsBefore(double time) {
+			double removedTravelTimes = 0.0;
+			while (this.numTrips > 0 && this.tripLeaveTimes[this.firstTrip] + this.dynamicBinSize < time) {
+				removedTravelTimes += this.tripTravelTimes[this.firstTrip];
+				this.firstTrip = (this.firstTrip + 1) & (this.tripLeaveTimes.length - 1);
+				this.numTrips--;
+			}
+			return removedTravelTimes;
+		}
+
+		/*package*/ int getNumberOfTrips() {
+			return this.numTrips;
+		}
+
 		/*package*/ void checkActiveState() {
 			if (!isActive) {
 				this.isActive = true;
@@ -500,6 +555,23 @@ public class WithinDayTravelTime implements TravelTime,
 		} catch (InterruptedException | BrokenBarrierException e) {
 			throw new RuntimeException(e);
 		}
+
+		boolean travelTimesChanged = false;
+		for (UpdateMeanTravelTimesRunnable updateMeanTravelTimesRunnable : updateMeanTravelTimesRunnables) {
+			travelTimesChanged |= updateMeanTravelTimesRunnable.travelTimesChanged;
+			updateMeanTravelTimesRunnable.travelTimesChanged = false;
+		}
+		if (travelTimesChanged) {
+			travelTimeUpdateCount++;
+		}
+	}
+
+	/**
+	 * Returns the number of time steps in which any link travel time has changed (incl. the initialisation with the
+	 * free-speed travel times), e.g. to check if cached paths are still valid.
+	 */
+	public long getTravelTimeUpdateCount() {
+		return travelTimeUpdateCount;
 	}
 
 	private void initParallelThreads() {
@@ -558,6 +630,7 @@ public class WithinDayTravelTime implements TravelTime,
 		
 		private double time = Time.UNDEFINED_TIME;
 		private Collection<TravelTimeInfo> activeTravelTimeInfos;
+		private boolean travelTimesChanged = false;// in the current time step
 
 		public UpdateMeanTravelTimesRunnable() {
 			activeTravelTimeInfos = new ArrayList<>();
@@ -624,9 +697,9 @@ public class WithinDayTravelTime implements TravelTime,
 						 * we deactivate the link and ensure that its expected
 						 * travel time is its free speed travel time.
 						 */
-						if (travelTimeInfo.tripBins.size() == 0) {
+						if (travelTimeInfo.getNumberOfTrips() == 0) {
 							travelTimeInfo.isActive = false;
-							travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+							setTravelTime(travelTimeInfo, travelTimeInfo.freeSpeedTravelTime);
 							iter.remove();
 						}
 					}
@@ -638,20 +711,8 @@ public class WithinDayTravelTime implements TravelTime,
 		} // run()
 
 		private void calcBinTravelTime(double time, TravelTimeInfo travelTimeInfo) {
-			double removedTravelTimes = 0.0;
-
-			List<TripBin> tripBins = travelTimeInfo.tripBins;
-
 			// first remove old TravelTimes
-			Iterator<TripBin> iter = tripBins.iterator();
-			while (iter.hasNext()) {
-				TripBin tripBin = iter.next();
-				if (tripBin.leaveTime + travelTimeInfo.dynamicBinSize < time) {
-					double travelTime = tripBin.leaveTime - tripBin.enterTime;
-					removedTravelTimes += travelTime;
-					iter.remove();
-				} else break;
-			}
+			double removedTravelTimes = travelTimeInfo.removeTripsBefore(time);
 
 			/*
 			 * We don't need an update if no Trips have been added or removed
@@ -670,14 +731,21 @@ public class WithinDayTravelTime implements TravelTime,
 			 * Ensure that we don't allow TravelTimes shorter than the FreeSpeedTravelTime.
 			 */
 			double meanTravelTime = travelTimeInfo.freeSpeedTravelTime;
-			if (!tripBins.isEmpty()) meanTravelTime = travelTimeInfo.sumTravelTimes / tripBins.size();
+			if (travelTimeInfo.getNumberOfTrips() > 0) meanTravelTime = travelTimeInfo.sumTravelTimes / travelTimeInfo.getNumberOfTrips();
 
 			if (meanTravelTime < travelTimeInfo.freeSpeedTravelTime) {
 //				log.warn("Mean TravelTime too short?");
 				// can happen when network change event came in with lower speed. kai, feb'18
-				travelTimeInfo.travelTime = travelTimeInfo.freeSpeedTravelTime;
+				setTravelTime(travelTimeInfo, travelTimeInfo.freeSpeedTravelTime);
 			} else {
-				travelTimeInfo.travelTime = meanTravelTime;
+				setTravelTime(travelTimeInfo, meanTravelTime);
+			}
+		}
+
+		private void setTravelTime(TravelTimeInfo travelTimeInfo, double travelTime) {
+			if (travelTimeInfo.travelTime != travelTime) {
+				travelTimeInfo.travelTime = travelTime;
+				travelTimesChanged = true;
 			}
 		}
 
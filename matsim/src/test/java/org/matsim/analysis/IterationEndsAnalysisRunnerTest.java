@@ -0,0 +1,115 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationEndsAnalysisRunnerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.ControlerDefaultsModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import com.google.inject.multibindings.Multibinder;
+
+public class IterationEndsAnalysisRunnerTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	/**
+	 * The analyses of the last iteration may still be running when the controler shuts down, and the analyses close
+	 * their files at shutdown.  With a single pool thread and a slow analysis in front of the others, checks that the
+	 * rows of the last iteration are nevertheless written, and are the same as without the runner.
+	 */
+	@Test
+	public void testLastIterationIsWritten() throws IOException {
+		String sequentialDir = utils.getOutputDirectory() + "sequential/";
+		String parallelDir = utils.getOutputDirectory() + "parallel/";
+		runEquil(sequentialDir, false);
+		runEquil(parallelDir, true);
+
+		for (String file : new String[] { "modestats.txt", "traveldistancestats.txt" }) {
+			List<String> parallelLines = readLines(parallelDir + file);
+			Assert.assertEquals(file, 3, parallelLines.size());
+			Assert.assertTrue(file, parallelLines.get(1).startsWith("0\t"));
+			Assert.assertTrue(file, parallelLines.get(2).startsWith("1\t"));
+			Assert.assertEquals(file, readLines(sequentialDir + file), parallelLines);
+		}
+		for (String file : new String[] { "legHistogram.txt", "tripdurations.txt" }) {
+			Assert.assertEquals(file, readLines(sequentialDir + "ITERS/it.1/1." + file),
+					readLines(parallelDir + "ITERS/it.1/1." + file));
+		}
+	}
+
+	private void runEquil(String outputDir, boolean parallelIterationEndsAnalysis) {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setOutputDirectory(outputDir);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		config.controler().setLastIteration(1);
+		config.controler().setCreateGraphs(false);
+		config.controler().setParallelIterationEndsAnalysis(parallelIterationEndsAnalysis);
+		config.global().setNumberOfThreads(1);
+		Controler controler = new Controler(config);
+		controler.setModules(new AbstractModule() {
+			@Override
+			public void install() {
+				// bound before the default analyses, so that it is run first
+				Multibinder.newSetBinder(binder(), IterationEndsAnalysis.class).addBinding().toInstance(new SlowAnalysis());
+				install(new ControlerDefaultsModule());
+			}
+		});
+		controler.run();
+	}
+
+	private static class SlowAnalysis implements IterationEndsAnalysis {
+		@Override
+		public void finishIteration(int iteration) {
+			try {
+				Thread.sleep(2000);
+			} catch (InterruptedException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	private static List<String> readLines(String filename) throws IOException {
+		Assert.assertTrue(filename, new File(filename).exists());
+		List<String> lines = new ArrayList<>();
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfilerListenerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.ControlerConfigGroup.ProfilingType;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class IterationProfilerListenerTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testProfilingFiles() throws IOException {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.controler().setLastIteration(1);
+		config.controler().setProfiling(ProfilingType.files);
+		config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+		new Controler(config).run();
+
+		List<String> lines = readLines(utils.getOutputDirectory() + "profiling.txt");
+		Assert.assertEquals("ITERATION\tNAME\tCOUNT\tTOTAL_MS\tVALUE", lines.get(0));
+		for (String line : lines.subList(1, lines.size())) {
+			Assert.assertEquals(line, 5, line.split("\t", -1).length);
+		}
+		for (int iteration : new int[] { 0, 1 }) {
+			// every iteration runs the mobsim, and one sim step is counted per second
+			String simStep = findLine(lines, iteration + "\tmobsim.simStep\t");
+			Assert.assertTrue(Long.parseLong(simStep.split("\t")[2]) > 0);
+			Assert.assertNotNull(findLine(lines, iteration + "\theap.used_MB\t"));
+		}
+		// the plans are rerouted only in the replanning of iteration 1 (the timers are reset at iteration start)
+		Assert.assertNull(findLine(lines, "0\trouter.car\t"));
+		Assert.assertNotNull(findLine(lines, "1\trouter.car\t"));
+
+		String json = String.join("\n",
+				readLines(utils.getOutputDirectory() + "ITERS/it.1/1." + IterationProfilerListener.FILENAME_PROFILING
+						+ ".json"));
+		Assert.assertTrue(json.startsWith("{\n\t\"iteration\": 1,\n\t\"timers\": {"));
+		Assert.assertTrue(json.contains("\"router.car\": {\"count\": "));
+		Assert.assertTrue(json.contains("\"mobsim.simStep\": {\"count\": "));
+		Assert.assertTrue(json.contains("\t\"gauges\": {"));
+		Assert.assertTrue(json.endsWith("}"));
+	}
+
+	private static List<String> readLines(String filename) throws IOException {
+		try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+			return reader.lines().collect(Collectors.toCollection(ArrayList::new));
+		}
+	}
+
+	private static String findLine(List<String> lines, String prefix) {
+		return lines.stream().filter(l -> l.startsWith(prefix)).findFirst().orElse(null);
+	}
+
+}
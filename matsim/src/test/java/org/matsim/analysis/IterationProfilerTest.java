@@ -0,0 +1,67 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * IterationProfilerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.analysis;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.analysis.IterationProfiler.IterationProfile;
+
+public class IterationProfilerTest {
+
+	@Test
+	public void testTimers() {
+		IterationProfiler profiler = new IterationProfiler(true);
+		profiler.beginIteration();
+		profiler.getTimer("a").add(1000);
+		profiler.getTimer("a").add(2000);
+		profiler.getTimer("b").add(5, 3000);
+		profiler.getTimer("unused");
+
+		IterationProfile profile = profiler.finishIteration(3);
+		Assert.assertEquals(3, profile.getIteration());
+		Assert.assertEquals(2, profile.getCounts().size());
+		Assert.assertEquals(2L, profile.getCounts().get("a").longValue());
+		Assert.assertEquals(3000L, profile.getNanos().get("a").longValue());
+		Assert.assertEquals(5L, profile.getCounts().get("b").longValue());
+		Assert.assertEquals(3000L, profile.getNanos().get("b").longValue());
+		Assert.assertFalse(profile.getCounts().containsKey("unused"));
+		Assert.assertTrue(profile.getGauges().containsKey("heap.used_MB"));
+	}
+
+	@Test
+	public void testFinishIterationResetsTimers() {
+		IterationProfiler profiler = new IterationProfiler(true);
+		profiler.beginIteration();
+		profiler.getTimer("a").add(1000);
+		profiler.finishIteration(0);
+
+		profiler.beginIteration();
+		profiler.getTimer("a").add(500);
+		IterationProfile profile = profiler.finishIteration(1);
+		Assert.assertEquals(1L, profile.getCounts().get("a").longValue());
+		Assert.assertEquals(500L, profile.getNanos().get("a").longValue());
+
+		profiler.getTimer("a").add(700);
+		profiler.beginIteration();
+		Assert.assertTrue(profiler.finishIteration(2).getCounts().isEmpty());
+	}
+
+}
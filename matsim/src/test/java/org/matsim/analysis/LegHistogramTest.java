@@ -177,4 +177,28 @@ public class LegHistogramTest extends MatsimTestCase {
 		assertEquals("After reset, there should be 0 known leg-modes", 0, modes.size());
 		assertFalse(modes.contains(TransportMode.car));
 	}
+
+	/**
+	 * Tests that a copy keeps the data when the original is reset, as done for the parallel iteration ends analysis.
+	 */
+	public void testCopy() {
+		Id<Link> linkId = Id.create(1, Link.class);
+		Id<Person> personId = Id.create(1, Person.class);
+
+		LegHistogram histo = new LegHistogram(5*60);
+		histo.handleEvent(new PersonDepartureEvent(7*3600, personId, linkId, TransportMode.car));
+		histo.handleEvent(new PersonArrivalEvent(7*3600 + 6*60, personId, linkId, TransportMode.car));
+		histo.handleEvent(new PersonDepartureEvent(8*3600, personId, linkId, TransportMode.walk));
+
+		LegHistogram copy = histo.copy();
+		histo.reset(1);
+		histo.handleEvent(new PersonDepartureEvent(9*3600, personId, linkId, TransportMode.car));
+
+		assertEquals(2, copy.getLegModes().size());
+		assertEquals(1, copy.getDepartures(TransportMode.car)[7*12]);
+		assertEquals(0, copy.getDepartures(TransportMode.car)[9*12]);
+		assertEquals(1, copy.getArrivals(TransportMode.car)[7*12 + 1]);
+		assertEquals(1, copy.getDepartures(TransportMode.walk)[8*12]);
+		assertEquals(2, copy.getDepartures()[7*12] + copy.getDepartures()[8*12]);
+	}
 }
@@ -108,4 +108,25 @@ public class PlansDumpingIT {
 		assertTrue(new File(c.getControlerIO().getIterationFilename(9, "plans.xml.gz")).exists());
 		assertTrue(new File(c.getControlerIO().getIterationFilename(10, "plans.xml.gz")).exists());
 	}
+
+	@Test
+	public void testPlansDump_Asynchronous() {
+		Config config = this.util.loadConfig("test/scenarios/equil/config_plans1.xml");
+		config.controler().setLastIteration(4);
+		config.controler().setWritePlansInterval(2);
+		config.controler().setNumberOfOutputWriterThreads(2);
+		Controler c = new Controler(config);
+		c.getConfig().controler().setWriteEventsInterval(0);
+		c.getConfig().controler().setCreateGraphs(false);
+
+		c.run();
+
+		assertTrue(new File(c.getControlerIO().getIterationFilename(0, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(1, "plans.xml.gz")).exists()); // it.1 is always written
+		assertTrue(new File(c.getControlerIO().getIterationFilename(2, "plans.xml.gz")).exists());
+		assertFalse(new File(c.getControlerIO().getIterationFilename(3, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getIterationFilename(4, "plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getOutputFilename("output_plans.xml.gz")).exists());
+		assertTrue(new File(c.getControlerIO().getOutputFilename("output_network.xml.gz")).exists());
+	}
 }
@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * OrderedEventsBufferTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
+
+public class OrderedEventsBufferTest {
+
+	@Test
+	public void testFlushSortsByElement() throws InterruptedException {
+		EventsManager manager = EventsUtils.createEventsManager();
+		final List<String> handled = new ArrayList<>();
+		manager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				handled.add(event.getEventType());
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+
+		OrderedEventsBuffer buffer1 = new OrderedEventsBuffer();
+		OrderedEventsBuffer buffer2 = new OrderedEventsBuffer();
+		Thread thread1 = new Thread(() -> {
+			buffer1.bindToCurrentThread();
+			buffer1.startElement(3);
+			manager.processEvent(new NamedEvent("3a"));
+			manager.processEvent(new NamedEvent("3b"));
+			buffer1.startElement(0);
+			buffer1.startElement(1);
+			manager.processEvent(new NamedEvent("1a"));
+			buffer1.unbindFromCurrentThread();
+		});
+		Thread thread2 = new Thread(() -> {
+			buffer2.bindToCurrentThread();
+			buffer2.startElement(2);
+			manager.processEvent(new NamedEvent("2a"));
+			manager.processEvent(new NamedEvent("2b"));
+			buffer2.unbindFromCurrentThread();
+		});
+		thread1.start();
+		thread2.start();
+		thread1.join();
+		thread2.join();
+		Assert.assertTrue("events of bound threads must not be processed immediately", handled.isEmpty());
+
+		manager.processEvent(new NamedEvent("main"));
+		Assert.assertEquals(Arrays.asList("main"), handled);
+
+		OrderedEventsBuffer.flush(Arrays.asList(buffer2, buffer1));
+		Assert.assertEquals(Arrays.asList("main", "1a", "2a", "2b", "3a", "3b"), handled);
+
+		OrderedEventsBuffer.flush(Arrays.asList(buffer1, buffer2));
+		Assert.assertEquals("buffers must be empty after a flush", 6, handled.size());
+	}
+
+	private static class NamedEvent extends Event {
+		private final String name;
+
+		NamedEvent(String name) {
+			super(0.0);
+			this.name = name;
+		}
+
+		@Override
+		public String getEventType() {
+			return this.name;
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * MessageQueueBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.jdeqsim;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * Measures the run time of the {@link JDEQSimulation} with the different {@link JDEQSimConfigGroup.MessageQueueType}s
+ * (each with the default and the FIFO message order) on the equil and the berlin test scenarios.  Not a test.
+ * <p></p>
+ * Arguments (optional): number of runs per scenario and queue type.
+ */
+public class MessageQueueBenchmark {
+	private static final Logger log = Logger.getLogger(MessageQueueBenchmark.class);
+
+	private static final String[] SCENARIOS = { "equil", "berlin" };
+
+	public static void main(String[] args) {
+		int numberOfRuns = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+		for (String scenarioName : SCENARIOS) {
+			Config config = ConfigUtils.loadConfig(
+					IOUtils.newUrl(ExamplesUtils.getTestScenarioURL(scenarioName), "config.xml"));
+			Scenario scenario = ScenarioUtils.loadScenario(config);
+			JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class);
+
+			for (JDEQSimConfigGroup.MessageQueueType type : JDEQSimConfigGroup.MessageQueueType.values()) {
+				for (boolean fifoMessageOrder : new boolean[] { false, true }) {
+					jdeqSimConfig.setMessageQueueType(type);
+					jdeqSimConfig.setFifoMessageOrder(fifoMessageOrder);
+					// the first run warms up the jvm
+					runJDEQSim(scenario, jdeqSimConfig);
+					long start = System.currentTimeMillis();
+					long numberOfEvents = 0;
+					for (int i = 0; i < numberOfRuns; i++) {
+						numberOfEvents = runJDEQSim(scenario, jdeqSimConfig);
+					}
+					long runTime = System.currentTimeMillis() - start;
+					log.info(scenarioName + ", " + type + (fifoMessageOrder ? " (fifo)" : "") + ": " + numberOfEvents
+							+ " events, mean run time (ms): " + ((double) runTime / numberOfRuns));
+				}
+			}
+		}
+	}
+
+	private static long runJDEQSim(Scenario scenario, JDEQSimConfigGroup jdeqSimConfig) {
+		MatsimRandom.reset(scenario.getConfig().global().getRandomSeed());
+		EventsManagerImpl events = new EventsManagerImpl();
+		EventCounter counter = new EventCounter();
+		events.addHandler(counter);
+		events.initProcessing();
+		new JDEQSimulation(jdeqSimConfig, scenario, events).run();
+		events.finishProcessing();
+		return counter.numberOfEvents;
+	}
+
+	private static class EventCounter implements BasicEventHandler {
+		long numberOfEvents = 0;
+
+		@Override
+		public void handleEvent(Event event) {
+			this.numberOfEvents++;
+		}
+
+		@Override
+		public void reset(int iteration) {
+			this.numberOfEvents = 0;
+		}
+	}
+
+}
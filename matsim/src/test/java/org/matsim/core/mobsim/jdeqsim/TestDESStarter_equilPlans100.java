@@ -1,13 +1,23 @@
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
+import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.scenario.ScenarioUtils;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class TestDESStarter_equilPlans100 extends AbstractJDEQSimTest {
 
@@ -24,6 +34,72 @@ public class TestDESStarter_equilPlans100 extends AbstractJDEQSimTest {
 		super.checkAscendingTimeStamps();
 		super.checkEventsCorrespondToPlans(scenario.getPopulation());
 	}
+
+	/*
+	 * With the FIFO message order, messages with the same time and priority are processed in the order in which they
+	 * were scheduled.  So agents that end their first activity at the same time do so in the order of the population.
+	 * (By default, the order of these agents depends on the layout of the heap of the message queue.)
+	 */
+	@Test
+	public void test_equilPlans100_SameTimeInSchedulingOrder() {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME, JDEQSimConfigGroup.class).setFifoMessageOrder(true);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		this.runJDEQSim(scenario);
+
+		double sameEndTime = 6. * 3600.;
+		List<Id<Person>> expected = new ArrayList<>();
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			Activity firstActivity = (Activity) person.getSelectedPlan().getPlanElements().get(0);
+			if (firstActivity.getEndTime() == sameEndTime) {
+				expected.add(person.getId());
+			}
+		}
+		List<Id<Person>> actual = new ArrayList<>();
+		for (Event event : super.allEvents) {
+			if (event instanceof ActivityEndEvent && event.getTime() == sameEndTime) {
+				actual.add(((ActivityEndEvent) event).getPersonId());
+			}
+		}
+		assertTrue(expected.size() > 1);
+		assertEquals(expected, actual);
+	}
+
+	/*
+	 * With the FIFO message order, the order of the messages does not depend on the heap of the message queue, so both
+	 * give the same events.
+	 */
+	@Test
+	public void test_equilPlans100_SameEventsWithBothMessageQueues() {
+		List<String> binaryHeapEvents = runJDEQSim(JDEQSimConfigGroup.MessageQueueType.binaryHeap);
+		List<String> pairingHeapEvents = runJDEQSim(JDEQSimConfigGroup.MessageQueueType.pairingHeap);
+		assertFalse(binaryHeapEvents.isEmpty());
+		assertEquals(binaryHeapEvents, pairingHeapEvents);
+	}
+
+	private List<String> runJDEQSim(JDEQSimConfigGroup.MessageQueueType messageQueueType) {
+		Config config = ConfigUtils.loadConfig("test/scenarios/equil/config.xml");
+		JDEQSimConfigGroup jdeqSimConfig = ConfigUtils.addOrGetModule(config, JDEQSimConfigGroup.NAME,
+				JDEQSimConfigGroup.class);
+		jdeqSimConfig.setMessageQueueType(messageQueueType);
+		jdeqSimConfig.setFifoMessageOrder(true);
+		MatsimRandom.reset(config.global().getRandomSeed());
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		ScenarioUtils.loadScenario(scenario);
+
+		super.allEvents.clear();
+		Road.getAllRoads().clear();
+		this.runJDEQSim(scenario);
+
+		List<String> events = new ArrayList<>();
+		for (Event event : super.allEvents) {
+			events.add(event.toString());
+		}
+		return events;
+	}
 	
 	/* 
 	 * This test is turned off, because it cannot pass.
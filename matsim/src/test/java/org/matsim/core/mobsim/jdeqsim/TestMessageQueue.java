@@ -1,5 +1,10 @@
 package org.matsim.core.mobsim.jdeqsim;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
 import org.matsim.core.mobsim.jdeqsim.util.DummyMessage;
 import org.matsim.testcases.MatsimTestCase;
 
@@ -130,4 +135,137 @@ public class TestMessageQueue extends MatsimTestCase {
 	
 	
 	
+	// with the FIFO message order, messages with the same time and priority come out in the order they were put in
+	public void testSameTimeAndPriority(){
+		MessageQueue mq=new MessageQueue(JDEQSimConfigGroup.MessageQueueType.binaryHeap, true);
+		Message[] messages=new Message[10];
+		for (int i=0;i<messages.length;i++){
+			messages[i]=new DummyMessage();
+			messages[i].setMessageArrivalTime(1);
+			mq.putMessage(messages[i]);
+		}
+		for (int i=0;i<messages.length;i++){
+			assertEquals(true, mq.getNextMessage()==messages[i]);
+		}
+		assertEquals(true, mq.isEmpty());
+	}
+
+	// messages put after the first message was taken out are merged with the streamed ones put before
+	public void testPutMessageAfterGetNextMessage(){
+		MessageQueue mq=new MessageQueue(JDEQSimConfigGroup.MessageQueueType.binaryHeap, true);
+		Message m1=new DummyMessage();
+		m1.setMessageArrivalTime(1);
+		Message m2=new DummyMessage();
+		m2.setMessageArrivalTime(3);
+		Message m3=new DummyMessage();
+		m3.setMessageArrivalTime(5);
+		mq.putMessage(m3);
+		mq.putMessage(m1);
+		mq.putMessage(m2);
+		assertEquals(true, mq.getNextMessage()==m1);
+
+		Message m4=new DummyMessage();
+		m4.setMessageArrivalTime(4);
+		Message m5=new DummyMessage();
+		m5.setMessageArrivalTime(3);
+		mq.putMessage(m4);
+		mq.putMessage(m5);
+		mq.removeMessage(m2);
+		assertEquals(3, mq.getQueueSize());
+		assertEquals(true, mq.getNextMessage()==m5);
+		assertEquals(true, mq.getNextMessage()==m4);
+		assertEquals(false, mq.isEmpty());
+		assertEquals(true, mq.getNextMessage()==m3);
+		assertEquals(0, mq.getQueueSize());
+		assertEquals(true, mq.isEmpty());
+	}
+
+	public void testPairingHeapRemoveMessage(){
+		MessageQueue mq=new MessageQueue(JDEQSimConfigGroup.MessageQueueType.pairingHeap);
+		Message m1=new DummyMessage();
+		m1.setMessageArrivalTime(1);
+		Message m2=new DummyMessage();
+		m2.setMessageArrivalTime(2);
+		mq.putMessage(m1);
+		assertEquals(true, mq.getNextMessage()==m1);
+
+		// now the messages go into the pairing heap, from where they are really removed
+		Message m3=new DummyMessage();
+		m3.setMessageArrivalTime(3);
+		mq.putMessage(m3);
+		mq.putMessage(m2);
+		mq.removeMessage(m2);
+		assertEquals(true, m2.isAlive());
+		assertEquals(1, mq.getQueueSize());
+		assertEquals(true, mq.getNextMessage()==m3);
+		assertEquals(0, mq.getQueueSize());
+		assertEquals(true, mq.isEmpty());
+	}
+
+	// with the FIFO message order, both heaps must give the same messages in the same order, also with removed messages
+	public void testPairingHeapSameOrderAsBinaryHeap(){
+		Random random=new Random(4711);
+		MessageQueue binary=new MessageQueue(JDEQSimConfigGroup.MessageQueueType.binaryHeap, true);
+		MessageQueue pairing=new MessageQueue(JDEQSimConfigGroup.MessageQueueType.pairingHeap, true);
+		List<Message> binaryMessages=new ArrayList<>();
+		List<Message> pairingMessages=new ArrayList<>();
+		double now=0;
+		for (int i=0;i<5000;i++){
+			int action=random.nextInt(10);
+			if (action<5){
+				double time=now+random.nextInt(20);
+				int priority=random.nextInt(3);
+				Message b=new DummyMessage();
+				b.setMessageArrivalTime(time);
+				b.setPriority(priority);
+				Message p=new DummyMessage();
+				p.setMessageArrivalTime(time);
+				p.setPriority(priority);
+				binary.putMessage(b);
+				pairing.putMessage(p);
+				binaryMessages.add(b);
+				pairingMessages.add(p);
+			} else if (action<7 && !binaryMessages.isEmpty()){
+				int index=random.nextInt(binaryMessages.size());
+				binary.removeMessage(binaryMessages.remove(index));
+				pairing.removeMessage(pairingMessages.remove(index));
+			} else if (!binary.isEmpty()){
+				Message b=binary.getNextMessage();
+				Message p=pairing.getNextMessage();
+				if (b==null){
+					assertNull(p);
+					continue;
+				}
+				int index=binaryMessages.indexOf(b);
+				assertEquals(index, pairingMessages.indexOf(p));
+				binaryMessages.remove(index);
+				pairingMessages.remove(index);
+				now=b.getMessageArrivalTime();
+			}
+			assertEquals(binary.getQueueSize(), pairing.getQueueSize());
+		}
+	}
+
+	// by default, the messages come out exactly as from a plain priority queue (also those with the same time and priority)
+	public void testDefaultOrderAsPriorityQueue(){
+		Random random=new Random(4711);
+		MessageQueue mq=new MessageQueue();
+		PriorityQueue<Message> pq=new PriorityQueue<>();
+		for (int i=0;i<5000;i++){
+			if (random.nextInt(3)<2 || pq.isEmpty()){
+				Message m=new DummyMessage();
+				m.setMessageArrivalTime(random.nextInt(20));
+				m.setPriority(random.nextInt(3));
+				mq.putMessage(m);
+				pq.add(m);
+			} else {
+				assertEquals(true, mq.getNextMessage()==pq.poll());
+			}
+		}
+		while (!pq.isEmpty()){
+			assertEquals(true, mq.getNextMessage()==pq.poll());
+		}
+		assertEquals(true, mq.isEmpty());
+	}
+
 }
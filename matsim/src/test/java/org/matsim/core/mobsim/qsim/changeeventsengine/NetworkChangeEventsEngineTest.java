@@ -14,12 +14,12 @@ import org.matsim.core.config.Config;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.mobsim.framework.MobsimAgent;
-import org.matsim.core.mobsim.jdeqsim.MessageQueue;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.QSimBuilder;
 import org.matsim.core.mobsim.qsim.interfaces.Netsim;
 import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkUtils;
 import org.matsim.core.scenario.ScenarioUtils;
 
 /**
@@ -44,7 +44,7 @@ public class NetworkChangeEventsEngineTest {
 		EventsManager eventsManager = EventsUtils.createEventsManager();
 		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
 
-		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork(), new MessageQueue());
+		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork());
 		qsim.addMobsimEngine(engine);
 
 		engine.onPrepareSim();
@@ -80,7 +80,7 @@ public class NetworkChangeEventsEngineTest {
 		EventsManager eventsManager = EventsUtils.createEventsManager();
 		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
 
-		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork(), new MessageQueue());
+		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork());
 		engine.setInternalInterface(new DummyInternalInterfaceImpl(qsim));
 
 		engine.onPrepareSim();
@@ -116,7 +116,7 @@ public class NetworkChangeEventsEngineTest {
 		EventsManager eventsManager = EventsUtils.createEventsManager();
 		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
 
-		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork(), new MessageQueue());
+		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork());
 		engine.setInternalInterface(new DummyInternalInterfaceImpl(qsim));
 
 		engine.onPrepareSim();
@@ -134,6 +134,56 @@ public class NetworkChangeEventsEngineTest {
 		Assert.assertEquals("it should be 40 now.", 40, link1.getCapacity(40), 0);
 	}
 
+	@Test
+	public void testNextActionTime() {
+		Config config = ConfigUtils.createConfig();
+		config.network().setTimeVariantNetwork(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		NetworkFactory nf = scenario.getNetwork().getFactory();
+		Node node1 = nf.createNode(Id.create(1, Node.class), new Coord(0, 0));
+		Node node2 = nf.createNode(Id.create(2, Node.class), new Coord(100, 100));
+		Link link1 = scenario.getNetwork().getFactory().createLink(Id.create(1, Link.class), node1, node2);
+		link1.setCapacity(20);
+		scenario.getNetwork().addNode(node1);
+		scenario.getNetwork().addNode(node2);
+		scenario.getNetwork().addLink(link1);
+
+		// not in chronological order, and two of them at the same time
+		NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), createCapacityChange(link1, 100, 2));
+		NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), createCapacityChange(link1, 50, 0.5));
+		NetworkUtils.addNetworkChangeEvent(scenario.getNetwork(), createCapacityChange(link1, 100, 3));
+
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, eventsManager);
+
+		NetworkChangeEventsEngine engine = new NetworkChangeEventsEngine(scenario.getNetwork());
+		engine.setInternalInterface(new DummyInternalInterfaceImpl(qsim));
+
+		engine.onPrepareSim();
+		Assert.assertEquals(50, engine.getNextActionTime(), 0);
+		engine.doSimStep(60);
+		Assert.assertEquals(100, engine.getNextActionTime(), 0);
+
+		engine.addNetworkChangeEvent(createCapacityChange(link1, 80, 1.5));
+		Assert.assertEquals(80, engine.getNextActionTime(), 0);
+		engine.doSimStep(80);
+		Assert.assertEquals(100, engine.getNextActionTime(), 0);
+		engine.doSimStep(100);
+		Assert.assertEquals(Double.POSITIVE_INFINITY, engine.getNextActionTime(), 0);
+
+		Assert.assertEquals(10, link1.getCapacity(60), 1e-9);
+		Assert.assertEquals(15, link1.getCapacity(80), 1e-9);
+		Assert.assertEquals(90, link1.getCapacity(100), 1e-9);
+	}
+
+	private static NetworkChangeEvent createCapacityChange(Link link, double startTime, double factor) {
+		NetworkChangeEvent changeEvent = new NetworkChangeEvent(startTime);
+		changeEvent.addLink(link);
+		changeEvent.setFlowCapacityChange(new NetworkChangeEvent.ChangeValue(NetworkChangeEvent.ChangeType.FACTOR, factor));
+		return changeEvent;
+	}
+
 	private static class DummyInternalInterfaceImpl implements InternalInterface {
 
 		private final QSim qsim;
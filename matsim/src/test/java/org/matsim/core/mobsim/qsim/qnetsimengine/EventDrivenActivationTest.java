@@ -0,0 +1,290 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventDrivenActivationTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkChangeEvent;
+import org.matsim.core.network.NetworkChangeEvent.ChangeType;
+import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Compares the events of the qsim with and without event-driven activation and fast forward of the links.
+ */
+@RunWith(Parameterized.class)
+public class EventDrivenActivationTest {
+
+	private final TrafficDynamics trafficDynamics;
+	private final int numberOfThreads;
+
+	public EventDrivenActivationTest(TrafficDynamics trafficDynamics, int numberOfThreads) {
+		this.trafficDynamics = trafficDynamics;
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	@Parameters(name = "{index}: trafficDynamics == {0}; numberOfThreads == {1}")
+	public static Collection<Object[]> parameterObjects() {
+		return Arrays.asList(new Object[][] {
+				{ TrafficDynamics.queue, 1 },
+				{ TrafficDynamics.withHoles, 1 },
+				{ TrafficDynamics.withHoles, 2 },
+				{ TrafficDynamics.kinematicWaves, 1 } });
+	}
+
+	@Test
+	public void testSameEventsAsTimeStepped() {
+		EventsRecorder timeStepped = runQSim(false, false);
+		EventsRecorder eventDriven = runQSim(true, false);
+
+		assertSameEvents(timeStepped, eventDriven);
+		Assert.assertTrue("no time steps skipped", eventDriven.simSteps < timeStepped.simSteps / 2);
+	}
+
+	@Test
+	public void testSameEventsWithLinkFastForward() {
+		EventsRecorder timeStepped = runQSim(false, false);
+		EventsRecorder fastForward = runQSim(false, true);
+		EventsRecorder eventDrivenFastForward = runQSim(true, true);
+
+		assertSameEvents(timeStepped, fastForward);
+		Assert.assertEquals(timeStepped.simSteps, fastForward.simSteps);
+		assertSameEvents(timeStepped, eventDrivenFastForward);
+	}
+
+	@Test
+	public void testSameEventsWithNetworkChangeEvents() {
+		EventsRecorder timeStepped = runQSim(false, false, true);
+		EventsRecorder eventDriven = runQSim(true, false, true);
+
+		assertSameEvents(timeStepped, eventDriven);
+		Assert.assertTrue("no time steps skipped", eventDriven.simSteps < timeStepped.simSteps / 2);
+	}
+
+	private static void assertSameEvents(EventsRecorder expected, EventsRecorder actual) {
+		Assert.assertFalse(expected.events.isEmpty());
+		Assert.assertEquals(expected.events.size(), actual.events.size());
+		for (int i = 0; i < expected.events.size(); i++) {
+			Assert.assertEquals("different event at index " + i, expected.events.get(i), actual.events.get(i));
+		}
+	}
+
+	private EventsRecorder runQSim(boolean usingEventDrivenActivation, boolean usingLinkFastForward) {
+		return runQSim(usingEventDrivenActivation, usingLinkFastForward, false);
+	}
+
+	private EventsRecorder runQSim(boolean usingEventDrivenActivation, boolean usingLinkFastForward, boolean withNetworkChangeEvents) {
+		MatsimRandom.reset();
+		Config config = ConfigUtils.createConfig();
+		config.network().setTimeVariantNetwork(withNetworkChangeEvents);
+		config.qsim().setTrafficDynamics(this.trafficDynamics);
+		config.qsim().setNumberOfThreads(this.numberOfThreads);
+		// with more than one thread, the order of the events only is well defined with deterministic parallelism
+		config.qsim().setUsingDeterministicParallelism(this.numberOfThreads > 1);
+		config.qsim().setUsingEventDrivenActivation(usingEventDrivenActivation);
+		config.qsim().setUsingLinkFastForward(usingLinkFastForward);
+		config.qsim().setEndTime(30 * 3600.);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createScenario(scenario);
+		if (withNetworkChangeEvents) {
+			addNetworkChangeEvents(scenario.getNetwork());
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsRecorder recorder = new EventsRecorder();
+		new QSimBuilder(config).useDefaults().build(scenario, recorder).run();
+		return recorder;
+	}
+
+	/**
+	 * A corridor with a bottleneck in the middle.  The agents drive to work in the morning and back in the evening, some walk,
+	 * and nothing happens over the day and during the night.
+	 */
+	private static void createScenario(Scenario scenario) {
+		Network network = scenario.getNetwork();
+		int numberOfLinks = 6;
+		List<Id<Link>> linkIds = new ArrayList<>();
+		List<Id<Link>> backLinkIds = new ArrayList<>();
+		Node[] nodes = new Node[numberOfLinks + 1];
+		for (int i = 0; i <= numberOfLinks; i++) {
+			nodes[i] = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(1000. * i, 0.));
+		}
+		for (int i = 1; i <= numberOfLinks; i++) {
+			double capacity = i == numberOfLinks / 2 ? 600. : 3600.;
+			linkIds.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), nodes[i - 1], nodes[i], 1000., 13.9, capacity, 1.).getId());
+			backLinkIds.add(0, NetworkUtils.createAndAddLink(network, Id.createLinkId("back" + i), nodes[i], nodes[i - 1], 1000., 13.9, capacity, 1.).getId());
+		}
+
+		Id<Link> homeLinkId = linkIds.get(0);
+		Id<Link> workLinkId = linkIds.get(linkIds.size() - 1);
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < 100; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			String mode = i % 10 == 0 ? TransportMode.walk : TransportMode.car;
+			Activity home = pf.createActivityFromLinkId("h", homeLinkId);
+			home.setEndTime(6 * 3600. + 7 * i + 0.5 * (i % 2));
+			plan.addActivity(home);
+			plan.addLeg(createLeg(pf, mode, homeLinkId, linkIds.subList(1, linkIds.size() - 1), workLinkId));
+			Activity work = pf.createActivityFromLinkId("w", workLinkId);
+			work.setEndTime(17 * 3600. + 11 * i);
+			plan.addActivity(work);
+			plan.addLeg(createLeg(pf, mode, workLinkId, backLinkIds, homeLinkId));
+			plan.addActivity(pf.createActivityFromLinkId("h", homeLinkId));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	/**
+	 * Narrows the bottleneck and slows down the link after it during the morning peak, and restores both at noon.
+	 */
+	private static void addNetworkChangeEvents(Network network) {
+		Link bottleneck = network.getLinks().get(Id.createLinkId(3));
+		Link nextLink = network.getLinks().get(Id.createLinkId(4));
+
+		NetworkChangeEvent narrowing = new NetworkChangeEvent(6 * 3600. + 150.);
+		narrowing.addLink(bottleneck);
+		narrowing.setFlowCapacityChange(new ChangeValue(ChangeType.FACTOR, 0.5));
+		NetworkUtils.addNetworkChangeEvent(network, narrowing);
+
+		NetworkChangeEvent slowDown = new NetworkChangeEvent(6 * 3600. + 300.5);
+		slowDown.addLink(nextLink);
+		slowDown.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 5.));
+		NetworkUtils.addNetworkChangeEvent(network, slowDown);
+
+		NetworkChangeEvent restore = new NetworkChangeEvent(12 * 3600.);
+		restore.addLink(bottleneck);
+		restore.addLink(nextLink);
+		restore.setFlowCapacityChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 600. / 3600.));
+		restore.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 13.9));
+		NetworkUtils.addNetworkChangeEvent(network, restore);
+	}
+
+	private static Leg createLeg(PopulationFactory pf, String mode, Id<Link> startLinkId, List<Id<Link>> linkIds, Id<Link> endLinkId) {
+		Leg leg = pf.createLeg(mode);
+		if (mode.equals(TransportMode.car)) {
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLinkId, endLinkId);
+			route.setLinkIds(startLinkId, linkIds, endLinkId);
+			leg.setRoute(route);
+		} else {
+			leg.setRoute(RouteUtils.createGenericRouteImpl(startLinkId, endLinkId));
+			leg.getRoute().setTravelTime(3600.);
+			leg.getRoute().setDistance(5000.);
+			leg.setTravelTime(3600.);
+		}
+		return leg;
+	}
+
+	/**
+	 * Records the events as strings, and counts the sim steps.
+	 */
+	private static class EventsRecorder implements EventsManager {
+		private final EventsManager delegate = EventsUtils.createEventsManager();
+		final List<String> events = new ArrayList<>();
+		int simSteps = 0;
+
+		EventsRecorder() {
+			this.delegate.addHandler(new BasicEventHandler() {
+				@Override
+				public void handleEvent(Event event) {
+					events.add(event.toString());
+				}
+				@Override
+				public void reset(int iteration) {
+				}
+			});
+		}
+
+		@Override
+		public void processEvent(Event event) {
+			this.delegate.processEvent(event);
+		}
+
+		@Override
+		public void addHandler(EventHandler handler) {
+			this.delegate.addHandler(handler);
+		}
+
+		@Override
+		public void removeHandler(EventHandler handler) {
+			this.delegate.removeHandler(handler);
+		}
+
+		@Override
+		public void resetHandlers(int iteration) {
+			this.delegate.resetHandlers(iteration);
+		}
+
+		@Override
+		public void initProcessing() {
+			this.delegate.initProcessing();
+		}
+
+		@Override
+		public void afterSimStep(double time) {
+			this.simSteps++;
+			this.delegate.afterSimStep(time);
+		}
+
+		@Override
+		public void finishProcessing() {
+			this.delegate.finishProcessing();
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * HoleQueueTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.function.DoubleUnaryOperator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * @see HoleQueue
+ */
+public class HoleQueueTest {
+
+	@Test
+	public void testFifoOrder() {
+		HoleQueue holes = new HoleQueue();
+		Assert.assertTrue(holes.isEmpty());
+
+		holes.add(10., 1.);
+		holes.add(20., 2.);
+		holes.add(30., 3.);
+		Assert.assertEquals(3, holes.size());
+
+		Assert.assertEquals(10., holes.peekEarliestLinkExitTime(), 0.);
+		Assert.assertEquals(1., holes.poll(), 0.);
+		Assert.assertEquals(20., holes.peekEarliestLinkExitTime(), 0.);
+		Assert.assertEquals(2., holes.poll(), 0.);
+		Assert.assertEquals(30., holes.peekEarliestLinkExitTime(), 0.);
+		Assert.assertEquals(3., holes.poll(), 0.);
+		Assert.assertTrue(holes.isEmpty());
+	}
+
+	@Test
+	public void testGrowWhenWrappedAround() {
+		HoleQueue holes = new HoleQueue();
+		// move the head, so that the next holes wrap around the end of the initial array (capacity 4)
+		for (int i = 0; i < 3; i++) {
+			holes.add(i, i);
+			holes.poll();
+		}
+		// wrapped around, then grown twice (to 8, then to 16)
+		for (int i = 0; i < 10; i++) {
+			holes.add(100 + i, i);
+		}
+		Assert.assertEquals(10, holes.size());
+		assertContents(holes, 100, 10, exitTime -> exitTime - 100);
+
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals(100 + i, holes.peekEarliestLinkExitTime(), 0.);
+			Assert.assertEquals(i, holes.poll(), 0.);
+		}
+		Assert.assertTrue(holes.isEmpty());
+	}
+
+	@Test
+	public void testAddAndPollInterleaved() {
+		HoleQueue holes = new HoleQueue();
+		int added = 0;
+		int polled = 0;
+		// the queue keeps between 0 and 5 holes, so the head and tail wrap around many times
+		for (int round = 0; round < 100; round++) {
+			int toAdd = round % 6;
+			for (int i = 0; i < toAdd; i++) {
+				holes.add(added, 2. * added);
+				added++;
+			}
+			assertContents(holes, polled, added - polled, exitTime -> 2. * exitTime);
+			while (!holes.isEmpty()) {
+				Assert.assertEquals(polled, holes.peekEarliestLinkExitTime(), 0.);
+				Assert.assertEquals(2. * polled, holes.poll(), 0.);
+				polled++;
+			}
+		}
+		Assert.assertEquals(added, polled);
+	}
+
+	@Test
+	public void testClear() {
+		HoleQueue holes = new HoleQueue();
+		for (int i = 0; i < 6; i++) {
+			holes.add(i, i);
+		}
+		holes.poll();
+		holes.clear();
+		Assert.assertTrue(holes.isEmpty());
+		Assert.assertEquals(0, holes.copyEarliestLinkExitTimes().length);
+
+		holes.add(7., 8.);
+		Assert.assertEquals(7., holes.peekEarliestLinkExitTime(), 0.);
+		Assert.assertEquals(8., holes.poll(), 0.);
+	}
+
+	// the exit times are firstExitTime, firstExitTime + 1, ...
+	private static void assertContents(HoleQueue holes, double firstExitTime, int count,
+			DoubleUnaryOperator sizeOfExitTime) {
+		double[] exitTimes = holes.copyEarliestLinkExitTimes();
+		double[] sizes = holes.copySizesInEquivalents();
+		Assert.assertEquals(count, exitTimes.length);
+		Assert.assertEquals(count, sizes.length);
+		for (int i = 0; i < count; i++) {
+			Assert.assertEquals(firstExitTime + i, exitTimes[i], 0.);
+			Assert.assertEquals(sizeOfExitTime.applyAsDouble(firstExitTime + i), sizes[i], 0.);
+		}
+	}
+
+}
@@ -0,0 +1,84 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkPartitioningTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.NetworkPartitioning;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+
+/**
+ * With deterministic parallelism, the events must not depend on how the network is distributed among the threads.
+ */
+public class NetworkPartitioningTest {
+
+	@Test
+	public void testRegionsGiveSameEventsAsOneThread() {
+		List<String> oneThread = runQSim(1, NetworkPartitioning.roundRobin);
+		List<String> regions = runQSim(3, NetworkPartitioning.regions);
+
+		Assert.assertFalse(oneThread.isEmpty());
+		Assert.assertEquals(oneThread.size(), regions.size());
+		for (int i = 0; i < oneThread.size(); i++) {
+			Assert.assertEquals("different event at index " + i, oneThread.get(i), regions.get(i));
+		}
+	}
+
+	private static List<String> runQSim(int numberOfThreads, NetworkPartitioning networkPartitioning) {
+		Config config = ConfigUtils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		MatsimRandom.reset(config.global().getRandomSeed());
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setUsingDeterministicParallelism(true);
+		config.qsim().setNetworkPartitioning(networkPartitioning);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		List<String> events = new ArrayList<>();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		eventsManager.addHandler(new BasicEventHandler() {
+			@Override
+			public void handleEvent(Event event) {
+				events.add(event.toString());
+			}
+			@Override
+			public void reset(int iteration) {
+			}
+		});
+		new QSimBuilder(config).useDefaults().build(scenario, eventsManager).run();
+		return events;
+	}
+
+}
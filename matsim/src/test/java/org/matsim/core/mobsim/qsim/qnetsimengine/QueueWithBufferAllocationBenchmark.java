@@ -0,0 +1,153 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * QueueWithBufferAllocationBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.events.MobsimAfterSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimAfterSimStepListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Measures the bytes allocated per sim step of the QSim for a corridor on which many vehicles queue up, with holes.
+ * Not a test; run it with and without a change of the queues of {@link QueueWithBuffer} to compare.  Needs a JVM
+ * that supports {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long[])}.
+ * <p></p>
+ * Arguments (optional): number of links, number of persons, number of threads.
+ */
+public class QueueWithBufferAllocationBenchmark {
+	private static final Logger log = Logger.getLogger(QueueWithBufferAllocationBenchmark.class);
+
+	public static void main(String[] args) {
+		int numberOfLinks = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int numberOfPersons = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		int numberOfThreads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setTrafficDynamics(TrafficDynamics.withHoles);
+		config.qsim().setNumberOfThreads(numberOfThreads);
+		config.qsim().setEndTime(6 * 3600.);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		createCorridor(scenario, numberOfLinks, numberOfPersons);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		AllocationCounter counter = new AllocationCounter();
+		qsim.addQueueSimulationListeners(counter);
+
+		long start = System.currentTimeMillis();
+		qsim.run();
+		log.info("sim steps: " + counter.simSteps);
+		log.info("allocated bytes per sim step: " + (counter.allocatedBytes / Math.max(1, counter.simSteps)));
+		log.info("run time (ms): " + (System.currentTimeMillis() - start));
+	}
+
+	private static void createCorridor(Scenario scenario, int numberOfLinks, int numberOfPersons) {
+		Network network = scenario.getNetwork();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0., 0.));
+		for (int i = 1; i <= numberOfLinks; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(100. * i, 0.));
+			// the capacity drops in the middle of the corridor, so the vehicles queue up
+			double capacity = i == numberOfLinks / 2 ? 900. : 3600.;
+			Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(i), fromNode, toNode, 100., 15., capacity, 1.);
+			linkIds.add(link.getId());
+			fromNode = toNode;
+		}
+
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		Id<Link> firstLinkId = linkIds.get(0);
+		Id<Link> lastLinkId = linkIds.get(linkIds.size() - 1);
+		for (int i = 0; i < numberOfPersons; i++) {
+			Person person = pf.createPerson(Id.createPersonId(i));
+			Plan plan = pf.createPlan();
+			Activity home = pf.createActivityFromLinkId("h", firstLinkId);
+			home.setEndTime(i * 0.5);
+			plan.addActivity(home);
+			Leg leg = pf.createLeg(TransportMode.car);
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(firstLinkId, lastLinkId);
+			route.setLinkIds(firstLinkId, linkIds.subList(1, linkIds.size() - 1), lastLinkId);
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			plan.addActivity(pf.createActivityFromLinkId("w", lastLinkId));
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static class AllocationCounter implements MobsimBeforeSimStepListener, MobsimAfterSimStepListener {
+		private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		private long bytesAtStepStart;
+		long allocatedBytes = 0;
+		long simSteps = 0;
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.bytesAtStepStart = allocatedBytesOfAllThreads();
+		}
+
+		@Override
+		public void notifyMobsimAfterSimStep(MobsimAfterSimStepEvent e) {
+			this.allocatedBytes += allocatedBytesOfAllThreads() - this.bytesAtStepStart;
+			this.simSteps++;
+		}
+
+		private long allocatedBytesOfAllThreads() {
+			long sum = 0;
+			for (long bytes : this.threads.getThreadAllocatedBytes(this.threads.getAllThreadIds())) {
+				if (bytes > 0) {
+					sum += bytes;
+				}
+			}
+			return sum;
+		}
+	}
+
+}
@@ -0,0 +1,125 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * FIFOVehicleQTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim.qnetsimengine.vehicleq;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicle;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QVehicleImpl;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.vehicles.VehicleImpl;
+import org.matsim.vehicles.VehicleUtils;
+
+/**
+ * @see FIFOVehicleQ
+ */
+public class FIFOVehicleQTest {
+
+	@Test
+	public void testFifoOrderAndAddFirst() {
+		List<QVehicle> vehicles = createVehicles(3);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		Assert.assertNull(queue.peek());
+		Assert.assertNull(queue.poll());
+
+		queue.add(vehicles.get(1));
+		queue.add(vehicles.get(2));
+		queue.addFirst(vehicles.get(0));
+		Assert.assertEquals(vehicles, new ArrayList<>(queue));
+
+		Assert.assertSame(vehicles.get(0), queue.peek());
+		Assert.assertSame(vehicles.get(0), queue.poll());
+		Assert.assertSame(vehicles.get(1), queue.poll());
+		Assert.assertSame(vehicles.get(2), queue.poll());
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testGrowWhenWrappedAround() {
+		List<QVehicle> vehicles = createVehicles(100);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		// move the head, so that the next vehicles wrap around the end of the array, then make the queue grow
+		for (int i = 0; i < 10; i++) {
+			queue.add(vehicles.get(i));
+			queue.poll();
+		}
+		for (int i = 10; i < 100; i++) {
+			queue.add(vehicles.get(i));
+		}
+		Assert.assertEquals(90, queue.size());
+		Assert.assertEquals(vehicles.subList(10, 100), new ArrayList<>(queue));
+
+		for (int i = 10; i < 100; i++) {
+			Assert.assertSame(vehicles.get(i), queue.poll());
+		}
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	public void testRemove() {
+		List<QVehicle> vehicles = createVehicles(40);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		for (int i = 0; i < 20; i++) {
+			queue.add(vehicles.get(i));
+			queue.poll();
+		}
+		queue.addAll(vehicles.subList(20, 40));// wrapped around
+
+		Assert.assertTrue(queue.remove(vehicles.get(30)));// in the middle
+		Assert.assertTrue(queue.remove(vehicles.get(20)));// the head
+		Assert.assertTrue(queue.remove(vehicles.get(39)));// the tail
+		Assert.assertFalse(queue.remove(vehicles.get(0)));// not in the queue (any more)
+		Assert.assertFalse(queue.remove(vehicles.get(30)));
+
+		List<QVehicle> expected = new ArrayList<>(vehicles.subList(21, 39));
+		expected.remove(vehicles.get(30));
+		Assert.assertEquals(expected, new ArrayList<>(queue));
+		for (QVehicle v : expected) {
+			Assert.assertSame(v, queue.poll());
+		}
+		Assert.assertNull(queue.poll());
+	}
+
+	@Test
+	public void testRemoveViaIterator() {
+		List<QVehicle> vehicles = createVehicles(5);
+		FIFOVehicleQ queue = new FIFOVehicleQ();
+		queue.addAll(vehicles);
+
+		queue.removeIf(v -> v == vehicles.get(1) || v == vehicles.get(3));
+		Assert.assertEquals(Arrays.asList(vehicles.get(0), vehicles.get(2), vehicles.get(4)), new ArrayList<>(queue));
+	}
+
+	private static List<QVehicle> createVehicles(int count) {
+		List<QVehicle> vehicles = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			vehicles.add(new QVehicleImpl(
+					new VehicleImpl(Id.create(i, Vehicle.class), VehicleUtils.getDefaultVehicleType())));
+		}
+		return vehicles;
+	}
+
+}
@@ -277,6 +277,47 @@ public class TimeVariantLinkImplTest extends MatsimTestCase {
         }
 	}
 
+	/**
+	 * Tests that change events with the same start time are all applied, in the order in which they were added.
+	 */
+	public void testFreespeedChangesWithSameStartTime() {
+		for (LinkFactory lf : linkFactories(15 * 60, 30 * 3600)) {
+			final Network network = NetworkUtils.createNetwork();
+			NetworkFactory nf = network.getFactory();
+			nf.setLinkFactory(lf);
+			((NetworkImpl)network).setFactory(nf);
+
+			Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+			Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 100, (double) 0));
+			TimeVariantLinkImpl link = (TimeVariantLinkImpl)NetworkUtils.createAndAddLink(network,Id.create("1", Link.class), node1, node2, (double) 100, (double) 10, (double) 3600, (double) 1 );
+
+			// two changes at 8am, and one before them that is added last
+			NetworkChangeEvent change1 = new NetworkChangeEvent(8*3600.0);
+			change1.addLink(link);
+			change1.setFreespeedChange(new ChangeValue(ChangeType.FACTOR, 2.0));
+			link.applyEvent(change1);
+			NetworkChangeEvent change2 = new NetworkChangeEvent(8*3600.0);
+			change2.addLink(link);
+			change2.setFreespeedChange(new ChangeValue(ChangeType.OFFSET_IN_SI_UNITS, 5.0));
+			link.applyEvent(change2);
+			NetworkChangeEvent change3 = new NetworkChangeEvent(7*3600.0);
+			change3.addLink(link);
+			change3.setFreespeedChange(new ChangeValue(ChangeType.ABSOLUTE_IN_SI_UNITS, 20.0));
+			link.applyEvent(change3);
+
+			/* I would now expect the following speeds:
+			 * 0am-7am: 10
+			 * 7am-8am: 20
+			 * 8am and later: 20 * 2 + 5 = 45
+			 */
+			assertEquals(10.0, link.getFreespeed(7*3600.0 - 1.0), EPSILON);
+			assertEquals(20.0, link.getFreespeed(7*3600.0), EPSILON);
+			assertEquals(20.0, link.getFreespeed(8*3600.0 - 1.0), EPSILON);
+			assertEquals(45.0, link.getFreespeed(8*3600.0), EPSILON);
+			assertEquals(45.0, link.getFreespeed(20*3600.0), EPSILON);
+		}
+	}
+
 	/**
 	 * Tests whether an absolute change to the flow capacity really can be observed on the link .
 	 */
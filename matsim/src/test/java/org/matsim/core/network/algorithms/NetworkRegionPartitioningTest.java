@@ -0,0 +1,124 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * NetworkRegionPartitioningTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.network.algorithms;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.network.NetworkUtils;
+
+public class NetworkRegionPartitioningTest {
+
+	@Test
+	public void testFourRegionsOfGrid() {
+		Network network = createGrid(4);
+		NetworkRegionPartitioning partitioning = new NetworkRegionPartitioning(4);
+		partitioning.run(network);
+
+		int[] nodesPerRegion = new int[4];
+		for (Node node : network.getNodes().values()) {
+			nodesPerRegion[partitioning.getRegion(node.getId())]++;
+		}
+		for (int region = 0; region < 4; region++) {
+			Assert.assertEquals(4, nodesPerRegion[region]);
+		}
+		// the regions are the four quarters of the grid
+		for (int x = 0; x < 4; x++) {
+			for (int y = 0; y < 4; y++) {
+				Assert.assertEquals(partitioning.getRegion(nodeId(x / 2 * 2, y / 2 * 2)), partitioning.getRegion(nodeId(x, y)));
+			}
+		}
+		// 2 * 4 links cross the vertical and 2 * 4 links the horizontal middle line
+		Assert.assertEquals(16, partitioning.getNumberOfBoundaryLinks());
+	}
+
+	@Test
+	public void testOddNumberOfRegions() {
+		Network network = createGrid(6);
+		NetworkRegionPartitioning partitioning = new NetworkRegionPartitioning(3);
+		partitioning.run(network);
+
+		int[] nodesPerRegion = new int[3];
+		for (Node node : network.getNodes().values()) {
+			nodesPerRegion[partitioning.getRegion(node.getId())]++;
+		}
+		// the regions are balanced up to about one node
+		for (int region = 0; region < 3; region++) {
+			Assert.assertTrue(Math.abs(nodesPerRegion[region] - 12) <= 1);
+		}
+	}
+
+	@Test
+	public void testOneRegion() {
+		Network network = createGrid(3);
+		NetworkRegionPartitioning partitioning = new NetworkRegionPartitioning(1);
+		partitioning.run(network);
+
+		for (Node node : network.getNodes().values()) {
+			Assert.assertEquals(0, partitioning.getRegion(node.getId()).intValue());
+		}
+		Assert.assertEquals(0, partitioning.getNumberOfBoundaryLinks());
+		Assert.assertNull(partitioning.getRegion(Id.createNodeId("unknown")));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoRegions() {
+		new NetworkRegionPartitioning(0);
+	}
+
+	/**
+	 * A square grid with links in both directions between neighbouring nodes.
+	 */
+	private static Network createGrid(int size) {
+		Network network = NetworkUtils.createNetwork();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				NetworkUtils.createAndAddNode(network, nodeId(x, y), new Coord(100. * x, 100. * y));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					addLinks(network, nodeId(x, y), nodeId(x + 1, y));
+				}
+				if (y + 1 < size) {
+					addLinks(network, nodeId(x, y), nodeId(x, y + 1));
+				}
+			}
+		}
+		return network;
+	}
+
+	private static void addLinks(Network network, Id<Node> a, Id<Node> b) {
+		Node nodeA = network.getNodes().get(a);
+		Node nodeB = network.getNodes().get(b);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(a + "-" + b), nodeA, nodeB, 100., 10., 1000., 1.);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId(b + "-" + a), nodeB, nodeA, 100., 10., 1000., 1.);
+	}
+
+	private static Id<Node> nodeId(int x, int y) {
+		return Id.createNodeId(x + "_" + y);
+	}
+
+}
@@ -61,4 +61,45 @@ public class PopulationUtilsTest {
 				legCopy.getAttributes().getAttribute( "mpg" ) );
 	}
 
+	@Test
+	public void testPopulationCopy() {
+		final Population population = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		population.setName( "test population" );
+		population.getAttributes().putAttribute( "year" , 2018 );
+
+		final Person person = population.getFactory().createPerson(Id.createPersonId( "1" ));
+		person.getAttributes().putAttribute( "age" , 42 );
+		population.addPerson( person );
+
+		final Plan plan1 = population.getFactory().createPlan();
+		plan1.addActivity( population.getFactory().createActivityFromLinkId( "home" , Id.createLinkId( 1 ) ) );
+		plan1.setScore( 12.0 );
+		person.addPlan( plan1 );
+		final Plan plan2 = population.getFactory().createPlan();
+		plan2.addActivity( population.getFactory().createActivityFromLinkId( "work" , Id.createLinkId( 2 ) ) );
+		person.addPlan( plan2 );
+		person.setSelectedPlan( plan2 );
+
+		final Population copy = PopulationUtils.createPopulation(ConfigUtils.createConfig() );
+		PopulationUtils.copyFromTo( population , copy );
+
+		Assert.assertEquals( "test population" , copy.getName() );
+		Assert.assertEquals( 2018 , copy.getAttributes().getAttribute( "year" ) );
+		Assert.assertEquals( 1 , copy.getPersons().size() );
+
+		final Person personCopy = copy.getPersons().get( person.getId() );
+		Assert.assertNotSame( person , personCopy );
+		Assert.assertEquals( 42 , personCopy.getAttributes().getAttribute( "age" ) );
+		Assert.assertEquals( 2 , personCopy.getPlans().size() );
+		Assert.assertEquals( 12.0 , personCopy.getPlans().get( 0 ).getScore() , 0.0 );
+		Assert.assertSame( personCopy.getPlans().get( 1 ) , personCopy.getSelectedPlan() );
+		Assert.assertSame( personCopy , personCopy.getSelectedPlan().getPerson() );
+		Assert.assertNotSame( plan2.getPlanElements().get( 0 ) , personCopy.getSelectedPlan().getPlanElements().get( 0 ) );
+		Assert.assertEquals( "work" , ((Activity) personCopy.getSelectedPlan().getPlanElements().get( 0 )).getType() );
+
+		// changing the original does not change the copy:
+		person.removePlan( plan1 );
+		Assert.assertEquals( 2 , personCopy.getPlans().size() );
+	}
+
 }
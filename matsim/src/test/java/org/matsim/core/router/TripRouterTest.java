@@ -23,24 +23,73 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
+import org.matsim.analysis.IterationProfiler;
+import org.matsim.analysis.IterationProfiler.IterationProfile;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
 import org.matsim.api.core.v01.population.PlanElement;
 import org.matsim.api.core.v01.population.Plan;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.population.PopulationUtils;
 import org.matsim.facilities.ActivityFacility;
+import org.matsim.facilities.Facility;
 import org.matsim.utils.objectattributes.attributable.Attributes;
 
 /**
  * @author thibautd
  */
 public class TripRouterTest {
+	@Test
+	public void testProfilingTimersPerMode() {
+		RoutingModule module = new RoutingModule() {
+			@Override
+			public List<? extends PlanElement> calcRoute(Facility fromFacility, Facility toFacility, double departureTime,
+					Person person) {
+				return Collections.singletonList(PopulationUtils.createLeg("car"));
+			}
+
+			@Override
+			public StageActivityTypes getStageActivityTypes() {
+				return EmptyStageActivityTypes.INSTANCE;
+			}
+		};
+		TripRouter tripRouter = new TripRouter.Builder(ConfigUtils.createConfig())
+				.setRoutingModule("car", module)
+				.setRoutingModule("walk", module)
+				.build();
+		Facility facility = new ActivityWrapperFacility(
+				PopulationUtils.createActivityFromLinkId("h", Id.create("l", Link.class)));
+
+		IterationProfiler profiler = new IterationProfiler(true);
+		tripRouter.setProfiler(profiler);
+		profiler.beginIteration();
+		tripRouter.calcRoute("car", facility, facility, 0, null);
+		tripRouter.calcRoute("car", facility, facility, 0, null);
+		tripRouter.calcRoute("walk", facility, facility, 0, null);
+		tripRouter.setRoutingModule("bike", module);// registered after the profiler
+		tripRouter.calcRoute("bike", facility, facility, 0, null);
+
+		IterationProfile profile = profiler.finishIteration(0);
+		assertEquals(2L, profile.getCounts().get("router.car").longValue());
+		assertEquals(1L, profile.getCounts().get("router.walk").longValue());
+		assertEquals(1L, profile.getCounts().get("router.bike").longValue());
+
+		// a disabled profiler is not used at all
+		IterationProfiler disabledProfiler = new IterationProfiler(false);
+		tripRouter.setProfiler(disabledProfiler);
+		disabledProfiler.beginIteration();
+		tripRouter.calcRoute("car", facility, facility, 0, null);
+		assertTrue(disabledProfiler.finishIteration(0).getCounts().isEmpty());
+	}
+
 	@Test
 	public void testTripInsertion() {
 		Plan plan = PopulationUtils.createPlan();
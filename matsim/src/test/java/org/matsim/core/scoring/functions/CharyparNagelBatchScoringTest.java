@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * CharyparNagelBatchScoringTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.scoring.functions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup.ActivityParams;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.scoring.ScoringFunction;
+import org.matsim.core.utils.misc.Time;
+
+public class CharyparNagelBatchScoringTest {
+
+	@Test
+	public void testSameScoresAsSumScoringFunction() {
+		Config config = ConfigUtils.createConfig();
+		PlanCalcScoreConfigGroup scoring = config.planCalcScore();
+		scoring.getModes().get(TransportMode.car).setMonetaryDistanceRate(-0.0002);
+		scoring.getModes().get(TransportMode.car).setDailyMonetaryConstant(-3.0);
+		scoring.getModes().get(TransportMode.walk).setMarginalUtilityOfDistance(-0.001);
+		scoring.getModes().get(TransportMode.pt).setConstant(-1.0);
+		scoring.setLateArrival_utils_hr(-18.0);
+		scoring.setEarlyDeparture_utils_hr(-6.0);
+
+		ActivityParams home = new ActivityParams("h");
+		home.setTypicalDuration(14 * 3600);
+		scoring.addActivityParams(home);
+		ActivityParams work = new ActivityParams("w");
+		work.setTypicalDuration(8 * 3600);
+		work.setOpeningTime(7 * 3600);
+		work.setClosingTime(18 * 3600);
+		work.setLatestStartTime(9 * 3600);
+		work.setEarliestEndTime(16 * 3600);
+		scoring.addActivityParams(work);
+		ActivityParams shop = new ActivityParams("s");
+		shop.setTypicalDuration(3600);
+		shop.setMinimalDuration(1800);
+		scoring.addActivityParams(shop);
+
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Person person = PopulationUtils.getFactory().createPerson(Id.create("1", Person.class));
+		CharyparNagelScoringFunctionFactory factory = new CharyparNagelScoringFunctionFactory(scenario);
+
+		ScoringParameters params = new ScoringParameters.Builder(scoring, scoring.getScoringParameters(null), config.scenario()).build();
+		CharyparNagelBatchScoring batchScoring = new CharyparNagelBatchScoring(params);
+
+		Random random = new Random(4711);
+		List<Plan> plans = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			plans.add(createPlan(random, i % 3 == 0 ? "w" : "h"));
+		}
+		// a plan with only a morning activity:
+		Plan morningOnly = PopulationUtils.createPlan();
+		Activity act = PopulationUtils.createActivityFromCoord("h", new Coord(0, 0));
+		act.setEndTime(8 * 3600);
+		morningOnly.addActivity(act);
+		plans.add(morningOnly);
+
+		CharyparNagelBatchScoring.PlanArrays.Builder builder = new CharyparNagelBatchScoring.PlanArrays.Builder(batchScoring);
+		for (Plan plan : plans) {
+			builder.addPlan(plan);
+		}
+		CharyparNagelBatchScoring.PlanArrays batch = builder.build();
+		Assert.assertEquals(plans.size(), batch.getNumberOfPlans());
+
+		double[] scores = new double[batch.getNumberOfPlans()];
+		batchScoring.score(batch, scores);
+
+		for (int p = 0; p < plans.size(); p++) {
+			ScoringFunction sf = factory.createNewScoringFunction(person);
+			for (PlanElement pe : plans.get(p).getPlanElements()) {
+				if (pe instanceof Activity) {
+					sf.handleActivity((Activity) pe);
+				} else {
+					sf.handleLeg((Leg) pe);
+				}
+			}
+			sf.finish();
+			Assert.assertEquals("wrong score for plan " + p, sf.getScore(), scores[p], 0.0);
+		}
+
+		// scoring sub-ranges gives the same result:
+		double[] rangeScores = new double[batch.getNumberOfPlans()];
+		batchScoring.score(batch, rangeScores, 0, 50);
+		batchScoring.score(batch, rangeScores, 50, batch.getNumberOfPlans());
+		Assert.assertArrayEquals(scores, rangeScores, 0.0);
+	}
+
+	private static Plan createPlan(Random random, String lastType) {
+		String[] types = {"w", "s", "s"};
+		String[] modes = {TransportMode.car, TransportMode.walk, TransportMode.pt, TransportMode.car};
+
+		Plan plan = PopulationUtils.createPlan();
+		double now = 5 * 3600 + random.nextInt(4 * 3600);
+		Activity first = PopulationUtils.createActivityFromCoord("h", new Coord(0, 0));
+		first.setEndTime(now);
+		plan.addActivity(first);
+		for (int i = 0; i <= types.length; i++) {
+			double travelTime = 60 + random.nextInt(3600);
+			Leg leg = PopulationUtils.createLeg(modes[i]);
+			leg.setDepartureTime(now);
+			leg.setTravelTime(travelTime);
+			Route route = RouteUtils.createGenericRouteImpl(null, null);
+			route.setDistance(100 + random.nextInt(20000));
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			now += travelTime;
+
+			if (i < types.length) {
+				Activity act = PopulationUtils.createActivityFromCoord(types[i], new Coord(0, 0));
+				act.setStartTime(now);
+				now += random.nextInt(5 * 3600);
+				act.setEndTime(now);
+				plan.addActivity(act);
+			} else {
+				Activity last = PopulationUtils.createActivityFromCoord(lastType, new Coord(0, 0));
+				last.setStartTime(now);
+				last.setEndTime(Time.UNDEFINED_TIME);
+				plan.addActivity(last);
+			}
+		}
+		return plan;
+	}
+}
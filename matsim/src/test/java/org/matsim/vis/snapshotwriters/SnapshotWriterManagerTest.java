@@ -0,0 +1,161 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * SnapshotWriterManagerTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.vis.snapshotwriters;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+/**
+ * Runs the qsim on equil with a snapshot writer that records all snapshots.
+ */
+public class SnapshotWriterManagerTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriterThreadWritesSameSnapshots() {
+		List<String> snapshots = runQSim(0, 1., new RecordingSnapshotWriter());
+		Assert.assertTrue(snapshots.size() > 100);
+		Assert.assertEquals(snapshots, runQSim(1, 1., new RecordingSnapshotWriter()));
+		Assert.assertEquals(snapshots, runQSim(4, 1., new RecordingSnapshotWriter()));
+	}
+
+	@Test
+	public void testSampleIsDeterministic() {
+		List<String> snapshots = runQSim(0, 1., new RecordingSnapshotWriter());
+		List<String> sampledSnapshots = runQSim(0, 0.5, new RecordingSnapshotWriter());
+		Assert.assertEquals(sampledSnapshots, runQSim(0, 0.5, new RecordingSnapshotWriter()));
+		Assert.assertEquals(sampledSnapshots, runQSim(2, 0.5, new RecordingSnapshotWriter()));
+
+		// the sampled agents are in every snapshot in which they are in the full run, and no others
+		Set<String> sampledAgents = new HashSet<>();
+		Set<String> allAgents = new HashSet<>();
+		for (String line : sampledSnapshots) {
+			if (!line.startsWith("time ")) {
+				sampledAgents.add(line.split(" ")[0]);
+			}
+		}
+		List<String> expected = new ArrayList<>();
+		for (String line : snapshots) {
+			if (line.startsWith("time ")) {
+				expected.add(line);
+			} else {
+				allAgents.add(line.split(" ")[0]);
+				if (sampledAgents.contains(line.split(" ")[0])) {
+					expected.add(line);
+				}
+			}
+		}
+		Assert.assertEquals(expected, sampledSnapshots);
+		Assert.assertTrue(sampledAgents.size() > 0);
+		Assert.assertTrue(sampledAgents.size() < allAgents.size());
+	}
+
+	@Test
+	public void testWriterExceptionReachesMobsim() {
+		final RuntimeException writerException = new RuntimeException("snapshot writer failed");
+		RecordingSnapshotWriter failingWriter = new RecordingSnapshotWriter() {
+			@Override
+			public void endSnapshot() {
+				super.endSnapshot();
+				if (this.lines.size() > 100) {
+					throw writerException;
+				}
+			}
+		};
+		try {
+			runQSim(1, 1., failingWriter);
+			Assert.fail("expected the exception of the snapshot writer");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (cause != null && cause != writerException) {
+				cause = cause.getCause();
+			}
+			Assert.assertSame(writerException, cause);
+		}
+		Assert.assertFalse(failingWriter.finished);
+	}
+
+	private List<String> runQSim(int snapshotWriterQueueCapacity, double snapshotSample, RecordingSnapshotWriter writer) {
+		Config config = utils.loadConfig(IOUtils.newUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.qsim().setSnapshotPeriod(60.);
+		config.qsim().setSnapshotWriterQueueCapacity(snapshotWriterQueueCapacity);
+		config.qsim().setSnapshotSample(snapshotSample);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		SnapshotWriterManager manager = new SnapshotWriterManager(config);
+		manager.addSnapshotWriter(writer);
+		qsim.addQueueSimulationListeners(manager);
+		qsim.run();
+
+		Assert.assertTrue(writer.finished);
+		return writer.lines;
+	}
+
+	private static class RecordingSnapshotWriter implements SnapshotWriter {
+
+		final List<String> lines = new ArrayList<>();
+		boolean finished = false;
+
+		@Override
+		public void beginSnapshot(double time) {
+			this.lines.add("time " + time);
+		}
+
+		@Override
+		public void endSnapshot() {
+		}
+
+		@Override
+		public void addAgent(AgentSnapshotInfo position) {
+			Id<Person> id = position.getId();
+			this.lines.add(id + " " + position.getEasting() + " " + position.getNorthing() + " " + position.getAgentState());
+		}
+
+		@Override
+		public void finish() {
+			this.finished = true;
+		}
+
+	}
+
+}
@@ -22,11 +22,27 @@
 
 package org.matsim.withinday.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.OutputDirectoryHierarchy.OverwriteFileSetting;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
 import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.withinday.events.ReplanningEvent;
 
 public class ExampleWithinDayControllerTest {
 
@@ -42,4 +58,83 @@ public class ExampleWithinDayControllerTest {
         controler.run();
     }
 
+    /**
+     * Batched replanning replans the same agents with the same replanners, only in a different order and on other threads.
+     * Thus, the plans and the events must be the same; only the replanning events of a time step may be thrown in a different
+     * order, since they are thrown by the replanning threads.
+     */
+    @Test
+    public void testBatchedReplanningGivesSameResults() throws IOException {
+        String unbatchedDir = runWithinDay(false, 1);
+        String batchedDir = runWithinDay(true, 1);
+        String batchedParallelDir = runWithinDay(true, 4);
+
+        List<String> expectedPlans = readLines(unbatchedDir + "output_plans.xml.gz");
+        Assert.assertEquals(expectedPlans, readLines(batchedDir + "output_plans.xml.gz"));
+        Assert.assertEquals(expectedPlans, readLines(batchedParallelDir + "output_plans.xml.gz"));
+
+        List<List<String>> expectedEvents = readEvents(unbatchedDir + "ITERS/it.0/0.events.xml.gz");
+        Assert.assertFalse("no replanning events", expectedEvents.get(1).isEmpty());
+        Assert.assertEquals(expectedEvents, readEvents(batchedDir + "ITERS/it.0/0.events.xml.gz"));
+        Assert.assertEquals(expectedEvents, readEvents(batchedParallelDir + "ITERS/it.0/0.events.xml.gz"));
+    }
+
+    private String runWithinDay(boolean usingBatchedReplanning, int numberOfThreads) {
+        String outputDir = utils.getOutputDirectory() + (usingBatchedReplanning ? "batched_" + numberOfThreads : "unbatched") + "/";
+        Config config = utils.loadConfig("test/scenarios/equil/config.xml");
+        config.controler().setLastIteration(0);
+        config.controler().setOutputDirectory(outputDir);
+        config.controler().setOverwriteFileSetting(OverwriteFileSetting.deleteDirectoryIfExists);
+        config.global().setNumberOfThreads(numberOfThreads);
+        WithinDayConfigGroup withinDayConfig = ConfigUtils.addOrGetModule(config, WithinDayConfigGroup.GROUP_NAME, WithinDayConfigGroup.class);
+        withinDayConfig.setUsingBatchedReplanning(usingBatchedReplanning);
+        // so that also the few agents of equil are replanned by the threads
+        withinDayConfig.setMinNumberOfAgentsForParallelReplanning(1);
+        Controler controler = new Controler(config);
+        ExampleWithinDayController.configure(controler);
+        controler.run();
+        return outputDir;
+    }
+
+    /**
+     * @return the events except the replanning events in the order in which they were written, and the replanning events
+     * sorted per time step
+     */
+    private static List<List<String>> readEvents(String filename) {
+        final List<String> events = new ArrayList<>();
+        final List<String> replanningEvents = new ArrayList<>();
+        EventsManager eventsManager = EventsUtils.createEventsManager();
+        eventsManager.addHandler(new BasicEventHandler() {
+            @Override
+            public void handleEvent(Event event) {
+                if (event.getEventType().equals(ReplanningEvent.EVENT_TYPE)) {
+                    replanningEvents.add(event.getTime() + " " + event.getAttributes());
+                } else {
+                    events.add(event.toString());
+                }
+            }
+
+            @Override
+            public void reset(int iteration) {
+            }
+        });
+        new MatsimEventsReader(eventsManager).readFile(filename);
+        Collections.sort(replanningEvents);
+        List<List<String>> result = new ArrayList<>();
+        result.add(events);
+        result.add(replanningEvents);
+        return result;
+    }
+
+    private static List<String> readLines(String filename) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = IOUtils.getBufferedReader(filename)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
 }
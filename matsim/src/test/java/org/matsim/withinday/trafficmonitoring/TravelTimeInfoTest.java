@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * TravelTimeInfoTest.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.trafficmonitoring;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+import org.matsim.withinday.trafficmonitoring.WithinDayTravelTime.TravelTimeInfo;
+
+/**
+ * Tests the ring buffer in which {@link TravelTimeInfo} keeps the trips of the current time window.
+ */
+public class TravelTimeInfoTest {
+
+	private static final double DELTA = 1e-10;
+
+	@Test
+	public void testRemoveOldestTripsFirst() {
+		TravelTimeInfo info = new TravelTimeInfo();
+		info.init(4.0); // time window of 10 seconds
+
+		info.addTrip(1., 10.);
+		info.addTrip(2., 20.);
+		info.addTrip(3., 30.);
+		Assert.assertEquals(3, info.getNumberOfTrips());
+
+		Assert.assertEquals(0., info.removeTripsBefore(11.), DELTA);
+		Assert.assertEquals(10., info.removeTripsBefore(11.5), DELTA);
+		Assert.assertEquals(50., info.removeTripsBefore(14.), DELTA);
+		Assert.assertEquals(0, info.getNumberOfTrips());
+		Assert.assertEquals(0., info.removeTripsBefore(100.), DELTA);
+	}
+
+	@Test
+	public void testWrapAndGrow() {
+		TravelTimeInfo info = new TravelTimeInfo();
+		info.init(4.0); // time window of 10 seconds
+
+		// move the first trip to the middle of the initial capacity of 4
+		info.addTrip(1., 10.);
+		info.addTrip(2., 20.);
+		info.addTrip(3., 30.);
+		Assert.assertEquals(30., info.removeTripsBefore(12.5), DELTA);
+		Assert.assertEquals(1, info.getNumberOfTrips());
+
+		// wrap around the end of the buffer until it is full
+		info.addTrip(4., 40.);
+		info.addTrip(5., 50.);
+		info.addTrip(6., 60.);
+		Assert.assertEquals(4, info.getNumberOfTrips());
+
+		// grow while wrapped, then grow once more
+		for (int i = 7; i <= 20; i++) {
+			info.addTrip(i, 10. * i);
+		}
+		Assert.assertEquals(18, info.getNumberOfTrips());
+
+		// the trips must come out in the order in which they were added
+		Assert.assertEquals(30., info.removeTripsBefore(13.5), DELTA);
+		Assert.assertEquals(40. + 50. + 60., info.removeTripsBefore(16.5), DELTA);
+		Assert.assertEquals(14, info.getNumberOfTrips());
+		for (int i = 7; i <= 20; i++) {
+			Assert.assertEquals(10. * i, info.removeTripsBefore(i + 10.5), DELTA);
+		}
+		Assert.assertEquals(0, info.getNumberOfTrips());
+
+		// and the emptied buffer is still usable
+		info.addTrip(30., 300.);
+		info.addTrip(31., 310.);
+		Assert.assertEquals(2, info.getNumberOfTrips());
+		Assert.assertEquals(610., info.removeTripsBefore(50.), DELTA);
+	}
+
+	@Test
+	public void testAverageOverTimeWindow() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.createNodeId(1), new Coord(0., 0.));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.createNodeId(2), new Coord(100., 0.));
+		// free speed travel time of 10 seconds, i.e. an initial time window of 25 seconds
+		Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(1), node1, node2, 100., 10., 1800., 1.);
+
+		WithinDayTravelTime travelTime = new WithinDayTravelTime(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+		Assert.assertEquals(10., travelTime.getLinkTravelTime(link, 0., null, null), DELTA);
+
+		for (int i = 0; i < 10; i++) {
+			Id<Vehicle> vehicleId = Id.createVehicleId(i);
+			travelTime.handleEvent(new LinkEnterEvent(100. + i, vehicleId, link.getId()));
+			travelTime.handleEvent(new LinkLeaveEvent(100. + i + 12. + (i % 2), vehicleId, link.getId()));
+		}
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 122.));
+		Assert.assertEquals(12.5, travelTime.getLinkTravelTime(link, 122., null, null), DELTA);
+
+		// all trips have left the time window, so the link is back at free speed
+		travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, 200.));
+		Assert.assertEquals(10., travelTime.getLinkTravelTime(link, 200., null, null), DELTA);
+
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+	}
+
+}
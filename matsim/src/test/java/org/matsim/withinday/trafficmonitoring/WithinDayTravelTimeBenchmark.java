@@ -0,0 +1,164 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * WithinDayTravelTimeBenchmark.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2018 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.withinday.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.events.MobsimInitializedEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Measures the latency of {@link WithinDayTravelTime#getLinkTravelTime(Link, double, org.matsim.api.core.v01.population.Person, Vehicle)}
+ * while the travel times are updated: one thread feeds link enter and leave events and triggers the update of the averages
+ * every time step, the other threads read travel times of random links as fast as they can.  Not a test; the ring
+ * buffer that keeps the trips is tested in {@link TravelTimeInfoTest}.
+ * <p></p>
+ * Arguments (optional): number of reading threads, number of links, number of time steps.
+ */
+public class WithinDayTravelTimeBenchmark {
+
+	private static final Logger log = Logger.getLogger(WithinDayTravelTimeBenchmark.class);
+
+	private static final int READS_PER_SAMPLE = 1000;
+
+	public static void main(String[] args) throws InterruptedException {
+		int numberOfReaders = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		int numberOfLinks = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int numberOfTimeSteps = args.length > 2 ? Integer.parseInt(args[2]) : 3600;
+
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(2);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		List<Link> links = createLinks(scenario.getNetwork(), numberOfLinks);
+
+		WithinDayTravelTime travelTime = new WithinDayTravelTime(scenario, null);
+		travelTime.notifyMobsimInitialized(new MobsimInitializedEvent<>(null));
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Reader> readers = new ArrayList<>();
+		List<Thread> threads = new ArrayList<>();
+		for (int i = 0; i < numberOfReaders; i++) {
+			Reader reader = new Reader(travelTime, links, running, i);
+			readers.add(reader);
+			Thread thread = new Thread(reader, "WithinDayTravelTimeReader" + i);
+			threads.add(thread);
+			thread.start();
+		}
+
+		// every vehicle drives along a chain of links; a fraction of them is slowed down
+		Random random = new Random(4711);
+		int numberOfVehicles = numberOfLinks / 2;
+		long start = System.currentTimeMillis();
+		for (int step = 0; step < numberOfTimeSteps; step++) {
+			double time = step;
+			for (int v = 0; v < numberOfVehicles / 10; v++) {
+				Id<Vehicle> vehicleId = Id.createVehicleId(random.nextInt(numberOfVehicles));
+				Id<Link> linkId = links.get(random.nextInt(links.size())).getId();
+				travelTime.handleEvent(new LinkEnterEvent(time - 30. - random.nextInt(60), vehicleId, linkId));
+				travelTime.handleEvent(new LinkLeaveEvent(time, vehicleId, linkId));
+			}
+			travelTime.notifyMobsimBeforeSimStep(new MobsimBeforeSimStepEvent<>(null, time));
+		}
+		long updateTime = System.currentTimeMillis() - start;
+
+		running.set(false);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		travelTime.notifyMobsimBeforeCleanup(new MobsimBeforeCleanupEvent<>(null));
+
+		long reads = 0;
+		long nanos = 0;
+		long maxSampleNanos = 0;
+		for (Reader reader : readers) {
+			reads += reader.reads;
+			nanos += reader.nanos;
+			maxSampleNanos = Math.max(maxSampleNanos, reader.maxSampleNanos);
+		}
+		log.info("time steps: " + numberOfTimeSteps + ", run time of the updates (ms): " + updateTime);
+		log.info("reads: " + reads + " by " + numberOfReaders + " threads");
+		log.info("mean latency of getLinkTravelTime (ns): " + ((double) nanos / Math.max(1, reads)));
+		log.info("max mean latency over " + READS_PER_SAMPLE + " reads (ns): " + ((double) maxSampleNanos / READS_PER_SAMPLE));
+	}
+
+	private static List<Link> createLinks(Network network, int numberOfLinks) {
+		List<Link> links = new ArrayList<>();
+		Node fromNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(0), new Coord(0., 0.));
+		for (int i = 1; i <= numberOfLinks; i++) {
+			Node toNode = NetworkUtils.createAndAddNode(network, Id.createNodeId(i), new Coord(100. * i, 0.));
+			links.add(NetworkUtils.createAndAddLink(network, Id.createLinkId(i), fromNode, toNode, 500., 15., 1800., 1.));
+			fromNode = toNode;
+		}
+		return links;
+	}
+
+	private static class Reader implements Runnable {
+		private final WithinDayTravelTime travelTime;
+		private final List<Link> links;
+		private final AtomicBoolean running;
+		private final Random random;
+		long reads = 0;
+		long nanos = 0;
+		long maxSampleNanos = 0;
+		double checksum = 0.;
+
+		Reader(WithinDayTravelTime travelTime, List<Link> links, AtomicBoolean running, int seed) {
+			this.travelTime = travelTime;
+			this.links = links;
+			this.running = running;
+			this.random = new Random(seed);
+		}
+
+		@Override
+		public void run() {
+			while (this.running.get()) {
+				long start = System.nanoTime();
+				for (int i = 0; i < READS_PER_SAMPLE; i++) {
+					Link link = this.links.get(this.random.nextInt(this.links.size()));
+					this.checksum += this.travelTime.getLinkTravelTime(link, 0., null, null);
+				}
+				long sampleNanos = System.nanoTime() - start;
+				this.nanos += sampleNanos;
+				this.maxSampleNanos = Math.max(this.maxSampleNanos, sampleNanos);
+				this.reads += READS_PER_SAMPLE;
+			}
+		}
+	}
+
+}
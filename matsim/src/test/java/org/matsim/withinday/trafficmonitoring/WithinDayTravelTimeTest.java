@@ -47,7 +47,6 @@ import org.matsim.core.network.NetworkChangeEvent;
 import org.matsim.core.network.NetworkChangeEvent.ChangeType;
 import org.matsim.core.network.NetworkChangeEvent.ChangeValue;
 import org.matsim.core.network.NetworkUtils;
-import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.testcases.MatsimTestCase;
 import org.matsim.testcases.MatsimTestUtils;
@@ -161,8 +160,10 @@ public class WithinDayTravelTimeTest extends MatsimTestCase {
 	private static class MobsimListenerForTests implements MobsimInitializedListener, MobsimBeforeSimStepListener, 
 		MobsimAfterSimStepListener {
 		
-		private TravelTime travelTime;
+		private WithinDayTravelTime travelTime;
 		private final Link link ;
+		private double lastTravelTime;
+		private long lastTravelTimeUpdateCount;
 		private boolean isUsingFastCapacityUpdate;
 		private int t1 = 6*3600;
 		private int t2 = 6*3600 + 5*60;
@@ -173,7 +174,7 @@ public class WithinDayTravelTimeTest extends MatsimTestCase {
 		private int t7 = 6*3600 + 45*60;
 		private int t8 = 7*3600;
 		
-		public MobsimListenerForTests(Scenario scenario, TravelTime travelTime) {
+		public MobsimListenerForTests(Scenario scenario, WithinDayTravelTime travelTime) {
 			this.travelTime = travelTime;
 			this.isUsingFastCapacityUpdate = scenario.getConfig().qsim().isUsingFastCapacityUpdate();
 			Id<Link> id = Id.create("6", Link.class);
@@ -191,11 +192,29 @@ public class WithinDayTravelTimeTest extends MatsimTestCase {
 			assertEquals(link.getLength()/link.getFreespeed(t6), travelTime.getLinkTravelTime(link, t6, null, null));
 			assertEquals(link.getLength()/link.getFreespeed(t7), travelTime.getLinkTravelTime(link, t7, null, null));
 			assertEquals(link.getLength()/link.getFreespeed(t8), travelTime.getLinkTravelTime(link, t8, null, null));
+
+			lastTravelTime = travelTime.getLinkTravelTime(link, t1, null, null);
+			lastTravelTimeUpdateCount = travelTime.getTravelTimeUpdateCount();
+			assertTrue(lastTravelTimeUpdateCount > 0);
 		}
 
 		@Override
 		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
 		    checkLinkTravelTimes(e.getSimulationTime());
+		    checkTravelTimeUpdateCount();
+		}
+
+		// the travel times have been updated in this time step (the travelTime listener is notified first)
+		private void checkTravelTimeUpdateCount() {
+			double currentTravelTime = travelTime.getLinkTravelTime(link, t1, null, null);
+			long travelTimeUpdateCount = travelTime.getTravelTimeUpdateCount();
+			if (currentTravelTime != lastTravelTime) {
+				assertEquals(lastTravelTimeUpdateCount + 1, travelTimeUpdateCount);
+			} else {
+				assertTrue(travelTimeUpdateCount <= lastTravelTimeUpdateCount + 1);
+			}
+			lastTravelTime = currentTravelTime;
+			lastTravelTimeUpdateCount = travelTimeUpdateCount;
 		}
 
 		@Override